@@ -0,0 +1,38 @@
+package com.db.awmd.challenge.benchmark;
+
+import java.io.File;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs the selected benchmarks once per thread count with the GC profiler, so allocation rates
+ * are reported next to throughput. Arguments: include pattern, comma-separated thread counts and
+ * the directory for the JSON results.
+ */
+public class BenchmarkRunner {
+
+  public static void main(String[] args) throws RunnerException {
+    String include = args.length > 0 ? args[0] : ".*";
+    String threadCounts = args.length > 1 ? args[1] : "1,4,16,64";
+    File resultDirectory = new File(args.length > 2 ? args[2] : "build/reports/jmh");
+    resultDirectory.mkdirs();
+
+    for (String threadCount : threadCounts.split(",")) {
+      int threads = Integer.parseInt(threadCount.trim());
+      Options options = new OptionsBuilder()
+        .include(BenchmarkRunner.class.getPackage().getName() + "." + include)
+        .exclude(BenchmarkRunner.class.getSimpleName())
+        .threads(threads)
+        .addProfiler(GCProfiler.class)
+        .resultFormat(ResultFormatType.JSON)
+        .result(new File(resultDirectory, "results-" + threads + "-threads.json").getPath())
+        .build();
+      new Runner(options).run();
+    }
+  }
+}
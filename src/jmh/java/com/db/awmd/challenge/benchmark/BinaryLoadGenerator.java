@@ -0,0 +1,136 @@
+package com.db.awmd.challenge.benchmark;
+
+import com.db.awmd.challenge.web.BinaryTransferProtocol;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.util.SplittableRandom;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+
+/**
+ * Load generator for the binary transfer endpoint: every connection keeps {@code pipeline}
+ * transfers between random accounts in flight for the given duration and sends a new one as soon
+ * as a response arrives. Throughput, status counts and latency percentiles are printed like
+ * {@link HttpLoadGenerator} does, so the two endpoints can be compared.
+ *
+ * <p>Arguments: host, port, connections, pipeline depth, duration in seconds, number of accounts
+ * and the base URL of the JSON endpoint, which is used to create the accounts.
+ */
+public final class BinaryLoadGenerator {
+
+  private static final long HIGHEST_LATENCY = TimeUnit.MINUTES.toNanos(1);
+
+  private static final BigDecimal AMOUNT = new BigDecimal("0.01");
+
+  private BinaryLoadGenerator() {
+  }
+
+  public static void main(String[] args) throws Exception {
+    String host = args.length > 0 ? args[0] : "localhost";
+    int port = args.length > 1 ? Integer.parseInt(args[1]) : 18081;
+    int connections = args.length > 2 ? Integer.parseInt(args[2]) : 8;
+    int pipeline = args.length > 3 ? Integer.parseInt(args[3]) : 64;
+    long durationNanos = TimeUnit.SECONDS.toNanos(args.length > 4 ? Long.parseLong(args[4]) : 30);
+    int accounts = args.length > 5 ? Integer.parseInt(args[5]) : 100;
+    String accountsUrl = args.length > 6 ? args[6] : "http://localhost:18080/v1/accounts";
+
+    String prefix = "Binary-" + System.currentTimeMillis() + "-";
+    String[] accountIds = new String[accounts];
+    for (int i = 0; i < accounts; i++) {
+      accountIds[i] = prefix + i;
+      HttpLoadGenerator.send("POST", accountsUrl, "{\"accountId\":\"" + accountIds[i] + "\",\"balance\":1000000000}");
+    }
+
+    Recorder latencies = new Recorder(HIGHEST_LATENCY, 3);
+    LongAdder succeeded = new LongAdder();
+    LongAdder busy = new LongAdder();
+    LongAdder errors = new LongAdder();
+    CountDownLatch done = new CountDownLatch(connections);
+    long deadline = System.nanoTime() + durationNanos;
+
+    for (int c = 0; c < connections; c++) {
+      SplittableRandom random = new SplittableRandom(c);
+      Thread client = new Thread(() -> {
+        try (SocketChannel channel = SocketChannel.open(new InetSocketAddress(host, port))) {
+          channel.socket().setTcpNoDelay(true);
+          ByteBuffer requests = ByteBuffer.allocateDirect(pipeline * BinaryTransferProtocol.MAX_REQUEST_LENGTH);
+          ByteBuffer responses = ByteBuffer.allocateDirect(pipeline * BinaryTransferProtocol.RESPONSE_LENGTH);
+          // The correlation id is the slot of the request, which holds its send time.
+          long[] sentAt = new long[pipeline];
+          for (int slot = 0; slot < pipeline; slot++) {
+            sentAt[slot] = request(requests, slot, accountIds, random);
+          }
+          int inFlight = pipeline;
+          while (inFlight > 0) {
+            requests.flip();
+            while (requests.hasRemaining()) {
+              channel.write(requests);
+            }
+            requests.clear();
+
+            if (channel.read(responses) < 0) {
+              throw new IOException("Connection closed by the server");
+            }
+            responses.flip();
+            while (responses.remaining() >= BinaryTransferProtocol.RESPONSE_LENGTH) {
+              responses.getInt();
+              int slot = (int) responses.getLong();
+              byte status = responses.get();
+              long now = System.nanoTime();
+              latencies.recordValue(Math.min(now - sentAt[slot], HIGHEST_LATENCY));
+              if (status == BinaryTransferProtocol.COMPLETED) {
+                succeeded.increment();
+              } else if (status == BinaryTransferProtocol.BUSY || status == BinaryTransferProtocol.LOCK_TIMEOUT) {
+                busy.increment();
+              } else {
+                errors.increment();
+              }
+              if (now < deadline) {
+                sentAt[slot] = request(requests, slot, accountIds, random);
+              } else {
+                inFlight--;
+              }
+            }
+            responses.compact();
+          }
+        } catch (IOException exception) {
+          System.err.println("Connection failed: " + exception);
+        } finally {
+          done.countDown();
+        }
+      }, "binary-load-client-" + c);
+      client.setDaemon(true);
+      client.start();
+    }
+    done.await();
+
+    Histogram histogram = latencies.getIntervalHistogram();
+    double seconds = durationNanos / 1e9;
+    System.out.printf("%s:%d connections=%d pipeline=%d%n", host, port, connections, pipeline);
+    System.out.printf("throughput=%.0f/s succeeded=%d busy=%d errors=%d%n",
+      succeeded.sum() / seconds, succeeded.sum(), busy.sum(), errors.sum());
+    System.out.printf("latency ms p50=%.2f p90=%.2f p99=%.2f p99.9=%.2f max=%.2f%n",
+      millis(histogram.getValueAtPercentile(50)), millis(histogram.getValueAtPercentile(90)),
+      millis(histogram.getValueAtPercentile(99)), millis(histogram.getValueAtPercentile(99.9)),
+      millis(histogram.getMaxValue()));
+  }
+
+  private static long request(ByteBuffer requests, int slot, String[] accountIds, SplittableRandom random) {
+    int from = random.nextInt(accountIds.length);
+    int to = (from + 1 + random.nextInt(accountIds.length - 1)) % accountIds.length;
+    BinaryTransferProtocol.writeRequest(requests, slot, accountIds[from], accountIds[to], AMOUNT, null);
+    return System.nanoTime();
+  }
+
+  private static double millis(long nanos) {
+    return nanos / 1e6;
+  }
+}
@@ -0,0 +1,154 @@
+package com.db.awmd.challenge.benchmark;
+
+import com.db.awmd.challenge.domain.Account;
+import com.db.awmd.challenge.domain.TransferMoneyDTO;
+import com.db.awmd.challenge.repository.AccountsRepositoryInMemory;
+import com.db.awmd.challenge.service.AccountLockManager;
+import com.db.awmd.challenge.service.AccountsService;
+import com.db.awmd.challenge.service.AuditEpochs;
+import com.db.awmd.challenge.service.IdempotencyCache;
+import com.db.awmd.challenge.service.LockingTransferEngine;
+import com.db.awmd.challenge.service.TransactionHistory;
+import com.db.awmd.challenge.service.TransferLogger;
+import com.db.awmd.challenge.service.TransferMetrics;
+import com.db.awmd.challenge.service.VirtualThreads;
+
+import java.math.BigDecimal;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+
+/**
+ * Closed-loop comparison of platform and virtual threads: {@code clients} clients each keep one
+ * request in flight, where a request is a transfer through {@link AccountsService} followed by
+ * {@code io-ms} of blocking I/O standing in for the database and downstream calls. Platform mode
+ * runs requests on a pool the size of Tomcat's default (200 threads), virtual mode on one virtual
+ * thread per request.
+ *
+ * <p>Arguments: platform|virtual, clients (10000), duration in seconds (30), io-ms (5), accounts (1000).
+ */
+public final class ConcurrentClientsBenchmark {
+
+  private static final int PLATFORM_THREADS = 200;
+
+  private ConcurrentClientsBenchmark() {
+  }
+
+  public static void main(String[] args) throws Exception {
+    String mode = args.length > 0 ? args[0] : "virtual";
+    int clients = args.length > 1 ? Integer.parseInt(args[1]) : 10_000;
+    long durationNanos = TimeUnit.SECONDS.toNanos(args.length > 2 ? Long.parseLong(args[2]) : 30);
+    long ioMillis = args.length > 3 ? Long.parseLong(args[3]) : 5;
+    int accounts = args.length > 4 ? Integer.parseInt(args[4]) : 1000;
+
+    ExecutorService executor = "virtual".equals(mode)
+      ? VirtualThreads.newThreadPerTaskExecutor("client-")
+      : Executors.newFixedThreadPool(PLATFORM_THREADS);
+    if (executor == null) {
+      throw new IllegalStateException("Virtual threads need JDK 21 or later");
+    }
+
+    AccountsRepositoryInMemory accountsRepository = new AccountsRepositoryInMemory();
+    TransferMetrics transferMetrics = new TransferMetrics(false, 0);
+    AccountsService accountsService = new AccountsService(accountsRepository, (account, description) -> { },
+      new LockingTransferEngine(accountsRepository, new AccountLockManager(5000, transferMetrics), transferMetrics,
+        new AuditEpochs(), new TransactionHistory(true, 32), new String[0], 16),
+      transferMetrics, new TransferLogger("off", 0), new IdempotencyCache(1000, 1), 0);
+    for (int i = 0; i < accounts; i++) {
+      accountsService.createAccount(new Account(TransferBenchmark.accountId(i), new BigDecimal("1000000000.00")));
+    }
+
+    Recorder latencies = new Recorder(TimeUnit.MINUTES.toNanos(1), 3);
+    LongAdder completed = new LongAdder();
+    LongAdder failed = new LongAdder();
+    long start = System.nanoTime();
+    long deadline = start + durationNanos;
+    for (int c = 0; c < clients; c++) {
+      new Client(executor, accountsService, new SplittableRandom(c), accounts, ioMillis, deadline, latencies,
+        completed, failed).submit();
+    }
+
+    TimeUnit.NANOSECONDS.sleep(durationNanos);
+    executor.shutdownNow();
+    executor.awaitTermination(10, TimeUnit.SECONDS);
+
+    Histogram histogram = latencies.getIntervalHistogram();
+    double seconds = (System.nanoTime() - start) / 1e9;
+    System.out.printf("%s threads, %d clients, %d ms I/O per request%n", mode, clients, ioMillis);
+    System.out.printf("throughput=%.0f/s completed=%d failed=%d%n", completed.sum() / seconds, completed.sum(),
+      failed.sum());
+    System.out.printf("latency ms p50=%.2f p99=%.2f max=%.2f%n", histogram.getValueAtPercentile(50) / 1e6,
+      histogram.getValueAtPercentile(99) / 1e6, histogram.getMaxValue() / 1e6);
+  }
+
+  private static final class Client implements Runnable {
+
+    private final ExecutorService executor;
+
+    private final AccountsService accountsService;
+
+    private final SplittableRandom random;
+
+    private final int accounts;
+
+    private final long ioMillis;
+
+    private final long deadline;
+
+    private final Recorder latencies;
+
+    private final LongAdder completed;
+
+    private final LongAdder failed;
+
+    private long submitted;
+
+    private Client(ExecutorService executor, AccountsService accountsService, SplittableRandom random, int accounts,
+      long ioMillis, long deadline, Recorder latencies, LongAdder completed, LongAdder failed) {
+      this.executor = executor;
+      this.accountsService = accountsService;
+      this.random = random;
+      this.accounts = accounts;
+      this.ioMillis = ioMillis;
+      this.deadline = deadline;
+      this.latencies = latencies;
+      this.completed = completed;
+      this.failed = failed;
+    }
+
+    private void submit() {
+      submitted = System.nanoTime();
+      if (submitted < deadline && !executor.isShutdown()) {
+        try {
+          executor.execute(this);
+        } catch (RejectedExecutionException exception) {
+          // shutting down
+        }
+      }
+    }
+
+    @Override
+    public void run() {
+      int from = random.nextInt(accounts);
+      int to = (from + 1 + random.nextInt(accounts - 1)) % accounts;
+      try {
+        accountsService.transferMoneyBetweenAccounts(new TransferMoneyDTO(TransferBenchmark.accountId(from),
+          TransferBenchmark.accountId(to), new BigDecimal("0.01")));
+        Thread.sleep(ioMillis);
+        latencies.recordValue(Math.min(System.nanoTime() - submitted, TimeUnit.MINUTES.toNanos(1)));
+        completed.increment();
+      } catch (InterruptedException exception) {
+        return;
+      } catch (Exception exception) {
+        failed.increment();
+      }
+      submit();
+    }
+  }
+}
@@ -0,0 +1,83 @@
+package com.db.awmd.challenge.benchmark;
+
+import com.db.awmd.challenge.domain.Account;
+import com.db.awmd.challenge.domain.TransferOutcome;
+import com.db.awmd.challenge.repository.AccountsRepositoryInMemory;
+import com.db.awmd.challenge.service.AccountLockManager;
+import com.db.awmd.challenge.service.AuditEpochs;
+import com.db.awmd.challenge.service.LockingTransferEngine;
+import com.db.awmd.challenge.service.TransactionHistory;
+import com.db.awmd.challenge.service.TransferMetrics;
+
+import java.math.BigDecimal;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Single-hot-destination workload: every thread transfers from random source accounts into the
+ * same account, with the destination either locked like any other account or striped.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(Threads.MAX)
+public class HotAccountBenchmark {
+
+  private static final String HOT_ACCOUNT_ID = "Id-hot";
+
+  private static final BigDecimal AMOUNT = new BigDecimal("0.01");
+
+  @Param({"false", "true"})
+  public boolean striped;
+
+  @Param("16")
+  public int stripes;
+
+  @Param("10000")
+  public int accounts;
+
+  private LockingTransferEngine transferEngine;
+
+  private Account[] sources;
+
+  private Account hotAccount;
+
+  @Setup(Level.Trial)
+  public void setUp() {
+    AccountsRepositoryInMemory accountsRepository = new AccountsRepositoryInMemory();
+    TransferMetrics transferMetrics = new TransferMetrics(false, 0);
+    transferEngine = new LockingTransferEngine(accountsRepository, new AccountLockManager(5000, transferMetrics),
+      transferMetrics, new AuditEpochs(), new TransactionHistory(false, 32),
+      striped ? new String[] {HOT_ACCOUNT_ID} : new String[0], stripes);
+    hotAccount = new Account(HOT_ACCOUNT_ID, BigDecimal.ZERO);
+    transferEngine.onAccountCreated(hotAccount);
+    sources = new Account[accounts];
+    for (int i = 0; i < accounts; i++) {
+      sources[i] = new Account(TransferBenchmark.accountId(i), new BigDecimal("1000000000.00"));
+      transferEngine.onAccountCreated(sources[i]);
+    }
+  }
+
+  @Benchmark
+  public TransferOutcome transferToHotAccount() {
+    Account source = sources[ThreadLocalRandom.current().nextInt(sources.length)];
+    return transferEngine.tryTransfer(source, hotAccount, AMOUNT);
+  }
+}
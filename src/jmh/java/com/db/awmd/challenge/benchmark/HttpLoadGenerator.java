@@ -0,0 +1,121 @@
+package com.db.awmd.challenge.benchmark;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.SplittableRandom;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+
+/**
+ * Closed-loop HTTP load generator: {@code concurrency} client threads each send one transfer at
+ * a time between random accounts for the given duration, then throughput, status counts and
+ * latency percentiles are printed. Point it at {@code /v1/accounts} and {@code /v1/async/accounts}
+ * to compare the servlet and the asynchronous endpoints.
+ *
+ * <p>Arguments: base URL, concurrency, duration in seconds, number of accounts.
+ */
+public final class HttpLoadGenerator {
+
+  private static final byte[] DISCARD = new byte[8192];
+
+  private HttpLoadGenerator() {
+  }
+
+  public static void main(String[] args) throws Exception {
+    String baseUrl = args.length > 0 ? args[0] : "http://localhost:18080/v1/accounts";
+    int concurrency = args.length > 1 ? Integer.parseInt(args[1]) : 256;
+    long durationNanos = TimeUnit.SECONDS.toNanos(args.length > 2 ? Long.parseLong(args[2]) : 30);
+    int accounts = args.length > 3 ? Integer.parseInt(args[3]) : 100;
+    System.setProperty("http.maxConnections", String.valueOf(concurrency));
+
+    // Accounts are always created through the servlet endpoint, the async one only transfers.
+    String accountsUrl = baseUrl.replace("/async/", "/");
+    String prefix = "Load-" + System.currentTimeMillis() + "-";
+    for (int i = 0; i < accounts; i++) {
+      send("POST", accountsUrl, "{\"accountId\":\"" + prefix + i + "\",\"balance\":1000000000}");
+    }
+
+    Recorder latencies = new Recorder(TimeUnit.MINUTES.toNanos(1), 3);
+    LongAdder succeeded = new LongAdder();
+    LongAdder rejected = new LongAdder();
+    LongAdder errors = new LongAdder();
+    CountDownLatch done = new CountDownLatch(concurrency);
+    long deadline = System.nanoTime() + durationNanos;
+
+    for (int t = 0; t < concurrency; t++) {
+      SplittableRandom random = new SplittableRandom(t);
+      Thread client = new Thread(() -> {
+        try {
+          while (System.nanoTime() < deadline) {
+            int from = random.nextInt(accounts);
+            int to = (from + 1 + random.nextInt(accounts - 1)) % accounts;
+            String body = "{\"accountFromId\":\"" + prefix + from + "\",\"accountToId\":\"" + prefix + to
+              + "\",\"amountToTransfer\":0.01}";
+            long start = System.nanoTime();
+            try {
+              int status = send("PUT", baseUrl + "/transfer", body);
+              latencies.recordValue(Math.min(System.nanoTime() - start, TimeUnit.MINUTES.toNanos(1)));
+              if (status == 200) {
+                succeeded.increment();
+              } else if (status == 503) {
+                rejected.increment();
+              } else {
+                errors.increment();
+              }
+            } catch (IOException exception) {
+              errors.increment();
+            }
+          }
+        } finally {
+          done.countDown();
+        }
+      }, "load-client-" + t);
+      client.setDaemon(true);
+      client.start();
+    }
+    done.await();
+
+    Histogram histogram = latencies.getIntervalHistogram();
+    double seconds = durationNanos / 1e9;
+    System.out.printf("%s concurrency=%d%n", baseUrl, concurrency);
+    System.out.printf("throughput=%.0f/s succeeded=%d rejected=%d errors=%d%n",
+      succeeded.sum() / seconds, succeeded.sum(), rejected.sum(), errors.sum());
+    System.out.printf("latency ms p50=%.2f p90=%.2f p99=%.2f p99.9=%.2f max=%.2f%n",
+      millis(histogram.getValueAtPercentile(50)), millis(histogram.getValueAtPercentile(90)),
+      millis(histogram.getValueAtPercentile(99)), millis(histogram.getValueAtPercentile(99.9)),
+      millis(histogram.getMaxValue()));
+  }
+
+  static int send(String method, String url, String json) throws IOException {
+    HttpURLConnection connection = (HttpURLConnection) new URL(url).openConnection();
+    connection.setRequestMethod(method);
+    connection.setDoOutput(true);
+    connection.setRequestProperty("Content-Type", "application/json");
+    try (OutputStream output = connection.getOutputStream()) {
+      output.write(json.getBytes(StandardCharsets.UTF_8));
+    }
+    int status = connection.getResponseCode();
+    // Drain the body so that the connection goes back to the keep-alive pool.
+    InputStream input = status < 400 ? connection.getInputStream() : connection.getErrorStream();
+    if (input != null) {
+      try (InputStream body = input) {
+        while (body.read(DISCARD) >= 0) {
+          // discard
+        }
+      }
+    }
+    return status;
+  }
+
+  private static double millis(long nanos) {
+    return nanos / 1e6;
+  }
+}
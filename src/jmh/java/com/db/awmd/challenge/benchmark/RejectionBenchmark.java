@@ -0,0 +1,147 @@
+package com.db.awmd.challenge.benchmark;
+
+import com.db.awmd.challenge.domain.Account;
+import com.db.awmd.challenge.domain.TransferMoneyDTO;
+import com.db.awmd.challenge.exception.AccountDoesntExistException;
+import com.db.awmd.challenge.exception.AccountNegativeBalanceException;
+import com.db.awmd.challenge.exception.AmountTransferGreaterThanZeroException;
+import com.db.awmd.challenge.exception.SameAccountException;
+import com.db.awmd.challenge.repository.AccountsRepositoryInMemory;
+import com.db.awmd.challenge.service.AccountLockManager;
+import com.db.awmd.challenge.service.AccountsService;
+import com.db.awmd.challenge.service.AuditEpochs;
+import com.db.awmd.challenge.service.IdempotencyCache;
+import com.db.awmd.challenge.service.LockingTransferEngine;
+import com.db.awmd.challenge.service.TransactionHistory;
+import com.db.awmd.challenge.service.TransferLogger;
+import com.db.awmd.challenge.service.TransferMetrics;
+import com.db.awmd.challenge.web.TransferResponses;
+
+import java.math.BigDecimal;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+
+/**
+ * Throughput of the transfer endpoint path when most transfers are rejected, comparing the
+ * checked exceptions of {@link AccountsService#transferMoneyBetweenAccounts} with the outcomes of
+ * {@link AccountsService#transfer}. Rejections are spread evenly over insufficient funds, unknown
+ * accounts and same-account transfers.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RejectionBenchmark {
+
+  private static final int TRANSFERS_PER_THREAD = 1 << 14;
+
+  private static final AtomicLong SEEDS = new AtomicLong();
+
+  @Param({"exceptions", "outcomes"})
+  public String path;
+
+  @Param({"50", "90", "100"})
+  public int rejectedPercent;
+
+  @Param("10000")
+  public int accounts;
+
+  private AccountsService accountsService;
+
+  private boolean exceptions;
+
+  @Setup(Level.Trial)
+  public void setUp() {
+    AccountsRepositoryInMemory accountsRepository = new AccountsRepositoryInMemory();
+    TransferMetrics transferMetrics = new TransferMetrics(true, 10);
+    LockingTransferEngine transferEngine = new LockingTransferEngine(accountsRepository,
+      new AccountLockManager(500, transferMetrics), transferMetrics, new AuditEpochs(),
+      new TransactionHistory(true, 32), new String[0], 16);
+    accountsService = new AccountsService(accountsRepository, (account, description) -> { }, transferEngine,
+      transferMetrics, new TransferLogger("off", 0), new IdempotencyCache(600000, 100000), 0);
+    // Even accounts are funded, odd accounts are empty and can never send money.
+    for (int i = 0; i < accounts; i++) {
+      accountsService.createAccount(new Account(TransferBenchmark.accountId(i),
+        i % 2 == 0 ? new BigDecimal("1000000000.00") : BigDecimal.ZERO));
+    }
+    exceptions = "exceptions".equals(path);
+  }
+
+  @State(Scope.Thread)
+  public static class Transfers {
+
+    private TransferMoneyDTO[] transfers;
+
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp(RejectionBenchmark benchmark) {
+      SplittableRandom random = new SplittableRandom(SEEDS.incrementAndGet());
+      int pairs = benchmark.accounts / 2;
+      BigDecimal amount = new BigDecimal("0.01");
+      transfers = new TransferMoneyDTO[TRANSFERS_PER_THREAD];
+      for (int i = 0; i < TRANSFERS_PER_THREAD; i++) {
+        int funded = random.nextInt(pairs) * 2;
+        int empty = random.nextInt(pairs) * 2 + 1;
+        if (random.nextInt(100) >= benchmark.rejectedPercent) {
+          transfers[i] = new TransferMoneyDTO(TransferBenchmark.accountId(funded), TransferBenchmark.accountId(empty), amount);
+          continue;
+        }
+        switch (random.nextInt(3)) {
+          case 0:
+            transfers[i] = new TransferMoneyDTO(TransferBenchmark.accountId(empty), TransferBenchmark.accountId(funded), amount);
+            break;
+          case 1:
+            transfers[i] = new TransferMoneyDTO(TransferBenchmark.accountId(funded), "Id-unknown", amount);
+            break;
+          default:
+            transfers[i] = new TransferMoneyDTO(TransferBenchmark.accountId(funded), TransferBenchmark.accountId(funded), amount);
+            break;
+        }
+      }
+    }
+
+    TransferMoneyDTO next() {
+      TransferMoneyDTO transfer = transfers[next];
+      next = (next + 1) & (TRANSFERS_PER_THREAD - 1);
+      return transfer;
+    }
+  }
+
+  /**
+   * Builds the response the way the transfer endpoint did before and after rejections became
+   * outcomes.
+   */
+  @Benchmark
+  public ResponseEntity<Object> transfer(Transfers transfers) {
+    TransferMoneyDTO transfer = transfers.next();
+    if (!exceptions) {
+      return TransferResponses.of(accountsService.transfer(transfer));
+    }
+    try {
+      return accountsService.transferMoneyBetweenAccounts(transfer);
+    } catch (AccountNegativeBalanceException | AmountTransferGreaterThanZeroException | SameAccountException exception) {
+      return new ResponseEntity<>(exception.getMessage(), HttpStatus.BAD_REQUEST);
+    } catch (AccountDoesntExistException exception) {
+      return new ResponseEntity<>(exception.getMessage(), HttpStatus.NOT_FOUND);
+    }
+  }
+}
@@ -0,0 +1,122 @@
+package com.db.awmd.challenge.benchmark;
+
+import com.db.awmd.challenge.domain.Account;
+import com.db.awmd.challenge.repository.AccountsRepository;
+import com.db.awmd.challenge.repository.AccountsRepositoryCompact;
+import com.db.awmd.challenge.repository.AccountsRepositoryInMemory;
+import com.db.awmd.challenge.repository.AccountsRepositoryJdbc;
+
+import java.math.BigDecimal;
+import java.util.Collections;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.tomcat.jdbc.pool.DataSource;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * {@code getAccount} and {@code updateAccounts} of the in-memory and compact repositories against
+ * the JDBC repository on a pooled, embedded H2 database.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RepositoryBenchmark {
+
+  private static final AtomicLong SEEDS = new AtomicLong();
+
+  @Param({"in-memory", "compact", "jdbc"})
+  public String repository;
+
+  @Param("10000")
+  public int accounts;
+
+  private AccountsRepository accountsRepository;
+
+  private DataSource dataSource;
+
+  @Setup(Level.Trial)
+  public void setUp() {
+    if ("jdbc".equals(repository)) {
+      dataSource = new DataSource();
+      dataSource.setUrl("jdbc:h2:mem:benchmark;DB_CLOSE_DELAY=-1");
+      dataSource.setMaxActive(64);
+      dataSource.setMaxIdle(64);
+      new ResourceDatabasePopulator(new ClassPathResource("schema.sql")).execute(dataSource);
+      accountsRepository = new AccountsRepositoryJdbc(new JdbcTemplate(dataSource),
+        new TransactionTemplate(new DataSourceTransactionManager(dataSource)));
+    } else if ("compact".equals(repository)) {
+      accountsRepository = new AccountsRepositoryCompact(accounts, 4096);
+    } else {
+      accountsRepository = new AccountsRepositoryInMemory();
+    }
+
+    accountsRepository.clearAccounts();
+    for (int i = 0; i < accounts; i++) {
+      accountsRepository.createAccount(new Account(TransferBenchmark.accountId(i), new BigDecimal("1000.00")));
+    }
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() {
+    if (dataSource != null) {
+      dataSource.close();
+    }
+  }
+
+  @State(Scope.Thread)
+  public static class AccountIds {
+
+    private final SplittableRandom random = new SplittableRandom(SEEDS.incrementAndGet());
+
+    private int accounts;
+
+    @Setup(Level.Trial)
+    public void setUp(RepositoryBenchmark benchmark) {
+      accounts = benchmark.accounts;
+    }
+
+    String next() {
+      return TransferBenchmark.accountId(random.nextInt(accounts));
+    }
+  }
+
+  @Benchmark
+  public Account getAccount(AccountIds accountIds) {
+    return accountsRepository.getAccount(accountIds.next());
+  }
+
+  @Benchmark
+  public Object readAndUpdateAccount(AccountIds accountIds) {
+    Account account = accountsRepository.getAccount(accountIds.next());
+    account.setBalance(account.getBalance());
+    try {
+      accountsRepository.updateAccounts(Collections.singletonList(account));
+    } catch (OptimisticLockingFailureException exception) {
+      return exception;
+    }
+    return account;
+  }
+}
@@ -0,0 +1,68 @@
+package com.db.awmd.challenge.benchmark;
+
+import com.db.awmd.challenge.domain.Account;
+import com.db.awmd.challenge.repository.AccountsRepository;
+import com.db.awmd.challenge.repository.AccountsRepositoryCompact;
+import com.db.awmd.challenge.repository.AccountsRepositoryInMemory;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Fills a repository with accounts and reports the retained heap per account and the time of a
+ * full GC with the repository live. Run once per repository, in a fresh JVM with a heap large
+ * enough for the in-memory repository, e.g. {@code -Xmx24g} at 50M accounts.
+ *
+ * <p>Arguments: in-memory|compact, accounts (10000000).
+ */
+public final class RepositoryFootprint {
+
+  private static final int CHUNK = 10_000;
+
+  private RepositoryFootprint() {
+  }
+
+  public static void main(String[] args) {
+    String repository = args.length > 0 ? args[0] : "compact";
+    int accounts = args.length > 1 ? Integer.parseInt(args[1]) : 10_000_000;
+
+    MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+    long before = usedAfterGc(memory);
+
+    AccountsRepository accountsRepository = "compact".equals(repository)
+      ? new AccountsRepositoryCompact(accounts, 4096)
+      : new AccountsRepositoryInMemory();
+    long start = System.nanoTime();
+    List<Account> chunk = new ArrayList<>(CHUNK);
+    for (int i = 0; i < accounts; i++) {
+      chunk.add(new Account(TransferBenchmark.accountId(i), new BigDecimal("1000.00")));
+      if (chunk.size() == CHUNK) {
+        accountsRepository.createAccounts(chunk);
+        chunk.clear();
+      }
+    }
+    accountsRepository.createAccounts(chunk);
+    long loadMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+    long gcStart = System.nanoTime();
+    long after = usedAfterGc(memory);
+    long gcMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - gcStart);
+
+    System.out.printf("%s repository, %d accounts loaded in %d ms%n", repository, accounts, loadMillis);
+    System.out.printf("retained heap: %d MB, %.1f bytes per account%n", (after - before) >> 20,
+      (after - before) / (double) accounts);
+    System.out.printf("full GC with the repository live: %d ms%n", gcMillis);
+    // Keeps the repository reachable until after the measurement.
+    System.out.println(accountsRepository.getAccount(TransferBenchmark.accountId(0)).getBalance());
+  }
+
+  private static long usedAfterGc(MemoryMXBean memory) {
+    System.gc();
+    System.gc();
+    return memory.getHeapMemoryUsage().getUsed();
+  }
+}
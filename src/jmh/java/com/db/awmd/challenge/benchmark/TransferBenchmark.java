@@ -0,0 +1,141 @@
+package com.db.awmd.challenge.benchmark;
+
+import com.db.awmd.challenge.domain.Account;
+import com.db.awmd.challenge.domain.TransferMoneyDTO;
+import com.db.awmd.challenge.exception.AccountNegativeBalanceException;
+import com.db.awmd.challenge.repository.AccountsRepositoryInMemory;
+import com.db.awmd.challenge.service.AccountLockManager;
+import com.db.awmd.challenge.service.AccountsService;
+import com.db.awmd.challenge.service.AtomicTransferEngine;
+import com.db.awmd.challenge.service.AuditEpochs;
+import com.db.awmd.challenge.service.IdempotencyCache;
+import com.db.awmd.challenge.service.LockingTransferEngine;
+import com.db.awmd.challenge.service.ShardedTransferEngine;
+import com.db.awmd.challenge.service.TransactionHistory;
+import com.db.awmd.challenge.service.TransferEngine;
+import com.db.awmd.challenge.service.TransferLogger;
+import com.db.awmd.challenge.service.TransferMetrics;
+
+import java.math.BigDecimal;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Throughput of {@link AccountsService#transferMoneyBetweenAccounts} per transfer engine and
+ * account access pattern.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TransferBenchmark {
+
+  private static final int TRANSFERS_PER_THREAD = 1 << 14;
+
+  private static final AtomicLong SEEDS = new AtomicLong();
+
+  @Param({"locking", "atomic", "sharded"})
+  public String engine;
+
+  @Param({Workload.UNIFORM, Workload.ZIPF, Workload.HOT_PAIR})
+  public String distribution;
+
+  @Param("10000")
+  public int accounts;
+
+  private AccountsService accountsService;
+
+  private ShardedTransferEngine shardedTransferEngine;
+
+  @Setup(Level.Trial)
+  public void setUp() {
+    AccountsRepositoryInMemory accountsRepository = new AccountsRepositoryInMemory();
+    TransferMetrics transferMetrics = new TransferMetrics(true, 10);
+    TransactionHistory transactionHistory = new TransactionHistory(true, 32);
+    TransferEngine transferEngine;
+    switch (engine) {
+      case "locking":
+        transferEngine = new LockingTransferEngine(accountsRepository, new AccountLockManager(500, transferMetrics),
+          transferMetrics, new AuditEpochs(), transactionHistory, new String[0], 16);
+        break;
+      case "atomic":
+        transferEngine = new AtomicTransferEngine(accountsRepository, transferMetrics, transactionHistory);
+        break;
+      case "sharded":
+        shardedTransferEngine = new ShardedTransferEngine(accountsRepository, transferMetrics, transactionHistory, 0,
+          1024, 500, 30000);
+        shardedTransferEngine.start();
+        transferEngine = shardedTransferEngine;
+        break;
+      default:
+        throw new IllegalArgumentException("Unknown engine " + engine);
+    }
+
+    accountsService = new AccountsService(accountsRepository, (account, description) -> { }, transferEngine,
+      transferMetrics, new TransferLogger("off", 0),
+      new IdempotencyCache(600000, 100000), 0);
+    for (int i = 0; i < accounts; i++) {
+      accountsService.createAccount(new Account(accountId(i), new BigDecimal("1000000000.00")));
+    }
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() {
+    if (shardedTransferEngine != null) {
+      shardedTransferEngine.stop();
+    }
+  }
+
+  @State(Scope.Thread)
+  public static class Transfers {
+
+    private TransferMoneyDTO[] transfers;
+
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp(TransferBenchmark benchmark) {
+      int[] pairs = Workload.pairs(benchmark.distribution, benchmark.accounts, TRANSFERS_PER_THREAD,
+        SEEDS.incrementAndGet());
+      transfers = new TransferMoneyDTO[TRANSFERS_PER_THREAD];
+      for (int i = 0; i < TRANSFERS_PER_THREAD; i++) {
+        transfers[i] = new TransferMoneyDTO(accountId(pairs[i * 2]), accountId(pairs[i * 2 + 1]), new BigDecimal("0.01"));
+      }
+    }
+
+    TransferMoneyDTO next() {
+      TransferMoneyDTO transfer = transfers[next];
+      next = (next + 1) & (TRANSFERS_PER_THREAD - 1);
+      return transfer;
+    }
+  }
+
+  @Benchmark
+  public Object transfer(Transfers transfers) throws Exception {
+    try {
+      return accountsService.transferMoneyBetweenAccounts(transfers.next());
+    } catch (AccountNegativeBalanceException exception) {
+      return exception;
+    }
+  }
+
+  static String accountId(int index) {
+    return "Id-" + index;
+  }
+}
@@ -0,0 +1,186 @@
+package com.db.awmd.challenge.benchmark;
+
+import ch.qos.logback.classic.AsyncAppender;
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.LoggerContext;
+import ch.qos.logback.classic.encoder.PatternLayoutEncoder;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.Appender;
+import ch.qos.logback.core.OutputStreamAppender;
+import com.db.awmd.challenge.domain.Account;
+import com.db.awmd.challenge.domain.TransferMoneyDTO;
+import com.db.awmd.challenge.service.AccountLockManager;
+import com.db.awmd.challenge.service.TransferLogger;
+import com.db.awmd.challenge.service.TransferMetrics;
+
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Transfers between a few accounts under the {@link AccountLockManager}, logged the way the
+ * locking engine used to (six INFO lines while both locks are held) against one
+ * {@link TransferLogger} event after the locks are released. The appender formats events into a
+ * stream that discards them, either synchronously or through an {@link AsyncAppender}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TransferLoggingBenchmark {
+
+  private static final org.slf4j.Logger legacyLog = LoggerFactory.getLogger("benchmark.legacy");
+
+  private static final AtomicLong SEEDS = new AtomicLong();
+
+  private static final int ACCOUNTS = 16;
+
+  @Param({"legacy", "structured", "sampled", "off"})
+  public String logging;
+
+  @Param({"sync", "async"})
+  public String appender;
+
+  private final Account[] accounts = new Account[ACCOUNTS];
+
+  private final AccountLockManager accountLockManager = new AccountLockManager(500, new TransferMetrics(false, 0));
+
+  private TransferLogger transferLogger;
+
+  private Appender<ILoggingEvent> sink;
+
+  @Setup
+  public void setUp() {
+    for (int i = 0; i < ACCOUNTS; i++) {
+      accounts[i] = new Account(TransferBenchmark.accountId(i), new BigDecimal("1000000000.00"));
+    }
+    switch (logging) {
+      case "sampled":
+        transferLogger = new TransferLogger("structured", 0.01);
+        break;
+      case "off":
+        transferLogger = new TransferLogger("off", 0);
+        break;
+      default:
+        transferLogger = new TransferLogger("structured", 1);
+    }
+
+    LoggerContext context = (LoggerContext) LoggerFactory.getILoggerFactory();
+    PatternLayoutEncoder encoder = new PatternLayoutEncoder();
+    encoder.setContext(context);
+    encoder.setPattern("%d %-5level [%thread] %logger{36} - %msg%n");
+    encoder.start();
+
+    OutputStreamAppender<ILoggingEvent> discarding = new OutputStreamAppender<>();
+    discarding.setContext(context);
+    discarding.setEncoder(encoder);
+    discarding.setOutputStream(new OutputStream() {
+      @Override
+      public void write(int b) {
+      }
+
+      @Override
+      public void write(byte[] b, int off, int len) {
+      }
+    });
+    discarding.start();
+
+    if ("async".equals(appender)) {
+      AsyncAppender async = new AsyncAppender();
+      async.setContext(context);
+      async.setQueueSize(8192);
+      async.setNeverBlock(true);
+      async.addAppender(discarding);
+      async.start();
+      sink = async;
+    } else {
+      sink = discarding;
+    }
+
+    for (String name : new String[] {"benchmark.legacy", TransferLogger.LOGGER_NAME}) {
+      Logger logger = context.getLogger(name);
+      logger.setLevel(Level.INFO);
+      logger.setAdditive(false);
+      logger.addAppender(sink);
+    }
+  }
+
+  @TearDown
+  public void tearDown() {
+    LoggerContext context = (LoggerContext) LoggerFactory.getILoggerFactory();
+    for (String name : new String[] {"benchmark.legacy", TransferLogger.LOGGER_NAME}) {
+      context.getLogger(name).detachAppender(sink);
+    }
+    sink.stop();
+  }
+
+  @State(Scope.Thread)
+  public static class Transfers {
+
+    private final SplittableRandom random = new SplittableRandom(SEEDS.incrementAndGet());
+
+    private final TransferMoneyDTO[] transfers = new TransferMoneyDTO[ACCOUNTS * ACCOUNTS];
+
+    public Transfers() {
+      for (int from = 0; from < ACCOUNTS; from++) {
+        for (int to = 0; to < ACCOUNTS; to++) {
+          transfers[from * ACCOUNTS + to] = new TransferMoneyDTO(TransferBenchmark.accountId(from),
+            TransferBenchmark.accountId(to), new BigDecimal("0.01"));
+        }
+      }
+    }
+  }
+
+  @Benchmark
+  public void transfer(Transfers transfers) {
+    int from = transfers.random.nextInt(ACCOUNTS);
+    int to = (from + 1 + transfers.random.nextInt(ACCOUNTS - 1)) % ACCOUNTS;
+    Account accountFrom = accounts[from];
+    Account accountTo = accounts[to];
+    TransferMoneyDTO transfer = transfers.transfers[from * ACCOUNTS + to];
+    long start = System.nanoTime();
+
+    accountLockManager.lock(accountFrom, accountTo);
+    try {
+      if ("legacy".equals(logging)) {
+        legacyLog.info("New Thread");
+        legacyLog.info("Initial Balance From: {}", accountFrom.getBalance());
+        legacyLog.info("Initial Balance To: {}", accountTo.getBalance());
+      }
+      accountFrom.setBalance(accountFrom.getBalance().subtract(transfer.getAmountToTransfer()));
+      accountTo.setBalance(accountTo.getBalance().add(transfer.getAmountToTransfer()));
+      if ("legacy".equals(logging)) {
+        legacyLog.info("Final Balance From: {}", accountFrom.getBalance());
+        legacyLog.info("Final Balance To: {}", accountTo.getBalance());
+      }
+    } finally {
+      accountLockManager.unlock(accountFrom, accountTo);
+    }
+
+    if ("legacy".equals(logging)) {
+      legacyLog.info("Transferring money from account {} to account {}", transfer.getAccountFromId(),
+        transfer.getAccountToId());
+    } else {
+      transferLogger.completed(transfer, accountFrom, accountTo, start);
+    }
+  }
+}
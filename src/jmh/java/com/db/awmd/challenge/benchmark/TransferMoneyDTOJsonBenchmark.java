@@ -0,0 +1,53 @@
+package com.db.awmd.challenge.benchmark;
+
+import com.db.awmd.challenge.domain.TransferMoneyDTO;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Jackson (de)serialization cost of the transfer request body.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TransferMoneyDTOJsonBenchmark {
+
+  private final ObjectMapper objectMapper = new ObjectMapper();
+
+  private final ObjectReader reader = objectMapper.readerFor(TransferMoneyDTO.class);
+
+  private final ObjectWriter writer = objectMapper.writerFor(TransferMoneyDTO.class);
+
+  private final TransferMoneyDTO transfer = new TransferMoneyDTO("Id-123", "Id-456", new BigDecimal("60.25"));
+
+  private final byte[] json = "{\"accountFromId\":\"Id-123\",\"accountToId\":\"Id-456\",\"amountToTransfer\":60.25}"
+    .getBytes();
+
+  @Benchmark
+  public TransferMoneyDTO deserialize() throws IOException {
+    return reader.readValue(json);
+  }
+
+  @Benchmark
+  public byte[] serialize() throws IOException {
+    return writer.writeValueAsBytes(transfer);
+  }
+}
@@ -0,0 +1,74 @@
+package com.db.awmd.challenge.benchmark;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+/**
+ * Precomputed sequences of (from, to) account indexes, so picking the next transfer costs nothing
+ * during measurement.
+ */
+public final class Workload {
+
+  public static final String UNIFORM = "uniform";
+
+  public static final String ZIPF = "zipf";
+
+  public static final String HOT_PAIR = "hot-pair";
+
+  private static final double ZIPF_EXPONENT = 1.1;
+
+  private Workload() {
+  }
+
+  /**
+   * Returns {@code count} pairs of distinct account indexes flattened as from0, to0, from1, to1...
+   */
+  public static int[] pairs(String distribution, int accounts, int count, long seed) {
+    SplittableRandom random = new SplittableRandom(seed);
+    double[] zipfCdf = ZIPF.equals(distribution) ? zipfCdf(accounts) : null;
+    int[] pairs = new int[count * 2];
+    for (int i = 0; i < count; i++) {
+      int from;
+      int to;
+      do {
+        switch (distribution) {
+          case UNIFORM:
+            from = random.nextInt(accounts);
+            to = random.nextInt(accounts);
+            break;
+          case ZIPF:
+            from = sample(zipfCdf, random);
+            to = sample(zipfCdf, random);
+            break;
+          case HOT_PAIR:
+            from = random.nextInt(2);
+            to = 1 - from;
+            break;
+          default:
+            throw new IllegalArgumentException("Unknown distribution " + distribution);
+        }
+      } while (from == to);
+      pairs[i * 2] = from;
+      pairs[i * 2 + 1] = to;
+    }
+    return pairs;
+  }
+
+  private static double[] zipfCdf(int accounts) {
+    double[] cdf = new double[accounts];
+    double sum = 0;
+    for (int rank = 1; rank <= accounts; rank++) {
+      sum += 1 / Math.pow(rank, ZIPF_EXPONENT);
+      cdf[rank - 1] = sum;
+    }
+    for (int i = 0; i < accounts; i++) {
+      cdf[i] /= sum;
+    }
+    return cdf;
+  }
+
+  private static int sample(double[] cdf, SplittableRandom random) {
+    int index = Arrays.binarySearch(cdf, random.nextDouble());
+    return Math.min(index >= 0 ? index : -index - 1, cdf.length - 1);
+  }
+}
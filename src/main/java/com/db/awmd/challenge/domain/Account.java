@@ -1,39 +1,147 @@
 package com.db.awmd.challenge.domain;
 
+import com.db.awmd.challenge.exception.InvalidAmountException;
 import com.fasterxml.jackson.annotation.JsonCreator;
 import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.locks.ReentrantLock;
 
 import javax.validation.constraints.Min;
 import javax.validation.constraints.NotNull;
+import javax.validation.constraints.Size;
 import lombok.Data;
 import org.hibernate.validator.constraints.NotEmpty;
 
 @Data
 public class Account {
+
+  /**
+   * Number of decimal places kept when the balance is held in minor units.
+   */
+  public static final int MINOR_UNIT_SCALE = 2;
+
+  /**
+   * Longest account id in characters. At up to three UTF-8 bytes per character it stays within
+   * the signed short length of journal and snapshot records.
+   */
+  public static final int MAX_ACCOUNT_ID_LENGTH = 8192;
 	
   @JsonIgnore
-  ReentrantLock reentrantLock = new ReentrantLock();
+  ReentrantLock reentrantLock;
 
   @NotNull
   @NotEmpty
+  @Size(max = MAX_ACCOUNT_ID_LENGTH)
   private final String accountId;
 
+  /**
+   * Replaced, never mutated, while holding the account lock. Volatile so that readers without the
+   * lock see the complete latest balance.
+   */
   @NotNull
   @Min(value = 0, message = "Initial balance must be positive.")
-  private BigDecimal balance;
+  private volatile BigDecimal balance;
+
+  /**
+   * Balance in minor units, only set once the account has been switched to the minor units
+   * representation. While set it is the source of truth and {@link #balance} is ignored.
+   */
+  @JsonIgnore
+  private volatile AtomicLong minorUnitsBalance;
+
+  /**
+   * Sub-balances of an account striped for contention, see {@link StripedBalance}. While set it
+   * is the source of truth and {@link #balance} is ignored.
+   */
+  @JsonIgnore
+  private volatile StripedBalance stripedBalance;
+
+  /**
+   * Row version used by repositories with optimistic concurrency control.
+   */
+  @JsonIgnore
+  private long version;
+
+  /**
+   * Balance as it was when audit epoch {@link #auditEpoch} began, saved by the first update of
+   * the account in that epoch. Both fields are only accessed while holding the account lock.
+   */
+  @JsonIgnore
+  private BigDecimal auditBalance;
+
+  @JsonIgnore
+  private long auditEpoch;
 
   public Account(String accountId) {
-    this.accountId = accountId;
-    this.balance = BigDecimal.ZERO;
+    this(accountId, BigDecimal.ZERO);
   }
 
   @JsonCreator
   public Account(@JsonProperty("accountId") String accountId,
     @JsonProperty("balance") BigDecimal balance) {
+    this(accountId, balance, new ReentrantLock());
+  }
+
+  /**
+   * Creates an account guarded by the given lock, which repositories that do not keep an object
+   * per account share between the accounts of a stripe.
+   */
+  public Account(String accountId, BigDecimal balance, ReentrantLock reentrantLock) {
     this.accountId = accountId;
     this.balance = balance;
+    this.reentrantLock = reentrantLock;
+  }
+
+  public BigDecimal getBalance() {
+    StripedBalance striped = this.stripedBalance;
+    if (striped != null) {
+      return BigDecimal.valueOf(striped.sum(), MINOR_UNIT_SCALE);
+    }
+    AtomicLong minorUnits = this.minorUnitsBalance;
+    return minorUnits == null ? balance : BigDecimal.valueOf(minorUnits.get(), MINOR_UNIT_SCALE);
+  }
+
+  public void setBalance(BigDecimal balance) {
+    StripedBalance striped = this.stripedBalance;
+    AtomicLong minorUnits = this.minorUnitsBalance;
+    if (striped != null) {
+      striped.set(toMinorUnits(balance));
+    } else if (minorUnits == null) {
+      this.balance = balance;
+    } else {
+      minorUnits.set(toMinorUnits(balance));
+    }
+  }
+
+  /**
+   * Switches the account to striped sub-balances in minor units, keeping its current balance.
+   */
+  public synchronized StripedBalance useStripedBalance(int stripes) {
+    if (stripedBalance == null) {
+      stripedBalance = new StripedBalance(stripes, toMinorUnits(getBalance()));
+    }
+    return stripedBalance;
+  }
+
+  /**
+   * Switches the account to the minor units representation, keeping its current balance.
+   */
+  public synchronized AtomicLong useMinorUnits() {
+    if (minorUnitsBalance == null) {
+      minorUnitsBalance = new AtomicLong(toMinorUnits(balance));
+    }
+    return minorUnitsBalance;
+  }
+
+  public static long toMinorUnits(BigDecimal amount) {
+    try {
+      return amount.setScale(MINOR_UNIT_SCALE, RoundingMode.UNNECESSARY).unscaledValue().longValueExact();
+    } catch (ArithmeticException exception) {
+      throw new InvalidAmountException(
+        "Amount " + amount + " cannot be represented with " + MINOR_UNIT_SCALE + " decimal places");
+    }
   }
 }
@@ -0,0 +1,22 @@
+package com.db.awmd.challenge.domain;
+
+import java.math.BigDecimal;
+
+import lombok.Data;
+
+/**
+ * Immutable copy of an account balance, serialized like the {@link Account} itself. Taken without
+ * the account lock from the balance published by the last update, so reads never wait for
+ * transfers.
+ */
+@Data
+public class AccountBalanceView {
+
+  private final String accountId;
+
+  private final BigDecimal balance;
+
+  public static AccountBalanceView of(Account account) {
+    return new AccountBalanceView(account.getAccountId(), account.getBalance());
+  }
+}
@@ -0,0 +1,16 @@
+package com.db.awmd.challenge.domain;
+
+import java.util.List;
+
+import lombok.Data;
+
+@Data
+public class AccountPageDTO {
+
+  private final List<Account> accounts;
+
+  /**
+   * Value of {@code after} for the next page, {@code null} once the last page was returned.
+   */
+  private final String nextCursor;
+}
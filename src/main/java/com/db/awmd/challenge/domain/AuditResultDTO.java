@@ -0,0 +1,23 @@
+package com.db.awmd.challenge.domain;
+
+import java.math.BigDecimal;
+
+import lombok.Data;
+
+@Data
+public class AuditResultDTO {
+
+  private final long epoch;
+
+  private final long accounts;
+
+  private final BigDecimal totalBalance;
+
+  /**
+   * Whether the transfer engine and repository in use take part in audit epochs. If not, the
+   * total is only a best-effort sum of balances read at different times.
+   */
+  private final boolean consistent;
+
+  private final long durationMillis;
+}
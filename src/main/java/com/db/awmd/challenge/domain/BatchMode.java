@@ -0,0 +1,14 @@
+package com.db.awmd.challenge.domain;
+
+public enum BatchMode {
+
+  /**
+   * Either every transfer of the batch is applied or none is.
+   */
+  ALL_OR_NOTHING,
+
+  /**
+   * Every transfer that can be applied is applied, failures are reported per item.
+   */
+  BEST_EFFORT
+}
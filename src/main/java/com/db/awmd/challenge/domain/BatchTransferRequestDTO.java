@@ -0,0 +1,30 @@
+package com.db.awmd.challenge.domain;
+
+import java.util.List;
+
+import javax.validation.Valid;
+import javax.validation.constraints.NotNull;
+import org.hibernate.validator.constraints.NotEmpty;
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import lombok.Data;
+
+@Data
+public class BatchTransferRequestDTO {
+
+    @NotNull
+    private final BatchMode mode;
+
+    @NotNull
+    @NotEmpty
+    @Valid
+    private final List<TransferMoneyDTO> transfers;
+
+    @JsonCreator
+    public BatchTransferRequestDTO(@JsonProperty("mode") BatchMode mode,
+                                   @JsonProperty("transfers") List<TransferMoneyDTO> transfers) {
+        this.mode = mode;
+        this.transfers = transfers;
+    }
+}
@@ -0,0 +1,22 @@
+package com.db.awmd.challenge.domain;
+
+import java.util.List;
+
+import lombok.Data;
+
+@Data
+public class BatchTransferResultDTO {
+
+    private final BatchMode mode;
+
+    /**
+     * Whether any transfer of the batch was applied.
+     */
+    private final boolean committed;
+
+    private final int completed;
+
+    private final int failed;
+
+    private final List<TransferResultDTO> results;
+}
@@ -0,0 +1,25 @@
+package com.db.awmd.challenge.domain;
+
+import lombok.Data;
+
+@Data
+public class CacheStatistics {
+
+  private final long hits;
+
+  private final long misses;
+
+  private final long evictions;
+
+  private final long flushes;
+
+  private final long flushedAccounts;
+
+  private final long flushFailures;
+
+  private final long droppedWrites;
+
+  private final int size;
+
+  private final int dirty;
+}
@@ -0,0 +1,11 @@
+package com.db.awmd.challenge.domain;
+
+import lombok.Data;
+
+@Data
+public class ContendedAccountDTO {
+
+  private final String accountId;
+
+  private final long contendedAcquisitions;
+}
@@ -0,0 +1,14 @@
+package com.db.awmd.challenge.domain;
+
+public enum ExportFormat {
+
+  /**
+   * A JSON array of {@code {"accountId":..,"balance":..}} objects.
+   */
+  JSON,
+
+  /**
+   * An {@code accountId,balance} header followed by one line per account.
+   */
+  CSV
+}
@@ -0,0 +1,23 @@
+package com.db.awmd.challenge.domain;
+
+import lombok.Data;
+
+@Data
+public class IdempotencyStatistics {
+
+  private final long hits;
+
+  private final long misses;
+
+  private final long reusedKeys;
+
+  private final long evictions;
+
+  private final long expirations;
+
+  private final int size;
+
+  private final int maxSize;
+
+  private final double hitRate;
+}
@@ -0,0 +1,20 @@
+package com.db.awmd.challenge.domain;
+
+import java.util.List;
+
+import lombok.Data;
+
+@Data
+public class ImportResultDTO {
+
+  private final long lines;
+
+  private final long imported;
+
+  private final long failed;
+
+  /**
+   * The first failed lines, at most {@code accounts.import.max-reported-errors} of them.
+   */
+  private final List<ImportErrorDTO> errors;
+}
@@ -0,0 +1,21 @@
+package com.db.awmd.challenge.domain;
+
+import lombok.Data;
+
+@Data
+public class LatencyStatistics {
+
+  private final long count;
+
+  private final double meanMicros;
+
+  private final long p50Micros;
+
+  private final long p90Micros;
+
+  private final long p99Micros;
+
+  private final long p999Micros;
+
+  private final long maxMicros;
+}
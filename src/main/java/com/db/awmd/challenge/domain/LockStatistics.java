@@ -0,0 +1,15 @@
+package com.db.awmd.challenge.domain;
+
+import lombok.Data;
+
+@Data
+public class LockStatistics {
+
+  private final long acquisitions;
+
+  private final long contendedAcquisitions;
+
+  private final long timeouts;
+
+  private final long lockTimeoutMillis;
+}
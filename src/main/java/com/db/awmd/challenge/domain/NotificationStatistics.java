@@ -0,0 +1,21 @@
+package com.db.awmd.challenge.domain;
+
+import lombok.Data;
+
+@Data
+public class NotificationStatistics {
+
+  private final long submitted;
+
+  private final long coalesced;
+
+  private final long dispatched;
+
+  private final long batches;
+
+  private final long dropped;
+
+  private final long failed;
+
+  private final int queued;
+}
@@ -0,0 +1,34 @@
+package com.db.awmd.challenge.domain;
+
+import java.math.BigDecimal;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import lombok.Data;
+
+@Data
+public class ScheduledTransferDTO {
+
+    private final long id;
+
+    private final String accountFromId;
+
+    private final String accountToId;
+
+    private final BigDecimal amountToTransfer;
+
+    /**
+     * Requested execution time in epoch milliseconds.
+     */
+    private final long executeAt;
+
+    /**
+     * Execution time after jitter was added, in epoch milliseconds.
+     */
+    private final long dueAt;
+
+    private final ScheduledTransferStatus status;
+
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private final String message;
+}
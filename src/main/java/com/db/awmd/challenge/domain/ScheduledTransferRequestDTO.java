@@ -0,0 +1,42 @@
+package com.db.awmd.challenge.domain;
+
+import java.math.BigDecimal;
+
+import javax.validation.constraints.NotNull;
+import org.hibernate.validator.constraints.NotEmpty;
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import lombok.Data;
+
+@Data
+public class ScheduledTransferRequestDTO {
+
+    @NotNull
+    @NotEmpty
+    private final String accountFromId;
+
+    @NotNull
+    @NotEmpty
+    private final String accountToId;
+
+    @NotNull
+    private final BigDecimal amountToTransfer;
+
+    /**
+     * Earliest execution time in epoch milliseconds; a time in the past executes right away.
+     */
+    @NotNull
+    private final Long executeAt;
+
+    @JsonCreator
+    public ScheduledTransferRequestDTO(@JsonProperty("accountFromId") String accountFromId,
+                                       @JsonProperty("accountToId") String accountToId,
+                                       @JsonProperty("amountToTransfer") BigDecimal amountToTransfer,
+                                       @JsonProperty("executeAt") Long executeAt) {
+        this.accountFromId = accountFromId;
+        this.accountToId = accountToId;
+        this.amountToTransfer = amountToTransfer;
+        this.executeAt = executeAt;
+    }
+}
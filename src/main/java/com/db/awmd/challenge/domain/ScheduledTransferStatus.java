@@ -0,0 +1,12 @@
+package com.db.awmd.challenge.domain;
+
+public enum ScheduledTransferStatus {
+
+  PENDING,
+
+  COMPLETED,
+
+  FAILED,
+
+  CANCELLED
+}
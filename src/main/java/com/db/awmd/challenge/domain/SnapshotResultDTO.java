@@ -0,0 +1,13 @@
+package com.db.awmd.challenge.domain;
+
+import lombok.Data;
+
+@Data
+public class SnapshotResultDTO {
+
+  private final String path;
+
+  private final long accounts;
+
+  private final long durationMillis;
+}
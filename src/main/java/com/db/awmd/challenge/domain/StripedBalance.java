@@ -0,0 +1,108 @@
+package com.db.awmd.challenge.domain;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Balance in minor units spread over several sub-balances, for accounts that receive a large
+ * share of all transfers.
+ *
+ * <p>Credits add to the sub-balance of the calling thread without any lock. Debits must hold the
+ * account lock: they check the total first and then drain sub-balances one by one, which cannot
+ * fail since concurrent credits only ever increase them, so the total never goes negative.
+ * Debits run inside a seqlock, so {@link #sum()} never returns a partly debited total.
+ */
+public class StripedBalance {
+
+  /**
+   * Sub-balances are this many longs apart so that each sits on its own cache line.
+   */
+  private static final int PADDING = 8;
+
+  private final AtomicLongArray cells;
+
+  private final int mask;
+
+  /**
+   * Odd while a debit is draining sub-balances.
+   */
+  private final AtomicLong sequence = new AtomicLong();
+
+  public StripedBalance(int stripes, long balance) {
+    int size = stripes <= 1 ? 1 : Integer.highestOneBit((stripes - 1) << 1);
+    this.cells = new AtomicLongArray(size * PADDING);
+    this.mask = size - 1;
+    this.cells.set(0, balance);
+  }
+
+  public int getStripes() {
+    return mask + 1;
+  }
+
+  public void credit(long amount) {
+    long id = Thread.currentThread().getId();
+    int stripe = (int) ((id * 0x9E3779B97F4A7C15L) >>> 32) & mask;
+    cells.getAndAdd(stripe * PADDING, amount);
+  }
+
+  /**
+   * Debits the amount unless the total is lower. The caller must hold the account lock.
+   */
+  public boolean debit(long amount) {
+    if (sum() < amount) {
+      return false;
+    }
+    sequence.incrementAndGet();
+    try {
+      long remaining = amount;
+      for (int stripe = 0; stripe <= mask && remaining > 0; stripe++) {
+        int index = stripe * PADDING;
+        long current;
+        long taken;
+        do {
+          current = cells.get(index);
+          taken = Math.min(current, remaining);
+        } while (taken > 0 && !cells.compareAndSet(index, current, current - taken));
+        remaining -= taken;
+      }
+      return true;
+    } finally {
+      sequence.incrementAndGet();
+    }
+  }
+
+  /**
+   * Replaces the balance. The caller must hold the account lock and no credits may run
+   * concurrently, as they would be lost.
+   */
+  public void set(long balance) {
+    sequence.incrementAndGet();
+    try {
+      for (int stripe = 1; stripe <= mask; stripe++) {
+        cells.set(stripe * PADDING, 0);
+      }
+      cells.set(0, balance);
+    } finally {
+      sequence.incrementAndGet();
+    }
+  }
+
+  /**
+   * Total of all sub-balances, retried while a debit is in progress.
+   */
+  public long sum() {
+    while (true) {
+      long before = sequence.get();
+      if ((before & 1) == 0) {
+        long total = 0;
+        for (int stripe = 0; stripe <= mask; stripe++) {
+          total += cells.get(stripe * PADDING);
+        }
+        if (sequence.get() == before) {
+          return total;
+        }
+      }
+      Thread.yield();
+    }
+  }
+}
@@ -0,0 +1,20 @@
+package com.db.awmd.challenge.domain;
+
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Account lock shared by all accounts of one stripe. Accounts guarded by striped locks have to be
+ * locked in stripe order, as two accounts of a stripe are guarded by the same lock.
+ */
+public class StripedLock extends ReentrantLock {
+
+  private final int stripe;
+
+  public StripedLock(int stripe) {
+    this.stripe = stripe;
+  }
+
+  public int getStripe() {
+    return stripe;
+  }
+}
@@ -0,0 +1,28 @@
+package com.db.awmd.challenge.domain;
+
+import java.math.BigDecimal;
+
+import lombok.Data;
+
+@Data
+public class TransactionDTO {
+
+  /**
+   * Position of the entry in the history of the account, starting at 0.
+   */
+  private final long sequence;
+
+  private final String counterpartyId;
+
+  /**
+   * Amount credited to the account, negative for a debit.
+   */
+  private final BigDecimal amount;
+
+  /**
+   * Balance of the account right after the transfer.
+   */
+  private final BigDecimal balance;
+
+  private final long timestamp;
+}
@@ -0,0 +1,19 @@
+package com.db.awmd.challenge.domain;
+
+import java.util.List;
+
+import lombok.Data;
+
+@Data
+public class TransactionPageDTO {
+
+  /**
+   * Entries of the page, newest first.
+   */
+  private final List<TransactionDTO> transactions;
+
+  /**
+   * Value of {@code before} for the next, older page, {@code null} once no older entry is kept.
+   */
+  private final Long nextCursor;
+}
@@ -0,0 +1,18 @@
+package com.db.awmd.challenge.domain;
+
+import java.util.List;
+import java.util.Map;
+
+import lombok.Data;
+
+@Data
+public class TransferMetricsStatistics {
+
+  private final long succeeded;
+
+  private final Map<String, Long> failures;
+
+  private final Map<String, LatencyStatistics> phases;
+
+  private final List<ContendedAccountDTO> contendedAccounts;
+}
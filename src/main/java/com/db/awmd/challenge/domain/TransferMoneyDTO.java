@@ -4,8 +4,10 @@ import java.math.BigDecimal;
 
 import javax.validation.constraints.DecimalMin;
 import javax.validation.constraints.NotNull;
+import javax.validation.constraints.Size;
 import org.hibernate.validator.constraints.NotEmpty;
 import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonInclude;
 import com.fasterxml.jackson.annotation.JsonProperty;
 
 import lombok.Data;
@@ -24,12 +26,25 @@ public class TransferMoneyDTO {
     @NotNull
     private final BigDecimal amountToTransfer;
 
+    /**
+     * Optional client-chosen key; a retried transfer with the same key replays the first outcome.
+     */
+    @Size(min = 1, max = 64)
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private final String idempotencyKey;
+
+    public TransferMoneyDTO(String accountFromId, String accountToId, BigDecimal amountToTransfer) {
+        this(accountFromId, accountToId, amountToTransfer, null);
+    }
+
     @JsonCreator
     public TransferMoneyDTO(@JsonProperty("accountFromId") String accountFromId,
                    @JsonProperty("accountToId") String accountToId,
-                   @JsonProperty("amountToTransfer") BigDecimal amountToTransfer) {
+                   @JsonProperty("amountToTransfer") BigDecimal amountToTransfer,
+                   @JsonProperty("idempotencyKey") String idempotencyKey) {
         this.accountFromId = accountFromId;
         this.accountToId = accountToId;
         this.amountToTransfer = amountToTransfer;
+        this.idempotencyKey = idempotencyKey;
     }
 }
\ No newline at end of file
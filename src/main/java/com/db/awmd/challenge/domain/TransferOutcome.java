@@ -0,0 +1,35 @@
+package com.db.awmd.challenge.domain;
+
+/**
+ * Result of a single transfer. Expected rejections are reported with one of these constants
+ * instead of an exception, so rejecting a transfer neither allocates nor captures a stack trace.
+ */
+public enum TransferOutcome {
+
+  COMPLETED(null),
+
+  ACCOUNT_NOT_FOUND("One of the accounts does not exist"),
+
+  SAME_ACCOUNT("Origin account and destination account should not be the same"),
+
+  NON_POSITIVE_AMOUNT("Transfer amount should be greater than 0"),
+
+  INSUFFICIENT_FUNDS("Account doesn't have the balance to transfer");
+
+  private final String message;
+
+  TransferOutcome(String message) {
+    this.message = message;
+  }
+
+  /**
+   * The reason of a rejection, {@code null} for {@link #COMPLETED}.
+   */
+  public String getMessage() {
+    return message;
+  }
+
+  public boolean isCompleted() {
+    return this == COMPLETED;
+  }
+}
@@ -0,0 +1,13 @@
+package com.db.awmd.challenge.domain;
+
+import lombok.Data;
+
+@Data
+public class TransferResultDTO {
+
+    private final int index;
+
+    private final TransferStatus status;
+
+    private final String message;
+}
@@ -0,0 +1,13 @@
+package com.db.awmd.challenge.domain;
+
+public enum TransferStatus {
+
+  COMPLETED,
+
+  FAILED,
+
+  /**
+   * Not applied because another transfer of an all-or-nothing batch failed.
+   */
+  ABORTED
+}
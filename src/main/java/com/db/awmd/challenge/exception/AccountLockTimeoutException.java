@@ -0,0 +1,8 @@
+package com.db.awmd.challenge.exception;
+
+public class AccountLockTimeoutException extends RuntimeException {
+
+  public AccountLockTimeoutException(String message) {
+    super(message);
+  }
+}
@@ -0,0 +1,551 @@
+package com.db.awmd.challenge.repository;
+
+import com.db.awmd.challenge.domain.Account;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+import javax.annotation.PreDestroy;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+/**
+ * Append-only, memory-mapped journal of account creations and balance updates.
+ *
+ * <p>Every record holds the absolute balance of one account, so replaying records in order is
+ * idempotent and the latest record of an account wins. Writers append under a short lock and then
+ * wait until a single flusher thread has forced the mapped file; all writers that appended while a
+ * force was running share the next one (group commit). Balance updates are appended while the
+ * account locks are held, so their writers only wait in {@link #awaitDurable()} once the locks are
+ * released.
+ *
+ * <p>The journal is periodically compacted: a new journal generation is started and an
+ * {@link AccountsSnapshot} of the accounts map is written for it, after which older generations
+ * are deleted. Recovery loads the
+ * newest snapshot and replays the journals of that generation onwards.
+ */
+@Component
+@ConditionalOnProperty(name = "accounts.journal.enabled", havingValue = "true")
+@Slf4j
+public class AccountsJournal {
+
+  static final byte CREATE = 1;
+
+  static final byte UPDATE = 2;
+
+  static final byte CLEAR = 3;
+
+  private static final int RECORD_HEADER_BYTES = 8;
+
+  private static final long MIN_RETRY_MILLIS = 10;
+
+  private static final long MAX_RETRY_MILLIS = 1000;
+
+  private static final Pattern JOURNAL_FILE = Pattern.compile("journal-(\\d+)\\.log");
+
+  private static final Pattern SNAPSHOT_FILE = Pattern.compile("snapshot-(\\d+)\\.bin");
+
+  private final Path directory;
+
+  private final int initialCapacity;
+
+  private final long compactionIntervalMillis;
+
+  private final ReentrantLock writeLock = new ReentrantLock();
+
+  /**
+   * Guards {@link #requested} and {@link #durable}. A lock rather than a monitor, so that virtual
+   * threads waiting for a flush do not pin their carrier thread.
+   */
+  private final ReentrantLock flushLock = new ReentrantLock();
+
+  private final Condition flushRequested = flushLock.newCondition();
+
+  private final Condition flushed = flushLock.newCondition();
+
+  /**
+   * Checksum of the record being appended. Only used under {@link #writeLock}.
+   */
+  private final CRC32 crc = new CRC32();
+
+  private Map<String, Account> accounts;
+
+  private long generation;
+
+  private FileChannel channel;
+
+  private volatile MappedByteBuffer buffer;
+
+  /**
+   * Bytes appended since startup, across generations. Only written under {@link #writeLock}.
+   */
+  private volatile long appended;
+
+  /**
+   * Highest {@link #appended} value requested to be durable. Guarded by {@link #flushLock}.
+   */
+  private long requested;
+
+  /**
+   * Highest {@link #appended} value known to be on disk. Guarded by {@link #flushLock}.
+   */
+  private long durable;
+
+  private volatile boolean running;
+
+  /**
+   * Why the last force failed, or {@code null} while forcing works. Waiters fail instead of
+   * waiting for a flush that may never come.
+   */
+  private volatile RuntimeException forceFailure;
+
+  private Thread flusher;
+
+  private ScheduledExecutorService compactor;
+
+  @Autowired
+  public AccountsJournal(@Value("${accounts.journal.directory:data}") String directory,
+    @Value("${accounts.journal.initial-size-mb:64}") int initialSizeMb,
+    @Value("${accounts.journal.compaction-interval-ms:300000}") long compactionIntervalMillis) {
+    this.directory = Paths.get(directory);
+    this.initialCapacity = initialSizeMb * 1024 * 1024;
+    this.compactionIntervalMillis = compactionIntervalMillis;
+  }
+
+  /**
+   * Replays the snapshot and journals into the given map, then starts accepting appends and
+   * compacts the map periodically.
+   */
+  public void open(Map<String, Account> accounts) {
+    this.accounts = accounts;
+    try {
+      Files.createDirectories(directory);
+      long snapshotGeneration = latestGeneration(SNAPSHOT_FILE);
+      if (snapshotGeneration >= 0) {
+        AccountsSnapshot.read(snapshotPath(snapshotGeneration), accounts, ForkJoinPool.commonPool());
+      }
+
+      long lastGeneration = Math.max(snapshotGeneration, 0);
+      long end = 0;
+      for (long journalGeneration : generations(JOURNAL_FILE)) {
+        if (journalGeneration >= snapshotGeneration) {
+          end = replay(journalPath(journalGeneration), accounts);
+          lastGeneration = journalGeneration;
+        }
+      }
+      openJournal(lastGeneration, end);
+    } catch (IOException exception) {
+      throw new UncheckedIOException("Unable to recover accounts journal from " + directory, exception);
+    }
+    log.info("Recovered {} accounts from journal generation {}", accounts.size(), generation);
+
+    running = true;
+    flusher = new Thread(this::flushLoop, "accounts-journal-flusher");
+    flusher.setDaemon(true);
+    flusher.start();
+
+    compactor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+      Thread thread = new Thread(runnable, "accounts-journal-compactor");
+      thread.setDaemon(true);
+      return thread;
+    });
+    compactor.scheduleWithFixedDelay(this::compactQuietly, compactionIntervalMillis, compactionIntervalMillis,
+      TimeUnit.MILLISECONDS);
+  }
+
+  /**
+   * Appends one record per account without waiting for them to reach the disk, and returns the
+   * position to pass to {@link #awaitDurable(long)}.
+   *
+   * @throws IllegalStateException if the journal is closed
+   * @throws IllegalArgumentException if an account id or balance is too long for a record, in
+   * which case nothing is appended
+   */
+  public long append(byte type, Collection<Account> accountsToAppend) {
+    for (Account account : accountsToAppend) {
+      checkRecord(account);
+    }
+    writeLock.lock();
+    try {
+      checkRunning();
+      for (Account account : accountsToAppend) {
+        write(type, account);
+      }
+      return appended;
+    } finally {
+      writeLock.unlock();
+    }
+  }
+
+  /**
+   * Appends a record clearing all accounts and returns once it is on disk.
+   */
+  public void appendClear() {
+    long position;
+    writeLock.lock();
+    try {
+      checkRunning();
+      write(CLEAR, null);
+      position = appended;
+    } finally {
+      writeLock.unlock();
+    }
+    awaitDurable(position);
+  }
+
+  /**
+   * Waits until everything appended so far is on disk.
+   */
+  public void awaitDurable() {
+    awaitDurable(appended);
+  }
+
+  /**
+   * Waits until everything appended up to the given position is on disk.
+   *
+   * @throws IllegalStateException if the journal cannot currently be forced to disk
+   */
+  public void awaitDurable(long position) {
+    boolean interrupted = false;
+    flushLock.lock();
+    try {
+      if (position > requested) {
+        requested = position;
+        flushRequested.signal();
+      }
+      while (durable < position) {
+        RuntimeException failure = forceFailure;
+        if (failure != null) {
+          throw new IllegalStateException("Accounts journal cannot be written to disk", failure);
+        }
+        try {
+          flushed.await();
+        } catch (InterruptedException exception) {
+          interrupted = true;
+        }
+      }
+    } finally {
+      flushLock.unlock();
+    }
+    if (interrupted) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  /**
+   * Starts a new journal generation, writes a snapshot of the accounts map for it and deletes the
+   * older journals and snapshots.
+   */
+  public void compact() throws IOException {
+    long snapshotGeneration;
+    writeLock.lock();
+    try {
+      buffer.force();
+      channel.close();
+      openJournal(generation + 1, 0);
+      snapshotGeneration = generation;
+    } finally {
+      writeLock.unlock();
+    }
+
+    Path temporary = directory.resolve("snapshot-" + snapshotGeneration + ".tmp");
+    AccountsSnapshot.write(temporary, accounts.values());
+    Files.move(temporary, snapshotPath(snapshotGeneration), StandardCopyOption.ATOMIC_MOVE);
+
+    for (long older : generations(JOURNAL_FILE)) {
+      if (older < snapshotGeneration) {
+        Files.deleteIfExists(journalPath(older));
+      }
+    }
+    for (long older : generations(SNAPSHOT_FILE)) {
+      if (older < snapshotGeneration) {
+        Files.deleteIfExists(snapshotPath(older));
+      }
+    }
+    log.info("Compacted accounts journal into snapshot generation {}", snapshotGeneration);
+  }
+
+  @PreDestroy
+  public void close() throws IOException {
+    if (!running) {
+      return;
+    }
+    running = false;
+    compactor.shutdownNow();
+    flusher.interrupt();
+    writeLock.lock();
+    try {
+      buffer.force();
+      channel.close();
+    } finally {
+      writeLock.unlock();
+    }
+    flushLock.lock();
+    try {
+      durable = appended;
+      flushed.signalAll();
+    } finally {
+      flushLock.unlock();
+    }
+  }
+
+  /**
+   * Refuses appends once {@link #close()} started; called under {@link #writeLock}, which close
+   * takes for its final force, so every accepted append is covered by that force.
+   */
+  private void checkRunning() {
+    if (!running) {
+      throw new IllegalStateException("Accounts journal is closed");
+    }
+  }
+
+  /**
+   * Rejects accounts whose id or unscaled balance does not fit the signed short lengths of a
+   * record, which replay could not read back.
+   */
+  static void checkRecord(Account account) {
+    String accountId = account.getAccountId();
+    BigDecimal balance = account.getBalance();
+    // Cheap bounds first: a character takes at most three UTF-8 bytes, a digit less than half a byte.
+    if (accountId.length() * 3 > Short.MAX_VALUE
+      && accountId.getBytes(StandardCharsets.UTF_8).length > Short.MAX_VALUE
+      || balance.precision() / 2 >= Short.MAX_VALUE
+      && balance.unscaledValue().toByteArray().length > Short.MAX_VALUE) {
+      throw new IllegalArgumentException("Account " + account.getAccountId() + " cannot be journaled: its id or balance is longer than "
+        + Short.MAX_VALUE + " bytes");
+    }
+  }
+
+  private void write(byte type, Account account) {
+    byte[] accountId = account == null ? new byte[0] : account.getAccountId().getBytes(StandardCharsets.UTF_8);
+    BigDecimal balance = account == null ? BigDecimal.ZERO : account.getBalance();
+    byte[] unscaled = balance.unscaledValue().toByteArray();
+    int length = recordLength(accountId, unscaled);
+
+    MappedByteBuffer target = buffer;
+    if (target.remaining() < length + RECORD_HEADER_BYTES) {
+      target = grow(length + RECORD_HEADER_BYTES);
+    }
+    encode(target, crc, type, accountId, balance.scale(), unscaled);
+    appended += length + RECORD_HEADER_BYTES;
+  }
+
+  private MappedByteBuffer grow(int needed) {
+    try {
+      int position = buffer.position();
+      long capacity = Math.max((long) buffer.capacity() * 2, (long) position + needed);
+      if (capacity > Integer.MAX_VALUE) {
+        throw new IllegalStateException("Accounts journal generation " + generation + " is full");
+      }
+      MappedByteBuffer grown = channel.map(FileChannel.MapMode.READ_WRITE, 0, capacity);
+      grown.position(position);
+      buffer = grown;
+      return grown;
+    } catch (IOException exception) {
+      throw new UncheckedIOException("Unable to grow accounts journal", exception);
+    }
+  }
+
+  private static void encode(ByteBuffer target, CRC32 crc, byte type, byte[] accountId, int scale, byte[] unscaled) {
+    int start = target.position();
+    target.position(start + RECORD_HEADER_BYTES);
+    target.put(type);
+    target.putShort((short) accountId.length);
+    target.put(accountId);
+    target.putInt(scale);
+    target.putShort((short) unscaled.length);
+    target.put(unscaled);
+    int end = target.position();
+
+    crc.reset();
+    for (int i = start + RECORD_HEADER_BYTES; i < end; i++) {
+      crc.update(target.get(i));
+    }
+    target.putInt(start, end - start - RECORD_HEADER_BYTES);
+    target.putInt(start + 4, (int) crc.getValue());
+  }
+
+  private static int recordLength(byte[] accountId, byte[] unscaled) {
+    return 1 + 2 + accountId.length + 4 + 2 + unscaled.length;
+  }
+
+  /**
+   * Applies every valid record of the file to the map and returns the position after the last one.
+   * Reading stops at the first empty or torn record.
+   */
+  static int replay(Path file, Map<String, Account> accounts) throws IOException {
+    try (FileChannel readChannel = FileChannel.open(file, StandardOpenOption.READ)) {
+      if (readChannel.size() == 0) {
+        return 0;
+      }
+      MappedByteBuffer source = readChannel.map(FileChannel.MapMode.READ_ONLY, 0, readChannel.size());
+      CRC32 checksum = new CRC32();
+      while (source.remaining() >= RECORD_HEADER_BYTES) {
+        int start = source.position();
+        int length = source.getInt();
+        int expectedCrc = source.getInt();
+        if (length <= 0 || length > source.remaining()) {
+          return start;
+        }
+        checksum.reset();
+        for (int i = source.position(); i < source.position() + length; i++) {
+          checksum.update(source.get(i));
+        }
+        if ((int) checksum.getValue() != expectedCrc) {
+          return start;
+        }
+
+        byte type = source.get();
+        byte[] accountId = new byte[source.getShort()];
+        source.get(accountId);
+        int scale = source.getInt();
+        byte[] unscaled = new byte[source.getShort()];
+        source.get(unscaled);
+
+        if (type == CLEAR) {
+          accounts.clear();
+        } else {
+          String id = new String(accountId, StandardCharsets.UTF_8);
+          accounts.put(id, new Account(id, new BigDecimal(new BigInteger(unscaled), scale)));
+        }
+      }
+      return source.position();
+    }
+  }
+
+  private void openJournal(long journalGeneration, int position) throws IOException {
+    channel = FileChannel.open(journalPath(journalGeneration), StandardOpenOption.CREATE,
+      StandardOpenOption.READ, StandardOpenOption.WRITE);
+    long capacity = Math.max(initialCapacity, channel.size());
+    MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_WRITE, 0, capacity);
+    // Wipe whatever follows the last valid record so a torn tail can never be replayed later.
+    for (int i = position; i < mapped.capacity(); i++) {
+      mapped.put(i, (byte) 0);
+    }
+    mapped.position(position);
+    generation = journalGeneration;
+    buffer = mapped;
+  }
+
+  /**
+   * Forces the journal whenever a writer asks for it. A failed force is reported to the waiters
+   * and retried with a growing delay until it succeeds again.
+   */
+  private void flushLoop() {
+    long retryMillis = MIN_RETRY_MILLIS;
+    while (running) {
+      flushLock.lock();
+      try {
+        while (running && requested <= durable) {
+          try {
+            flushRequested.await();
+          } catch (InterruptedException exception) {
+            return;
+          }
+        }
+      } finally {
+        flushLock.unlock();
+      }
+
+      long target;
+      writeLock.lock();
+      try {
+        target = appended;
+        buffer.force();
+      } catch (RuntimeException exception) {
+        writeLock.unlock();
+        log.error("Unable to force accounts journal, retrying in {} ms", retryMillis, exception);
+        flushLock.lock();
+        try {
+          forceFailure = exception;
+          flushed.signalAll();
+        } finally {
+          flushLock.unlock();
+        }
+        try {
+          Thread.sleep(retryMillis);
+        } catch (InterruptedException interrupted) {
+          return;
+        }
+        retryMillis = Math.min(retryMillis * 2, MAX_RETRY_MILLIS);
+        continue;
+      }
+      writeLock.unlock();
+      retryMillis = MIN_RETRY_MILLIS;
+
+      flushLock.lock();
+      try {
+        forceFailure = null;
+        durable = Math.max(durable, target);
+        flushed.signalAll();
+      } finally {
+        flushLock.unlock();
+      }
+    }
+  }
+
+  private void compactQuietly() {
+    try {
+      compact();
+    } catch (IOException | RuntimeException exception) {
+      log.error("Accounts journal compaction failed", exception);
+    }
+  }
+
+  private long latestGeneration(Pattern pattern) throws IOException {
+    List<Long> generations = generations(pattern);
+    return generations.isEmpty() ? -1 : generations.get(generations.size() - 1);
+  }
+
+  private List<Long> generations(Pattern pattern) throws IOException {
+    List<Long> generations = new ArrayList<>();
+    try (Stream<Path> files = Files.list(directory)) {
+      files.forEach(file -> {
+        Matcher matcher = pattern.matcher(file.getFileName().toString());
+        if (matcher.matches()) {
+          generations.add(Long.parseLong(matcher.group(1)));
+        }
+      });
+    }
+    Collections.sort(generations);
+    return generations;
+  }
+
+  private Path journalPath(long journalGeneration) {
+    return directory.resolve("journal-" + journalGeneration + ".log");
+  }
+
+  private Path snapshotPath(long snapshotGeneration) {
+    return directory.resolve("snapshot-" + snapshotGeneration + ".bin");
+  }
+}
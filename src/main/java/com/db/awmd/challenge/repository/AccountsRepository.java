@@ -1,6 +1,13 @@
 package com.db.awmd.challenge.repository;
 
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
 
 import com.db.awmd.challenge.domain.Account;
 import com.db.awmd.challenge.exception.DuplicateAccountIdException;
@@ -9,9 +16,96 @@ public interface AccountsRepository {
 
   void createAccount(Account account) throws DuplicateAccountIdException;
 
+  /**
+   * Creates every account whose id is not taken yet, in as few round trips as the repository
+   * allows. Accounts whose id is taken are left out and do not fail the others.
+   *
+   * @return the ids of the accounts that were not created because they already existed
+   */
+  default List<String> createAccounts(List<Account> accountsToCreate) {
+    List<String> duplicates = new ArrayList<>();
+    for (Account account : accountsToCreate) {
+      try {
+        createAccount(account);
+      } catch (DuplicateAccountIdException exception) {
+        duplicates.add(account.getAccountId());
+      }
+    }
+    return duplicates;
+  }
+
   Account getAccount(String accountId);
 
+  /**
+   * Returns the current state of an account read earlier. Repositories handing out the stored
+   * instances return the account itself; those handing out views return a fresh view, so that a
+   * caller who locked the account works on its latest balance.
+   */
+  default Account reload(Account account) {
+    return account;
+  }
+
+  /**
+   * Whether {@link #getAccount(String)} hands out the stored instances, so that a change made to
+   * an account is seen by every holder. Repositories handing out views return {@code false}.
+   */
+  default boolean storesLiveAccounts() {
+    return true;
+  }
+
+  /**
+   * Whether {@link #listAccounts} pages through the stored instances too, so that the audit
+   * balances saved on them are seen. Defaults to {@link #storesLiveAccounts()}.
+   */
+  default boolean listsLiveAccounts() {
+    return storesLiveAccounts();
+  }
+
+  /**
+   * Looks up several accounts at once. Ids without an account are left out of the result.
+   */
+  Map<String, Account> getAccounts(Collection<String> accountIds);
+
+  /**
+   * Returns up to {@code limit} accounts in account id order, starting after {@code afterAccountId}
+   * and stopping before {@code beforeAccountId}; either bound may be {@code null}. Pages are
+   * weakly consistent: accounts created or changed while paging may or may not be seen.
+   */
+  List<Account> listAccounts(String afterAccountId, String beforeAccountId, int limit);
+
   void clearAccounts();
   
   void updateAccounts(List<Account> accountsToSave);
+
+  /**
+   * Waits until every update accepted so far survives a restart. Engines update accounts while
+   * holding their locks, so repositories that make updates durable asynchronously wait here
+   * instead, and callers call this once the locks are released. The default returns at once.
+   */
+  default void awaitDurable() {
+  }
+
+  /**
+   * Writes every account to the file in the binary snapshot format.
+   *
+   * @return the number of accounts written
+   */
+  long snapshot(Path file) throws IOException;
+
+  /**
+   * Same as {@link #snapshot(Path)}, writing for every account the balance the given function
+   * reads from it, so that a caller can write the balances of a past audit epoch while transfers
+   * keep running. Only repositories that {@link #listsLiveAccounts() list live accounts} can
+   * hand the function the instances transfers change.
+   */
+  default long snapshot(Path file, Function<Account, BigDecimal> balanceOf) throws IOException {
+    throw new UnsupportedOperationException("Only repositories listing live accounts snapshot past balances");
+  }
+
+  /**
+   * Replaces all accounts with the content of a file written by {@link #snapshot(Path)}.
+   *
+   * @return the number of accounts restored
+   */
+  long restore(Path file) throws IOException;
 }
@@ -0,0 +1,27 @@
+package com.db.awmd.challenge.repository;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+
+/**
+ * Puts a write-behind cache in front of the JDBC repository when
+ * {@code accounts.repository.cache.enabled} is set.
+ */
+@Configuration
+@ConditionalOnProperty(name = "accounts.repository.cache.enabled", havingValue = "true")
+public class AccountsRepositoryCacheConfiguration {
+
+  @Bean(destroyMethod = "close")
+  @Primary
+  public AccountsRepositoryWriteBehindCache accountsRepositoryWriteBehindCache(AccountsRepositoryJdbc delegate,
+    @Value("${accounts.repository.cache.max-size:100000}") int maxSize,
+    @Value("${accounts.repository.cache.flush-interval-ms:100}") long flushIntervalMillis,
+    @Value("${accounts.repository.cache.batch-size:500}") int batchSize,
+    @Value("${accounts.repository.cache.max-write-attempts:10}") int maxWriteAttempts) {
+    return new AccountsRepositoryWriteBehindCache(delegate, maxSize, flushIntervalMillis, batchSize,
+      maxWriteAttempts);
+  }
+}
@@ -0,0 +1,652 @@
+package com.db.awmd.challenge.repository;
+
+import com.db.awmd.challenge.domain.Account;
+import com.db.awmd.challenge.domain.StripedLock;
+import com.db.awmd.challenge.exception.DuplicateAccountIdException;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Path;
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.StampedLock;
+
+import javax.annotation.PostConstruct;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Repository;
+
+/**
+ * Keeps accounts in primitive arrays instead of one object graph per account.
+ *
+ * <p>Accounts are numbered in creation order. Their ids are copied into pages of a shared
+ * {@code char} arena, their balances are {@code long} minor units in pages of an
+ * {@link AtomicLongArray}, and an open-addressing {@code int} table maps ids to account numbers.
+ * An account costs 2 bytes per id character plus about 30 bytes, instead of the several hundred
+ * bytes of a map entry, a String, an {@link Account}, a {@link BigDecimal} and a lock, and the
+ * garbage collector has a few large arrays to trace instead of millions of small objects.
+ *
+ * <p>{@link #getAccount(String)} returns a new {@link Account} view on every call. Views share the
+ * {@link StripedLock} of their stripe, so locking a view locks the account; a caller holding the
+ * lock gets the current balance from {@link #reload(Account)} and stores its changes with
+ * {@link #updateAccounts(List)}. Only the locking transfer engine works that way, and balances
+ * must have at most {@link Account#MINOR_UNIT_SCALE} decimal places.
+ *
+ * <p>Lookups and balance updates use optimistic reads of a {@link StampedLock} that is only
+ * write-locked to add accounts or replace them all. The journal is not supported; startup fails
+ * if it is enabled or another transfer engine is configured.
+ */
+@Repository
+@ConditionalOnProperty(name = "accounts.repository.type", havingValue = "compact")
+public class AccountsRepositoryCompact implements AccountsRepository {
+
+  private static final int PAGE_BITS = 16;
+
+  private static final int PAGE_MASK = (1 << PAGE_BITS) - 1;
+
+  private static final int ARENA_PAGE_BITS = 20;
+
+  private static final int ARENA_PAGE_SIZE = 1 << ARENA_PAGE_BITS;
+
+  private static final int MAX_ID_LENGTH = 0xFFFF;
+
+  private final StampedLock structureLock = new StampedLock();
+
+  private final StripedLock[] locks;
+
+  private final int initialCapacity;
+
+  private final Object sortLock = new Object();
+
+  private volatile Store store;
+
+  /**
+   * Account numbers in account id order, extended by merging when accounts were added since it
+   * was built. Guarded by {@link #sortLock}.
+   */
+  private int[] sorted = new int[0];
+
+  private Store sortedStore;
+
+  private String transferEngine = "locking";
+
+  private AccountsJournal journal;
+
+  @Autowired
+  public AccountsRepositoryCompact(@Value("${accounts.repository.compact.initial-capacity:1024}") int initialCapacity,
+    @Value("${accounts.repository.compact.lock-stripes:4096}") int lockStripes) {
+    this.initialCapacity = initialCapacity;
+    this.locks = new StripedLock[powerOfTwoAtLeast(lockStripes)];
+    for (int i = 0; i < locks.length; i++) {
+      locks[i] = new StripedLock(i);
+    }
+    this.store = new Store(initialCapacity);
+  }
+
+  @Value("${accounts.transfer.engine:locking}")
+  public void setTransferEngine(String transferEngine) {
+    this.transferEngine = transferEngine;
+  }
+
+  @Autowired(required = false)
+  public void setJournal(AccountsJournal journal) {
+    this.journal = journal;
+  }
+
+  /**
+   * Refuses to start with a transfer engine or journal that would silently lose updates, since
+   * views carry no version to detect them.
+   */
+  @PostConstruct
+  public void checkConfiguration() {
+    if (!"locking".equals(transferEngine)) {
+      throw new IllegalStateException("The compact repository only supports the locking transfer engine, not "
+        + transferEngine);
+    }
+    if (journal != null) {
+      throw new IllegalStateException("The compact repository does not support the journal");
+    }
+  }
+
+  @Override
+  public void createAccount(Account account) throws DuplicateAccountIdException {
+    long minorUnits = Account.toMinorUnits(account.getBalance());
+    long stamp = structureLock.writeLock();
+    try {
+      if (store.find(account.getAccountId()) >= 0) {
+        throw new DuplicateAccountIdException("Account id " + account.getAccountId() + " already exists!");
+      }
+      store.insert(account.getAccountId(), minorUnits);
+    } finally {
+      structureLock.unlockWrite(stamp);
+    }
+  }
+
+  /**
+   * Inserts the accounts under a single write lock. Fails without creating any account if one of
+   * the balances cannot be held in minor units.
+   */
+  @Override
+  public List<String> createAccounts(List<Account> accountsToCreate) {
+    long[] minorUnits = toMinorUnits(accountsToCreate);
+    List<String> duplicates = new ArrayList<>();
+    long stamp = structureLock.writeLock();
+    try {
+      for (int i = 0; i < accountsToCreate.size(); i++) {
+        String accountId = accountsToCreate.get(i).getAccountId();
+        if (store.find(accountId) >= 0) {
+          duplicates.add(accountId);
+        } else {
+          store.insert(accountId, minorUnits[i]);
+        }
+      }
+    } finally {
+      structureLock.unlockWrite(stamp);
+    }
+    return duplicates;
+  }
+
+  @Override
+  public Account getAccount(String accountId) {
+    long stamp = structureLock.tryOptimisticRead();
+    if (stamp != 0) {
+      try {
+        Store current = store;
+        int number = current.find(accountId);
+        long minorUnits = number < 0 ? 0 : current.balance(number);
+        if (structureLock.validate(stamp)) {
+          return number < 0 ? null : view(accountId, minorUnits);
+        }
+      } catch (RuntimeException exception) {
+        // Read arrays that a concurrent writer was replacing, fall back to the read lock.
+      }
+    }
+
+    stamp = structureLock.readLock();
+    try {
+      int number = store.find(accountId);
+      return number < 0 ? null : view(accountId, store.balance(number));
+    } finally {
+      structureLock.unlockRead(stamp);
+    }
+  }
+
+  @Override
+  public Map<String, Account> getAccounts(Collection<String> accountIds) {
+    Map<String, Account> found = new HashMap<>();
+    for (String accountId : accountIds) {
+      Account account = getAccount(accountId);
+      if (account != null) {
+        found.put(accountId, account);
+      }
+    }
+    return found;
+  }
+
+  /**
+   * Returns a fresh view of the account, or the given one if the account no longer exists.
+   */
+  @Override
+  public Account reload(Account account) {
+    Account current = getAccount(account.getAccountId());
+    return current != null ? current : account;
+  }
+
+  @Override
+  public boolean storesLiveAccounts() {
+    return false;
+  }
+
+  @Override
+  public List<Account> listAccounts(String afterAccountId, String beforeAccountId, int limit) {
+    long stamp = structureLock.readLock();
+    try {
+      Store current = store;
+      int[] order = sortedNumbers(current);
+      int from = afterAccountId == null ? 0 : current.upperBound(order, afterAccountId);
+
+      List<Account> page = new ArrayList<>(Math.min(limit, 1024));
+      for (int i = from; i < order.length && page.size() < limit; i++) {
+        String accountId = current.accountId(order[i]);
+        if (beforeAccountId != null && accountId.compareTo(beforeAccountId) >= 0) {
+          break;
+        }
+        page.add(view(accountId, current.balance(order[i])));
+      }
+      return page;
+    } finally {
+      structureLock.unlockRead(stamp);
+    }
+  }
+
+  @Override
+  public void clearAccounts() {
+    replaceStore(new Store(initialCapacity));
+  }
+
+  /**
+   * Stores the balances. Callers are expected to hold the account locks, so the store cannot be
+   * replaced meanwhile; accounts missing from it were removed by a clear or a restore since the
+   * caller read them and are not brought back.
+   */
+  @Override
+  public void updateAccounts(List<Account> accountsToSave) {
+    long[] minorUnits = toMinorUnits(accountsToSave);
+    for (int i = 0; i < accountsToSave.size(); i++) {
+      String accountId = accountsToSave.get(i).getAccountId();
+      if (!trySetBalance(accountId, minorUnits[i])) {
+        setBalanceLocked(accountId, minorUnits[i]);
+      }
+    }
+  }
+
+  @Override
+  public long snapshot(Path file) throws IOException {
+    long stamp = structureLock.readLock();
+    try {
+      Store current = store;
+      return AccountsSnapshot.write(file, () -> new Iterator<Account>() {
+
+        private int next;
+
+        @Override
+        public boolean hasNext() {
+          return next < current.size;
+        }
+
+        @Override
+        public Account next() {
+          if (!hasNext()) {
+            throw new NoSuchElementException();
+          }
+          int number = next++;
+          return new Account(current.accountId(number),
+            BigDecimal.valueOf(current.balance(number), Account.MINOR_UNIT_SCALE));
+        }
+      });
+    } finally {
+      structureLock.unlockRead(stamp);
+    }
+  }
+
+  /**
+   * Decodes the snapshot straight into a new store, without an {@link Account} per account, and
+   * swaps it in once complete.
+   */
+  @Override
+  public long restore(Path file) throws IOException {
+    Store restored = new Store(initialCapacity);
+    Map<String, Account> target = new AbstractMap<String, Account>() {
+
+      @Override
+      public Account put(String accountId, Account account) {
+        long minorUnits = Account.toMinorUnits(account.getBalance());
+        synchronized (restored) {
+          if (restored.find(accountId) < 0) {
+            restored.insert(accountId, minorUnits);
+          }
+        }
+        return null;
+      }
+
+      @Override
+      public Set<Entry<String, Account>> entrySet() {
+        throw new UnsupportedOperationException();
+      }
+    };
+    long restoredAccounts = AccountsSnapshot.read(file, target, ForkJoinPool.commonPool());
+    synchronized (restored) {
+      replaceStore(restored);
+    }
+    return restoredAccounts;
+  }
+
+  /**
+   * Swaps in the given store. Holding every stripe lock, in stripe order like the transfers take
+   * them, lets in-flight transfers finish first and keeps new ones out until the store is replaced.
+   */
+  private void replaceStore(Store replacement) {
+    int locked = 0;
+    try {
+      for (StripedLock lock : locks) {
+        lock.lock();
+        locked++;
+      }
+      long stamp = structureLock.writeLock();
+      try {
+        store = replacement;
+      } finally {
+        structureLock.unlockWrite(stamp);
+      }
+    } finally {
+      for (int i = locked - 1; i >= 0; i--) {
+        locks[i].unlock();
+      }
+    }
+  }
+
+  /**
+   * Sets the balance of an existing account under an optimistic read, returning {@code false} if
+   * the account is missing or a writer interfered.
+   */
+  private boolean trySetBalance(String accountId, long minorUnits) {
+    long stamp = structureLock.tryOptimisticRead();
+    if (stamp == 0) {
+      return false;
+    }
+    try {
+      Store current = store;
+      int number = current.find(accountId);
+      if (number < 0 || !structureLock.validate(stamp)) {
+        return false;
+      }
+      // Account numbers never change within a store; a store replaced meanwhile is checked below.
+      current.setBalance(number, minorUnits);
+      return store == current;
+    } catch (RuntimeException exception) {
+      return false;
+    }
+  }
+
+  private void setBalanceLocked(String accountId, long minorUnits) {
+    long stamp = structureLock.writeLock();
+    try {
+      int number = store.find(accountId);
+      if (number >= 0) {
+        store.setBalance(number, minorUnits);
+      }
+    } finally {
+      structureLock.unlockWrite(stamp);
+    }
+  }
+
+  /**
+   * Returns the account numbers of the store in account id order. Must be called with the read
+   * lock held.
+   */
+  private int[] sortedNumbers(Store current) {
+    synchronized (sortLock) {
+      if (sortedStore != current) {
+        sorted = new int[0];
+        sortedStore = current;
+      }
+      if (sorted.length < current.size) {
+        int[] added = new int[current.size - sorted.length];
+        for (int i = 0; i < added.length; i++) {
+          added[i] = sorted.length + i;
+        }
+        current.sort(added);
+        int[] merged = new int[current.size];
+        current.merge(sorted, 0, sorted.length, added, 0, added.length, merged, 0);
+        sorted = merged;
+      }
+      return sorted;
+    }
+  }
+
+  private Account view(String accountId, long minorUnits) {
+    return new Account(accountId, BigDecimal.valueOf(minorUnits, Account.MINOR_UNIT_SCALE),
+      locks[spread(accountId.hashCode()) & (locks.length - 1)]);
+  }
+
+  private static long[] toMinorUnits(List<Account> accounts) {
+    long[] minorUnits = new long[accounts.size()];
+    for (int i = 0; i < minorUnits.length; i++) {
+      minorUnits[i] = Account.toMinorUnits(accounts.get(i).getBalance());
+    }
+    return minorUnits;
+  }
+
+  private static int spread(int hash) {
+    return hash ^ (hash >>> 16);
+  }
+
+  private static int powerOfTwoAtLeast(int value) {
+    return value <= 1 ? 1 : Integer.highestOneBit(value - 1) << 1;
+  }
+
+  /**
+   * One generation of accounts; clearing or restoring replaces the whole store. Only mutated with
+   * the write lock held, apart from balances.
+   */
+  private static final class Store {
+
+    /**
+     * Account number + 1 per slot, 0 for an empty slot. Kept at most three quarters full.
+     */
+    private int[] table;
+
+    /**
+     * Arena position of the id shifted left by 16 bits, ORed with its length, per account.
+     */
+    private long[][] idRefs = new long[16][];
+
+    private AtomicLongArray[] balances = new AtomicLongArray[16];
+
+    private char[][] arena = new char[16][];
+
+    private long arenaPosition;
+
+    private int size;
+
+    private Store(int initialCapacity) {
+      this.table = new int[Math.max(16, powerOfTwoAtLeast(initialCapacity / 3 * 4 + 1))];
+    }
+
+    private int find(String accountId) {
+      int[] slots = table;
+      int mask = slots.length - 1;
+      int index = spread(accountId.hashCode()) & mask;
+      for (int probes = 0; probes <= mask; probes++) {
+        int entry = slots[index];
+        if (entry == 0) {
+          return -1;
+        }
+        if (idEquals(entry - 1, accountId)) {
+          return entry - 1;
+        }
+        index = (index + 1) & mask;
+      }
+      return -1;
+    }
+
+    private void insert(String accountId, long minorUnits) {
+      if (accountId.length() > MAX_ID_LENGTH) {
+        throw new IllegalArgumentException("Account ids are limited to " + MAX_ID_LENGTH + " characters");
+      }
+      if ((size + 1) * 4L > table.length * 3L) {
+        rehash(table.length << 1);
+      }
+
+      int number = size;
+      int page = number >>> PAGE_BITS;
+      if (page == idRefs.length) {
+        idRefs = Arrays.copyOf(idRefs, page << 1);
+        balances = Arrays.copyOf(balances, page << 1);
+      }
+      if (idRefs[page] == null) {
+        idRefs[page] = new long[PAGE_MASK + 1];
+        balances[page] = new AtomicLongArray(PAGE_MASK + 1);
+      }
+      idRefs[page][number & PAGE_MASK] = append(accountId) << 16 | accountId.length();
+      balances[page].set(number & PAGE_MASK, minorUnits);
+      place(table, number, accountId.hashCode());
+      size++;
+    }
+
+    private long balance(int number) {
+      return balances[number >>> PAGE_BITS].get(number & PAGE_MASK);
+    }
+
+    private void setBalance(int number, long minorUnits) {
+      balances[number >>> PAGE_BITS].set(number & PAGE_MASK, minorUnits);
+    }
+
+    private String accountId(int number) {
+      long ref = idRefs[number >>> PAGE_BITS][number & PAGE_MASK];
+      long position = ref >>> 16;
+      return new String(arena[(int) (position >>> ARENA_PAGE_BITS)], (int) (position & (ARENA_PAGE_SIZE - 1)),
+        (int) (ref & 0xFFFF));
+    }
+
+    /**
+     * Index of the first account number in {@code order} whose id is greater than the given one.
+     */
+    private int upperBound(int[] order, String accountId) {
+      int low = 0;
+      int high = order.length;
+      while (low < high) {
+        int middle = (low + high) >>> 1;
+        if (compare(order[middle], accountId) <= 0) {
+          low = middle + 1;
+        } else {
+          high = middle;
+        }
+      }
+      return low;
+    }
+
+    /**
+     * Sorts account numbers by account id with a bottom-up merge sort.
+     */
+    private void sort(int[] numbers) {
+      int[] source = numbers;
+      int[] target = new int[numbers.length];
+      for (int width = 1; width < numbers.length; width <<= 1) {
+        for (int low = 0; low < numbers.length; low += width << 1) {
+          int middle = Math.min(low + width, numbers.length);
+          int high = Math.min(low + (width << 1), numbers.length);
+          merge(source, low, middle, source, middle, high, target, low);
+        }
+        int[] swap = source;
+        source = target;
+        target = swap;
+      }
+      if (source != numbers) {
+        System.arraycopy(source, 0, numbers, 0, numbers.length);
+      }
+    }
+
+    private void merge(int[] left, int leftFrom, int leftTo, int[] right, int rightFrom, int rightTo, int[] target,
+      int targetFrom) {
+      int i = leftFrom;
+      int j = rightFrom;
+      int k = targetFrom;
+      while (i < leftTo && j < rightTo) {
+        target[k++] = compare(left[i], right[j]) <= 0 ? left[i++] : right[j++];
+      }
+      while (i < leftTo) {
+        target[k++] = left[i++];
+      }
+      while (j < rightTo) {
+        target[k++] = right[j++];
+      }
+    }
+
+    /**
+     * Compares two account ids the way {@link String#compareTo(String)} does.
+     */
+    private int compare(int first, int second) {
+      long firstRef = idRefs[first >>> PAGE_BITS][first & PAGE_MASK];
+      long secondRef = idRefs[second >>> PAGE_BITS][second & PAGE_MASK];
+      char[] firstPage = arena[(int) ((firstRef >>> 16) >>> ARENA_PAGE_BITS)];
+      char[] secondPage = arena[(int) ((secondRef >>> 16) >>> ARENA_PAGE_BITS)];
+      int firstOffset = (int) ((firstRef >>> 16) & (ARENA_PAGE_SIZE - 1));
+      int secondOffset = (int) ((secondRef >>> 16) & (ARENA_PAGE_SIZE - 1));
+      int firstLength = (int) (firstRef & 0xFFFF);
+      int secondLength = (int) (secondRef & 0xFFFF);
+      for (int i = 0; i < Math.min(firstLength, secondLength); i++) {
+        char a = firstPage[firstOffset + i];
+        char b = secondPage[secondOffset + i];
+        if (a != b) {
+          return a - b;
+        }
+      }
+      return firstLength - secondLength;
+    }
+
+    private int compare(int number, String accountId) {
+      long ref = idRefs[number >>> PAGE_BITS][number & PAGE_MASK];
+      char[] page = arena[(int) ((ref >>> 16) >>> ARENA_PAGE_BITS)];
+      int offset = (int) ((ref >>> 16) & (ARENA_PAGE_SIZE - 1));
+      int length = (int) (ref & 0xFFFF);
+      for (int i = 0; i < Math.min(length, accountId.length()); i++) {
+        char a = page[offset + i];
+        char b = accountId.charAt(i);
+        if (a != b) {
+          return a - b;
+        }
+      }
+      return length - accountId.length();
+    }
+
+    private boolean idEquals(int number, String accountId) {
+      long ref = idRefs[number >>> PAGE_BITS][number & PAGE_MASK];
+      return (int) (ref & 0xFFFF) == accountId.length() && compare(number, accountId) == 0;
+    }
+
+    private int hash(int number) {
+      long ref = idRefs[number >>> PAGE_BITS][number & PAGE_MASK];
+      char[] page = arena[(int) ((ref >>> 16) >>> ARENA_PAGE_BITS)];
+      int offset = (int) ((ref >>> 16) & (ARENA_PAGE_SIZE - 1));
+      int hash = 0;
+      for (int i = 0; i < (int) (ref & 0xFFFF); i++) {
+        hash = 31 * hash + page[offset + i];
+      }
+      return hash;
+    }
+
+    /**
+     * Copies the id into the arena, starting a new page if it does not fit into the current one,
+     * and returns its position.
+     */
+    private long append(String accountId) {
+      int length = accountId.length();
+      int offset = (int) (arenaPosition & (ARENA_PAGE_SIZE - 1));
+      if (offset + length > ARENA_PAGE_SIZE) {
+        arenaPosition += ARENA_PAGE_SIZE - offset;
+        offset = 0;
+      }
+      int page = (int) (arenaPosition >>> ARENA_PAGE_BITS);
+      if (page == arena.length) {
+        arena = Arrays.copyOf(arena, page << 1);
+      }
+      if (arena[page] == null) {
+        arena[page] = new char[ARENA_PAGE_SIZE];
+      }
+      accountId.getChars(0, length, arena[page], offset);
+      long position = arenaPosition;
+      arenaPosition += length;
+      return position;
+    }
+
+    private void rehash(int length) {
+      int[] rehashed = new int[length];
+      for (int number = 0; number < size; number++) {
+        place(rehashed, number, hash(number));
+      }
+      table = rehashed;
+    }
+
+    private static void place(int[] slots, int number, int hash) {
+      int mask = slots.length - 1;
+      int index = spread(hash) & mask;
+      while (slots[index] != 0) {
+        index = (index + 1) & mask;
+      }
+      slots[index] = number + 1;
+    }
+  }
+}
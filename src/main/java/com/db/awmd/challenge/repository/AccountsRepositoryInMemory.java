@@ -3,23 +3,96 @@ package com.db.awmd.challenge.repository;
 import com.db.awmd.challenge.domain.Account;
 import com.db.awmd.challenge.exception.DuplicateAccountIdException;
 
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.NavigableSet;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Function;
+
+import javax.annotation.PostConstruct;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.stereotype.Repository;
 
 @Repository
+@ConditionalOnProperty(name = "accounts.repository.type", havingValue = "in-memory", matchIfMissing = true)
 public class AccountsRepositoryInMemory implements AccountsRepository {
 
-  private final Map<String, Account> accounts = new ConcurrentHashMap<>();
+  private static final long PARALLELISM_THRESHOLD = 1024;
+
+  private final ConcurrentHashMap<String, Account> accounts = new ConcurrentHashMap<>();
+
+  /**
+   * Account ids in order, for paging. An id is added once its account is in {@link #accounts}.
+   */
+  private final ConcurrentSkipListSet<String> accountIds = new ConcurrentSkipListSet<>();
+
+  /**
+   * Optional write-ahead journal, present when {@code accounts.journal.enabled} is set.
+   */
+  private AccountsJournal journal;
+
+  @Autowired(required = false)
+  public void setJournal(AccountsJournal journal) {
+    this.journal = journal;
+  }
+
+  @PostConstruct
+  public void recover() {
+    if (journal != null) {
+      journal.open(accounts);
+      accountIds.addAll(accounts.keySet());
+    }
+  }
 
   @Override
   public void createAccount(Account account) throws DuplicateAccountIdException {
+    if (journal != null) {
+      AccountsJournal.checkRecord(account);
+    }
     Account previousAccount = accounts.putIfAbsent(account.getAccountId(), account);
     if (previousAccount != null) {
       throw new DuplicateAccountIdException(
         "Account id " + account.getAccountId() + " already exists!");
     }
+    accountIds.add(account.getAccountId());
+    if (journal != null) {
+      journal.awaitDurable(journal.append(AccountsJournal.CREATE, Collections.singletonList(account)));
+    }
+  }
+
+  /**
+   * Inserts the accounts and journals the created ones as a single record batch.
+   */
+  @Override
+  public List<String> createAccounts(List<Account> accountsToCreate) {
+    List<Account> created = new ArrayList<>(accountsToCreate.size());
+    List<String> duplicates = new ArrayList<>();
+    if (journal != null) {
+      accountsToCreate.forEach(AccountsJournal::checkRecord);
+    }
+    for (Account account : accountsToCreate) {
+      if (accounts.putIfAbsent(account.getAccountId(), account) == null) {
+        accountIds.add(account.getAccountId());
+        created.add(account);
+      } else {
+        duplicates.add(account.getAccountId());
+      }
+    }
+    if (journal != null && !created.isEmpty()) {
+      journal.awaitDurable(journal.append(AccountsJournal.CREATE, created));
+    }
+    return duplicates;
   }
 
   @Override
@@ -27,14 +100,116 @@ public class AccountsRepositoryInMemory implements AccountsRepository {
     return accounts.get(accountId);
   }
 
+  @Override
+  public Map<String, Account> getAccounts(Collection<String> accountIds) {
+    Map<String, Account> found = new HashMap<>();
+    for (String accountId : accountIds) {
+      Account account = accounts.get(accountId);
+      if (account != null) {
+        found.put(accountId, account);
+      }
+    }
+    return found;
+  }
+
+  @Override
+  public List<Account> listAccounts(String afterAccountId, String beforeAccountId, int limit) {
+    NavigableSet<String> range = accountIds;
+    if (afterAccountId != null) {
+      range = range.tailSet(afterAccountId, false);
+    }
+    if (beforeAccountId != null) {
+      range = range.headSet(beforeAccountId, false);
+    }
+
+    List<Account> page = new ArrayList<>(Math.min(limit, 1024));
+    for (String accountId : range) {
+      if (page.size() == limit) {
+        break;
+      }
+      Account account = accounts.get(accountId);
+      if (account != null) {
+        page.add(account);
+      }
+    }
+    return page;
+  }
+
   @Override
   public void clearAccounts() {
     accounts.clear();
+    accountIds.clear();
+    if (journal != null) {
+      journal.appendClear();
+    }
   }
   
+  /**
+   * The accounts are the live instances of the map, so only the journal needs to hear about the
+   * change. Instances replaced or removed meanwhile, by a restore or a clear, are left out: a
+   * transfer that still held one must not bring back the state they had. The records are only
+   * appended here; callers wait for them in {@link #awaitDurable()} after releasing their locks.
+   */
   @Override
   public void updateAccounts(List<Account> accountsToSave) {
-	  accountsToSave.forEach(account -> accounts.put(account.getAccountId(), account));
+    if (journal == null) {
+      return;
+    }
+    List<Account> current = new ArrayList<>(accountsToSave.size());
+    for (Account account : accountsToSave) {
+      if (accounts.get(account.getAccountId()) == account) {
+        current.add(account);
+      }
+    }
+    if (!current.isEmpty()) {
+      journal.append(AccountsJournal.UPDATE, current);
+    }
+  }
+
+  @Override
+  public void awaitDurable() {
+    if (journal != null) {
+      journal.awaitDurable();
+    }
+  }
+
+  @Override
+  public long snapshot(Path file) throws IOException {
+    return AccountsSnapshot.write(file, accounts.values());
+  }
+
+  @Override
+  public long snapshot(Path file, Function<Account, BigDecimal> balanceOf) throws IOException {
+    return AccountsSnapshot.write(file, () -> accounts.values().stream()
+      .map(account -> new Account(account.getAccountId(), balanceOf.apply(account)))
+      .iterator());
+  }
+
+  @Override
+  public long restore(Path file) throws IOException {
+    ConcurrentHashMap<String, Account> restored = new ConcurrentHashMap<>();
+    long restoredAccounts = AccountsSnapshot.read(file, restored, ForkJoinPool.commonPool());
+
+    // Holding every account lock lets in-flight transfers finish first and keeps new ones out
+    // until the accounts are replaced; those still holding a replaced instance change it in vain.
+    List<Account> replaced = new ArrayList<>(accounts.values());
+    for (Account account : replaced) {
+      account.getReentrantLock().lock();
+    }
+    try {
+      accounts.clear();
+      accountIds.clear();
+      restored.forEach(PARALLELISM_THRESHOLD, accounts::put);
+      accountIds.addAll(restored.keySet());
+      if (journal != null) {
+        journal.compact();
+      }
+    } finally {
+      for (Account account : replaced) {
+        account.getReentrantLock().unlock();
+      }
+    }
+    return restoredAccounts;
   }
 
 }
@@ -0,0 +1,256 @@
+package com.db.awmd.challenge.repository;
+
+import com.db.awmd.challenge.domain.Account;
+import com.db.awmd.challenge.exception.DuplicateAccountIdException;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Path;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Stores accounts in a relational database. Instead of relying on JVM monitors, every row carries
+ * a version that {@link #updateAccounts(List)} checks and increments, so a concurrent update of
+ * the same account fails with an {@link OptimisticLockingFailureException} and can be retried.
+ */
+@Repository
+@ConditionalOnProperty(name = "accounts.repository.type", havingValue = "jdbc")
+public class AccountsRepositoryJdbc implements AccountsRepository {
+
+  private static final String SELECT_ACCOUNT = "SELECT account_id, balance, balance_scale, version FROM account";
+
+  private static final int PAGE_SIZE = 10_000;
+
+  private static final RowMapper<Account> ACCOUNT_ROW_MAPPER = AccountsRepositoryJdbc::mapAccount;
+
+  private final JdbcTemplate jdbcTemplate;
+
+  private final NamedParameterJdbcTemplate namedParameterJdbcTemplate;
+
+  private final TransactionTemplate transactionTemplate;
+
+  @Autowired
+  public AccountsRepositoryJdbc(JdbcTemplate jdbcTemplate, TransactionTemplate transactionTemplate) {
+    this.jdbcTemplate = jdbcTemplate;
+    this.namedParameterJdbcTemplate = new NamedParameterJdbcTemplate(jdbcTemplate);
+    this.transactionTemplate = transactionTemplate;
+  }
+
+  @Override
+  public boolean storesLiveAccounts() {
+    return false;
+  }
+
+  @Override
+  public void createAccount(Account account) throws DuplicateAccountIdException {
+    try {
+      jdbcTemplate.update("INSERT INTO account (account_id, balance, balance_scale, version) VALUES (?, ?, ?, 0)",
+        account.getAccountId(), account.getBalance(), account.getBalance().scale());
+    } catch (DuplicateKeyException exception) {
+      throw new DuplicateAccountIdException(
+        "Account id " + account.getAccountId() + " already exists!");
+    }
+    account.setVersion(0);
+  }
+
+  /**
+   * Looks up which ids are taken and inserts the other accounts in one batch and transaction. If
+   * a concurrent insert takes one of the ids in between, the accounts are created one by one.
+   */
+  @Override
+  public List<String> createAccounts(List<Account> accountsToCreate) {
+    if (accountsToCreate.isEmpty()) {
+      return Collections.emptyList();
+    }
+    List<String> accountIds = new ArrayList<>(accountsToCreate.size());
+    accountsToCreate.forEach(account -> accountIds.add(account.getAccountId()));
+    Set<String> taken = new HashSet<>(getAccounts(accountIds).keySet());
+
+    List<String> duplicates = new ArrayList<>();
+    List<Account> created = new ArrayList<>(accountsToCreate.size());
+    List<Object[]> arguments = new ArrayList<>(accountsToCreate.size());
+    for (Account account : accountsToCreate) {
+      if (!taken.add(account.getAccountId())) {
+        duplicates.add(account.getAccountId());
+        continue;
+      }
+      created.add(account);
+      arguments.add(new Object[] {account.getAccountId(), account.getBalance(), account.getBalance().scale()});
+    }
+
+    try {
+      transactionTemplate.execute(status -> {
+        insert(arguments);
+        return null;
+      });
+    } catch (DuplicateKeyException exception) {
+      duplicates.addAll(AccountsRepository.super.createAccounts(created));
+      return duplicates;
+    }
+    created.forEach(account -> account.setVersion(0));
+    return duplicates;
+  }
+
+  @Override
+  public Account getAccount(String accountId) {
+    List<Account> found = jdbcTemplate.query(SELECT_ACCOUNT + " WHERE account_id = ?", ACCOUNT_ROW_MAPPER, accountId);
+    return found.isEmpty() ? null : found.get(0);
+  }
+
+  @Override
+  public Map<String, Account> getAccounts(Collection<String> accountIds) {
+    if (accountIds.isEmpty()) {
+      return Collections.emptyMap();
+    }
+    Map<String, Account> found = new HashMap<>();
+    namedParameterJdbcTemplate.query(SELECT_ACCOUNT + " WHERE account_id IN (:ids)",
+      new MapSqlParameterSource("ids", accountIds),
+      (ResultSet resultSet) -> {
+        Account account = mapAccount(resultSet, 0);
+        found.put(account.getAccountId(), account);
+      });
+    return found;
+  }
+
+  @Override
+  public List<Account> listAccounts(String afterAccountId, String beforeAccountId, int limit) {
+    StringBuilder sql = new StringBuilder(SELECT_ACCOUNT).append(" WHERE 1 = 1");
+    List<Object> arguments = new ArrayList<>(3);
+    if (afterAccountId != null) {
+      sql.append(" AND account_id > ?");
+      arguments.add(afterAccountId);
+    }
+    if (beforeAccountId != null) {
+      sql.append(" AND account_id < ?");
+      arguments.add(beforeAccountId);
+    }
+    sql.append(" ORDER BY account_id LIMIT ?");
+    arguments.add(limit);
+    return jdbcTemplate.query(sql.toString(), ACCOUNT_ROW_MAPPER, arguments.toArray());
+  }
+
+  @Override
+  public void clearAccounts() {
+    jdbcTemplate.update("DELETE FROM account");
+  }
+
+  /**
+   * Writes all accounts in one batch and one transaction. Fails without changing anything if any
+   * of the rows was updated since it was read.
+   */
+  @Override
+  public void updateAccounts(List<Account> accountsToSave) {
+    transactionTemplate.execute(status -> {
+      List<Object[]> arguments = new ArrayList<>(accountsToSave.size());
+      for (Account account : accountsToSave) {
+        BigDecimal balance = account.getBalance();
+        arguments.add(new Object[] {balance, balance.scale(), account.getAccountId(), account.getVersion()});
+      }
+
+      int[] updated = jdbcTemplate.batchUpdate(
+        "UPDATE account SET balance = ?, balance_scale = ?, version = version + 1 WHERE account_id = ? AND version = ?",
+        arguments);
+      for (int i = 0; i < updated.length; i++) {
+        if (updated[i] == 0) {
+          throw new OptimisticLockingFailureException(
+            "Account " + accountsToSave.get(i).getAccountId() + " was modified concurrently");
+        }
+      }
+      return null;
+    });
+    accountsToSave.forEach(account -> account.setVersion(account.getVersion() + 1));
+  }
+
+  @Override
+  public long snapshot(Path file) throws IOException {
+    return AccountsSnapshot.write(file, this::pagedAccounts);
+  }
+
+  @Override
+  public long restore(Path file) throws IOException {
+    Map<String, Account> restored = new ConcurrentHashMap<>();
+    long restoredAccounts = AccountsSnapshot.read(file, restored, ForkJoinPool.commonPool());
+
+    transactionTemplate.execute(status -> {
+      jdbcTemplate.update("DELETE FROM account");
+      List<Object[]> arguments = new ArrayList<>(PAGE_SIZE);
+      for (Account account : restored.values()) {
+        arguments.add(new Object[] {account.getAccountId(), account.getBalance(), account.getBalance().scale()});
+        if (arguments.size() == PAGE_SIZE) {
+          insert(arguments);
+        }
+      }
+      insert(arguments);
+      return null;
+    });
+    return restoredAccounts;
+  }
+
+  private void insert(List<Object[]> arguments) {
+    if (!arguments.isEmpty()) {
+      jdbcTemplate.batchUpdate("INSERT INTO account (account_id, balance, balance_scale, version) VALUES (?, ?, ?, 0)",
+        arguments);
+      arguments.clear();
+    }
+  }
+
+  /**
+   * Iterates over all accounts in account id order, fetching {@value #PAGE_SIZE} rows at a time.
+   */
+  private Iterator<Account> pagedAccounts() {
+    return new Iterator<Account>() {
+
+      private List<Account> page = listAccounts(null, null, PAGE_SIZE);
+
+      private int index;
+
+      @Override
+      public boolean hasNext() {
+        if (index == page.size() && page.size() == PAGE_SIZE) {
+          page = listAccounts(page.get(page.size() - 1).getAccountId(), null, PAGE_SIZE);
+          index = 0;
+        }
+        return index < page.size();
+      }
+
+      @Override
+      public Account next() {
+        if (!hasNext()) {
+          throw new NoSuchElementException();
+        }
+        return page.get(index++);
+      }
+    };
+  }
+
+  private static Account mapAccount(ResultSet resultSet, int rowNumber) throws SQLException {
+    Account account = new Account(resultSet.getString("account_id"),
+      resultSet.getBigDecimal("balance").setScale(resultSet.getInt("balance_scale")));
+    account.setVersion(resultSet.getLong("version"));
+    return account;
+  }
+}
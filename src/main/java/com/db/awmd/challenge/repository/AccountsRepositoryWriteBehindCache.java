@@ -0,0 +1,392 @@
+package com.db.awmd.challenge.repository;
+
+import com.db.awmd.challenge.domain.Account;
+import com.db.awmd.challenge.domain.CacheStatistics;
+import com.db.awmd.challenge.exception.DuplicateAccountIdException;
+
+import java.io.IOException;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Caches the accounts of a slower repository and writes updates back asynchronously.
+ *
+ * <p>Reads are served from a bounded, striped LRU cache. Updates only mark the account dirty; the
+ * latest state of every dirty account is written to the delegate in batches by a background
+ * flusher, so many transfers of the same account cost one write. The LRU cache only bounds
+ * the clean accounts: a dirty account may be evicted, but the dirty accounts map keeps it alive
+ * until it is written. An account whose write fails {@code maxWriteAttempts} times in a row is
+ * no longer retried; it stays cached with the unwritten state and is counted in the statistics.
+ *
+ * <p>Account locks live on the {@link Account} instances, so there must never be two live
+ * instances of the same account. Evicted accounts are therefore kept in a weak registry and
+ * handed out again as long as anything still references them.
+ *
+ * <p>{@link #listAccounts} pages through the delegate, so it returns rows rather than the live
+ * instances of accounts that are neither dirty nor being written; audits over this repository are
+ * therefore not consistent.
+ */
+@Slf4j
+public class AccountsRepositoryWriteBehindCache implements AccountsRepository {
+
+  private static final int SEGMENTS = 16;
+
+  private final AccountsRepository delegate;
+
+  private final int batchSize;
+
+  private final int maxWriteAttempts;
+
+  private final Segment[] segments = new Segment[SEGMENTS];
+
+  private final Map<String, Account> dirty = new ConcurrentHashMap<>();
+
+  /**
+   * Accounts taken out of {@link #dirty} by the running flush until their write completed.
+   */
+  private final Map<String, Account> flushing = new ConcurrentHashMap<>();
+
+  /**
+   * Failed writes in a row per account; guarded by the flush lock.
+   */
+  private final Map<String, Integer> failedWrites = new HashMap<>();
+
+  private final ScheduledExecutorService flusher;
+
+  private final Object flushLock = new Object();
+
+  private final LongAdder hits = new LongAdder();
+
+  private final LongAdder misses = new LongAdder();
+
+  private final LongAdder evictions = new LongAdder();
+
+  private final LongAdder flushes = new LongAdder();
+
+  private final LongAdder flushedAccounts = new LongAdder();
+
+  private final LongAdder flushFailures = new LongAdder();
+
+  private final LongAdder droppedWrites = new LongAdder();
+
+  public AccountsRepositoryWriteBehindCache(AccountsRepository delegate, int maxSize, long flushIntervalMillis,
+    int batchSize, int maxWriteAttempts) {
+    this.delegate = delegate;
+    this.batchSize = batchSize;
+    this.maxWriteAttempts = maxWriteAttempts;
+    for (int i = 0; i < SEGMENTS; i++) {
+      segments[i] = new Segment(Math.max(1, maxSize / SEGMENTS));
+    }
+    this.flusher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+      Thread thread = new Thread(runnable, "accounts-cache-flusher");
+      thread.setDaemon(true);
+      return thread;
+    });
+    this.flusher.scheduleWithFixedDelay(this::flushQuietly, flushIntervalMillis, flushIntervalMillis,
+      TimeUnit.MILLISECONDS);
+  }
+
+  @Override
+  public void createAccount(Account account) throws DuplicateAccountIdException {
+    delegate.createAccount(account);
+    segmentOf(account.getAccountId()).putIfAbsent(account);
+  }
+
+  @Override
+  public List<String> createAccounts(List<Account> accountsToCreate) {
+    List<String> duplicates = delegate.createAccounts(accountsToCreate);
+    Set<String> skipped = new HashSet<>(duplicates);
+    for (Account account : accountsToCreate) {
+      if (!skipped.contains(account.getAccountId())) {
+        segmentOf(account.getAccountId()).putIfAbsent(account);
+      }
+    }
+    return duplicates;
+  }
+
+  @Override
+  public Account getAccount(String accountId) {
+    Segment segment = segmentOf(accountId);
+    Account account = segment.get(accountId);
+    if (account != null) {
+      hits.increment();
+      return account;
+    }
+
+    misses.increment();
+    Account loaded = delegate.getAccount(accountId);
+    return loaded == null ? null : segment.putIfAbsent(loaded);
+  }
+
+  @Override
+  public Map<String, Account> getAccounts(Collection<String> accountIds) {
+    Map<String, Account> found = new HashMap<>();
+    for (String accountId : accountIds) {
+      Account account = getAccount(accountId);
+      if (account != null) {
+        found.put(accountId, account);
+      }
+    }
+    return found;
+  }
+
+  /**
+   * Pages through the delegate, replacing accounts with unwritten changes, including those being
+   * written, by their cached state.
+   */
+  @Override
+  public List<Account> listAccounts(String afterAccountId, String beforeAccountId, int limit) {
+    List<Account> page = delegate.listAccounts(afterAccountId, beforeAccountId, limit);
+    for (int i = 0; i < page.size(); i++) {
+      String accountId = page.get(i).getAccountId();
+      Account changed = dirty.get(accountId);
+      if (changed == null) {
+        changed = flushing.get(accountId);
+      }
+      if (changed != null) {
+        page.set(i, changed);
+      }
+    }
+    return page;
+  }
+
+  @Override
+  public boolean listsLiveAccounts() {
+    return false;
+  }
+
+  @Override
+  public void clearAccounts() {
+    synchronized (flushLock) {
+      dirty.clear();
+      flushing.clear();
+      failedWrites.clear();
+      for (Segment segment : segments) {
+        segment.clear();
+      }
+      delegate.clearAccounts();
+    }
+  }
+
+  @Override
+  public void updateAccounts(List<Account> accountsToSave) {
+    for (Account account : accountsToSave) {
+      dirty.put(account.getAccountId(), account);
+      segmentOf(account.getAccountId()).putIfAbsent(account);
+    }
+  }
+
+  @Override
+  public long snapshot(Path file) throws IOException {
+    flush();
+    return delegate.snapshot(file);
+  }
+
+  @Override
+  public long restore(Path file) throws IOException {
+    synchronized (flushLock) {
+      dirty.clear();
+      flushing.clear();
+      failedWrites.clear();
+      for (Segment segment : segments) {
+        segment.clear();
+      }
+      return delegate.restore(file);
+    }
+  }
+
+  /**
+   * Writes every dirty account to the delegate, {@code batchSize} accounts per call.
+   */
+  public void flush() {
+    synchronized (flushLock) {
+      List<Account> batch = new ArrayList<>(batchSize);
+      Iterator<Map.Entry<String, Account>> iterator = dirty.entrySet().iterator();
+      while (iterator.hasNext()) {
+        Map.Entry<String, Account> entry = iterator.next();
+        // Listed as being written before it leaves the dirty map, so listings never miss it.
+        flushing.put(entry.getKey(), entry.getValue());
+        if (dirty.remove(entry.getKey(), entry.getValue())) {
+          batch.add(entry.getValue());
+        } else {
+          flushing.remove(entry.getKey(), entry.getValue());
+        }
+        if (batch.size() == batchSize) {
+          write(batch);
+        }
+      }
+      write(batch);
+    }
+  }
+
+  public void close() {
+    flusher.shutdown();
+    flush();
+  }
+
+  public CacheStatistics getStatistics() {
+    int size = 0;
+    for (Segment segment : segments) {
+      size += segment.size();
+    }
+    return new CacheStatistics(hits.sum(), misses.sum(), evictions.sum(), flushes.sum(), flushedAccounts.sum(),
+      flushFailures.sum(), droppedWrites.sum(), size, dirty.size());
+  }
+
+  private void write(List<Account> batch) {
+    if (batch.isEmpty()) {
+      return;
+    }
+    write(batch, 0, batch.size());
+    batch.forEach(account -> flushing.remove(account.getAccountId(), account));
+    batch.clear();
+  }
+
+  /**
+   * Writes the accounts from {@code from} to {@code to} in one call. The delegate writes a call in
+   * one transaction, so when it fails each half is written on its own, down to the accounts that
+   * fail alone; only those stay dirty and are charged a failed attempt.
+   */
+  private void write(List<Account> batch, int from, int to) {
+    List<Account> accounts = from == 0 && to == batch.size() ? batch : new ArrayList<>(batch.subList(from, to));
+    try {
+      delegate.updateAccounts(accounts);
+      flushes.increment();
+      flushedAccounts.add(accounts.size());
+      if (!failedWrites.isEmpty()) {
+        accounts.forEach(account -> failedWrites.remove(account.getAccountId()));
+      }
+    } catch (RuntimeException exception) {
+      flushFailures.increment();
+      if (accounts.size() > 1) {
+        log.warn("Failed to write {} accounts back, writing them in smaller batches", accounts.size(), exception);
+        int middle = from + (to - from) / 2;
+        write(batch, from, middle);
+        write(batch, middle, to);
+        return;
+      }
+      Account account = accounts.get(0);
+      if (failedWrites.merge(account.getAccountId(), 1, Integer::sum) < maxWriteAttempts) {
+        log.error("Failed to write account {} back, keeping it dirty", account.getAccountId(), exception);
+        dirty.putIfAbsent(account.getAccountId(), account);
+      } else {
+        failedWrites.remove(account.getAccountId());
+        droppedWrites.increment();
+        log.error("Giving up writing account {} back after {} attempts", account.getAccountId(), maxWriteAttempts,
+          exception);
+      }
+    }
+  }
+
+  private void flushQuietly() {
+    try {
+      flush();
+    } catch (RuntimeException exception) {
+      log.error("Accounts cache flush failed", exception);
+    }
+  }
+
+  private Segment segmentOf(String accountId) {
+    return segments[(accountId.hashCode() & Integer.MAX_VALUE) % SEGMENTS];
+  }
+
+  private final class Segment {
+
+    private final LinkedHashMap<String, Account> entries;
+
+    private final Map<String, AccountReference> evicted = new HashMap<>();
+
+    private final ReferenceQueue<Account> collected = new ReferenceQueue<>();
+
+    private Segment(int capacity) {
+      this.entries = new LinkedHashMap<String, Account>(capacity, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Account> eldest) {
+          if (size() <= capacity) {
+            return false;
+          }
+          // A dirty account stays strongly reachable through the dirty map and is revived from here.
+          evicted.put(eldest.getKey(), new AccountReference(eldest.getValue(), collected));
+          evictions.increment();
+          return true;
+        }
+      };
+    }
+
+    private synchronized Account get(String accountId) {
+      Account account = entries.get(accountId);
+      if (account == null) {
+        account = revive(accountId);
+      }
+      return account;
+    }
+
+    /**
+     * Caches the account unless an instance of it is already known, and returns the known one.
+     */
+    private synchronized Account putIfAbsent(Account account) {
+      Account existing = entries.get(account.getAccountId());
+      if (existing == null) {
+        existing = revive(account.getAccountId());
+      }
+      if (existing != null) {
+        return existing;
+      }
+      entries.put(account.getAccountId(), account);
+      return account;
+    }
+
+    private synchronized int size() {
+      return entries.size();
+    }
+
+    private synchronized void clear() {
+      entries.clear();
+      evicted.clear();
+    }
+
+    private Account revive(String accountId) {
+      expungeCollected();
+      AccountReference reference = evicted.remove(accountId);
+      Account account = reference == null ? null : reference.get();
+      if (account != null) {
+        entries.put(accountId, account);
+      }
+      return account;
+    }
+
+    private void expungeCollected() {
+      AccountReference reference;
+      while ((reference = (AccountReference) collected.poll()) != null) {
+        evicted.remove(reference.accountId, reference);
+      }
+    }
+  }
+
+  private static final class AccountReference extends WeakReference<Account> {
+
+    private final String accountId;
+
+    private AccountReference(Account account, ReferenceQueue<Account> queue) {
+      super(account, queue);
+      this.accountId = account.getAccountId();
+    }
+  }
+}
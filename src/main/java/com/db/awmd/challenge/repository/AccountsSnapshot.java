@@ -0,0 +1,289 @@
+package com.db.awmd.challenge.repository;
+
+import com.db.awmd.challenge.domain.Account;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.zip.CRC32;
+
+/**
+ * Compact binary snapshot of the accounts map.
+ *
+ * <p>Layout: an 8 byte header (magic, version), the account records grouped in segments, a
+ * segment table and a fixed-size footer. A record is a length-prefixed UTF-8 account id followed
+ * by the balance as a {@code long} unscaled value and a {@code byte} scale. Every segment entry
+ * holds the offset, length, record count and CRC32 of its segment, and the footer holds the CRC32
+ * of the table, so segments can be memory-mapped, verified and decoded independently and in
+ * parallel.
+ */
+final class AccountsSnapshot {
+
+  private static final int MAGIC = 0x4143534E;
+
+  private static final int VERSION = 1;
+
+  private static final int HEADER_BYTES = 8;
+
+  private static final int SEGMENT_ENTRY_BYTES = 24;
+
+  private static final int FOOTER_BYTES = 28;
+
+  private static final int ACCOUNTS_PER_SEGMENT = 65536;
+
+  private static final int MAX_RECORD_BYTES = 2 + Short.MAX_VALUE + 8 + 1;
+
+  private AccountsSnapshot() {
+  }
+
+  /**
+   * Writes the accounts to the file, replacing it, and returns the number of accounts written.
+   */
+  static long write(Path file, Iterable<Account> accounts) throws IOException {
+    try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE,
+      StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+      Writer writer = new Writer(channel);
+      writer.putInt(MAGIC);
+      writer.putInt(VERSION);
+
+      List<long[]> segments = new ArrayList<>();
+      CRC32 segmentCrc = new CRC32();
+      byte[] record = new byte[MAX_RECORD_BYTES];
+      ByteBuffer recordBuffer = ByteBuffer.wrap(record);
+      long segmentStart = writer.position;
+      int segmentCount = 0;
+      long accountCount = 0;
+
+      for (Account account : accounts) {
+        recordBuffer.clear();
+        encode(recordBuffer, account);
+        segmentCrc.update(record, 0, recordBuffer.position());
+        writer.put(record, recordBuffer.position());
+        segmentCount++;
+        accountCount++;
+
+        if (segmentCount == ACCOUNTS_PER_SEGMENT) {
+          segments.add(new long[] {segmentStart, writer.position - segmentStart, segmentCount, segmentCrc.getValue()});
+          segmentStart = writer.position;
+          segmentCount = 0;
+          segmentCrc.reset();
+        }
+      }
+      if (segmentCount > 0) {
+        segments.add(new long[] {segmentStart, writer.position - segmentStart, segmentCount, segmentCrc.getValue()});
+      }
+
+      long tableOffset = writer.position;
+      CRC32 tableCrc = new CRC32();
+      for (long[] segment : segments) {
+        recordBuffer.clear();
+        recordBuffer.putLong(segment[0]).putLong(segment[1]).putInt((int) segment[2]).putInt((int) segment[3]);
+        tableCrc.update(record, 0, SEGMENT_ENTRY_BYTES);
+        writer.put(record, SEGMENT_ENTRY_BYTES);
+      }
+
+      writer.putLong(tableOffset);
+      writer.putInt(segments.size());
+      writer.putLong(accountCount);
+      writer.putInt((int) tableCrc.getValue());
+      writer.putInt(MAGIC);
+      writer.flush();
+      channel.force(true);
+      return accountCount;
+    }
+  }
+
+  /**
+   * Verifies the snapshot and decodes its segments in parallel into the given map.
+   *
+   * @return the number of accounts read
+   */
+  static long read(Path file, Map<String, Account> target, ForkJoinPool pool) throws IOException {
+    try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+      long size = channel.size();
+      if (size < HEADER_BYTES + FOOTER_BYTES) {
+        throw new IOException("Snapshot " + file + " is truncated");
+      }
+
+      ByteBuffer header = readFully(channel, 0, HEADER_BYTES);
+      ByteBuffer footer = readFully(channel, size - FOOTER_BYTES, FOOTER_BYTES);
+      long tableOffset = footer.getLong();
+      int segmentCount = footer.getInt();
+      long accountCount = footer.getLong();
+      int expectedTableCrc = footer.getInt();
+      if (header.getInt() != MAGIC || header.getInt() != VERSION || footer.getInt() != MAGIC
+        || tableOffset + (long) segmentCount * SEGMENT_ENTRY_BYTES != size - FOOTER_BYTES) {
+        throw new IOException("Snapshot " + file + " is not a version " + VERSION + " accounts snapshot");
+      }
+
+      ByteBuffer table = readFully(channel, tableOffset, segmentCount * SEGMENT_ENTRY_BYTES);
+      CRC32 tableCrc = new CRC32();
+      tableCrc.update(table.duplicate());
+      if ((int) tableCrc.getValue() != expectedTableCrc) {
+        throw new IOException("Snapshot " + file + " has a corrupted segment table");
+      }
+
+      long[][] segments = new long[segmentCount][];
+      for (int i = 0; i < segmentCount; i++) {
+        segments[i] = new long[] {table.getLong(), table.getLong(), table.getInt(), table.getInt()};
+      }
+
+      try {
+        pool.invoke(new RestoreSegments(file, channel, segments, 0, segmentCount, target));
+      } catch (UncheckedIOException exception) {
+        throw exception.getCause();
+      }
+      return accountCount;
+    }
+  }
+
+  private static void encode(ByteBuffer target, Account account) throws IOException {
+    byte[] accountId = account.getAccountId().getBytes(StandardCharsets.UTF_8);
+    BigDecimal balance = account.getBalance();
+    BigInteger unscaled = balance.unscaledValue();
+    if (accountId.length > Short.MAX_VALUE || balance.scale() > Byte.MAX_VALUE || balance.scale() < Byte.MIN_VALUE
+      || unscaled.bitLength() > Long.SIZE - 1) {
+      throw new IOException("Account " + account.getAccountId() + " cannot be written to a snapshot: its id is longer than "
+        + Short.MAX_VALUE + " bytes or its balance " + balance + " does not fit a long unscaled value and a byte scale");
+    }
+    target.putShort((short) accountId.length);
+    target.put(accountId);
+    target.putLong(unscaled.longValue());
+    target.put((byte) balance.scale());
+  }
+
+  private static ByteBuffer readFully(FileChannel channel, long position, int length) throws IOException {
+    ByteBuffer buffer = ByteBuffer.allocate(length);
+    while (buffer.hasRemaining()) {
+      if (channel.read(buffer, position + buffer.position()) < 0) {
+        throw new IOException("Unexpected end of snapshot");
+      }
+    }
+    buffer.flip();
+    return buffer;
+  }
+
+  /**
+   * Maps, verifies and decodes a range of segments, splitting the range across the pool.
+   */
+  private static final class RestoreSegments extends RecursiveAction {
+
+    private final Path file;
+
+    private final FileChannel channel;
+
+    private final long[][] segments;
+
+    private final int from;
+
+    private final int to;
+
+    private final Map<String, Account> target;
+
+    private RestoreSegments(Path file, FileChannel channel, long[][] segments, int from, int to,
+      Map<String, Account> target) {
+      this.file = file;
+      this.channel = channel;
+      this.segments = segments;
+      this.from = from;
+      this.to = to;
+      this.target = target;
+    }
+
+    @Override
+    protected void compute() {
+      if (to - from > 1) {
+        int middle = (from + to) >>> 1;
+        invokeAll(new RestoreSegments(file, channel, segments, from, middle, target),
+          new RestoreSegments(file, channel, segments, middle, to, target));
+      } else if (to - from == 1) {
+        restore(segments[from]);
+      }
+    }
+
+    private void restore(long[] segment) {
+      MappedByteBuffer data;
+      try {
+        data = channel.map(FileChannel.MapMode.READ_ONLY, segment[0], segment[1]);
+      } catch (IOException exception) {
+        throw new UncheckedIOException(exception);
+      }
+
+      CRC32 crc = new CRC32();
+      crc.update(data.duplicate());
+      if ((int) crc.getValue() != (int) segment[3]) {
+        throw new UncheckedIOException(new IOException(
+          "Snapshot " + file + " has a corrupted segment at offset " + segment[0]));
+      }
+
+      for (long i = 0; i < segment[2]; i++) {
+        byte[] accountId = new byte[data.getShort()];
+        data.get(accountId);
+        long unscaled = data.getLong();
+        int scale = data.get();
+        String id = new String(accountId, StandardCharsets.UTF_8);
+        target.put(id, new Account(id, BigDecimal.valueOf(unscaled, scale)));
+      }
+    }
+  }
+
+  /**
+   * Buffers writes to the channel and tracks the file position.
+   */
+  private static final class Writer {
+
+    private final FileChannel channel;
+
+    private final ByteBuffer buffer = ByteBuffer.allocateDirect(1024 * 1024);
+
+    private long position;
+
+    private Writer(FileChannel channel) {
+      this.channel = channel;
+    }
+
+    private void put(byte[] bytes, int length) throws IOException {
+      if (buffer.remaining() < length) {
+        flush();
+      }
+      buffer.put(bytes, 0, length);
+      position += length;
+    }
+
+    private void putInt(int value) throws IOException {
+      if (buffer.remaining() < 4) {
+        flush();
+      }
+      buffer.putInt(value);
+      position += 4;
+    }
+
+    private void putLong(long value) throws IOException {
+      if (buffer.remaining() < 8) {
+        flush();
+      }
+      buffer.putLong(value);
+      position += 8;
+    }
+
+    private void flush() throws IOException {
+      buffer.flip();
+      while (buffer.hasRemaining()) {
+        channel.write(buffer);
+      }
+      buffer.clear();
+    }
+  }
+}
@@ -0,0 +1,155 @@
+package com.db.awmd.challenge.service;
+
+import com.db.awmd.challenge.domain.Account;
+import com.db.awmd.challenge.domain.LockStatistics;
+import com.db.awmd.challenge.domain.StripedLock;
+import com.db.awmd.challenge.exception.AccountLockTimeoutException;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Acquires account locks in a global order (by account id, or by stripe) so that opposing transfers
+ * can never deadlock. Every acquisition is bounded by a timeout and counted.
+ */
+@Component
+@Slf4j
+public class AccountLockManager {
+
+    /**
+     * Account id order, or stripe order for accounts guarded by {@link StripedLock}s, whose
+     * account ids do not tell in which order their locks are taken.
+     */
+    private static final Comparator<Account> LOCK_ORDER = (first, second) -> {
+        ReentrantLock firstLock = first.getReentrantLock();
+        ReentrantLock secondLock = second.getReentrantLock();
+        if (firstLock instanceof StripedLock && secondLock instanceof StripedLock) {
+            return Integer.compare(((StripedLock) firstLock).getStripe(), ((StripedLock) secondLock).getStripe());
+        }
+        return first.getAccountId().compareTo(second.getAccountId());
+    };
+
+    private final long lockTimeoutMillis;
+
+    private final TransferMetrics transferMetrics;
+
+    private final LongAdder acquisitions = new LongAdder();
+
+    private final LongAdder contendedAcquisitions = new LongAdder();
+
+    private final LongAdder timeouts = new LongAdder();
+
+    @Autowired
+    public AccountLockManager(@Value("${accounts.lock.timeout-ms:500}") long lockTimeoutMillis,
+                              TransferMetrics transferMetrics) {
+        this.lockTimeoutMillis = lockTimeoutMillis;
+        this.transferMetrics = transferMetrics;
+    }
+
+    /**
+     * Locks a single account.
+     *
+     * @throws AccountLockTimeoutException if the lock cannot be taken within the timeout
+     */
+    public void lock(Account account) {
+        long start = System.nanoTime();
+        acquire(account);
+        transferMetrics.record(TransferPhase.LOCK_WAIT, start);
+    }
+
+    public void unlock(Account account) {
+        account.getReentrantLock().unlock();
+    }
+
+    /**
+     * Locks both accounts, lowest account id first.
+     *
+     * @throws AccountLockTimeoutException if either lock cannot be taken within the timeout
+     */
+    public void lock(Account first, Account second) {
+        Account lower = LOCK_ORDER.compare(first, second) <= 0 ? first : second;
+        Account higher = lower == first ? second : first;
+
+        long start = System.nanoTime();
+        acquire(lower);
+        try {
+            acquire(higher);
+        } catch (AccountLockTimeoutException exception) {
+            lower.getReentrantLock().unlock();
+            throw exception;
+        }
+        transferMetrics.record(TransferPhase.LOCK_WAIT, start);
+    }
+
+    public void unlock(Account first, Account second) {
+        first.getReentrantLock().unlock();
+        second.getReentrantLock().unlock();
+    }
+
+    /**
+     * Locks every given account in account id order and returns the accounts in the order they
+     * were locked, which is the list to hand back to {@link #unlockAll(List)}.
+     */
+    public List<Account> lockAll(Collection<Account> accounts) {
+        List<Account> ordered = new ArrayList<>(accounts);
+        ordered.sort(LOCK_ORDER);
+
+        long start = System.nanoTime();
+        int locked = 0;
+        try {
+            for (Account account : ordered) {
+                acquire(account);
+                locked++;
+            }
+        } catch (AccountLockTimeoutException exception) {
+            unlockAll(ordered.subList(0, locked));
+            throw exception;
+        }
+        transferMetrics.record(TransferPhase.LOCK_WAIT, start);
+        return ordered;
+    }
+
+    public void unlockAll(List<Account> lockedAccounts) {
+        for (int i = lockedAccounts.size() - 1; i >= 0; i--) {
+            lockedAccounts.get(i).getReentrantLock().unlock();
+        }
+    }
+
+    public LockStatistics getStatistics() {
+        return new LockStatistics(acquisitions.sum(), contendedAcquisitions.sum(), timeouts.sum(), lockTimeoutMillis);
+    }
+
+    private void acquire(Account account) {
+        ReentrantLock lock = account.getReentrantLock();
+        if (lock.tryLock()) {
+            acquisitions.increment();
+            return;
+        }
+
+        contendedAcquisitions.increment();
+        transferMetrics.recordContention(account.getAccountId());
+        try {
+            if (lock.tryLock(lockTimeoutMillis, TimeUnit.MILLISECONDS)) {
+                acquisitions.increment();
+                return;
+            }
+        } catch (InterruptedException exception) {
+            Thread.currentThread().interrupt();
+        }
+
+        timeouts.increment();
+        log.warn("Timed out after {} ms waiting for lock on account {}", lockTimeoutMillis, account.getAccountId());
+        throw new AccountLockTimeoutException("Account " + account.getAccountId() + " is busy, please retry");
+    }
+}
@@ -0,0 +1,120 @@
+package com.db.awmd.challenge.service;
+
+import com.db.awmd.challenge.domain.Account;
+import com.db.awmd.challenge.domain.AccountPageDTO;
+import com.db.awmd.challenge.domain.ExportFormat;
+import com.db.awmd.challenge.repository.AccountsRepository;
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+/**
+ * Lists and exports accounts by walking the repository with an account id cursor, one page at a
+ * time, so memory use does not depend on the number of accounts and no account lock is taken.
+ * Balances are read as they are at the moment their page is fetched.
+ */
+@Service
+public class AccountsExportService {
+
+    private final AccountsRepository accountsRepository;
+
+    private final JsonFactory jsonFactory = new JsonFactory().disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+
+    private final int pageSize;
+
+    private final int maxPageSize;
+
+    @Autowired
+    public AccountsExportService(AccountsRepository accountsRepository,
+                                 @Value("${accounts.export.page-size:1000}") int pageSize,
+                                 @Value("${accounts.export.max-page-size:1000}") int maxPageSize) {
+        this.accountsRepository = accountsRepository;
+        this.pageSize = pageSize;
+        this.maxPageSize = maxPageSize;
+    }
+
+    /**
+     * Returns the accounts after {@code afterAccountId} and before {@code beforeAccountId}, at most
+     * {@code accounts.export.max-page-size} of them.
+     */
+    public AccountPageDTO listAccounts(String afterAccountId, String beforeAccountId, int limit) {
+        int pageLimit = Math.max(1, Math.min(limit, maxPageSize));
+        List<Account> accounts = accountsRepository.listAccounts(afterAccountId, beforeAccountId, pageLimit);
+        String nextCursor = accounts.size() < pageLimit ? null : accounts.get(accounts.size() - 1).getAccountId();
+        return new AccountPageDTO(accounts, nextCursor);
+    }
+
+    /**
+     * Writes every account of the range to the stream, fetching {@code accounts.export.page-size}
+     * accounts at a time.
+     */
+    public void export(ExportFormat format, String afterAccountId, String beforeAccountId, OutputStream output)
+            throws IOException {
+        if (format == ExportFormat.CSV) {
+            exportCsv(afterAccountId, beforeAccountId, output);
+        } else {
+            exportJson(afterAccountId, beforeAccountId, output);
+        }
+    }
+
+    private void exportJson(String afterAccountId, String beforeAccountId, OutputStream output) throws IOException {
+        try (JsonGenerator generator = jsonFactory.createGenerator(output, JsonEncoding.UTF8)) {
+            generator.writeStartArray();
+            String cursor = afterAccountId;
+            List<Account> page;
+            do {
+                page = accountsRepository.listAccounts(cursor, beforeAccountId, pageSize);
+                for (Account account : page) {
+                    generator.writeStartObject();
+                    generator.writeStringField("accountId", account.getAccountId());
+                    generator.writeNumberField("balance", account.getBalance());
+                    generator.writeEndObject();
+                }
+                generator.flush();
+                cursor = page.isEmpty() ? cursor : page.get(page.size() - 1).getAccountId();
+            } while (page.size() == pageSize);
+            generator.writeEndArray();
+        }
+    }
+
+    private void exportCsv(String afterAccountId, String beforeAccountId, OutputStream output) throws IOException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(output, StandardCharsets.UTF_8));
+        writer.write("accountId,balance\n");
+        String cursor = afterAccountId;
+        List<Account> page;
+        do {
+            page = accountsRepository.listAccounts(cursor, beforeAccountId, pageSize);
+            for (Account account : page) {
+                writeCsvField(writer, account.getAccountId());
+                writer.write(',');
+                writer.write(account.getBalance().toPlainString());
+                writer.write('\n');
+            }
+            writer.flush();
+            cursor = page.isEmpty() ? cursor : page.get(page.size() - 1).getAccountId();
+        } while (page.size() == pageSize);
+        writer.flush();
+    }
+
+    private static void writeCsvField(Writer writer, String value) throws IOException {
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0 && value.indexOf('\r') < 0) {
+            writer.write(value);
+            return;
+        }
+        writer.write('"');
+        writer.write(value.replace("\"", "\"\""));
+        writer.write('"');
+    }
+}
@@ -0,0 +1,263 @@
+package com.db.awmd.challenge.service;
+
+import com.db.awmd.challenge.domain.Account;
+import com.db.awmd.challenge.domain.ImportErrorDTO;
+import com.db.awmd.challenge.domain.ImportResultDTO;
+import com.db.awmd.challenge.exception.InvalidAmountException;
+import com.db.awmd.challenge.repository.AccountsRepository;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import javax.validation.ConstraintViolation;
+import javax.validation.Validator;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+/**
+ * Imports accounts from newline-delimited JSON, one {@code {"accountId":..,"balance":..}} object
+ * per line.
+ *
+ * <p>The input is read one line at a time and every line is parsed with Jackson's streaming
+ * parser, validated and collected into a chunk of {@code chunk-size} accounts that is created
+ * with a single {@link AccountsRepository#createAccounts(List)} call. Nothing more than one chunk
+ * is held in memory, and the next line is only read once the previous chunk is stored, so a
+ * client sending faster than accounts can be created is slowed down by the connection itself.
+ * Invalid lines are skipped and reported with their line number.
+ */
+@Service
+@Slf4j
+public class AccountsImportService {
+
+    private final AccountsRepository accountsRepository;
+
+    private final TransferEngine transferEngine;
+
+    private final Validator validator;
+
+    private final JsonFactory jsonFactory = new JsonFactory();
+
+    private final int chunkSize;
+
+    private final int maxReportedErrors;
+
+    private final int maxLineLength;
+
+    @Autowired
+    public AccountsImportService(AccountsRepository accountsRepository, TransferEngine transferEngine, Validator validator,
+                                 @Value("${accounts.import.chunk-size:1000}") int chunkSize,
+                                 @Value("${accounts.import.max-reported-errors:100}") int maxReportedErrors,
+                                 @Value("${accounts.import.max-line-length:4096}") int maxLineLength) {
+        this.accountsRepository = accountsRepository;
+        this.transferEngine = transferEngine;
+        this.validator = validator;
+        this.chunkSize = chunkSize;
+        this.maxReportedErrors = maxReportedErrors;
+        this.maxLineLength = maxLineLength;
+    }
+
+    public ImportResultDTO importAccounts(InputStream input) throws IOException {
+        Import result = new Import();
+        LineReader reader = new LineReader(new InputStreamReader(input, StandardCharsets.UTF_8), maxLineLength);
+        List<Account> chunk = new ArrayList<>(chunkSize);
+        Map<String, Long> chunkLines = new HashMap<>();
+
+        long lineNumber = 0;
+        String line;
+        while ((line = reader.readLine()) != null) {
+            lineNumber++;
+            if (reader.isTruncated()) {
+                result.lines++;
+                result.fail(lineNumber, "Line is longer than " + maxLineLength + " characters");
+                continue;
+            }
+            if (line.trim().isEmpty()) {
+                continue;
+            }
+            result.lines++;
+
+            try {
+                Account account = validated(parse(line));
+                // A repeated id within the chunk is reported here, on its own line; the repository
+                // only names the id, which the chunk maps back to its first line.
+                if (chunkLines.putIfAbsent(account.getAccountId(), lineNumber) != null) {
+                    result.fail(lineNumber, "Account id " + account.getAccountId() + " already exists!");
+                    continue;
+                }
+                transferEngine.onAccountCreated(account);
+                chunk.add(account);
+            } catch (JsonProcessingException exception) {
+                result.fail(lineNumber, "Malformed JSON: " + exception.getOriginalMessage());
+                continue;
+            } catch (IllegalArgumentException | InvalidAmountException exception) {
+                result.fail(lineNumber, exception.getMessage());
+                continue;
+            }
+
+            if (chunk.size() == chunkSize) {
+                store(chunk, chunkLines, result);
+            }
+        }
+        store(chunk, chunkLines, result);
+
+        log.info("Imported {} accounts, {} lines failed", result.imported, result.failed);
+        return new ImportResultDTO(result.lines, result.imported, result.failed, result.errors);
+    }
+
+    private void store(List<Account> chunk, Map<String, Long> chunkLines, Import result) {
+        if (chunk.isEmpty()) {
+            return;
+        }
+        List<String> duplicates = accountsRepository.createAccounts(chunk);
+        result.imported += chunk.size() - duplicates.size();
+        for (String accountId : duplicates) {
+            result.fail(chunkLines.get(accountId), "Account id " + accountId + " already exists!");
+        }
+        chunk.clear();
+        chunkLines.clear();
+    }
+
+    private Account parse(String line) throws IOException {
+        try (JsonParser parser = jsonFactory.createParser(line)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                throw new IllegalArgumentException("Expected a JSON object");
+            }
+            String accountId = null;
+            BigDecimal balance = null;
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.getCurrentName();
+                JsonToken value = parser.nextToken();
+                if ("accountId".equals(field) && value == JsonToken.VALUE_STRING) {
+                    accountId = parser.getText();
+                } else if ("balance".equals(field) && value.isNumeric()) {
+                    balance = parser.getDecimalValue();
+                } else if ("balance".equals(field) && value == JsonToken.VALUE_STRING) {
+                    try {
+                        balance = new BigDecimal(parser.getText());
+                    } catch (NumberFormatException exception) {
+                        throw new IllegalArgumentException("balance is not a number");
+                    }
+                } else {
+                    parser.skipChildren();
+                }
+            }
+            if (parser.nextToken() != null) {
+                throw new IllegalArgumentException("Expected a single JSON object per line");
+            }
+            return new Account(accountId, balance);
+        }
+    }
+
+    private Account validated(Account account) {
+        Set<ConstraintViolation<Account>> violations = validator.validate(account);
+        if (!violations.isEmpty()) {
+            ConstraintViolation<Account> violation = violations.iterator().next();
+            throw new IllegalArgumentException(violation.getPropertyPath() + " " + violation.getMessage());
+        }
+        return account;
+    }
+
+    /**
+     * Reads lines through its own buffer, keeping at most {@code maxLength} characters of a line.
+     */
+    private static final class LineReader {
+
+        private final Reader reader;
+
+        private final int maxLength;
+
+        private final char[] buffer = new char[8192];
+
+        private final StringBuilder line = new StringBuilder();
+
+        private int position;
+
+        private int limit;
+
+        private boolean truncated;
+
+        private LineReader(Reader reader, int maxLength) {
+            this.reader = reader;
+            this.maxLength = maxLength;
+        }
+
+        /**
+         * Returns the next line without its line terminator, or {@code null} at the end of the input.
+         */
+        private String readLine() throws IOException {
+            line.setLength(0);
+            truncated = false;
+            boolean read = false;
+            while (true) {
+                if (position == limit) {
+                    limit = reader.read(buffer, 0, buffer.length);
+                    position = 0;
+                    if (limit <= 0) {
+                        limit = 0;
+                        return read ? line.toString() : null;
+                    }
+                }
+                read = true;
+                int start = position;
+                while (position < limit && buffer[position] != '\n') {
+                    position++;
+                }
+                append(start, position);
+                if (position < limit) {
+                    position++;
+                    return line.toString();
+                }
+            }
+        }
+
+        private boolean isTruncated() {
+            return truncated;
+        }
+
+        private void append(int start, int end) {
+            int length = Math.max(0, Math.min(end - start, maxLength - line.length()));
+            if (length < end - start) {
+                truncated = true;
+            }
+            line.append(buffer, start, length);
+        }
+    }
+
+    /**
+     * Running totals of one import.
+     */
+    private final class Import {
+
+        private final List<ImportErrorDTO> errors = new ArrayList<>();
+
+        private long lines;
+
+        private long imported;
+
+        private long failed;
+
+        private void fail(long line, String message) {
+            failed++;
+            if (errors.size() < maxReportedErrors) {
+                errors.add(new ImportErrorDTO(line, message));
+            }
+        }
+    }
+}
@@ -1,22 +1,37 @@
 package com.db.awmd.challenge.service;
 
 import com.db.awmd.challenge.domain.Account;
+import com.db.awmd.challenge.domain.AccountBalanceView;
+import com.db.awmd.challenge.domain.BatchMode;
+import com.db.awmd.challenge.domain.BatchTransferRequestDTO;
+import com.db.awmd.challenge.domain.BatchTransferResultDTO;
 import com.db.awmd.challenge.domain.TransferMoneyDTO;
+import com.db.awmd.challenge.domain.TransferOutcome;
+import com.db.awmd.challenge.domain.TransferResultDTO;
+import com.db.awmd.challenge.domain.TransferStatus;
 import com.db.awmd.challenge.exception.AccountDoesntExistException;
+import com.db.awmd.challenge.exception.AccountLockTimeoutException;
 import com.db.awmd.challenge.exception.AccountNegativeBalanceException;
 import com.db.awmd.challenge.exception.AmountTransferGreaterThanZeroException;
 import com.db.awmd.challenge.exception.SameAccountException;
 import com.db.awmd.challenge.repository.AccountsRepository;
-import com.db.awmd.challenge.web.AccountsController;
 
 import lombok.Getter;
 import lombok.extern.slf4j.Slf4j;
 
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.OptimisticLockingFailureException;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Service;
@@ -31,13 +46,33 @@ public class AccountsService {
     @Getter
     private final NotificationService notificationService;
 
+    @Getter
+    private final TransferEngine transferEngine;
+
+    private final TransferMetrics transferMetrics;
+
+    private final TransferLogger transferLogger;
+
+    private final IdempotencyCache idempotencyCache;
+
+    private final int optimisticRetries;
+
     @Autowired
-    public AccountsService(AccountsRepository accountsRepository, NotificationService notificationService) {
+    public AccountsService(AccountsRepository accountsRepository, NotificationService notificationService,
+                           TransferEngine transferEngine, TransferMetrics transferMetrics, TransferLogger transferLogger,
+                           IdempotencyCache idempotencyCache,
+                           @Value("${accounts.transfer.optimistic-retries:3}") int optimisticRetries) {
         this.accountsRepository = accountsRepository;
         this.notificationService = notificationService;
+        this.transferEngine = transferEngine;
+        this.transferMetrics = transferMetrics;
+        this.transferLogger = transferLogger;
+        this.idempotencyCache = idempotencyCache;
+        this.optimisticRetries = optimisticRetries;
     }
 
     public void createAccount(Account account) {
+        this.transferEngine.onAccountCreated(account);
         this.accountsRepository.createAccount(account);
     }
 
@@ -45,65 +80,268 @@ public class AccountsService {
         return this.accountsRepository.getAccount(accountId);
     }
 
+    /**
+     * Returns the published balance of the account, or {@code null} if it does not exist.
+     */
+    public AccountBalanceView getBalance(String accountId) {
+        Account account = this.accountsRepository.getAccount(accountId);
+        return account == null ? null : AccountBalanceView.of(account);
+    }
+
+    /**
+     * Returns the published balances of the accounts that exist, in the order requested.
+     */
+    public List<AccountBalanceView> getBalances(List<String> accountIds) {
+        Map<String, Account> accounts = this.accountsRepository.getAccounts(new LinkedHashSet<>(accountIds));
+        List<AccountBalanceView> balances = new ArrayList<>(accounts.size());
+        for (String accountId : accountIds) {
+            Account account = accounts.get(accountId);
+            if (account != null) {
+                balances.add(AccountBalanceView.of(account));
+            }
+        }
+        return balances;
+    }
+
+    /**
+     * Transfers the money, reading the accounts again and retrying when a repository with
+     * optimistic concurrency control reports that one of them was modified concurrently.
+     * Expected rejections are returned as a {@link TransferOutcome}; only unexpected failures
+     * (lock timeouts, concurrent modifications, invalid amounts) are thrown.
+     *
+     * <p>A transfer carrying an idempotency key that was seen recently is not executed again:
+     * the outcome of the first transfer with that key is returned or thrown instead, without
+     * touching the accounts. Transient failures (lock timeouts, concurrent modifications) are not
+     * remembered, so retrying them with the same key executes the transfer.
+     */
+    public TransferOutcome transfer(TransferMoneyDTO transferMoneyDTO) {
+        String idempotencyKey = transferMoneyDTO.getIdempotencyKey();
+        if (idempotencyKey == null) {
+            return transferAndRecord(transferMoneyDTO, null);
+        }
+
+        CompletableFuture<Object> outcome = new CompletableFuture<>();
+        CompletableFuture<Object> firstOutcome = idempotencyCache.putIfAbsent(idempotencyKey, transferMoneyDTO, outcome);
+        if (firstOutcome != null) {
+            return replay(firstOutcome.join());
+        }
+
+        try {
+            TransferOutcome transferOutcome = transferAndRecord(transferMoneyDTO, null);
+            outcome.complete(transferOutcome);
+            return transferOutcome;
+        } catch (AccountLockTimeoutException | OptimisticLockingFailureException exception) {
+            idempotencyCache.remove(idempotencyKey, outcome);
+            outcome.complete(exception);
+            throw exception;
+        } catch (RuntimeException exception) {
+            outcome.complete(exception);
+            throw exception;
+        } finally {
+            if (!outcome.isDone()) {
+                idempotencyCache.remove(idempotencyKey, outcome);
+                outcome.complete(new IllegalStateException("Transfer with idempotency key " + idempotencyKey + " did not complete"));
+            }
+        }
+    }
+
+    /**
+     * Same as {@link #transfer(TransferMoneyDTO)} for a transfer without idempotency key, except
+     * that it does not wait for the repository to make the transfer durable. A completed transfer
+     * instead adds to {@code completions} the step notifying its users, which the caller runs
+     * after {@link #awaitDurable()}, so that a group of transfers waits for durability only once.
+     */
+    TransferOutcome transferDeferred(TransferMoneyDTO transferMoneyDTO, Collection<Runnable> completions) {
+        return transferAndRecord(transferMoneyDTO, completions);
+    }
+
+    /**
+     * Same as {@link #transfer(TransferMoneyDTO)}, throwing the matching checked exception for a
+     * rejected transfer.
+     */
     public ResponseEntity<Object> transferMoneyBetweenAccounts(TransferMoneyDTO transferMoneyDTO)
             throws AccountDoesntExistException, AmountTransferGreaterThanZeroException, SameAccountException, AccountNegativeBalanceException {
 
+        TransferOutcome outcome = transfer(transferMoneyDTO);
+        switch (outcome) {
+            case ACCOUNT_NOT_FOUND:
+                throw new AccountDoesntExistException(outcome.getMessage());
+            case SAME_ACCOUNT:
+                throw new SameAccountException(outcome.getMessage());
+            case NON_POSITIVE_AMOUNT:
+                throw new AmountTransferGreaterThanZeroException(outcome.getMessage());
+            case INSUFFICIENT_FUNDS:
+                throw new AccountNegativeBalanceException(outcome.getMessage());
+            default:
+                return new ResponseEntity<>(HttpStatus.OK);
+        }
+    }
+
+    private TransferOutcome transferAndRecord(TransferMoneyDTO transferMoneyDTO, Collection<Runnable> completions) {
+        long start = System.nanoTime();
+        try {
+            TransferOutcome outcome = transferWithRetries(transferMoneyDTO, completions, start);
+            if (outcome.isCompleted()) {
+                transferMetrics.recordSuccess(start);
+            } else {
+                transferMetrics.recordRejection(outcome, start);
+                transferLogger.rejected(transferMoneyDTO, outcome, start);
+            }
+            return outcome;
+        } catch (RuntimeException exception) {
+            transferMetrics.recordFailure(exception, start);
+            transferLogger.failed(transferMoneyDTO, exception, start);
+            throw exception;
+        }
+    }
+
+    /**
+     * Runs the transfer again when a repository reports a concurrent update. Engines only let that
+     * exception through when nothing of the transfer was applied; a half-applied transfer fails
+     * with another exception and is not retried.
+     */
+    private TransferOutcome transferWithRetries(TransferMoneyDTO transferMoneyDTO, Collection<Runnable> completions,
+                                                long transferStart) {
+        for (int attempt = 0; ; attempt++) {
+            try {
+                return transferOnce(transferMoneyDTO, completions, transferStart);
+            } catch (OptimisticLockingFailureException exception) {
+                if (attempt >= optimisticRetries) {
+                    throw exception;
+                }
+                log.debug("Retrying transfer after concurrent modification: {}", exception.getMessage());
+            }
+        }
+    }
+
+    private TransferOutcome transferOnce(TransferMoneyDTO transferMoneyDTO, Collection<Runnable> completions,
+                                         long transferStart) {
+		long start = System.nanoTime();
 		Account accountFromTransfer = getAccount(transferMoneyDTO.getAccountFromId());
 		Account accountToTransfer = getAccount(transferMoneyDTO.getAccountToId());
 
-		exceptionValidator(accountFromTransfer, accountToTransfer, transferMoneyDTO);
+		TransferOutcome rejection = validate(accountFromTransfer, accountToTransfer, transferMoneyDTO);
+		transferMetrics.record(TransferPhase.VALIDATION, start);
+		if (rejection != null) {
+			return rejection;
+		}
 
-		Object lock1 = accountToTransfer.getReentrantLock();
-		Object lock2 = accountFromTransfer.getReentrantLock();
+		TransferOutcome outcome = transferEngine.tryTransfer(accountFromTransfer, accountToTransfer,
+			transferMoneyDTO.getAmountToTransfer());
+		if (!outcome.isCompleted()) {
+			return outcome;
+		}
+		if (completions == null) {
+			awaitDurable();
+			complete(accountFromTransfer, accountToTransfer, transferMoneyDTO, transferStart);
+		} else {
+			completions.add(() -> complete(accountFromTransfer, accountToTransfer, transferMoneyDTO, transferStart));
+		}
+		return outcome;
+	}
 
-		synchronized (lock1) {
-			synchronized (lock2) {
-				log.info("New Thread");
-				log.info("Initial Balance From: {}", accountFromTransfer.getBalance());
-				log.info("Initial Balance To: {}", accountToTransfer.getBalance());
+    private void complete(Account accountFromTransfer, Account accountToTransfer, TransferMoneyDTO transferMoneyDTO,
+                          long transferStart) {
+        long transferred = System.nanoTime();
+        notifyUsers(accountFromTransfer, accountToTransfer, transferMoneyDTO);
+        transferMetrics.record(TransferPhase.NOTIFICATION, transferred);
 
-				if (fromAccountBalanceIsValid(accountFromTransfer, transferMoneyDTO)) {
-					throw new AccountNegativeBalanceException("Account doesn't have the balance to transfer");
-				}
+        transferLogger.completed(transferMoneyDTO, accountFromTransfer, accountToTransfer, transferStart);
+    }
 
-                transferMoneyAndNotifyUsers(accountFromTransfer,accountToTransfer,transferMoneyDTO);
+    /**
+     * Validates every transfer of the batch and hands the valid ones to the transfer engine in a
+     * single call. In {@link BatchMode#ALL_OR_NOTHING} mode one invalid transfer aborts the batch.
+     */
+    public BatchTransferResultDTO transferBatch(BatchTransferRequestDTO batchTransferRequestDTO) {
+        List<TransferMoneyDTO> transfers = batchTransferRequestDTO.getTransfers();
+        BatchMode mode = batchTransferRequestDTO.getMode();
 
-				log.info("Final Balance From: {}", accountFromTransfer.getBalance());
-				log.info("Final Balance To: {}", accountToTransfer.getBalance());
-			}
-		}
+        Set<String> accountIds = new HashSet<>();
+        for (TransferMoneyDTO transferMoneyDTO : transfers) {
+            accountIds.add(transferMoneyDTO.getAccountFromId());
+            accountIds.add(transferMoneyDTO.getAccountToId());
+        }
+        Map<String, Account> accounts = accountsRepository.getAccounts(accountIds);
 
-		return new ResponseEntity<>(HttpStatus.OK);
-	}
+        List<TransferLeg> legs = new ArrayList<>(transfers.size());
+        TransferResultDTO[] results = new TransferResultDTO[transfers.size()];
+        int invalid = 0;
+        for (int i = 0; i < transfers.size(); i++) {
+            TransferMoneyDTO transferMoneyDTO = transfers.get(i);
+            Account accountFromTransfer = accounts.get(transferMoneyDTO.getAccountFromId());
+            Account accountToTransfer = accounts.get(transferMoneyDTO.getAccountToId());
+            TransferOutcome rejection = validate(accountFromTransfer, accountToTransfer, transferMoneyDTO);
+            if (rejection == null) {
+                legs.add(new TransferLeg(i, accountFromTransfer, accountToTransfer, transferMoneyDTO.getAmountToTransfer()));
+            } else {
+                results[i] = new TransferResultDTO(i, TransferStatus.FAILED, rejection.getMessage());
+                invalid++;
+            }
+        }
 
-    private void exceptionValidator(Account accountFromTransfer, Account accountToTransfer, TransferMoneyDTO transferMoneyDTO)
-            throws AccountDoesntExistException, AmountTransferGreaterThanZeroException, SameAccountException {
-        if (Objects.isNull(accountFromTransfer) || Objects.isNull(accountToTransfer)) {
-            throw new AccountDoesntExistException("One of the accounts does not exist");
+        if (mode == BatchMode.ALL_OR_NOTHING && invalid > 0) {
+            for (TransferLeg leg : legs) {
+                leg.abort("Batch aborted because it contains invalid transfers");
+            }
+        } else if (!legs.isEmpty()) {
+            transferEngine.transferBatch(legs, mode);
+            awaitDurable();
         }
 
-        if (accountFromTransfer.getAccountId().equals(accountToTransfer.getAccountId())) {
-            throw new SameAccountException("Origin account and destination account should not be the same");
+        int completed = 0;
+        for (TransferLeg leg : legs) {
+            results[leg.getIndex()] = new TransferResultDTO(leg.getIndex(), leg.getStatus(), leg.getMessage());
+            if (leg.getStatus() == TransferStatus.COMPLETED) {
+                completed++;
+                notifyUsers(leg.getAccountFrom(), leg.getAccountTo(), transfers.get(leg.getIndex()));
+            }
         }
 
-        if (transferMoneyDTO.getAmountToTransfer().signum() <= 0) {
-            throw new AmountTransferGreaterThanZeroException("Transfer amount should be greater than 0");
+        List<TransferResultDTO> resultList = new ArrayList<>(results.length);
+        for (TransferResultDTO result : results) {
+            resultList.add(result);
         }
+        return new BatchTransferResultDTO(mode, completed > 0, completed, results.length - completed, resultList);
     }
 
-    private boolean fromAccountBalanceIsValid(Account accountFromTransfer, TransferMoneyDTO transferMoneyDTO) {
-        return accountFromTransfer.getBalance().subtract(transferMoneyDTO.getAmountToTransfer()).signum() < 0;
+    /**
+     * Waits for the repository to make the balance changes of a transfer durable, which engines
+     * leave to the caller so that no account lock is held meanwhile.
+     */
+    void awaitDurable() {
+        long start = System.nanoTime();
+        accountsRepository.awaitDurable();
+        transferMetrics.record(TransferPhase.REPOSITORY, start);
     }
 
-    private void transferMoneyAndNotifyUsers(Account accountFromTransfer, Account accountToTransfer, TransferMoneyDTO transferMoneyDTO) {
-        accountFromTransfer.setBalance(accountFromTransfer.getBalance().subtract(transferMoneyDTO.getAmountToTransfer()));
-        accountToTransfer.setBalance(accountToTransfer.getBalance().add(transferMoneyDTO.getAmountToTransfer()));
+    private static TransferOutcome replay(Object outcome) {
+        if (outcome instanceof RuntimeException) {
+            throw (RuntimeException) outcome;
+        }
+        return (TransferOutcome) outcome;
+    }
+
+    /**
+     * Returns the reason the transfer must be rejected, or {@code null} if it is valid.
+     */
+    private static TransferOutcome validate(Account accountFromTransfer, Account accountToTransfer,
+                                            TransferMoneyDTO transferMoneyDTO) {
+        if (Objects.isNull(accountFromTransfer) || Objects.isNull(accountToTransfer)) {
+            return TransferOutcome.ACCOUNT_NOT_FOUND;
+        }
 
-        List<Account> accountsToSave = new ArrayList<>();
-        accountsToSave.add(accountFromTransfer);
-        accountsToSave.add(accountToTransfer);
-        accountsRepository.updateAccounts(accountsToSave);
+        if (accountFromTransfer.getAccountId().equals(accountToTransfer.getAccountId())) {
+            return TransferOutcome.SAME_ACCOUNT;
+        }
+
+        if (transferMoneyDTO.getAmountToTransfer().signum() <= 0) {
+            return TransferOutcome.NON_POSITIVE_AMOUNT;
+        }
+        return null;
+    }
 
+    private void notifyUsers(Account accountFromTransfer, Account accountToTransfer, TransferMoneyDTO transferMoneyDTO) {
         notificationService.notifyAboutTransfer(accountFromTransfer, transferMoneyDTO.getAmountToTransfer().toString());
         notificationService.notifyAboutTransfer(accountToTransfer, transferMoneyDTO.getAmountToTransfer().toString());
     }
@@ -0,0 +1,95 @@
+package com.db.awmd.challenge.service;
+
+import com.db.awmd.challenge.domain.SnapshotResultDTO;
+import com.db.awmd.challenge.repository.AccountsRepository;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+
+import javax.annotation.PostConstruct;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+/**
+ * Takes and restores binary snapshots of the accounts at the configured path, optionally restoring
+ * the latest one on startup so a redeployed instance is ready without replaying traffic.
+ *
+ * <p>Like an audit, a snapshot starts a new {@link AuditEpochs audit epoch} and writes the balances
+ * as they were when it began, so it is consistent while transfers keep running. That takes a
+ * transfer engine and repository that take part in audit epochs; with any other, a snapshot is
+ * only consistent if no transfers run while it is taken.
+ */
+@Service
+@Slf4j
+public class AccountsSnapshotService {
+
+    private final AccountsRepository accountsRepository;
+
+    private final AuditEpochs auditEpochs;
+
+    private final boolean consistent;
+
+    private final Path snapshotPath;
+
+    private final boolean restoreOnStartup;
+
+    @Autowired
+    public AccountsSnapshotService(AccountsRepository accountsRepository, AuditEpochs auditEpochs,
+                                   TransferEngine transferEngine,
+                                   @Value("${accounts.snapshot.path:data/accounts.snapshot}") String snapshotPath,
+                                   @Value("${accounts.snapshot.restore-on-startup:false}") boolean restoreOnStartup) {
+        this.accountsRepository = accountsRepository;
+        this.auditEpochs = auditEpochs;
+        this.consistent = transferEngine.supportsAudit() && accountsRepository.listsLiveAccounts();
+        this.snapshotPath = Paths.get(snapshotPath);
+        this.restoreOnStartup = restoreOnStartup;
+    }
+
+    @PostConstruct
+    public void restoreOnStartup() throws IOException {
+        if (restoreOnStartup && Files.exists(snapshotPath)) {
+            SnapshotResultDTO result = restore();
+            log.info("Restored {} accounts from {} in {} ms", result.getAccounts(), result.getPath(), result.getDurationMillis());
+        }
+    }
+
+    /**
+     * Writes the snapshot next to the configured path first, so a failure never replaces the last good one.
+     */
+    public SnapshotResultDTO snapshot() throws IOException {
+        long start = System.nanoTime();
+        Path absolutePath = snapshotPath.toAbsolutePath();
+        Files.createDirectories(absolutePath.getParent());
+        Path temporary = absolutePath.resolveSibling(absolutePath.getFileName() + ".tmp");
+
+        long accounts = consistent ? snapshotAtNewEpoch(temporary) : accountsRepository.snapshot(temporary);
+        Files.move(temporary, absolutePath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        return new SnapshotResultDTO(absolutePath.toString(), accounts, elapsedMillis(start));
+    }
+
+    public SnapshotResultDTO restore() throws IOException {
+        long start = System.nanoTime();
+        long accounts = accountsRepository.restore(snapshotPath);
+        return new SnapshotResultDTO(snapshotPath.toAbsolutePath().toString(), accounts, elapsedMillis(start));
+    }
+
+    private long snapshotAtNewEpoch(Path file) throws IOException {
+        long epoch = auditEpochs.advance();
+        try {
+            return accountsRepository.snapshot(file, account -> BalanceAuditor.balanceAt(account, epoch));
+        } finally {
+            auditEpochs.release();
+        }
+    }
+
+    private static long elapsedMillis(long startNanos) {
+        return (System.nanoTime() - startNanos) / 1_000_000;
+    }
+}
@@ -0,0 +1,103 @@
+package com.db.awmd.challenge.service;
+
+import com.db.awmd.challenge.domain.AccountBalanceView;
+import com.db.awmd.challenge.domain.TransferMoneyDTO;
+import com.db.awmd.challenge.domain.TransferOutcome;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import javax.annotation.PreDestroy;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+/**
+ * Runs {@link AccountsService} operations on transfer threads and hands back a
+ * {@link CompletableFuture}, so that request threads are released while a transfer waits for
+ * contended accounts.
+ *
+ * <p>Transfer threads are a fixed pool of platform threads, or one virtual thread per operation
+ * when {@code accounts.threads.virtual} is set and the JDK supports them. Either way at most
+ * {@code threads + queue-capacity} operations are in flight; beyond that the future fails with a
+ * {@link RejectedExecutionException} instead of queueing without bound.
+ */
+@Service
+@Slf4j
+public class AsyncAccountsService {
+
+    private final AccountsService accountsService;
+
+    private final ExecutorService executor;
+
+    private final Semaphore inFlight;
+
+    @Autowired
+    public AsyncAccountsService(AccountsService accountsService,
+                                @Value("${accounts.async.threads:64}") int threads,
+                                @Value("${accounts.async.queue-capacity:10000}") int queueCapacity,
+                                @Value("${accounts.threads.virtual:false}") boolean virtualThreads) {
+        this.accountsService = accountsService;
+        this.inFlight = new Semaphore(threads + queueCapacity);
+
+        ExecutorService virtualExecutor = virtualThreads ? VirtualThreads.newThreadPerTaskExecutor("async-transfer-") : null;
+        if (virtualExecutor != null) {
+            this.executor = virtualExecutor;
+            log.info("Running asynchronous transfers on virtual threads");
+        } else {
+            if (virtualThreads) {
+                log.warn("Virtual threads are not supported by this JDK, running asynchronous transfers on {} platform threads",
+                    threads);
+            }
+            AtomicInteger threadNumber = new AtomicInteger();
+            this.executor = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), runnable -> {
+                    Thread thread = new Thread(runnable, "async-transfer-" + threadNumber.getAndIncrement());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        }
+    }
+
+    @PreDestroy
+    public void stop() {
+        executor.shutdown();
+    }
+
+    public CompletableFuture<AccountBalanceView> getBalance(String accountId) {
+        return submit(() -> accountsService.getBalance(accountId));
+    }
+
+    /**
+     * Completes with the outcome of {@link AccountsService#transfer}, or exceptionally with the
+     * exception it threw wrapped in a {@link CompletionException}.
+     */
+    public CompletableFuture<TransferOutcome> transfer(TransferMoneyDTO transferMoneyDTO) {
+        return submit(() -> accountsService.transfer(transferMoneyDTO));
+    }
+
+    private <T> CompletableFuture<T> submit(Supplier<T> operation) {
+        if (!inFlight.tryAcquire()) {
+            throw new RejectedExecutionException("Too many asynchronous operations in flight");
+        }
+        try {
+            CompletableFuture<T> result = CompletableFuture.supplyAsync(operation, executor);
+            result.whenComplete((value, failure) -> inFlight.release());
+            return result;
+        } catch (RejectedExecutionException exception) {
+            inFlight.release();
+            throw exception;
+        }
+    }
+}
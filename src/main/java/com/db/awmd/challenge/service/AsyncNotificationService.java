@@ -0,0 +1,218 @@
+package com.db.awmd.challenge.service;
+
+import com.db.awmd.challenge.domain.Account;
+import com.db.awmd.challenge.domain.NotificationStatistics;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Primary;
+import org.springframework.stereotype.Service;
+
+/**
+ * Decorates the {@link EmailNotificationService} so that callers never wait on notification I/O.
+ * Notifications are coalesced per account while they wait and dispatched in batches by a fixed
+ * number of worker threads. When the bounded queue of accounts is full new notifications are
+ * dropped and counted instead of blocking the caller. Notifications are only coalesced into an
+ * entry once its account is in the queue, so nothing is merged into an entry that is then dropped.
+ */
+@Service
+@Primary
+@ConditionalOnProperty(name = "notifications.async.enabled", havingValue = "true", matchIfMissing = true)
+@Slf4j
+public class AsyncNotificationService implements NotificationService {
+
+    private static final int MAX_DESCRIPTIONS_PER_NOTIFICATION = 20;
+
+    private final NotificationService delegate;
+
+    private final int workers;
+
+    private final int batchSize;
+
+    private final Map<String, PendingNotification> pending = new ConcurrentHashMap<>();
+
+    private final BlockingQueue<String> queue;
+
+    private final List<Thread> workerThreads = new ArrayList<>();
+
+    private final LongAdder submitted = new LongAdder();
+
+    private final LongAdder coalesced = new LongAdder();
+
+    private final LongAdder dispatched = new LongAdder();
+
+    private final LongAdder batches = new LongAdder();
+
+    private final LongAdder dropped = new LongAdder();
+
+    private final LongAdder failed = new LongAdder();
+
+    private volatile boolean running = true;
+
+    @Autowired
+    public AsyncNotificationService(EmailNotificationService delegate,
+                                    @Value("${notifications.async.queue-capacity:10000}") int queueCapacity,
+                                    @Value("${notifications.async.workers:2}") int workers,
+                                    @Value("${notifications.async.batch-size:100}") int batchSize) {
+        this.delegate = delegate;
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        this.workers = workers;
+        this.batchSize = batchSize;
+    }
+
+    @PostConstruct
+    public void start() {
+        for (int i = 0; i < workers; i++) {
+            Thread thread = new Thread(this::dispatchLoop, "notification-dispatcher-" + i);
+            thread.setDaemon(true);
+            thread.start();
+            workerThreads.add(thread);
+        }
+    }
+
+    @PreDestroy
+    public void stop() {
+        running = false;
+        workerThreads.forEach(Thread::interrupt);
+        List<String> remaining = new ArrayList<>();
+        queue.drainTo(remaining);
+        dispatch(remaining);
+    }
+
+    @Override
+    public void notifyAboutTransfer(Account account, String transferDescription) {
+        submitted.increment();
+        String accountId = account.getAccountId();
+        boolean[] merged = new boolean[1];
+        while (true) {
+            PendingNotification existing = pending.computeIfPresent(accountId, (id, notification) -> {
+                if (notification.queued) {
+                    notification.add(transferDescription);
+                    merged[0] = true;
+                }
+                return notification;
+            });
+            if (merged[0]) {
+                coalesced.increment();
+                return;
+            }
+            if (existing != null) {
+                // Another caller is still offering this account to the queue; its outcome decides.
+                Thread.yield();
+                continue;
+            }
+
+            PendingNotification notification = new PendingNotification(account, transferDescription);
+            if (pending.putIfAbsent(accountId, notification) == null) {
+                if (queue.offer(accountId)) {
+                    pending.computeIfPresent(accountId, (id, queued) -> {
+                        if (queued == notification) {
+                            queued.queued = true;
+                        }
+                        return queued;
+                    });
+                } else {
+                    pending.remove(accountId, notification);
+                    dropped.increment();
+                    log.warn("Notification queue full, dropping notification for account {}", accountId);
+                }
+                return;
+            }
+        }
+    }
+
+    public NotificationStatistics getStatistics() {
+        return new NotificationStatistics(submitted.sum(), coalesced.sum(), dispatched.sum(), batches.sum(),
+                dropped.sum(), failed.sum(), queue.size());
+    }
+
+    private void dispatchLoop() {
+        List<String> batch = new ArrayList<>(batchSize);
+        while (running) {
+            try {
+                batch.add(queue.take());
+            } catch (InterruptedException exception) {
+                return;
+            }
+            queue.drainTo(batch, batchSize - 1);
+            dispatch(batch);
+            batch.clear();
+        }
+    }
+
+    private void dispatch(List<String> accountIds) {
+        if (accountIds.isEmpty()) {
+            return;
+        }
+        batches.increment();
+        for (String accountId : accountIds) {
+            PendingNotification notification = pending.remove(accountId);
+            if (notification == null) {
+                continue;
+            }
+            try {
+                delegate.notifyAboutTransfer(notification.account, notification.describe());
+                dispatched.increment();
+            } catch (RuntimeException exception) {
+                failed.increment();
+                log.error("Failed to notify owner of account {}", accountId, exception);
+            }
+        }
+    }
+
+    /**
+     * Transfers of one account waiting to be sent as a single notification. Only mutated inside
+     * {@link ConcurrentHashMap#computeIfPresent} and read once removed from the map.
+     */
+    private static final class PendingNotification {
+
+        private final Account account;
+
+        private final StringBuilder descriptions;
+
+        private int count = 1;
+
+        /**
+         * Set once the account is in the queue; until then nothing is coalesced into the entry.
+         */
+        private boolean queued;
+
+        private PendingNotification(Account account, String transferDescription) {
+            this.account = account;
+            this.descriptions = new StringBuilder(transferDescription);
+        }
+
+        private PendingNotification add(String transferDescription) {
+            count++;
+            if (count <= MAX_DESCRIPTIONS_PER_NOTIFICATION) {
+                descriptions.append("; ").append(transferDescription);
+            }
+            return this;
+        }
+
+        private String describe() {
+            if (count == 1) {
+                return descriptions.toString();
+            }
+            StringBuilder description = new StringBuilder().append(count).append(" transfers: ").append(descriptions);
+            if (count > MAX_DESCRIPTIONS_PER_NOTIFICATION) {
+                description.append("; and ").append(count - MAX_DESCRIPTIONS_PER_NOTIFICATION).append(" more");
+            }
+            return description.toString();
+        }
+    }
+}
@@ -0,0 +1,139 @@
+package com.db.awmd.challenge.service;
+
+import com.db.awmd.challenge.domain.Account;
+import com.db.awmd.challenge.domain.BatchMode;
+import com.db.awmd.challenge.domain.TransferOutcome;
+import com.db.awmd.challenge.exception.InvalidAmountException;
+import com.db.awmd.challenge.repository.AccountsRepository;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+/**
+ * Lock-free engine: balances are held as {@code long} minor units and changed with CAS loops.
+ * The debit only succeeds if it leaves the balance non-negative, so no monitor is needed and
+ * no {@link BigDecimal} is allocated per balance update. Amounts with more than
+ * {@link Account#MINOR_UNIT_SCALE} decimal places are rejected.
+ *
+ * <p>All-or-nothing batches are applied as one {@link NetBatch net change} per account: the
+ * paying accounts are debited first and refunded if one of them runs out of funds meanwhile.
+ */
+@Component
+@ConditionalOnProperty(name = "accounts.transfer.engine", havingValue = "atomic")
+public class AtomicTransferEngine implements TransferEngine {
+
+    private final AccountsRepository accountsRepository;
+
+    private final TransferMetrics transferMetrics;
+
+    private final TransactionHistory transactionHistory;
+
+    @Autowired
+    public AtomicTransferEngine(AccountsRepository accountsRepository, TransferMetrics transferMetrics,
+                                TransactionHistory transactionHistory) {
+        this.accountsRepository = accountsRepository;
+        this.transferMetrics = transferMetrics;
+        this.transactionHistory = transactionHistory;
+    }
+
+    @Override
+    public void onAccountCreated(Account account) {
+        account.useMinorUnits();
+    }
+
+    @Override
+    public TransferOutcome tryTransfer(Account accountFromTransfer, Account accountToTransfer, BigDecimal amountToTransfer) {
+        long amount = Account.toMinorUnits(amountToTransfer);
+
+        long fromBalance = debit(minorUnits(accountFromTransfer), amount);
+        if (fromBalance < 0) {
+            return TransferOutcome.INSUFFICIENT_FUNDS;
+        }
+        long toBalance = minorUnits(accountToTransfer).addAndGet(amount);
+
+        long updating = System.nanoTime();
+        accountsRepository.updateAccounts(Arrays.asList(accountFromTransfer, accountToTransfer));
+        transferMetrics.record(TransferPhase.REPOSITORY, updating);
+        transactionHistory.recordMinorUnits(accountFromTransfer.getAccountId(), accountToTransfer.getAccountId(),
+            amount, fromBalance, toBalance);
+        return TransferOutcome.COMPLETED;
+    }
+
+    @Override
+    public void transferBatch(List<TransferLeg> legs, BatchMode mode) {
+        if (mode != BatchMode.ALL_OR_NOTHING) {
+            transferEach(legs);
+            return;
+        }
+        NetBatch batch = new NetBatch(legs);
+        long[] amounts = new long[legs.size()];
+        for (int i = 0; i < legs.size(); i++) {
+            try {
+                amounts[i] = Account.toMinorUnits(legs.get(i).getAmount());
+            } catch (InvalidAmountException exception) {
+                batch.fail(legs.get(i), exception.getMessage());
+                return;
+            }
+        }
+        if (!batch.check()) {
+            return;
+        }
+
+        List<Account> debited = new ArrayList<>();
+        for (Map.Entry<String, BigDecimal> debit : batch.getDebits().entrySet()) {
+            Account account = batch.getAccount(debit.getKey());
+            if (debit(minorUnits(account), Account.toMinorUnits(debit.getValue().negate())) < 0) {
+                for (Account refunded : debited) {
+                    minorUnits(refunded).addAndGet(Account.toMinorUnits(batch.getDebits().get(refunded.getAccountId()).negate()));
+                }
+                batch.failDebit(debit.getKey());
+                return;
+            }
+            debited.add(account);
+        }
+        for (Map.Entry<String, BigDecimal> credit : batch.getCredits().entrySet()) {
+            minorUnits(batch.getAccount(credit.getKey())).addAndGet(Account.toMinorUnits(credit.getValue()));
+        }
+
+        List<Account> accountsToSave = new ArrayList<>();
+        batch.getAccounts().forEach(accountsToSave::add);
+        long updating = System.nanoTime();
+        accountsRepository.updateAccounts(accountsToSave);
+        transferMetrics.record(TransferPhase.REPOSITORY, updating);
+        // The legs are not applied one by one, so each is recorded with the balances after the batch.
+        for (int i = 0; i < legs.size(); i++) {
+            TransferLeg leg = legs.get(i);
+            transactionHistory.recordMinorUnits(leg.getAccountFrom().getAccountId(), leg.getAccountTo().getAccountId(),
+                amounts[i], minorUnits(leg.getAccountFrom()).get(), minorUnits(leg.getAccountTo()).get());
+        }
+        batch.complete();
+    }
+
+    /**
+     * Debits the amount unless that would make the balance negative, and returns the new balance
+     * or -1 if nothing was debited.
+     */
+    static long debit(AtomicLong balance, long amount) {
+        long current;
+        do {
+            current = balance.get();
+            if (current < amount) {
+                return -1;
+            }
+        } while (!balance.compareAndSet(current, current - amount));
+        return current - amount;
+    }
+
+    private static AtomicLong minorUnits(Account account) {
+        AtomicLong minorUnits = account.getMinorUnitsBalance();
+        return minorUnits != null ? minorUnits : account.useMinorUnits();
+    }
+}
@@ -0,0 +1,107 @@
+package com.db.awmd.challenge.service;
+
+import com.db.awmd.challenge.domain.Account;
+
+import java.math.BigDecimal;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.LockSupport;
+
+import org.springframework.stereotype.Component;
+
+/**
+ * Splits time into audit epochs so that a consistent balance sum can be taken while transfers
+ * keep running.
+ *
+ * <p>A transfer {@link #enter() enters} the current epoch once it holds its account locks and
+ * {@link #exit(long) exits} it before releasing them. Before changing a balance it calls
+ * {@link #beforeBalanceChange(Account, long, BigDecimal)}, which saves the balance the account had
+ * when the epoch began the first time the account is changed in it. An audit
+ * {@link #advance() advances} the epoch and waits until the transfers of the previous epoch have
+ * exited; from then on, the saved balances of the new epoch together with the balances of the
+ * accounts that were not changed in it describe the state between the two epochs, until
+ * the audit {@link #release() releases} the epoch.
+ *
+ * <p>Only the current and the previous epoch can have transfers in flight, so the registrations
+ * are counted per epoch parity.
+ */
+@Component
+public class AuditEpochs {
+
+    private static final long DRAIN_PARK_NANOS = TimeUnit.MICROSECONDS.toNanos(50);
+
+    private final LongAdder[] inFlight = {new LongAdder(), new LongAdder()};
+
+    private final ReentrantLock readers = new ReentrantLock();
+
+    private volatile long epoch = 1;
+
+    /**
+     * Registers a transfer in the current epoch and returns it.
+     */
+    public long enter() {
+        while (true) {
+            long current = epoch;
+            LongAdder registrations = inFlight[parity(current)];
+            registrations.increment();
+            if (epoch == current) {
+                return current;
+            }
+            // An audit advanced the epoch in between; it may already have seen this counter drained.
+            registrations.decrement();
+        }
+    }
+
+    public void exit(long enteredEpoch) {
+        inFlight[parity(enteredEpoch)].decrement();
+    }
+
+    /**
+     * Saves the audit balance of the account if needed. Must be called with the account lock held,
+     * before its balance is set to {@code newBalance}.
+     */
+    public static void beforeBalanceChange(Account account, long enteredEpoch, BigDecimal newBalance) {
+        long savedEpoch = account.getAuditEpoch();
+        if (savedEpoch < enteredEpoch) {
+            account.setAuditBalance(account.getBalance());
+            account.setAuditEpoch(enteredEpoch);
+        } else if (savedEpoch > enteredEpoch) {
+            // A transfer of the previous epoch running after one of the new epoch saved the balance:
+            // it belongs before the audit, so the saved balance has to include it.
+            account.setAuditBalance(account.getAuditBalance().add(newBalance.subtract(account.getBalance())));
+        }
+    }
+
+    /**
+     * Returns the balance of the account as it was when the given epoch began. Must be called with
+     * the account lock held, once {@link #advance()} returned that epoch.
+     */
+    public static BigDecimal balanceAt(Account account, long auditEpoch) {
+        return account.getAuditEpoch() == auditEpoch ? account.getAuditBalance() : account.getBalance();
+    }
+
+    /**
+     * Starts a new epoch and waits until no transfer of the previous one is in flight. The balances
+     * it saves are read by one caller at a time, as the next epoch overwrites them: another caller
+     * waits until this one {@link #release() released} the epoch.
+     */
+    long advance() {
+        readers.lock();
+        long next = epoch + 1;
+        epoch = next;
+        LongAdder previous = inFlight[parity(next - 1)];
+        while (previous.sum() != 0) {
+            LockSupport.parkNanos(DRAIN_PARK_NANOS);
+        }
+        return next;
+    }
+
+    void release() {
+        readers.unlock();
+    }
+
+    private static int parity(long epoch) {
+        return (int) (epoch & 1);
+    }
+}
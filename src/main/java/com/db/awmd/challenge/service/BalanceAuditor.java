@@ -0,0 +1,89 @@
+package com.db.awmd.challenge.service;
+
+import com.db.awmd.challenge.domain.Account;
+import com.db.awmd.challenge.domain.AuditResultDTO;
+import com.db.awmd.challenge.repository.AccountsRepository;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+/**
+ * Sums all balances as of a single point in time without stopping transfers, see
+ * {@link AuditEpochs}. Every account lock is only taken for the time it takes to read its
+ * balance, so transfers are delayed by nanoseconds rather than for the whole audit.
+ *
+ * <p>Accounts opened while an audit runs may or may not be part of it; either way the total is
+ * the sum of a consistent state. The sum relies on the repository listing the live account
+ * instances, as the in-memory repository does; with any other, the write-behind cache included,
+ * the audit is reported as not consistent.
+ */
+@Service
+@Slf4j
+public class BalanceAuditor {
+
+    private final AccountsRepository accountsRepository;
+
+    private final AuditEpochs auditEpochs;
+
+    private final boolean consistent;
+
+    private final int pageSize;
+
+    @Autowired
+    public BalanceAuditor(AccountsRepository accountsRepository, AuditEpochs auditEpochs, TransferEngine transferEngine,
+                          @Value("${accounts.audit.page-size:10000}") int pageSize) {
+        this.accountsRepository = accountsRepository;
+        this.auditEpochs = auditEpochs;
+        this.consistent = transferEngine.supportsAudit() && accountsRepository.listsLiveAccounts();
+        this.pageSize = pageSize;
+    }
+
+    /**
+     * Starts a new audit epoch and sums the balances as they were when it began. Audits run one at
+     * a time, and not while a snapshot reads the balances of its epoch.
+     */
+    public AuditResultDTO audit() {
+        long start = System.nanoTime();
+        long epoch = auditEpochs.advance();
+        try {
+            BigDecimal total = BigDecimal.ZERO;
+            long accounts = 0;
+            String cursor = null;
+            List<Account> page;
+            do {
+                page = accountsRepository.listAccounts(cursor, null, pageSize);
+                for (Account account : page) {
+                    total = total.add(balanceAt(account, epoch));
+                }
+                accounts += page.size();
+                cursor = page.isEmpty() ? cursor : page.get(page.size() - 1).getAccountId();
+            } while (page.size() == pageSize);
+
+            long durationMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+            log.info("Audit of epoch {} summed {} accounts to {} in {} ms", epoch, accounts, total, durationMillis);
+            return new AuditResultDTO(epoch, accounts, total, consistent, durationMillis);
+        } finally {
+            auditEpochs.release();
+        }
+    }
+
+    /**
+     * Reads the balance the account had when the epoch began, under its lock.
+     */
+    static BigDecimal balanceAt(Account account, long epoch) {
+        ReentrantLock lock = account.getReentrantLock();
+        lock.lock();
+        try {
+            return AuditEpochs.balanceAt(account, epoch);
+        } finally {
+            lock.unlock();
+        }
+    }
+}
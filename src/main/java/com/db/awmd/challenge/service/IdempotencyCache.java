@@ -0,0 +1,175 @@
+package com.db.awmd.challenge.service;
+
+import com.db.awmd.challenge.domain.IdempotencyStatistics;
+import com.db.awmd.challenge.domain.TransferMoneyDTO;
+import com.db.awmd.challenge.exception.IdempotencyKeyReusedException;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Remembers the outcome of recently seen idempotency keys for {@code ttl-ms}.
+ *
+ * <p>Keys are spread over striped, insertion-ordered maps, so the eldest entry of a stripe is
+ * always the first to expire. A stripe holds at most {@code max-entries / stripes} keys and
+ * evicts its eldest key when full, which bounds memory no matter how many keys clients send.
+ */
+@Component
+public class IdempotencyCache {
+
+    private static final int STRIPES = 16;
+
+    private final long ttlNanos;
+
+    private final int maxEntries;
+
+    private final LongSupplier clock;
+
+    private final Stripe[] stripes = new Stripe[STRIPES];
+
+    private final LongAdder hits = new LongAdder();
+
+    private final LongAdder misses = new LongAdder();
+
+    private final LongAdder reusedKeys = new LongAdder();
+
+    private final LongAdder evictions = new LongAdder();
+
+    private final LongAdder expirations = new LongAdder();
+
+    @Autowired
+    public IdempotencyCache(@Value("${accounts.transfer.idempotency.ttl-ms:600000}") long ttlMillis,
+                            @Value("${accounts.transfer.idempotency.max-entries:100000}") int maxEntries) {
+        this(ttlMillis, maxEntries, System::nanoTime);
+    }
+
+    IdempotencyCache(long ttlMillis, int maxEntries, LongSupplier clock) {
+        this.ttlNanos = TimeUnit.MILLISECONDS.toNanos(ttlMillis);
+        this.maxEntries = maxEntries;
+        this.clock = clock;
+        for (int i = 0; i < STRIPES; i++) {
+            stripes[i] = new Stripe(Math.max(1, maxEntries / STRIPES));
+        }
+    }
+
+    /**
+     * Registers the outcome of a new transfer under its key, unless the key is already known.
+     *
+     * @return the outcome registered first for the key, or {@code null} if {@code outcome} was registered
+     * @throws IdempotencyKeyReusedException if the key is known for a different transfer
+     */
+    public CompletableFuture<Object> putIfAbsent(String key, TransferMoneyDTO transfer, CompletableFuture<Object> outcome) {
+        Entry existing = stripeOf(key).putIfAbsent(key, new Entry(transfer, outcome, clock.getAsLong() + ttlNanos));
+        if (existing == null) {
+            misses.increment();
+            return null;
+        }
+        if (!sameTransfer(existing.transfer, transfer)) {
+            reusedKeys.increment();
+            throw new IdempotencyKeyReusedException("Idempotency key " + key + " was already used for another transfer");
+        }
+        hits.increment();
+        return existing.outcome;
+    }
+
+    /**
+     * Forgets the key so that the transfer can be retried, if it still maps to {@code outcome}.
+     */
+    public void remove(String key, CompletableFuture<Object> outcome) {
+        stripeOf(key).remove(key, outcome);
+    }
+
+    public IdempotencyStatistics getStatistics() {
+        int size = 0;
+        for (Stripe stripe : stripes) {
+            size += stripe.size();
+        }
+        long hitCount = hits.sum();
+        long lookups = hitCount + misses.sum();
+        return new IdempotencyStatistics(hitCount, lookups - hitCount, reusedKeys.sum(), evictions.sum(),
+            expirations.sum(), size, maxEntries, lookups == 0 ? 0 : (double) hitCount / lookups);
+    }
+
+    private static boolean sameTransfer(TransferMoneyDTO first, TransferMoneyDTO second) {
+        return first.getAccountFromId().equals(second.getAccountFromId())
+            && first.getAccountToId().equals(second.getAccountToId())
+            && first.getAmountToTransfer().compareTo(second.getAmountToTransfer()) == 0;
+    }
+
+    private Stripe stripeOf(String key) {
+        int hash = key.hashCode();
+        return stripes[(hash ^ (hash >>> 16)) & (STRIPES - 1)];
+    }
+
+    private static final class Entry {
+
+        private final TransferMoneyDTO transfer;
+
+        private final CompletableFuture<Object> outcome;
+
+        private final long expiresAtNanos;
+
+        private Entry(TransferMoneyDTO transfer, CompletableFuture<Object> outcome, long expiresAtNanos) {
+            this.transfer = transfer;
+            this.outcome = outcome;
+            this.expiresAtNanos = expiresAtNanos;
+        }
+    }
+
+    private final class Stripe {
+
+        private final LinkedHashMap<String, Entry> entries;
+
+        private Stripe(int capacity) {
+            this.entries = new LinkedHashMap<String, Entry>(16, 0.75f, false) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                    if (size() <= capacity) {
+                        return false;
+                    }
+                    evictions.increment();
+                    return true;
+                }
+            };
+        }
+
+        private synchronized Entry putIfAbsent(String key, Entry entry) {
+            expire(entry.expiresAtNanos - ttlNanos);
+            Entry existing = entries.get(key);
+            if (existing != null) {
+                return existing;
+            }
+            entries.put(key, entry);
+            return null;
+        }
+
+        private synchronized void remove(String key, CompletableFuture<Object> outcome) {
+            Entry existing = entries.get(key);
+            if (existing != null && existing.outcome == outcome) {
+                entries.remove(key);
+            }
+        }
+
+        private synchronized int size() {
+            expire(clock.getAsLong());
+            return entries.size();
+        }
+
+        private void expire(long now) {
+            Iterator<Entry> iterator = entries.values().iterator();
+            while (iterator.hasNext() && iterator.next().expiresAtNanos - now <= 0) {
+                iterator.remove();
+                expirations.increment();
+            }
+        }
+    }
+}
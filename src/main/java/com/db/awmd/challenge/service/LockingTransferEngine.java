@@ -0,0 +1,315 @@
+package com.db.awmd.challenge.service;
+
+import com.db.awmd.challenge.domain.Account;
+import com.db.awmd.challenge.domain.BatchMode;
+import com.db.awmd.challenge.domain.StripedBalance;
+import com.db.awmd.challenge.domain.TransferOutcome;
+import com.db.awmd.challenge.domain.TransferStatus;
+import com.db.awmd.challenge.exception.InvalidAmountException;
+import com.db.awmd.challenge.repository.AccountsRepository;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+/**
+ * Default engine: takes both account locks through the {@link AccountLockManager} and updates
+ * the {@link BigDecimal} balances while holding them. Balance changes are registered with the
+ * {@link AuditEpochs} so that audits stay consistent.
+ *
+ * <p>Accounts listed in {@code accounts.striped.account-ids} keep their balance in
+ * {@link StripedBalance striped sub-balances}: transfers to them only lock the origin account and
+ * credit a sub-balance, so transfers into a hot account no longer serialize on its lock. Debits
+ * from them still take the lock. Audits are not consistent while striped accounts are configured,
+ * and striping is refused with repositories that hand out views.
+ */
+@Component
+@ConditionalOnProperty(name = "accounts.transfer.engine", havingValue = "locking", matchIfMissing = true)
+public class LockingTransferEngine implements TransferEngine {
+
+    private final AccountsRepository accountsRepository;
+
+    private final AccountLockManager accountLockManager;
+
+    private final TransferMetrics transferMetrics;
+
+    private final AuditEpochs auditEpochs;
+
+    private final TransactionHistory transactionHistory;
+
+    private final Set<String> stripedAccountIds;
+
+    private final int stripes;
+
+    @Autowired
+    public LockingTransferEngine(AccountsRepository accountsRepository, AccountLockManager accountLockManager,
+                                 TransferMetrics transferMetrics, AuditEpochs auditEpochs,
+                                 TransactionHistory transactionHistory,
+                                 @Value("${accounts.striped.account-ids:}") String[] stripedAccountIds,
+                                 @Value("${accounts.striped.stripes:16}") int stripes) {
+        this.accountsRepository = accountsRepository;
+        this.accountLockManager = accountLockManager;
+        this.transferMetrics = transferMetrics;
+        this.auditEpochs = auditEpochs;
+        this.transactionHistory = transactionHistory;
+        this.stripedAccountIds = Arrays.stream(stripedAccountIds).map(String::trim).filter(accountId -> !accountId.isEmpty())
+            .collect(Collectors.toSet());
+        this.stripes = stripes;
+        if (!this.stripedAccountIds.isEmpty() && !accountsRepository.storesLiveAccounts()) {
+            // Unlocked credits on views would each start from a stale balance and overwrite each other.
+            throw new IllegalStateException("Striped accounts need a repository that keeps live accounts");
+        }
+    }
+
+    @Override
+    public void onAccountCreated(Account account) {
+        if (isStriped(account)) {
+            account.useStripedBalance(stripes);
+        }
+    }
+
+    @Override
+    public boolean supportsAudit() {
+        return stripedAccountIds.isEmpty();
+    }
+
+    @Override
+    public TransferOutcome tryTransfer(Account accountFromTransfer, Account accountToTransfer, BigDecimal amountToTransfer) {
+        if (isStriped(accountFromTransfer) || isStriped(accountToTransfer)) {
+            return transferStriped(accountFromTransfer, accountToTransfer, amountToTransfer);
+        }
+        accountLockManager.lock(accountFromTransfer, accountToTransfer);
+        long locked = System.nanoTime();
+        long epoch = auditEpochs.enter();
+        try {
+            // Repositories handing out views need the balances read again under the lock.
+            Account from = accountsRepository.reload(accountFromTransfer);
+            Account to = accountsRepository.reload(accountToTransfer);
+            BigDecimal fromBalance = from.getBalance().subtract(amountToTransfer);
+            if (fromBalance.signum() < 0) {
+                return TransferOutcome.INSUFFICIENT_FUNDS;
+            }
+            BigDecimal toBalance = to.getBalance().add(amountToTransfer);
+
+            AuditEpochs.beforeBalanceChange(from, epoch, fromBalance);
+            AuditEpochs.beforeBalanceChange(to, epoch, toBalance);
+            from.setBalance(fromBalance);
+            to.setBalance(toBalance);
+
+            List<Account> accountsToSave = new ArrayList<>();
+            accountsToSave.add(from);
+            accountsToSave.add(to);
+            long updating = System.nanoTime();
+            accountsRepository.updateAccounts(accountsToSave);
+            transferMetrics.record(TransferPhase.REPOSITORY, updating);
+            transactionHistory.record(from.getAccountId(), to.getAccountId(), amountToTransfer, fromBalance, toBalance);
+            return TransferOutcome.COMPLETED;
+        } finally {
+            auditEpochs.exit(epoch);
+            transferMetrics.record(TransferPhase.LOCK_HOLD, locked);
+            accountLockManager.unlock(accountFromTransfer, accountToTransfer);
+        }
+    }
+
+    /**
+     * Transfers from or to a striped account. Only the origin account is locked; a striped
+     * destination is credited without its lock.
+     */
+    private TransferOutcome transferStriped(Account accountFromTransfer, Account accountToTransfer,
+                                            BigDecimal amountToTransfer) {
+        boolean stripedCredit = isStriped(accountToTransfer);
+        long amount = Account.toMinorUnits(amountToTransfer);
+        if (stripedCredit) {
+            accountLockManager.lock(accountFromTransfer);
+        } else {
+            accountLockManager.lock(accountFromTransfer, accountToTransfer);
+        }
+        long locked = System.nanoTime();
+        long epoch = auditEpochs.enter();
+        try {
+            Account from = accountsRepository.reload(accountFromTransfer);
+            Account to = stripedCredit ? accountToTransfer : accountsRepository.reload(accountToTransfer);
+            BigDecimal fromBalance;
+            if (isStriped(from)) {
+                if (!stripesOf(from).debit(amount)) {
+                    return TransferOutcome.INSUFFICIENT_FUNDS;
+                }
+                fromBalance = from.getBalance();
+            } else {
+                fromBalance = from.getBalance().subtract(amountToTransfer);
+                if (fromBalance.signum() < 0) {
+                    return TransferOutcome.INSUFFICIENT_FUNDS;
+                }
+                AuditEpochs.beforeBalanceChange(from, epoch, fromBalance);
+                from.setBalance(fromBalance);
+            }
+
+            BigDecimal toBalance;
+            if (stripedCredit) {
+                stripesOf(to).credit(amount);
+                toBalance = to.getBalance();
+            } else {
+                toBalance = to.getBalance().add(amountToTransfer);
+                AuditEpochs.beforeBalanceChange(to, epoch, toBalance);
+                to.setBalance(toBalance);
+            }
+
+            long updating = System.nanoTime();
+            accountsRepository.updateAccounts(Arrays.asList(from, to));
+            transferMetrics.record(TransferPhase.REPOSITORY, updating);
+            transactionHistory.record(from.getAccountId(), to.getAccountId(), amountToTransfer, fromBalance, toBalance);
+            return TransferOutcome.COMPLETED;
+        } finally {
+            auditEpochs.exit(epoch);
+            transferMetrics.record(TransferPhase.LOCK_HOLD, locked);
+            if (stripedCredit) {
+                accountLockManager.unlock(accountFromTransfer);
+            } else {
+                accountLockManager.unlock(accountFromTransfer, accountToTransfer);
+            }
+        }
+    }
+
+    /**
+     * Takes the lock of every distinct account of the batch once, works out the resulting
+     * balances and only then applies and persists them.
+     */
+    @Override
+    public void transferBatch(List<TransferLeg> legs, BatchMode mode) {
+        Map<String, Account> accounts = new LinkedHashMap<>();
+        for (TransferLeg leg : legs) {
+            accounts.putIfAbsent(leg.getAccountFrom().getAccountId(), leg.getAccountFrom());
+            accounts.putIfAbsent(leg.getAccountTo().getAccountId(), leg.getAccountTo());
+        }
+
+        List<Account> lockedAccounts = accountLockManager.lockAll(accounts.values());
+        long locked = System.nanoTime();
+        long epoch = auditEpochs.enter();
+        try {
+            accounts.replaceAll((accountId, account) -> accountsRepository.reload(account));
+            // Striped accounts may be credited meanwhile, so their changes are applied as deltas.
+            Map<String, BigDecimal> stripedStartBalances = new HashMap<>();
+            for (Account account : accounts.values()) {
+                if (isStriped(account)) {
+                    stripedStartBalances.put(account.getAccountId(), account.getBalance());
+                }
+            }
+            Map<String, BigDecimal> balances = new HashMap<>();
+            BigDecimal[] legBalances = new BigDecimal[legs.size() * 2];
+            TransferLeg failedLeg = null;
+            for (int i = 0; i < legs.size(); i++) {
+                TransferLeg leg = legs.get(i);
+                String failure = null;
+                if (stripedStartBalances.containsKey(leg.getAccountFrom().getAccountId())
+                    || stripedStartBalances.containsKey(leg.getAccountTo().getAccountId())) {
+                    failure = minorUnitsRejection(leg.getAmount());
+                }
+                BigDecimal fromBalance = balanceOf(balances, accounts.get(leg.getAccountFrom().getAccountId()));
+                if (failure == null && fromBalance.compareTo(leg.getAmount()) < 0) {
+                    failure = TransferOutcome.INSUFFICIENT_FUNDS.getMessage();
+                }
+                if (failure != null) {
+                    leg.fail(failure);
+                    if (mode == BatchMode.ALL_OR_NOTHING) {
+                        failedLeg = leg;
+                        break;
+                    }
+                    continue;
+                }
+                legBalances[2 * i] = fromBalance.subtract(leg.getAmount());
+                legBalances[2 * i + 1] = balanceOf(balances, accounts.get(leg.getAccountTo().getAccountId()))
+                    .add(leg.getAmount());
+                balances.put(leg.getAccountFrom().getAccountId(), legBalances[2 * i]);
+                balances.put(leg.getAccountTo().getAccountId(), legBalances[2 * i + 1]);
+                leg.complete();
+            }
+
+            if (failedLeg != null) {
+                String message = "Batch aborted because transfer " + failedLeg.getIndex() + " failed";
+                for (TransferLeg leg : legs) {
+                    if (leg != failedLeg) {
+                        leg.abort(message);
+                    }
+                }
+                return;
+            }
+
+            Map<String, Long> stripedDeltas = new HashMap<>();
+            for (Map.Entry<String, BigDecimal> start : stripedStartBalances.entrySet()) {
+                BigDecimal balance = balances.get(start.getKey());
+                if (balance != null) {
+                    stripedDeltas.put(start.getKey(), Account.toMinorUnits(balance.subtract(start.getValue())));
+                }
+            }
+            List<Account> accountsToSave = new ArrayList<>(balances.size());
+            for (Map.Entry<String, BigDecimal> balance : balances.entrySet()) {
+                Account account = accounts.get(balance.getKey());
+                Long stripedDelta = stripedDeltas.get(balance.getKey());
+                if (stripedDelta == null) {
+                    AuditEpochs.beforeBalanceChange(account, epoch, balance.getValue());
+                    account.setBalance(balance.getValue());
+                } else if (stripedDelta >= 0) {
+                    stripesOf(account).credit(stripedDelta);
+                } else {
+                    // Cannot fail: the balance only grew since it was read and the legs were checked against it.
+                    stripesOf(account).debit(-stripedDelta);
+                }
+                accountsToSave.add(account);
+            }
+            if (!accountsToSave.isEmpty()) {
+                long updating = System.nanoTime();
+                accountsRepository.updateAccounts(accountsToSave);
+                transferMetrics.record(TransferPhase.REPOSITORY, updating);
+            }
+            for (int i = 0; i < legs.size(); i++) {
+                TransferLeg leg = legs.get(i);
+                if (leg.getStatus() == TransferStatus.COMPLETED) {
+                    transactionHistory.record(leg.getAccountFrom().getAccountId(), leg.getAccountTo().getAccountId(),
+                        leg.getAmount(), legBalances[2 * i], legBalances[2 * i + 1]);
+                }
+            }
+        } finally {
+            auditEpochs.exit(epoch);
+            transferMetrics.record(TransferPhase.LOCK_HOLD, locked);
+            accountLockManager.unlockAll(lockedAccounts);
+        }
+    }
+
+    private boolean isStriped(Account account) {
+        return !stripedAccountIds.isEmpty() && stripedAccountIds.contains(account.getAccountId());
+    }
+
+    private StripedBalance stripesOf(Account account) {
+        StripedBalance striped = account.getStripedBalance();
+        return striped != null ? striped : account.useStripedBalance(stripes);
+    }
+
+    /**
+     * Returns why the amount cannot be moved in or out of a striped account, which holds minor
+     * units only, or {@code null} if it can.
+     */
+    private static String minorUnitsRejection(BigDecimal amount) {
+        try {
+            Account.toMinorUnits(amount);
+            return null;
+        } catch (InvalidAmountException exception) {
+            return exception.getMessage();
+        }
+    }
+
+    private static BigDecimal balanceOf(Map<String, BigDecimal> balances, Account account) {
+        BigDecimal balance = balances.get(account.getAccountId());
+        return balance != null ? balance : account.getBalance();
+    }
+}
@@ -0,0 +1,122 @@
+package com.db.awmd.challenge.service;
+
+import com.db.awmd.challenge.domain.Account;
+import com.db.awmd.challenge.domain.TransferOutcome;
+
+import java.math.BigDecimal;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * An all-or-nothing batch reduced to one balance change per account, for engines that take no
+ * account locks. The legs are first checked one after the other against the current balances,
+ * like the locking engine does. The engine then applies every {@link #getDebits() debit} and only
+ * once all of them succeeded every {@link #getCredits() credit}, so a debit running out of funds
+ * because of a concurrent transfer is undone by refunding the debits before it, which cannot fail
+ * for lack of funds.
+ */
+final class NetBatch {
+
+    private final List<TransferLeg> legs;
+
+    private final Map<String, Account> accounts = new LinkedHashMap<>();
+
+    private final Map<String, BigDecimal> debits = new LinkedHashMap<>();
+
+    private final Map<String, BigDecimal> credits = new LinkedHashMap<>();
+
+    NetBatch(List<TransferLeg> legs) {
+        this.legs = legs;
+        Map<String, BigDecimal> changes = new LinkedHashMap<>();
+        for (TransferLeg leg : legs) {
+            accounts.putIfAbsent(leg.getAccountFrom().getAccountId(), leg.getAccountFrom());
+            accounts.putIfAbsent(leg.getAccountTo().getAccountId(), leg.getAccountTo());
+            changes.merge(leg.getAccountFrom().getAccountId(), leg.getAmount().negate(), BigDecimal::add);
+            changes.merge(leg.getAccountTo().getAccountId(), leg.getAmount(), BigDecimal::add);
+        }
+        changes.forEach((accountId, change) -> {
+            if (change.signum() < 0) {
+                debits.put(accountId, change);
+            } else if (change.signum() > 0) {
+                credits.put(accountId, change);
+            }
+        });
+    }
+
+    Account getAccount(String accountId) {
+        return accounts.get(accountId);
+    }
+
+    Iterable<Account> getAccounts() {
+        return accounts.values();
+    }
+
+    /**
+     * The negative net change of every account paying out more than it receives.
+     */
+    Map<String, BigDecimal> getDebits() {
+        return debits;
+    }
+
+    /**
+     * The positive net change of every account receiving more than it pays out.
+     */
+    Map<String, BigDecimal> getCredits() {
+        return credits;
+    }
+
+    /**
+     * Checks the legs one after the other against the current balances. Returns {@code false}
+     * after failing the first leg lacking funds and aborting the others.
+     */
+    boolean check() {
+        Map<String, BigDecimal> balances = new HashMap<>();
+        for (TransferLeg leg : legs) {
+            String accountFromId = leg.getAccountFrom().getAccountId();
+            String accountToId = leg.getAccountTo().getAccountId();
+            BigDecimal fromBalance = balanceOf(balances, accountFromId);
+            if (fromBalance.compareTo(leg.getAmount()) < 0) {
+                fail(leg, TransferOutcome.INSUFFICIENT_FUNDS.getMessage());
+                return false;
+            }
+            balances.put(accountFromId, fromBalance.subtract(leg.getAmount()));
+            balances.put(accountToId, balanceOf(balances, accountToId).add(leg.getAmount()));
+        }
+        return true;
+    }
+
+    /**
+     * Fails the first leg paying out of an account whose debit lacked funds, and aborts the others.
+     */
+    void failDebit(String accountId) {
+        for (TransferLeg leg : legs) {
+            if (leg.getAccountFrom().getAccountId().equals(accountId)) {
+                fail(leg, TransferOutcome.INSUFFICIENT_FUNDS.getMessage());
+                return;
+            }
+        }
+    }
+
+    void fail(TransferLeg failedLeg, String message) {
+        failedLeg.fail(message);
+        String abortMessage = "Batch aborted because transfer " + failedLeg.getIndex() + " failed";
+        for (TransferLeg leg : legs) {
+            if (leg != failedLeg) {
+                leg.abort(abortMessage);
+            }
+        }
+    }
+
+    void complete() {
+        for (TransferLeg leg : legs) {
+            leg.complete();
+        }
+    }
+
+    private BigDecimal balanceOf(Map<String, BigDecimal> balances, String accountId) {
+        BigDecimal balance = balances.get(accountId);
+        return balance != null ? balance : accounts.get(accountId).getBalance();
+    }
+}
@@ -0,0 +1,302 @@
+package com.db.awmd.challenge.service;
+
+import com.db.awmd.challenge.domain.ScheduledTransferDTO;
+import com.db.awmd.challenge.domain.ScheduledTransferRequestDTO;
+import com.db.awmd.challenge.domain.ScheduledTransferStatus;
+import com.db.awmd.challenge.domain.TransferMoneyDTO;
+import com.db.awmd.challenge.domain.TransferOutcome;
+import com.db.awmd.challenge.exception.AccountLockTimeoutException;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.stereotype.Service;
+
+/**
+ * Holds transfers to execute at a later time in a {@link TimerWheel} of {@code tick-ms} ticks.
+ * Every tick the scheduler thread hands the due transfers, in groups of {@code group-size}, to
+ * {@code threads} execution threads that run each one on its own through
+ * {@link AccountsService#transfer}, so each only holds the locks of its own two accounts. A group
+ * waits for the repository to make its transfers durable once, after all of them ran; only then
+ * are they reported completed and their users notified. Transfers failing transiently (lock
+ * timeouts, concurrent modifications) are rescheduled {@code retry-delay-ms} later, up to
+ * {@code max-attempts} executions in all.
+ *
+ * <p>Every transfer is delayed by a random jitter of up to {@code jitter-ms}, so that transfers
+ * scheduled for the same round time are spread over that window instead of all hitting the
+ * accounts at once. The outcomes of the most recent {@code retained-results} executed or
+ * cancelled transfers are kept for lookups. Scheduled transfers live in memory only.
+ */
+@Service
+@Slf4j
+public class ScheduledTransferService implements Runnable {
+
+    private final AccountsService accountsService;
+
+    private final long tickMillis;
+
+    private final long jitterMillis;
+
+    private final long retryDelayMillis;
+
+    private final int maxAttempts;
+
+    private final int maxPending;
+
+    private final int groupSize;
+
+    private final ExecutorService executor;
+
+    private final TimerWheel<ScheduledTransfer> wheel;
+
+    private final Map<Long, ScheduledTransfer> pending = new ConcurrentHashMap<>();
+
+    private final Map<Long, ScheduledTransferDTO> results;
+
+    private final AtomicLong ids = new AtomicLong();
+
+    private Thread thread;
+
+    private volatile boolean running = true;
+
+    @Autowired
+    public ScheduledTransferService(AccountsService accountsService,
+                                    @Value("${accounts.scheduled.tick-ms:100}") long tickMillis,
+                                    @Value("${accounts.scheduled.jitter-ms:0}") long jitterMillis,
+                                    @Value("${accounts.scheduled.retry-delay-ms:1000}") long retryDelayMillis,
+                                    @Value("${accounts.scheduled.max-attempts:5}") int maxAttempts,
+                                    @Value("${accounts.scheduled.max-pending:10000000}") int maxPending,
+                                    @Value("${accounts.scheduled.retained-results:100000}") int retainedResults,
+                                    @Value("${accounts.scheduled.threads:8}") int threads,
+                                    @Value("${accounts.scheduled.group-size:256}") int groupSize) {
+        this.accountsService = accountsService;
+        this.tickMillis = tickMillis;
+        this.jitterMillis = jitterMillis;
+        this.retryDelayMillis = retryDelayMillis;
+        this.maxAttempts = maxAttempts;
+        this.maxPending = maxPending;
+        this.groupSize = groupSize;
+        AtomicInteger threadNumber = new AtomicInteger();
+        this.executor = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "scheduled-transfer-" + threadNumber.getAndIncrement());
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.wheel = new TimerWheel<>(System.currentTimeMillis() / tickMillis);
+        this.results = Collections.synchronizedMap(new LinkedHashMap<Long, ScheduledTransferDTO>() {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, ScheduledTransferDTO> eldest) {
+                return size() > retainedResults;
+            }
+        });
+    }
+
+    @PostConstruct
+    public void start() {
+        thread = new Thread(this, "scheduled-transfers");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    @PreDestroy
+    public void stop() {
+        running = false;
+        thread.interrupt();
+        executor.shutdown();
+    }
+
+    /**
+     * Schedules the transfer; it is validated only when it executes.
+     *
+     * @throws RejectedExecutionException if {@code max-pending} transfers are already scheduled
+     */
+    public ScheduledTransferDTO schedule(ScheduledTransferRequestDTO request) {
+        if (pending.size() >= maxPending) {
+            throw new RejectedExecutionException("Too many scheduled transfers, please retry later");
+        }
+        ScheduledTransfer transfer = new ScheduledTransfer(ids.incrementAndGet(), request);
+        pending.put(transfer.id, transfer);
+        enqueue(transfer, request.getExecuteAt());
+        return transfer.toDTO(ScheduledTransferStatus.PENDING, null);
+    }
+
+    private void enqueue(ScheduledTransfer transfer, long executeAt) {
+        long jitter = jitterMillis > 0 ? ThreadLocalRandom.current().nextLong(jitterMillis + 1) : 0;
+        transfer.dueAt = executeAt + jitter;
+        synchronized (wheel) {
+            transfer.timeout = wheel.add((transfer.dueAt + tickMillis - 1) / tickMillis, transfer);
+        }
+    }
+
+    /**
+     * Returns the scheduled transfer, or {@code null} if it is unknown or its outcome is no
+     * longer retained.
+     */
+    public ScheduledTransferDTO get(long id) {
+        ScheduledTransfer transfer = pending.get(id);
+        return transfer != null ? transfer.toDTO(ScheduledTransferStatus.PENDING, null) : results.get(id);
+    }
+
+    /**
+     * Cancels the transfer unless it is already executing or done.
+     */
+    public boolean cancel(long id) {
+        ScheduledTransfer transfer = pending.get(id);
+        if (transfer == null) {
+            return false;
+        }
+        synchronized (wheel) {
+            if (transfer.timeout == null || !wheel.cancel(transfer.timeout)) {
+                return false;
+            }
+        }
+        finish(transfer, ScheduledTransferStatus.CANCELLED, null);
+        return true;
+    }
+
+    public int getPendingCount() {
+        return pending.size();
+    }
+
+    @Override
+    public void run() {
+        while (running) {
+            try {
+                Thread.sleep(tickMillis - System.currentTimeMillis() % tickMillis);
+                executeDue(System.currentTimeMillis());
+            } catch (InterruptedException exception) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (RuntimeException exception) {
+                log.error("Executing scheduled transfers failed", exception);
+            }
+        }
+    }
+
+    /**
+     * Executes every transfer due by the given time and returns how many there were.
+     */
+    int executeDue(long nowMillis) {
+        List<ScheduledTransfer> due = new ArrayList<>();
+        synchronized (wheel) {
+            wheel.advance(nowMillis / tickMillis, due);
+        }
+        for (int from = 0; from < due.size(); from += groupSize) {
+            executeGroup(due.subList(from, Math.min(from + groupSize, due.size())), nowMillis);
+        }
+        return due.size();
+    }
+
+    /**
+     * Executes the transfers concurrently, then waits for durability once for all that completed.
+     * Should that fail they are reported failed, although their balance changes stay applied.
+     */
+    private void executeGroup(List<ScheduledTransfer> group, long nowMillis) {
+        Queue<ScheduledTransfer> completed = new ConcurrentLinkedQueue<>();
+        Queue<Runnable> completions = new ConcurrentLinkedQueue<>();
+        CompletableFuture<?>[] executions = new CompletableFuture<?>[group.size()];
+        for (int i = 0; i < executions.length; i++) {
+            ScheduledTransfer transfer = group.get(i);
+            executions[i] = CompletableFuture.runAsync(() -> execute(transfer, nowMillis, completed, completions), executor);
+        }
+        CompletableFuture.allOf(executions).join();
+        if (completed.isEmpty()) {
+            return;
+        }
+
+        try {
+            accountsService.awaitDurable();
+        } catch (RuntimeException exception) {
+            log.error("Scheduled transfers could not be made durable", exception);
+            completed.forEach(transfer -> finish(transfer, ScheduledTransferStatus.FAILED, exception.getMessage()));
+            return;
+        }
+        completed.forEach(transfer -> finish(transfer, ScheduledTransferStatus.COMPLETED, null));
+        completions.forEach(Runnable::run);
+    }
+
+    private void execute(ScheduledTransfer transfer, long nowMillis, Queue<ScheduledTransfer> completed,
+                         Queue<Runnable> completions) {
+        ScheduledTransferRequestDTO request = transfer.request;
+        transfer.attempts++;
+        TransferOutcome outcome;
+        try {
+            outcome = accountsService.transferDeferred(new TransferMoneyDTO(request.getAccountFromId(),
+                request.getAccountToId(), request.getAmountToTransfer()), completions);
+        } catch (AccountLockTimeoutException | OptimisticLockingFailureException exception) {
+            if (transfer.attempts < maxAttempts) {
+                log.debug("Rescheduling transfer {} after attempt {} failed: {}", transfer.id, transfer.attempts,
+                    exception.getMessage());
+                enqueue(transfer, nowMillis + retryDelayMillis);
+            } else {
+                finish(transfer, ScheduledTransferStatus.FAILED, exception.getMessage());
+            }
+            return;
+        } catch (RuntimeException exception) {
+            log.warn("Scheduled transfer {} failed: {}", transfer.id, exception.toString());
+            finish(transfer, ScheduledTransferStatus.FAILED, exception.getMessage());
+            return;
+        }
+        if (outcome.isCompleted()) {
+            completed.add(transfer);
+        } else {
+            finish(transfer, ScheduledTransferStatus.FAILED, outcome.getMessage());
+        }
+    }
+
+    private void finish(ScheduledTransfer transfer, ScheduledTransferStatus status, String message) {
+        results.put(transfer.id, transfer.toDTO(status, message));
+        pending.remove(transfer.id);
+    }
+
+    private static final class ScheduledTransfer {
+
+        private final long id;
+
+        private final ScheduledTransferRequestDTO request;
+
+        private volatile long dueAt;
+
+        /**
+         * Executions so far; only used by the thread executing the transfer, and the scheduler
+         * thread waits for that execution before the transfer can be due again.
+         */
+        private int attempts;
+
+        /**
+         * Place in the wheel; guarded by the wheel.
+         */
+        private TimerWheel.Timeout<ScheduledTransfer> timeout;
+
+        private ScheduledTransfer(long id, ScheduledTransferRequestDTO request) {
+            this.id = id;
+            this.request = request;
+        }
+
+        private ScheduledTransferDTO toDTO(ScheduledTransferStatus status, String message) {
+            return new ScheduledTransferDTO(id, request.getAccountFromId(), request.getAccountToId(),
+                request.getAmountToTransfer(), request.getExecuteAt(), dueAt, status, message);
+        }
+    }
+}
@@ -0,0 +1,435 @@
+package com.db.awmd.challenge.service;
+
+import com.db.awmd.challenge.domain.Account;
+import com.db.awmd.challenge.domain.BatchMode;
+import com.db.awmd.challenge.domain.TransferOutcome;
+import com.db.awmd.challenge.exception.AccountLockTimeoutException;
+import com.db.awmd.challenge.repository.AccountsRepository;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+/**
+ * Single-writer engine: accounts are partitioned by the hash of their id into shards and every
+ * balance is only ever changed by the thread owning its shard, so no account lock is taken.
+ * A transfer is a debit command on the origin shard which, when it succeeds, hands a credit
+ * command to the destination shard.
+ *
+ * <p>Callers need a permit of the origin shard to submit a transfer, which bounds the transfers in
+ * flight per shard to {@code accounts.transfer.shard-queue-capacity}. Credits between shards do
+ * not need a permit; each shard queue is sized so that they always fit and shard threads never
+ * block each other.
+ *
+ * <p>If a credit cannot be stored, the debit is refunded on the origin shard before the transfer
+ * fails, so a failed transfer leaves no money in flight.
+ *
+ * <p>All-or-nothing batches are applied as one {@link NetBatch net change} per account on its
+ * shard: every paying account is debited first and the others are only credited once all debits
+ * succeeded. The changes of one shard are applied by a single command, so a batch takes at most
+ * one permit per shard for its debits and one for its credits, however many accounts it touches.
+ * The permits are held until the batch is done, so the commands undoing a failed batch always fit
+ * into the shard queues.
+ */
+@Component
+@ConditionalOnProperty(name = "accounts.transfer.engine", havingValue = "sharded")
+@Slf4j
+public class ShardedTransferEngine implements TransferEngine {
+
+    private final AccountsRepository accountsRepository;
+
+    private final TransferMetrics transferMetrics;
+
+    private final TransactionHistory transactionHistory;
+
+    private final Shard[] shards;
+
+    private final long submitTimeoutMillis;
+
+    private final long awaitTimeoutMillis;
+
+    private volatile boolean stopped;
+
+    @Autowired
+    public ShardedTransferEngine(AccountsRepository accountsRepository, TransferMetrics transferMetrics,
+                                 TransactionHistory transactionHistory,
+                                 @Value("${accounts.transfer.shards:0}") int numberOfShards,
+                                 @Value("${accounts.transfer.shard-queue-capacity:1024}") int queueCapacity,
+                                 @Value("${accounts.lock.timeout-ms:500}") long submitTimeoutMillis,
+                                 @Value("${accounts.transfer.shard-await-ms:30000}") long awaitTimeoutMillis) {
+        this.accountsRepository = accountsRepository;
+        this.transferMetrics = transferMetrics;
+        this.transactionHistory = transactionHistory;
+        this.submitTimeoutMillis = submitTimeoutMillis;
+        this.awaitTimeoutMillis = awaitTimeoutMillis;
+
+        int shardCount = numberOfShards > 0 ? numberOfShards : Runtime.getRuntime().availableProcessors();
+        this.shards = new Shard[shardCount];
+        for (int i = 0; i < shardCount; i++) {
+            // Room for our own debits plus every in-flight transfer of the other shards crediting here.
+            shards[i] = new Shard(i, queueCapacity, queueCapacity * shardCount);
+        }
+    }
+
+    @PostConstruct
+    public void start() {
+        for (Shard shard : shards) {
+            shard.thread.start();
+        }
+        log.info("Started {} transfer shards", shards.length);
+    }
+
+    @PreDestroy
+    public void stop() {
+        stopped = true;
+        for (Shard shard : shards) {
+            shard.thread.interrupt();
+        }
+    }
+
+    @Override
+    public void onAccountCreated(Account account) {
+        // Accounts are assigned to shards by id, nothing to prepare.
+    }
+
+    @Override
+    public TransferOutcome tryTransfer(Account accountFromTransfer, Account accountToTransfer, BigDecimal amountToTransfer) {
+        if (stopped) {
+            throw new IllegalStateException("Transfer shards are stopped");
+        }
+        Shard fromShard = shardOf(accountFromTransfer);
+        Shard toShard = shardOf(accountToTransfer);
+        CompletableFuture<Boolean> result = new CompletableFuture<>();
+
+        fromShard.submitDebit(result, () -> {
+            BigDecimal fromBalance = accountFromTransfer.getBalance().subtract(amountToTransfer);
+            if (fromBalance.signum() < 0) {
+                result.complete(false);
+                return;
+            }
+            try {
+                save(accountFromTransfer, fromBalance);
+            } catch (RuntimeException exception) {
+                result.completeExceptionally(exception);
+                return;
+            }
+            transactionHistory.recordDebit(accountFromTransfer.getAccountId(), accountToTransfer.getAccountId(),
+                amountToTransfer, fromBalance);
+
+            Runnable credit = () -> {
+                BigDecimal toBalance = accountToTransfer.getBalance().add(amountToTransfer);
+                try {
+                    save(accountToTransfer, toBalance);
+                } catch (RuntimeException exception) {
+                    Runnable refund = () -> refund(result, accountFromTransfer, amountToTransfer, exception);
+                    if (toShard == fromShard) {
+                        refund.run();
+                    } else {
+                        fromShard.submitCredit(refund);
+                    }
+                    return;
+                }
+                transactionHistory.recordCredit(accountToTransfer.getAccountId(), accountFromTransfer.getAccountId(),
+                    amountToTransfer, toBalance);
+                result.complete(true);
+            };
+            if (toShard == fromShard) {
+                credit.run();
+            } else {
+                toShard.submitCredit(credit);
+            }
+        });
+
+        return await(result) ? TransferOutcome.COMPLETED : TransferOutcome.INSUFFICIENT_FUNDS;
+    }
+
+    @Override
+    public void transferBatch(List<TransferLeg> legs, BatchMode mode) {
+        if (mode != BatchMode.ALL_OR_NOTHING) {
+            transferEach(legs);
+            return;
+        }
+        if (stopped) {
+            throw new IllegalStateException("Transfer shards are stopped");
+        }
+        NetBatch batch = new NetBatch(legs);
+        if (!batch.check()) {
+            return;
+        }
+
+        CompletableFuture<Void> done = new CompletableFuture<>();
+        try {
+            BatchChanges debits = change(batch, batch.getDebits(), done);
+            if (debits.lackingFunds != null || debits.failure != null) {
+                revert(batch, batch.getDebits(), debits.applied, debits.failure);
+                if (debits.failure != null) {
+                    throw debits.failure;
+                }
+                batch.failDebit(debits.lackingFunds);
+                return;
+            }
+            BatchChanges credits = change(batch, batch.getCredits(), done);
+            if (credits.failure != null) {
+                revert(batch, batch.getCredits(), credits.applied, credits.failure);
+                revert(batch, batch.getDebits(), debits.applied, credits.failure);
+                throw credits.failure;
+            }
+        } finally {
+            done.complete(null);
+        }
+
+        // The legs are not applied one by one, so each is recorded with the balances after the batch.
+        for (TransferLeg leg : legs) {
+            transactionHistory.record(leg.getAccountFrom().getAccountId(), leg.getAccountTo().getAccountId(),
+                leg.getAmount(), leg.getAccountFrom().getBalance(), leg.getAccountTo().getBalance());
+        }
+        batch.complete();
+    }
+
+    /**
+     * Applies the balance changes with one command per shard and waits for all of them. A shard
+     * stops at its first change lacking funds or failing. With a {@code done} future every command
+     * takes a permit of its shard until that completes; without one the commands must be covered
+     * by permits already held.
+     */
+    private BatchChanges change(NetBatch batch, Map<String, BigDecimal> changes, CompletableFuture<Void> done) {
+        Map<Shard, Map<String, BigDecimal>> changesByShard = new LinkedHashMap<>();
+        for (Map.Entry<String, BigDecimal> change : changes.entrySet()) {
+            changesByShard.computeIfAbsent(shardOf(batch.getAccount(change.getKey())), shard -> new LinkedHashMap<>())
+                .put(change.getKey(), change.getValue());
+        }
+
+        BatchChanges result = new BatchChanges();
+        List<CompletableFuture<BatchChanges>> results = new ArrayList<>(changesByShard.size());
+        try {
+            for (Map.Entry<Shard, Map<String, BigDecimal>> shardChanges : changesByShard.entrySet()) {
+                CompletableFuture<BatchChanges> changed = new CompletableFuture<>();
+                Runnable command = () -> changed.complete(apply(batch, shardChanges.getValue()));
+                if (done != null) {
+                    shardChanges.getKey().submitDebit(done, command);
+                } else {
+                    shardChanges.getKey().submitCredit(command);
+                }
+                results.add(changed);
+            }
+        } catch (RuntimeException exception) {
+            result.failure = exception;
+        }
+        for (CompletableFuture<BatchChanges> changed : results) {
+            try {
+                BatchChanges shardResult = await(changed);
+                result.applied.addAll(shardResult.applied);
+                if (result.lackingFunds == null) {
+                    result.lackingFunds = shardResult.lackingFunds;
+                }
+                if (result.failure == null) {
+                    result.failure = shardResult.failure;
+                }
+            } catch (RuntimeException exception) {
+                if (result.failure == null) {
+                    result.failure = exception;
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Applies the changes of the accounts of one shard, on that shard, up to the first one lacking
+     * funds or failing to be stored.
+     */
+    private BatchChanges apply(NetBatch batch, Map<String, BigDecimal> changes) {
+        BatchChanges result = new BatchChanges();
+        for (Map.Entry<String, BigDecimal> change : changes.entrySet()) {
+            Account account = batch.getAccount(change.getKey());
+            BigDecimal balance = account.getBalance().add(change.getValue());
+            if (balance.signum() < 0) {
+                result.lackingFunds = change.getKey();
+                break;
+            }
+            try {
+                save(account, balance);
+            } catch (RuntimeException exception) {
+                result.failure = exception;
+                break;
+            }
+            result.applied.add(change.getKey());
+        }
+        return result;
+    }
+
+    /**
+     * Undoes the applied changes of a failed batch. Refunding a debit cannot lack funds, but taking
+     * back a credit can once the money was spent; the batch then stays partly applied and fails
+     * with an {@link IllegalStateException}.
+     */
+    private void revert(NetBatch batch, Map<String, BigDecimal> changes, List<String> applied, RuntimeException cause) {
+        Map<String, BigDecimal> reverse = new LinkedHashMap<>();
+        for (String accountId : applied) {
+            reverse.put(accountId, changes.get(accountId).negate());
+        }
+        BatchChanges reverted = change(batch, reverse, null);
+        if (reverted.lackingFunds != null || reverted.failure != null) {
+            log.error("Reverting the changes of accounts {} of a failed batch failed", reverse.keySet(), reverted.failure);
+            IllegalStateException failure = new IllegalStateException("Batch was applied partly and could not be reverted",
+                cause);
+            if (reverted.failure != null) {
+                failure.addSuppressed(reverted.failure);
+            }
+            throw failure;
+        }
+    }
+
+    /**
+     * Sets and stores a balance, putting the previous balance back if storing fails.
+     */
+    private void save(Account account, BigDecimal balance) {
+        BigDecimal previous = account.getBalance();
+        account.setBalance(balance);
+        long updating = System.nanoTime();
+        try {
+            accountsRepository.updateAccounts(Collections.singletonList(account));
+        } catch (RuntimeException exception) {
+            account.setBalance(previous);
+            throw exception;
+        } finally {
+            transferMetrics.record(TransferPhase.REPOSITORY, updating);
+        }
+    }
+
+    /**
+     * Gives the origin back a debit whose credit failed, on the origin's shard. The transfer then
+     * failed as a whole and may be retried; if even the refund fails it stays half applied and
+     * must not be retried, so it fails with an {@link IllegalStateException}.
+     */
+    private void refund(CompletableFuture<Boolean> result, Account accountFromTransfer, BigDecimal amountToTransfer,
+                        RuntimeException creditFailure) {
+        try {
+            save(accountFromTransfer, accountFromTransfer.getBalance().add(amountToTransfer));
+            result.completeExceptionally(creditFailure);
+        } catch (RuntimeException exception) {
+            log.error("Refunding {} to account {} failed after its transfer could not be credited", amountToTransfer,
+                accountFromTransfer.getAccountId(), exception);
+            IllegalStateException failure = new IllegalStateException("Account " + accountFromTransfer.getAccountId()
+                + " was debited but neither credited nor refunded", creditFailure);
+            failure.addSuppressed(exception);
+            result.completeExceptionally(failure);
+        }
+    }
+
+    /**
+     * Waits for an accepted transfer, also when interrupted, but no longer than
+     * {@code shard-await-ms} so that callers are not stuck once the shards stop.
+     */
+    private <T> T await(CompletableFuture<T> result) {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(awaitTimeoutMillis);
+        boolean interrupted = false;
+        try {
+            while (true) {
+                try {
+                    return result.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+                } catch (InterruptedException exception) {
+                    interrupted = true;
+                } catch (ExecutionException exception) {
+                    Throwable cause = exception.getCause();
+                    throw cause instanceof RuntimeException ? (RuntimeException) cause : new IllegalStateException(cause);
+                } catch (TimeoutException exception) {
+                    throw new IllegalStateException("Transfer did not complete within " + awaitTimeoutMillis
+                        + " ms, its outcome is unknown");
+                }
+            }
+        } finally {
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private Shard shardOf(Account account) {
+        return shards[(account.getAccountId().hashCode() & Integer.MAX_VALUE) % shards.length];
+    }
+
+    private static final class BatchChanges {
+
+        private final List<String> applied = new ArrayList<>();
+
+        private String lackingFunds;
+
+        private RuntimeException failure;
+    }
+
+    private final class Shard implements Runnable {
+
+        private final BlockingQueue<Runnable> commands;
+
+        private final Semaphore debitPermits;
+
+        private final Thread thread;
+
+        private Shard(int index, int debitCapacity, int queueCapacity) {
+            this.commands = new ArrayBlockingQueue<>(queueCapacity);
+            this.debitPermits = new Semaphore(debitCapacity);
+            this.thread = new Thread(this, "transfer-shard-" + index);
+            this.thread.setDaemon(true);
+        }
+
+        /**
+         * Queues a debit. The permit is held until the whole transfer completes, which bounds the
+         * credits this shard's transfers can queue on other shards.
+         */
+        private void submitDebit(CompletableFuture<?> transfer, Runnable debit) {
+            boolean acquired = false;
+            try {
+                acquired = debitPermits.tryAcquire(submitTimeoutMillis, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException exception) {
+                Thread.currentThread().interrupt();
+            }
+            if (!acquired) {
+                throw new AccountLockTimeoutException("Transfer shard " + thread.getName() + " is busy, please retry");
+            }
+            transfer.whenComplete((outcome, error) -> debitPermits.release());
+            commands.add(debit);
+        }
+
+        private void submitCredit(Runnable credit) {
+            commands.add(credit);
+        }
+
+        @Override
+        public void run() {
+            while (!Thread.currentThread().isInterrupted()) {
+                Runnable command;
+                try {
+                    command = commands.take();
+                } catch (InterruptedException exception) {
+                    return;
+                }
+                try {
+                    command.run();
+                } catch (RuntimeException exception) {
+                    log.error("Transfer command failed on {}", thread.getName(), exception);
+                }
+            }
+        }
+    }
+}
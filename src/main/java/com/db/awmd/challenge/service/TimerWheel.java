@@ -0,0 +1,159 @@
+package com.db.awmd.challenge.service;
+
+import java.util.List;
+
+/**
+ * Hierarchical timer wheel of {@link #LEVELS} wheels of {@link #SLOTS} slots each, in ticks.
+ * The lowest wheel holds timeouts due within {@value #SLOTS} ticks, each higher wheel covers
+ * {@value #SLOTS} times the range of the one below and its slots are cascaded into the lower
+ * wheels when the wheel below wraps around. Adding and cancelling are constant time and a
+ * pending timeout costs one node in a doubly-linked slot list, so millions of them stay cheap.
+ * Timeouts beyond the range of the top wheel are parked in its furthest slot and re-added when
+ * it is cascaded.
+ *
+ * <p>Not thread-safe; callers synchronize.
+ */
+public class TimerWheel<T> {
+
+    static final int SLOT_BITS = 8;
+
+    static final int SLOTS = 1 << SLOT_BITS;
+
+    static final int LEVELS = 4;
+
+    private static final long MAX_DELTA = (1L << (SLOT_BITS * LEVELS)) - 1;
+
+    private final Timeout<T>[][] wheels;
+
+    private long currentTick;
+
+    private int size;
+
+    @SuppressWarnings("unchecked")
+    public TimerWheel(long startTick) {
+        this.currentTick = startTick;
+        this.wheels = new Timeout[LEVELS][SLOTS];
+        for (Timeout<T>[] wheel : wheels) {
+            for (int slot = 0; slot < SLOTS; slot++) {
+                wheel[slot] = new Timeout<>(0, null);
+                wheel[slot].next = wheel[slot];
+                wheel[slot].prev = wheel[slot];
+            }
+        }
+    }
+
+    public long getCurrentTick() {
+        return currentTick;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Schedules the value at the given tick. Ticks not after the current one are handed out by the
+     * next {@link #advance}.
+     */
+    public Timeout<T> add(long deadlineTick, T value) {
+        Timeout<T> timeout = new Timeout<>(deadlineTick, value);
+        insert(timeout, Math.max(deadlineTick, currentTick + 1));
+        size++;
+        return timeout;
+    }
+
+    /**
+     * Removes a pending timeout; returns {@code false} if it already expired or was cancelled.
+     */
+    public boolean cancel(Timeout<T> timeout) {
+        if (timeout.next == null) {
+            return false;
+        }
+        unlink(timeout);
+        size--;
+        return true;
+    }
+
+    /**
+     * Moves the wheel forward to the given tick, adding the values of every timeout that expired
+     * on the way to {@code expired}, tick by tick.
+     */
+    public void advance(long tick, List<T> expired) {
+        while (currentTick < tick) {
+            currentTick++;
+            for (int level = 1; level < LEVELS && (currentTick & ((1L << (SLOT_BITS * level)) - 1)) == 0; level++) {
+                cascade(level, (int) (currentTick >>> (SLOT_BITS * level)) & (SLOTS - 1));
+            }
+            Timeout<T> head = wheels[0][(int) currentTick & (SLOTS - 1)];
+            while (head.next != head) {
+                Timeout<T> timeout = head.next;
+                unlink(timeout);
+                size--;
+                expired.add(timeout.value);
+            }
+        }
+    }
+
+    private void cascade(int level, int slot) {
+        Timeout<T> head = wheels[level][slot];
+        Timeout<T> timeout = head.next;
+        head.next = head;
+        head.prev = head;
+        while (timeout != head) {
+            Timeout<T> next = timeout.next;
+            insert(timeout, Math.max(timeout.deadlineTick, currentTick));
+            timeout = next;
+        }
+    }
+
+    /**
+     * Links the timeout into the slot of the lowest wheel whose range covers its delay. A
+     * timeout due at the current tick goes into the slot about to be expired.
+     */
+    private void insert(Timeout<T> timeout, long tick) {
+        long delta = Math.min(tick - currentTick, MAX_DELTA);
+        long target = currentTick + delta;
+        int level = 0;
+        while (level < LEVELS - 1 && delta >= 1L << (SLOT_BITS * (level + 1))) {
+            level++;
+        }
+        Timeout<T> head = wheels[level][(int) (target >>> (SLOT_BITS * level)) & (SLOTS - 1)];
+        timeout.prev = head.prev;
+        timeout.next = head;
+        head.prev.next = timeout;
+        head.prev = timeout;
+    }
+
+    private static <T> void unlink(Timeout<T> timeout) {
+        timeout.prev.next = timeout.next;
+        timeout.next.prev = timeout.prev;
+        timeout.next = null;
+        timeout.prev = null;
+    }
+
+    /**
+     * A pending value and its place in a slot list.
+     */
+    public static final class Timeout<T> {
+
+        private final long deadlineTick;
+
+        private final T value;
+
+        private Timeout<T> prev;
+
+        private Timeout<T> next;
+
+        private Timeout(long deadlineTick, T value) {
+            this.deadlineTick = deadlineTick;
+            this.value = value;
+        }
+
+        public long getDeadlineTick() {
+            return deadlineTick;
+        }
+
+        public T getValue() {
+            return value;
+        }
+    }
+}
@@ -0,0 +1,226 @@
+package com.db.awmd.challenge.service;
+
+import com.db.awmd.challenge.domain.Account;
+import com.db.awmd.challenge.domain.TransactionDTO;
+import com.db.awmd.challenge.domain.TransactionPageDTO;
+
+import java.math.BigDecimal;
+import java.math.MathContext;
+import java.math.RoundingMode;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Keeps the most recent transfers of every account in a fixed-size ring of primitive longs.
+ *
+ * <p>An entry takes four longs: the slot of the counterparty together with the scales of the two
+ * values, the unscaled amount, the unscaled resulting balance and the timestamp. The ring of
+ * {@code accounts.history.capacity} entries is allocated the first time an account takes part in
+ * a transfer, so an account costs {@code 32 * capacity} bytes plus a small fixed overhead. The
+ * ring itself never allocates; turning a {@link BigDecimal} value into its unscaled long takes one
+ * short-lived {@link BigDecimal} but no {@link java.math.BigInteger}, and minor units skip even
+ * that. Values are kept to 18 significant digits.
+ */
+@Component
+public class TransactionHistory {
+
+    private static final int LONGS_PER_ENTRY = 4;
+
+    private static final int MAX_DIGITS = 18;
+
+    private static final MathContext LONG_DIGITS = new MathContext(MAX_DIGITS, RoundingMode.HALF_EVEN);
+
+    private final boolean enabled;
+
+    private final int capacity;
+
+    private final ConcurrentHashMap<String, Ring> rings = new ConcurrentHashMap<>();
+
+    private final Object slotLock = new Object();
+
+    /**
+     * Account id of every slot, replaced by a larger copy when full.
+     */
+    private volatile String[] accountIdsBySlot = new String[1024];
+
+    private int nextSlot;
+
+    @Autowired
+    public TransactionHistory(@Value("${accounts.history.enabled:false}") boolean enabled,
+                              @Value("${accounts.history.capacity:32}") int capacity) {
+        this.enabled = enabled;
+        this.capacity = capacity;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Records a transfer in the history of both accounts.
+     */
+    public void record(String accountFromId, String accountToId, BigDecimal amount, BigDecimal fromBalance,
+                       BigDecimal toBalance) {
+        recordDebit(accountFromId, accountToId, amount, fromBalance);
+        recordCredit(accountToId, accountFromId, amount, toBalance);
+    }
+
+    /**
+     * Records a transfer of balances held in {@link Account#MINOR_UNIT_SCALE minor units} in the
+     * history of both accounts, without allocating.
+     */
+    public void recordMinorUnits(String accountFromId, String accountToId, long amount, long fromBalance,
+                                 long toBalance) {
+        if (!enabled) {
+            return;
+        }
+        long timestamp = System.currentTimeMillis();
+        Ring from = ringOf(accountFromId);
+        Ring to = ringOf(accountToId);
+        from.append(meta(to.slot, Account.MINOR_UNIT_SCALE, Account.MINOR_UNIT_SCALE), -amount, fromBalance, timestamp);
+        to.append(meta(from.slot, Account.MINOR_UNIT_SCALE, Account.MINOR_UNIT_SCALE), amount, toBalance, timestamp);
+    }
+
+    public void recordDebit(String accountId, String counterpartyId, BigDecimal amount, BigDecimal balance) {
+        append(accountId, counterpartyId, amount, true, balance);
+    }
+
+    public void recordCredit(String accountId, String counterpartyId, BigDecimal amount, BigDecimal balance) {
+        append(accountId, counterpartyId, amount, false, balance);
+    }
+
+    /**
+     * Returns up to {@code limit} entries older than sequence {@code before}, newest first. Entries
+     * that were overwritten are gone; the cursor of the last page is {@code null}.
+     */
+    public TransactionPageDTO getTransactions(String accountId, Long before, int limit) {
+        Ring ring = rings.get(accountId);
+        if (ring == null) {
+            return new TransactionPageDTO(Collections.emptyList(), null);
+        }
+
+        long[] page = new long[Math.max(1, Math.min(limit, capacity)) * LONGS_PER_ENTRY];
+        long[] range = ring.copy(before == null ? Long.MAX_VALUE : before, page);
+        long newest = range[0];
+        int count = (int) range[1];
+        boolean olderKept = range[2] != 0;
+
+        String[] accountIds = accountIdsBySlot;
+        List<TransactionDTO> transactions = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            int offset = i * LONGS_PER_ENTRY;
+            long meta = page[offset];
+            transactions.add(new TransactionDTO(newest - i, accountIds[(int) (meta >>> 32)],
+                BigDecimal.valueOf(page[offset + 1], (short) (meta >>> 16)),
+                BigDecimal.valueOf(page[offset + 2], (short) meta), page[offset + 3]));
+        }
+        return new TransactionPageDTO(transactions, olderKept ? newest - count + 1 : null);
+    }
+
+    private void append(String accountId, String counterpartyId, BigDecimal amount, boolean debit,
+                        BigDecimal balance) {
+        if (!enabled) {
+            return;
+        }
+        long timestamp = System.currentTimeMillis();
+        Ring ring = ringOf(accountId);
+        Ring counterparty = ringOf(counterpartyId);
+        BigDecimal storedAmount = representable(amount);
+        BigDecimal storedBalance = representable(balance);
+        long unscaledAmount = unscaled(storedAmount);
+        ring.append(meta(counterparty.slot, storedAmount.scale(), storedBalance.scale()),
+            debit ? -unscaledAmount : unscaledAmount, unscaled(storedBalance), timestamp);
+    }
+
+    private Ring ringOf(String accountId) {
+        Ring ring = rings.get(accountId);
+        return ring != null ? ring : register(accountId);
+    }
+
+    private Ring register(String accountId) {
+        synchronized (slotLock) {
+            Ring ring = rings.get(accountId);
+            if (ring != null) {
+                return ring;
+            }
+            int slot = nextSlot++;
+            String[] accountIds = accountIdsBySlot;
+            if (slot == accountIds.length) {
+                accountIds = Arrays.copyOf(accountIds, accountIds.length * 2);
+            }
+            accountIds[slot] = accountId;
+            accountIdsBySlot = accountIds;
+
+            ring = new Ring(slot, capacity);
+            rings.put(accountId, ring);
+            return ring;
+        }
+    }
+
+    private static long meta(int slot, int amountScale, int balanceScale) {
+        return ((long) slot << 32) | ((amountScale & 0xFFFFL) << 16) | (balanceScale & 0xFFFFL);
+    }
+
+    /**
+     * Returns the unscaled value of a representable value. Moving the decimal point by the scale
+     * leaves a scale of zero, whose long value is read from the compact form without inflating the
+     * {@link java.math.BigInteger} that {@link BigDecimal#unscaledValue()} creates.
+     */
+    private static long unscaled(BigDecimal value) {
+        return value.scaleByPowerOfTen(value.scale()).longValueExact();
+    }
+
+    private static BigDecimal representable(BigDecimal value) {
+        BigDecimal rounded = value.precision() > MAX_DIGITS ? value.round(LONG_DIGITS) : value;
+        return rounded.scale() > Short.MAX_VALUE ? rounded.setScale(Short.MAX_VALUE, RoundingMode.HALF_EVEN) : rounded;
+    }
+
+    private static final class Ring {
+
+        private final int slot;
+
+        private final long[] entries;
+
+        private final int capacity;
+
+        private long appended;
+
+        private Ring(int slot, int capacity) {
+            this.slot = slot;
+            this.capacity = capacity;
+            this.entries = new long[capacity * LONGS_PER_ENTRY];
+        }
+
+        private synchronized void append(long meta, long amount, long balance, long timestamp) {
+            int offset = (int) (appended % capacity) * LONGS_PER_ENTRY;
+            entries[offset] = meta;
+            entries[offset + 1] = amount;
+            entries[offset + 2] = balance;
+            entries[offset + 3] = timestamp;
+            appended++;
+        }
+
+        /**
+         * Copies the entries before the given sequence into the page, newest first, and returns the
+         * sequence of the newest copied entry, the number copied and whether older entries remain.
+         */
+        private synchronized long[] copy(long before, long[] page) {
+            long end = Math.min(before, appended);
+            long oldestKept = Math.max(0, appended - capacity);
+            long first = Math.max(oldestKept, end - page.length / LONGS_PER_ENTRY);
+            int count = (int) Math.max(0, end - first);
+            for (int i = 0; i < count; i++) {
+                int offset = (int) ((end - 1 - i) % capacity) * LONGS_PER_ENTRY;
+                System.arraycopy(entries, offset, page, i * LONGS_PER_ENTRY, LONGS_PER_ENTRY);
+            }
+            return new long[] {end - 1, count, count > 0 && first > oldestKept ? 1 : 0};
+        }
+    }
+}
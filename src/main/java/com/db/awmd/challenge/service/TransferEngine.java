@@ -0,0 +1,69 @@
+package com.db.awmd.challenge.service;
+
+import com.db.awmd.challenge.domain.Account;
+import com.db.awmd.challenge.domain.BatchMode;
+import com.db.awmd.challenge.domain.TransferOutcome;
+import com.db.awmd.challenge.exception.AccountLockTimeoutException;
+import com.db.awmd.challenge.exception.AccountNegativeBalanceException;
+import com.db.awmd.challenge.exception.InvalidAmountException;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+/**
+ * Moves money between two already validated accounts and persists the result.
+ * The implementation is selected with the {@code accounts.transfer.engine} property.
+ */
+public interface TransferEngine {
+
+    /**
+     * Called before a new account is stored so the engine can prepare its balance representation.
+     */
+    void onAccountCreated(Account account);
+
+    /**
+     * Whether the engine registers its balance changes with {@link AuditEpochs}, which makes the
+     * totals of the {@link BalanceAuditor} consistent.
+     */
+    default boolean supportsAudit() {
+        return false;
+    }
+
+    /**
+     * Moves the money unless the origin account lacks the balance, which is reported as
+     * {@link TransferOutcome#INSUFFICIENT_FUNDS} rather than thrown.
+     */
+    TransferOutcome tryTransfer(Account accountFromTransfer, Account accountToTransfer, BigDecimal amountToTransfer);
+
+    default void transfer(Account accountFromTransfer, Account accountToTransfer, BigDecimal amountToTransfer)
+            throws AccountNegativeBalanceException {
+        TransferOutcome outcome = tryTransfer(accountFromTransfer, accountToTransfer, amountToTransfer);
+        if (!outcome.isCompleted()) {
+            throw new AccountNegativeBalanceException(outcome.getMessage());
+        }
+    }
+
+    /**
+     * Applies the legs of a batch and records the outcome on each leg. An
+     * {@link BatchMode#ALL_OR_NOTHING} batch is applied as a whole or not at all.
+     */
+    void transferBatch(List<TransferLeg> legs, BatchMode mode);
+
+    /**
+     * Runs the legs one by one, which is enough for {@link BatchMode#BEST_EFFORT} batches.
+     */
+    default void transferEach(List<TransferLeg> legs) {
+        for (TransferLeg leg : legs) {
+            try {
+                TransferOutcome outcome = tryTransfer(leg.getAccountFrom(), leg.getAccountTo(), leg.getAmount());
+                if (outcome.isCompleted()) {
+                    leg.complete();
+                } else {
+                    leg.fail(outcome.getMessage());
+                }
+            } catch (AccountLockTimeoutException | InvalidAmountException exception) {
+                leg.fail(exception.getMessage());
+            }
+        }
+    }
+}
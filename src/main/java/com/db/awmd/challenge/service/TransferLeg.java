@@ -0,0 +1,49 @@
+package com.db.awmd.challenge.service;
+
+import com.db.awmd.challenge.domain.Account;
+import com.db.awmd.challenge.domain.TransferStatus;
+
+import lombok.Getter;
+
+import java.math.BigDecimal;
+
+/**
+ * One validated transfer of a batch, carrying the outcome the engine assigned to it.
+ */
+@Getter
+public class TransferLeg {
+
+    private final int index;
+
+    private final Account accountFrom;
+
+    private final Account accountTo;
+
+    private final BigDecimal amount;
+
+    private TransferStatus status;
+
+    private String message;
+
+    public TransferLeg(int index, Account accountFrom, Account accountTo, BigDecimal amount) {
+        this.index = index;
+        this.accountFrom = accountFrom;
+        this.accountTo = accountTo;
+        this.amount = amount;
+    }
+
+    void complete() {
+        this.status = TransferStatus.COMPLETED;
+        this.message = null;
+    }
+
+    void fail(String message) {
+        this.status = TransferStatus.FAILED;
+        this.message = message;
+    }
+
+    void abort(String message) {
+        this.status = TransferStatus.ABORTED;
+        this.message = message;
+    }
+}
@@ -0,0 +1,88 @@
+package com.db.awmd.challenge.service;
+
+import com.db.awmd.challenge.domain.Account;
+import com.db.awmd.challenge.domain.TransferMoneyDTO;
+import com.db.awmd.challenge.domain.TransferOutcome;
+
+import java.util.Locale;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Writes one {@code key=value} event per transfer to the {@value #LOGGER_NAME} logger. Events are
+ * only built for sampled transfers and always after the transfer has released its locks, so the
+ * appender never runs while account locks are held.
+ */
+@Component
+public class TransferLogger {
+
+    public static final String LOGGER_NAME = "com.db.awmd.challenge.transfers";
+
+    private static final Logger log = LoggerFactory.getLogger(LOGGER_NAME);
+
+    public enum Mode {
+        /** No transfer events. */
+        OFF,
+        /** Accounts, amount, outcome and duration. */
+        STRUCTURED,
+        /** Structured events plus the balances of both accounts after the transfer. */
+        VERBOSE
+    }
+
+    private final Mode mode;
+
+    private final double sampleRate;
+
+    @Autowired
+    public TransferLogger(@Value("${accounts.transfer.logging.mode:structured}") String mode,
+                          @Value("${accounts.transfer.logging.sample-rate:1.0}") double sampleRate) {
+        this.mode = Mode.valueOf(mode.trim().toUpperCase(Locale.ROOT));
+        this.sampleRate = sampleRate;
+    }
+
+    public void completed(TransferMoneyDTO transfer, Account accountFrom, Account accountTo, long startNanos) {
+        if (!sampled()) {
+            return;
+        }
+        if (mode == Mode.VERBOSE) {
+            log.info("event=transfer outcome=COMPLETED from={} to={} amount={} fromBalance={} toBalance={} micros={}",
+                transfer.getAccountFromId(), transfer.getAccountToId(), transfer.getAmountToTransfer(),
+                accountFrom.getBalance(), accountTo.getBalance(), elapsedMicros(startNanos));
+        } else {
+            log.info("event=transfer outcome=COMPLETED from={} to={} amount={} micros={}",
+                transfer.getAccountFromId(), transfer.getAccountToId(), transfer.getAmountToTransfer(),
+                elapsedMicros(startNanos));
+        }
+    }
+
+    public void failed(TransferMoneyDTO transfer, Exception failure, long startNanos) {
+        if (sampled()) {
+            log.info("event=transfer outcome=FAILED from={} to={} amount={} reason={} micros={}",
+                transfer.getAccountFromId(), transfer.getAccountToId(), transfer.getAmountToTransfer(),
+                failure.getClass().getSimpleName(), elapsedMicros(startNanos));
+        }
+    }
+
+    public void rejected(TransferMoneyDTO transfer, TransferOutcome outcome, long startNanos) {
+        if (sampled()) {
+            log.info("event=transfer outcome=REJECTED from={} to={} amount={} reason={} micros={}",
+                transfer.getAccountFromId(), transfer.getAccountToId(), transfer.getAmountToTransfer(),
+                outcome, elapsedMicros(startNanos));
+        }
+    }
+
+    private boolean sampled() {
+        return mode != Mode.OFF && log.isInfoEnabled()
+            && (sampleRate >= 1 || ThreadLocalRandom.current().nextDouble() < sampleRate);
+    }
+
+    private static long elapsedMicros(long startNanos) {
+        return TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - startNanos);
+    }
+}
@@ -0,0 +1,175 @@
+package com.db.awmd.challenge.service;
+
+import com.db.awmd.challenge.domain.ContendedAccountDTO;
+import com.db.awmd.challenge.domain.LatencyStatistics;
+import com.db.awmd.challenge.domain.TransferMetricsStatistics;
+import com.db.awmd.challenge.domain.TransferOutcome;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Latency histograms per {@link TransferPhase}, outcome counters and the most contended accounts.
+ *
+ * <p>Recording does not allocate: latencies go to wait-free HdrHistogram {@link Recorder}s and
+ * contention to a fixed table of account slots. Accounts whose ids share a slot are counted
+ * together under the id seen last, so the top accounts are an approximation.
+ */
+@Component
+public class TransferMetrics {
+
+    private static final long HIGHEST_TRACKABLE_NANOS = TimeUnit.MINUTES.toNanos(1);
+
+    private static final int SIGNIFICANT_DIGITS = 3;
+
+    private static final int CONTENTION_SLOTS = 1024;
+
+    private static final TransferPhase[] PHASES = TransferPhase.values();
+
+    private final boolean enabled;
+
+    private final int topAccounts;
+
+    private final Recorder[] recorders = new Recorder[PHASES.length];
+
+    private final Histogram[] intervals = new Histogram[PHASES.length];
+
+    private final Histogram[] totals = new Histogram[PHASES.length];
+
+    private final LongAdder succeeded = new LongAdder();
+
+    private final ConcurrentMap<Class<?>, LongAdder> failures = new ConcurrentHashMap<>();
+
+    private final LongAdder[] rejections = new LongAdder[TransferOutcome.values().length];
+
+    private final AtomicReferenceArray<String> contendedAccountIds = new AtomicReferenceArray<>(CONTENTION_SLOTS);
+
+    private final AtomicLongArray contentions = new AtomicLongArray(CONTENTION_SLOTS);
+
+    @Autowired
+    public TransferMetrics(@Value("${accounts.metrics.enabled:true}") boolean enabled,
+                           @Value("${accounts.metrics.top-accounts:10}") int topAccounts) {
+        this.enabled = enabled;
+        this.topAccounts = topAccounts;
+        for (int i = 0; i < PHASES.length; i++) {
+            recorders[i] = new Recorder(HIGHEST_TRACKABLE_NANOS, SIGNIFICANT_DIGITS);
+            totals[i] = new Histogram(HIGHEST_TRACKABLE_NANOS, SIGNIFICANT_DIGITS);
+        }
+        for (int i = 0; i < rejections.length; i++) {
+            rejections[i] = new LongAdder();
+        }
+    }
+
+    /**
+     * Records the time elapsed since {@code startNanos} for the phase.
+     *
+     * @return the current {@link System#nanoTime()}, to be used as the start of the next phase
+     */
+    public long record(TransferPhase phase, long startNanos) {
+        long now = System.nanoTime();
+        if (enabled) {
+            recorders[phase.ordinal()].recordValue(Math.min(Math.max(now - startNanos, 0), HIGHEST_TRACKABLE_NANOS));
+        }
+        return now;
+    }
+
+    public void recordSuccess(long startNanos) {
+        record(TransferPhase.TRANSFER, startNanos);
+        if (enabled) {
+            succeeded.increment();
+        }
+    }
+
+    public void recordFailure(Throwable failure, long startNanos) {
+        record(TransferPhase.TRANSFER, startNanos);
+        if (enabled) {
+            LongAdder counter = failures.get(failure.getClass());
+            if (counter == null) {
+                counter = failures.computeIfAbsent(failure.getClass(), type -> new LongAdder());
+            }
+            counter.increment();
+        }
+    }
+
+    /**
+     * Counts a transfer rejected with the outcome; reported among the failures under its name.
+     */
+    public void recordRejection(TransferOutcome outcome, long startNanos) {
+        record(TransferPhase.TRANSFER, startNanos);
+        if (enabled) {
+            rejections[outcome.ordinal()].increment();
+        }
+    }
+
+    /**
+     * Counts a lock acquisition of the account that had to wait for another holder.
+     */
+    public void recordContention(String accountId) {
+        if (enabled) {
+            int hash = accountId.hashCode();
+            int slot = (hash ^ (hash >>> 16)) & (CONTENTION_SLOTS - 1);
+            contendedAccountIds.lazySet(slot, accountId);
+            contentions.incrementAndGet(slot);
+        }
+    }
+
+    public synchronized TransferMetricsStatistics getStatistics() {
+        Map<String, LatencyStatistics> phases = new LinkedHashMap<>();
+        for (int i = 0; i < PHASES.length; i++) {
+            intervals[i] = recorders[i].getIntervalHistogram(intervals[i]);
+            totals[i].add(intervals[i]);
+            phases.put(PHASES[i].name(), latencyOf(totals[i]));
+        }
+
+        Map<String, Long> failureCounts = new TreeMap<>();
+        failures.forEach((type, counter) -> failureCounts.put(type.getSimpleName(), counter.sum()));
+        for (TransferOutcome outcome : TransferOutcome.values()) {
+            long rejected = rejections[outcome.ordinal()].sum();
+            if (rejected > 0) {
+                failureCounts.put(outcome.name(), rejected);
+            }
+        }
+
+        List<ContendedAccountDTO> contended = new ArrayList<>();
+        for (int slot = 0; slot < CONTENTION_SLOTS; slot++) {
+            long count = contentions.get(slot);
+            if (count > 0) {
+                contended.add(new ContendedAccountDTO(contendedAccountIds.get(slot), count));
+            }
+        }
+        contended.sort(Comparator.comparingLong(ContendedAccountDTO::getContendedAcquisitions).reversed());
+
+        return new TransferMetricsStatistics(succeeded.sum(), failureCounts, phases,
+            new ArrayList<>(contended.subList(0, Math.min(topAccounts, contended.size()))));
+    }
+
+    private static LatencyStatistics latencyOf(Histogram histogram) {
+        return new LatencyStatistics(histogram.getTotalCount(),
+            histogram.getTotalCount() == 0 ? 0 : histogram.getMean() / 1000,
+            micros(histogram.getValueAtPercentile(50)),
+            micros(histogram.getValueAtPercentile(90)),
+            micros(histogram.getValueAtPercentile(99)),
+            micros(histogram.getValueAtPercentile(99.9)),
+            micros(histogram.getMaxValue()));
+    }
+
+    private static long micros(long nanos) {
+        return TimeUnit.NANOSECONDS.toMicros(nanos);
+    }
+}
@@ -0,0 +1,13 @@
+package com.db.awmd.challenge.service;
+
+/**
+ * Phases of a transfer whose latency is recorded by {@link TransferMetrics}.
+ */
+public enum TransferPhase {
+    TRANSFER,
+    VALIDATION,
+    LOCK_WAIT,
+    LOCK_HOLD,
+    REPOSITORY,
+    NOTIFICATION
+}
@@ -0,0 +1,59 @@
+package com.db.awmd.challenge.service;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadFactory;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Creates virtual-thread executors when the JDK has them (21 and later). The application still
+ * compiles for Java 8, so the JDK API is looked up reflectively and callers fall back to platform
+ * threads when it is missing.
+ */
+@Slf4j
+public final class VirtualThreads {
+
+    private static final Method OF_VIRTUAL = method("java.lang.Thread", "ofVirtual");
+
+    private static final Method BUILDER_NAME = method("java.lang.Thread$Builder", "name", String.class, long.class);
+
+    private static final Method BUILDER_FACTORY = method("java.lang.Thread$Builder", "factory");
+
+    private static final Method NEW_THREAD_PER_TASK_EXECUTOR = method("java.util.concurrent.Executors",
+        "newThreadPerTaskExecutor", ThreadFactory.class);
+
+    private VirtualThreads() {
+    }
+
+    public static boolean isSupported() {
+        return OF_VIRTUAL != null && BUILDER_NAME != null && BUILDER_FACTORY != null
+            && NEW_THREAD_PER_TASK_EXECUTOR != null;
+    }
+
+    /**
+     * Returns an executor starting a new virtual thread named {@code namePrefix} plus a counter for
+     * every task, or {@code null} if the JDK does not support virtual threads.
+     */
+    public static ExecutorService newThreadPerTaskExecutor(String namePrefix) {
+        if (!isSupported()) {
+            return null;
+        }
+        try {
+            Object builder = BUILDER_NAME.invoke(OF_VIRTUAL.invoke(null), namePrefix, 0L);
+            ThreadFactory factory = (ThreadFactory) BUILDER_FACTORY.invoke(builder);
+            return (ExecutorService) NEW_THREAD_PER_TASK_EXECUTOR.invoke(null, factory);
+        } catch (ReflectiveOperationException | RuntimeException exception) {
+            log.warn("Unable to create virtual threads, using platform threads", exception);
+            return null;
+        }
+    }
+
+    private static Method method(String className, String name, Class<?>... parameterTypes) {
+        try {
+            return Class.forName(className).getMethod(name, parameterTypes);
+        } catch (ReflectiveOperationException exception) {
+            return null;
+        }
+    }
+}
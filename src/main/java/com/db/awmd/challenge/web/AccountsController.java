@@ -1,18 +1,30 @@
 package com.db.awmd.challenge.web;
 
 import com.db.awmd.challenge.domain.Account;
+import com.db.awmd.challenge.domain.AccountBalanceView;
+import com.db.awmd.challenge.domain.AccountPageDTO;
+import com.db.awmd.challenge.domain.BatchTransferRequestDTO;
+import com.db.awmd.challenge.domain.BatchTransferResultDTO;
+import com.db.awmd.challenge.domain.ExportFormat;
+import com.db.awmd.challenge.domain.ImportResultDTO;
 import com.db.awmd.challenge.domain.TransferMoneyDTO;
-import com.db.awmd.challenge.exception.AccountDoesntExistException;
-import com.db.awmd.challenge.exception.AccountNegativeBalanceException;
-import com.db.awmd.challenge.exception.AmountTransferGreaterThanZeroException;
 import com.db.awmd.challenge.exception.DuplicateAccountIdException;
-import com.db.awmd.challenge.exception.SameAccountException;
+import com.db.awmd.challenge.exception.InvalidAmountException;
+import com.db.awmd.challenge.service.AccountsExportService;
+import com.db.awmd.challenge.service.AccountsImportService;
 import com.db.awmd.challenge.service.AccountsService;
+import com.db.awmd.challenge.service.TransactionHistory;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
 
 import javax.validation.Valid;
 
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
@@ -22,18 +34,36 @@ import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 @RestController
 @RequestMapping("/v1/accounts")
 @Slf4j
 public class AccountsController {
 
+    private static final MediaType CSV = new MediaType("text", "csv", StandardCharsets.UTF_8);
+
     private final AccountsService accountsService;
 
+    private final AccountsImportService accountsImportService;
+
+    private final AccountsExportService accountsExportService;
+
+    private final TransactionHistory transactionHistory;
+
+    private final int maxBalanceIds;
+
     @Autowired
-    public AccountsController(AccountsService accountsService) {
+    public AccountsController(AccountsService accountsService, AccountsImportService accountsImportService,
+                              AccountsExportService accountsExportService, TransactionHistory transactionHistory,
+                              @Value("${accounts.balances.max-ids:10000}") int maxBalanceIds) {
         this.accountsService = accountsService;
+        this.accountsImportService = accountsImportService;
+        this.accountsExportService = accountsExportService;
+        this.transactionHistory = transactionHistory;
+        this.maxBalanceIds = maxBalanceIds;
     }
 
     @PostMapping(consumes = MediaType.APPLICATION_JSON_VALUE)
@@ -41,28 +71,93 @@ public class AccountsController {
         log.info("Creating account {}", account);
         try {
             this.accountsService.createAccount(account);
-        } catch (DuplicateAccountIdException daie) {
-            return new ResponseEntity<>(daie.getMessage(), HttpStatus.BAD_REQUEST);
+        } catch (DuplicateAccountIdException | InvalidAmountException exception) {
+            return new ResponseEntity<>(exception.getMessage(), HttpStatus.BAD_REQUEST);
         }
         return new ResponseEntity<>(HttpStatus.CREATED);
     }
 
+    /**
+     * Creates the accounts of a newline-delimited JSON body, streamed line by line.
+     */
+    @PostMapping(path = "/import", consumes = {"application/x-ndjson", "application/stream+json"})
+    public ImportResultDTO importAccounts(InputStream body) throws IOException {
+        log.info("Importing accounts");
+        return this.accountsImportService.importAccounts(body);
+    }
+
+    /**
+     * Returns one page of accounts in account id order; pass {@code nextCursor} as {@code after}
+     * to get the next one.
+     */
+    @GetMapping
+    public AccountPageDTO listAccounts(@RequestParam(required = false) String after,
+                                       @RequestParam(required = false) String before,
+                                       @RequestParam(defaultValue = "100") int limit) {
+        return this.accountsExportService.listAccounts(after, before, limit);
+    }
+
+    /**
+     * Streams every account of the range as a chunked JSON array or CSV file.
+     */
+    @GetMapping(path = "/export")
+    public ResponseEntity<StreamingResponseBody> exportAccounts(@RequestParam(defaultValue = "JSON") ExportFormat format,
+                                                                @RequestParam(required = false) String after,
+                                                                @RequestParam(required = false) String before) {
+        log.info("Exporting accounts as {}", format);
+        MediaType mediaType = format == ExportFormat.CSV ? CSV : MediaType.APPLICATION_JSON_UTF8;
+        return ResponseEntity.ok()
+            .contentType(mediaType)
+            .body(output -> this.accountsExportService.export(format, after, before, output));
+    }
+
     @GetMapping(path = "/{accountId}")
-    public Account getAccount(@PathVariable String accountId) {
+    public AccountBalanceView getAccount(@PathVariable String accountId) {
         log.info("Retrieving account for id {}", accountId);
-        return this.accountsService.getAccount(accountId);
+        return this.accountsService.getBalance(accountId);
+    }
+
+    /**
+     * Returns the balances of the listed accounts that exist, in the order requested.
+     */
+    @PostMapping(path = "/balances", consumes = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<Object> getBalances(@RequestBody List<String> accountIds) {
+        if (accountIds.size() > this.maxBalanceIds) {
+            return new ResponseEntity<>("At most " + this.maxBalanceIds + " account ids can be requested at once",
+                HttpStatus.BAD_REQUEST);
+        }
+        return new ResponseEntity<>(this.accountsService.getBalances(accountIds), HttpStatus.OK);
+    }
+
+    /**
+     * Returns the most recent transfers of the account, newest first; pass {@code nextCursor} as
+     * {@code before} to get older ones. Transfers are only recorded while
+     * {@code accounts.history.enabled} is set.
+     */
+    @GetMapping(path = "/{accountId}/transactions")
+    public ResponseEntity<Object> getTransactions(@PathVariable String accountId,
+                                                  @RequestParam(required = false) Long before,
+                                                  @RequestParam(defaultValue = "20") int limit) {
+        if (!this.transactionHistory.isEnabled()) {
+            return new ResponseEntity<>("Transaction history is not enabled", HttpStatus.NOT_FOUND);
+        }
+        if (this.accountsService.getAccount(accountId) == null) {
+            return new ResponseEntity<>("Account " + accountId + " doesn't exist", HttpStatus.NOT_FOUND);
+        }
+        return new ResponseEntity<>(this.transactionHistory.getTransactions(accountId, before, limit), HttpStatus.OK);
     }
 
     @PutMapping(path = "/transfer")
     public ResponseEntity<Object> transferMoneyBetweenAccounts(@RequestBody @Valid TransferMoneyDTO transferMoneyDTO) {
-        log.info("Transferring money from account {} to account {}", transferMoneyDTO.getAccountFromId(), transferMoneyDTO.getAccountToId());
-        try {
-            return this.accountsService.transferMoneyBetweenAccounts(transferMoneyDTO);
-        } catch (AccountNegativeBalanceException | AmountTransferGreaterThanZeroException | DuplicateAccountIdException | SameAccountException exception) {
-            return new ResponseEntity<>(exception.getMessage(), HttpStatus.BAD_REQUEST);
-        } catch (AccountDoesntExistException exception) {
-            return new ResponseEntity<>(exception.getMessage(), HttpStatus.NOT_FOUND);
-        }
+        log.debug("Transferring money from account {} to account {}", transferMoneyDTO.getAccountFromId(), transferMoneyDTO.getAccountToId());
+        return TransferResponses.of(this.accountsService.transfer(transferMoneyDTO));
+    }
+
+    @PutMapping(path = "/transfers/batch")
+    public ResponseEntity<Object> transferBatch(@RequestBody @Valid BatchTransferRequestDTO batchTransferRequestDTO) {
+        log.debug("Transferring batch of {} transfers in {} mode", batchTransferRequestDTO.getTransfers().size(), batchTransferRequestDTO.getMode());
+        BatchTransferResultDTO result = this.accountsService.transferBatch(batchTransferRequestDTO);
+        return new ResponseEntity<>(result, result.isCommitted() ? HttpStatus.OK : HttpStatus.BAD_REQUEST);
     }
 
 }
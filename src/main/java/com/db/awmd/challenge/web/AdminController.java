@@ -0,0 +1,65 @@
+package com.db.awmd.challenge.web;
+
+import com.db.awmd.challenge.domain.AuditResultDTO;
+import com.db.awmd.challenge.service.AccountsSnapshotService;
+import com.db.awmd.challenge.service.BalanceAuditor;
+
+import java.io.IOException;
+import java.nio.file.NoSuchFileException;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+@RestController
+@RequestMapping("/v1/admin")
+@Slf4j
+public class AdminController {
+
+    private final AccountsSnapshotService accountsSnapshotService;
+
+    private final BalanceAuditor balanceAuditor;
+
+    @Autowired
+    public AdminController(AccountsSnapshotService accountsSnapshotService, BalanceAuditor balanceAuditor) {
+        this.accountsSnapshotService = accountsSnapshotService;
+        this.balanceAuditor = balanceAuditor;
+    }
+
+    /**
+     * Sums all balances as of one point in time while transfers keep running.
+     */
+    @GetMapping(path = "/audit")
+    public AuditResultDTO audit() {
+        return this.balanceAuditor.audit();
+    }
+
+    @PostMapping(path = "/snapshot")
+    public ResponseEntity<Object> snapshot() {
+        log.info("Taking accounts snapshot");
+        try {
+            return new ResponseEntity<>(this.accountsSnapshotService.snapshot(), HttpStatus.OK);
+        } catch (IOException exception) {
+            log.error("Accounts snapshot failed", exception);
+            return new ResponseEntity<>(exception.getMessage(), HttpStatus.INTERNAL_SERVER_ERROR);
+        }
+    }
+
+    @PostMapping(path = "/snapshot/restore")
+    public ResponseEntity<Object> restore() {
+        log.info("Restoring accounts snapshot");
+        try {
+            return new ResponseEntity<>(this.accountsSnapshotService.restore(), HttpStatus.OK);
+        } catch (NoSuchFileException exception) {
+            return new ResponseEntity<>("No snapshot found at " + exception.getFile(), HttpStatus.NOT_FOUND);
+        } catch (IOException exception) {
+            log.error("Accounts restore failed", exception);
+            return new ResponseEntity<>(exception.getMessage(), HttpStatus.INTERNAL_SERVER_ERROR);
+        }
+    }
+}
@@ -0,0 +1,67 @@
+package com.db.awmd.challenge.web;
+
+import com.db.awmd.challenge.domain.TransferMoneyDTO;
+import com.db.awmd.challenge.service.AsyncAccountsService;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+
+import javax.validation.Valid;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PutMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+/**
+ * Same contract as the account and transfer endpoints of {@link AccountsController}, served
+ * asynchronously: the request thread returns to the container as soon as the work is handed to
+ * the {@link AsyncAccountsService} and the response is written when the future completes.
+ */
+@RestController
+@RequestMapping("/v1/async/accounts")
+@Slf4j
+public class AsyncAccountsController {
+
+    private final AsyncAccountsService asyncAccountsService;
+
+    @Autowired
+    public AsyncAccountsController(AsyncAccountsService asyncAccountsService) {
+        this.asyncAccountsService = asyncAccountsService;
+    }
+
+    @GetMapping(path = "/{accountId}")
+    public CompletableFuture<ResponseEntity<Object>> getAccount(@PathVariable String accountId) {
+        return submit(() -> this.asyncAccountsService.getBalance(accountId)
+            .thenApply(balance -> new ResponseEntity<Object>(balance, HttpStatus.OK)));
+    }
+
+    @PutMapping(path = "/transfer")
+    public CompletableFuture<ResponseEntity<Object>> transferMoneyBetweenAccounts(@RequestBody @Valid TransferMoneyDTO transferMoneyDTO) {
+        log.debug("Transferring money asynchronously from account {} to account {}", transferMoneyDTO.getAccountFromId(),
+            transferMoneyDTO.getAccountToId());
+        return submit(() -> this.asyncAccountsService.transfer(transferMoneyDTO).thenApply(TransferResponses::of));
+    }
+
+    private static CompletableFuture<ResponseEntity<Object>> submit(AsyncCall call) {
+        CompletableFuture<ResponseEntity<Object>> future;
+        try {
+            future = call.submit();
+        } catch (RejectedExecutionException exception) {
+            future = new CompletableFuture<>();
+            future.completeExceptionally(exception);
+        }
+        return future.exceptionally(TransferResponses::ofFailure);
+    }
+
+    @FunctionalInterface
+    private interface AsyncCall {
+        CompletableFuture<ResponseEntity<Object>> submit();
+    }
+}
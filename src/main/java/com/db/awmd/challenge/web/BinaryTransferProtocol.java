@@ -0,0 +1,191 @@
+package com.db.awmd.challenge.web;
+
+import com.db.awmd.challenge.domain.TransferMoneyDTO;
+import com.db.awmd.challenge.domain.TransferOutcome;
+import com.db.awmd.challenge.exception.AccountLockTimeoutException;
+import com.db.awmd.challenge.exception.IdempotencyKeyReusedException;
+import com.db.awmd.challenge.exception.InvalidAmountException;
+
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.RejectedExecutionException;
+
+import org.springframework.dao.OptimisticLockingFailureException;
+
+/**
+ * Fixed-layout frames of the binary transfer endpoint. All numbers are big-endian and every
+ * frame starts with the length of the rest of the frame.
+ *
+ * <pre>
+ * request:  int length, long correlationId,
+ *           byte fromIdLength, fromId (UTF-8), byte toIdLength, toId (UTF-8),
+ *           long unscaledAmount, byte amountScale,
+ *           byte idempotencyKeyLength (0 if none), idempotencyKey (UTF-8)
+ * response: int length (9), long correlationId, byte status
+ * </pre>
+ *
+ * <p>Responses carry the correlation id of their request and may arrive in any order.
+ */
+public final class BinaryTransferProtocol {
+
+    public static final int MAX_ID_LENGTH = 255;
+
+    public static final int MAX_IDEMPOTENCY_KEY_LENGTH = 64;
+
+    public static final int MIN_REQUEST_LENGTH = 8 + 1 + 1 + 1 + 1 + 8 + 1 + 1;
+
+    public static final int MAX_REQUEST_LENGTH = MIN_REQUEST_LENGTH - 2 + 2 * MAX_ID_LENGTH + MAX_IDEMPOTENCY_KEY_LENGTH;
+
+    public static final int RESPONSE_LENGTH = 4 + 8 + 1;
+
+    public static final byte COMPLETED = 0;
+
+    public static final byte ACCOUNT_NOT_FOUND = 1;
+
+    public static final byte SAME_ACCOUNT = 2;
+
+    public static final byte NON_POSITIVE_AMOUNT = 3;
+
+    public static final byte INSUFFICIENT_FUNDS = 4;
+
+    public static final byte INVALID_AMOUNT = 5;
+
+    public static final byte IDEMPOTENCY_KEY_REUSED = 6;
+
+    public static final byte MALFORMED = 7;
+
+    /**
+     * Too many transfers in flight; retrying later may succeed.
+     */
+    public static final byte BUSY = 8;
+
+    public static final byte LOCK_TIMEOUT = 9;
+
+    public static final byte CONCURRENT_MODIFICATION = 10;
+
+    public static final byte ERROR = 11;
+
+    private BinaryTransferProtocol() {
+    }
+
+    public static byte statusOf(TransferOutcome outcome) {
+        switch (outcome) {
+            case COMPLETED:
+                return COMPLETED;
+            case ACCOUNT_NOT_FOUND:
+                return ACCOUNT_NOT_FOUND;
+            case SAME_ACCOUNT:
+                return SAME_ACCOUNT;
+            case NON_POSITIVE_AMOUNT:
+                return NON_POSITIVE_AMOUNT;
+            default:
+                return INSUFFICIENT_FUNDS;
+        }
+    }
+
+    public static byte statusOf(Throwable failure) {
+        Throwable cause = failure instanceof CompletionException && failure.getCause() != null ? failure.getCause() : failure;
+        if (cause instanceof RejectedExecutionException) {
+            return BUSY;
+        }
+        if (cause instanceof AccountLockTimeoutException) {
+            return LOCK_TIMEOUT;
+        }
+        if (cause instanceof OptimisticLockingFailureException) {
+            return CONCURRENT_MODIFICATION;
+        }
+        if (cause instanceof InvalidAmountException) {
+            return INVALID_AMOUNT;
+        }
+        if (cause instanceof IdempotencyKeyReusedException) {
+            return IDEMPOTENCY_KEY_REUSED;
+        }
+        return ERROR;
+    }
+
+    public static void writeResponse(ByteBuffer buffer, long correlationId, byte status) {
+        buffer.putInt(RESPONSE_LENGTH - 4).putLong(correlationId).put(status);
+    }
+
+    /**
+     * Writes a request frame, failing if an id or the key is too long or the amount does not fit
+     * an unscaled long and a byte scale.
+     */
+    public static void writeRequest(ByteBuffer buffer, long correlationId, String accountFromId, String accountToId,
+                                    BigDecimal amount, String idempotencyKey) {
+        byte[] from = accountFromId.getBytes(StandardCharsets.UTF_8);
+        byte[] to = accountToId.getBytes(StandardCharsets.UTF_8);
+        byte[] key = idempotencyKey == null ? new byte[0] : idempotencyKey.getBytes(StandardCharsets.UTF_8);
+        if (from.length > MAX_ID_LENGTH || to.length > MAX_ID_LENGTH || key.length > MAX_IDEMPOTENCY_KEY_LENGTH) {
+            throw new IllegalArgumentException("Account id or idempotency key too long");
+        }
+        if (amount.scale() != (byte) amount.scale()) {
+            throw new IllegalArgumentException("Amount scale out of range: " + amount);
+        }
+        buffer.putInt(MIN_REQUEST_LENGTH - 2 + from.length + to.length + key.length)
+            .putLong(correlationId)
+            .put((byte) from.length).put(from)
+            .put((byte) to.length).put(to)
+            .putLong(amount.unscaledValue().longValueExact()).put((byte) amount.scale())
+            .put((byte) key.length).put(key);
+    }
+
+    /**
+     * Decodes the frames of one connection straight from its read buffer, reusing the same
+     * character buffer for every id; only the resulting strings are allocated.
+     */
+    public static final class Decoder {
+
+        private final CharsetDecoder utf8 = StandardCharsets.UTF_8.newDecoder();
+
+        private final CharBuffer chars = CharBuffer.allocate(MAX_ID_LENGTH);
+
+        /**
+         * Reads the transfer of a request frame whose correlation id was just consumed. Returns
+         * {@code null} if the frame is malformed; the position is then undefined.
+         */
+        public TransferMoneyDTO decode(ByteBuffer frame, int frameEnd) {
+            String accountFromId = readString(frame, frameEnd, 1);
+            String accountToId = accountFromId == null ? null : readString(frame, frameEnd, 1);
+            if (accountToId == null || frameEnd - frame.position() < 8 + 1 + 1) {
+                return null;
+            }
+            long unscaledAmount = frame.getLong();
+            int scale = frame.get();
+            String idempotencyKey = readString(frame, frameEnd, 0);
+            if (idempotencyKey == null || idempotencyKey.length() > MAX_IDEMPOTENCY_KEY_LENGTH
+                || frame.position() != frameEnd) {
+                return null;
+            }
+            return new TransferMoneyDTO(accountFromId, accountToId, BigDecimal.valueOf(unscaledAmount, scale),
+                idempotencyKey.isEmpty() ? null : idempotencyKey);
+        }
+
+        private String readString(ByteBuffer frame, int frameEnd, int minLength) {
+            if (frame.position() >= frameEnd) {
+                return null;
+            }
+            int length = frame.get() & 0xFF;
+            int end = frame.position() + length;
+            if (length < minLength || end > frameEnd) {
+                return null;
+            }
+            int limit = frame.limit();
+            frame.limit(end);
+            chars.clear();
+            utf8.reset();
+            CoderResult result = utf8.decode(frame, chars, true);
+            frame.limit(limit);
+            if (result.isError() || frame.position() != end) {
+                return null;
+            }
+            chars.flip();
+            return chars.toString();
+        }
+    }
+}
@@ -0,0 +1,267 @@
+package com.db.awmd.challenge.web;
+
+import com.db.awmd.challenge.domain.TransferMoneyDTO;
+import com.db.awmd.challenge.domain.TransferOutcome;
+import com.db.awmd.challenge.service.AsyncAccountsService;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedSelectorException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.RejectedExecutionException;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+/**
+ * Transfer endpoint for internal callers speaking the {@link BinaryTransferProtocol} over plain
+ * TCP, next to the JSON one of {@link AccountsController}.
+ *
+ * <p>One selector thread reads the frames of every connection into a direct buffer and decodes
+ * them in place. Each transfer goes to the {@link AsyncAccountsService}, so a connection can
+ * pipeline many requests and they run under the same in-flight bound as the asynchronous JSON
+ * endpoint. Responses are written back as transfers complete. A connection stops being read while
+ * more than {@code max-pending-bytes} of its responses are unsent.
+ */
+@Component
+@ConditionalOnProperty(name = "accounts.binary.enabled", havingValue = "true")
+@Slf4j
+public class BinaryTransferServer implements Runnable {
+
+    private static final int READ_BUFFER_SIZE = 64 * 1024;
+
+    private final AsyncAccountsService asyncAccountsService;
+
+    private final String host;
+
+    private final int port;
+
+    private final int maxPendingBytes;
+
+    private final Queue<Connection> writable = new ConcurrentLinkedQueue<>();
+
+    private Selector selector;
+
+    private ServerSocketChannel serverChannel;
+
+    private Thread thread;
+
+    @Autowired
+    public BinaryTransferServer(AsyncAccountsService asyncAccountsService,
+                                @Value("${accounts.binary.host:0.0.0.0}") String host,
+                                @Value("${accounts.binary.port:18081}") int port,
+                                @Value("${accounts.binary.max-pending-bytes:1048576}") int maxPendingBytes) {
+        this.asyncAccountsService = asyncAccountsService;
+        this.host = host;
+        this.port = port;
+        this.maxPendingBytes = maxPendingBytes;
+    }
+
+    @PostConstruct
+    public void start() throws IOException {
+        selector = Selector.open();
+        serverChannel = ServerSocketChannel.open();
+        serverChannel.bind(new InetSocketAddress(host, port));
+        serverChannel.configureBlocking(false);
+        serverChannel.register(selector, SelectionKey.OP_ACCEPT);
+        thread = new Thread(this, "binary-transfer-server");
+        thread.setDaemon(true);
+        thread.start();
+        log.info("Binary transfer endpoint listening on {}", serverChannel.getLocalAddress());
+    }
+
+    @PreDestroy
+    public void stop() throws IOException {
+        thread.interrupt();
+        selector.close();
+        serverChannel.close();
+    }
+
+    /**
+     * The port actually bound, which differs from the configured one if that is 0.
+     */
+    public int getPort() throws IOException {
+        return ((InetSocketAddress) serverChannel.getLocalAddress()).getPort();
+    }
+
+    @Override
+    public void run() {
+        try {
+            while (!Thread.currentThread().isInterrupted()) {
+                selector.select();
+                Connection connection;
+                while ((connection = writable.poll()) != null) {
+                    connection.enableWrites();
+                }
+                Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+                while (keys.hasNext()) {
+                    SelectionKey key = keys.next();
+                    keys.remove();
+                    handle(key);
+                }
+            }
+        } catch (ClosedSelectorException exception) {
+            // Stopped.
+        } catch (IOException exception) {
+            log.error("Binary transfer endpoint failed", exception);
+        }
+    }
+
+    private void handle(SelectionKey key) {
+        try {
+            if (key.isAcceptable()) {
+                accept();
+                return;
+            }
+            Connection connection = (Connection) key.attachment();
+            if (key.isWritable()) {
+                connection.write();
+            }
+            if (key.isValid() && key.isReadable()) {
+                connection.read();
+            }
+        } catch (IOException | RuntimeException exception) {
+            log.debug("Closing binary transfer connection: {}", exception.toString());
+            close(key);
+        }
+    }
+
+    private void accept() throws IOException {
+        SocketChannel channel = serverChannel.accept();
+        if (channel == null) {
+            return;
+        }
+        channel.configureBlocking(false);
+        channel.socket().setTcpNoDelay(true);
+        SelectionKey key = channel.register(selector, SelectionKey.OP_READ);
+        key.attach(new Connection(channel, key));
+    }
+
+    private static void close(SelectionKey key) {
+        key.cancel();
+        try {
+            key.channel().close();
+        } catch (IOException exception) {
+            log.debug("Failed to close binary transfer connection", exception);
+        }
+    }
+
+    private final class Connection {
+
+        private final SocketChannel channel;
+
+        private final SelectionKey key;
+
+        private final ByteBuffer in = ByteBuffer.allocateDirect(READ_BUFFER_SIZE);
+
+        private final BinaryTransferProtocol.Decoder decoder = new BinaryTransferProtocol.Decoder();
+
+        /**
+         * Unsent responses, in write mode; guarded by this connection.
+         */
+        private ByteBuffer out = ByteBuffer.allocateDirect(BinaryTransferProtocol.RESPONSE_LENGTH * 1024);
+
+        private boolean writeScheduled;
+
+        private Connection(SocketChannel channel, SelectionKey key) {
+            this.channel = channel;
+            this.key = key;
+        }
+
+        private void read() throws IOException {
+            if (channel.read(in) < 0) {
+                close(key);
+                return;
+            }
+            in.flip();
+            while (in.remaining() >= 4) {
+                int length = in.getInt(in.position());
+                // Without a correlation id there is nobody to answer; other malformed frames are answered.
+                if (length < Long.BYTES || length > BinaryTransferProtocol.MAX_REQUEST_LENGTH) {
+                    throw new IOException("Invalid frame length " + length);
+                }
+                if (in.remaining() < 4 + length) {
+                    break;
+                }
+                int frameEnd = in.position() + 4 + length;
+                in.position(in.position() + 4);
+                long correlationId = in.getLong();
+                TransferMoneyDTO transfer = decoder.decode(in, frameEnd);
+                in.position(frameEnd);
+                if (transfer == null) {
+                    respond(correlationId, BinaryTransferProtocol.MALFORMED);
+                } else {
+                    submit(correlationId, transfer);
+                }
+            }
+            in.compact();
+            synchronized (this) {
+                if (out.position() > maxPendingBytes) {
+                    key.interestOps(key.interestOps() & ~SelectionKey.OP_READ);
+                }
+            }
+        }
+
+        private void submit(long correlationId, TransferMoneyDTO transfer) {
+            CompletableFuture<TransferOutcome> outcome;
+            try {
+                outcome = asyncAccountsService.transfer(transfer);
+            } catch (RejectedExecutionException exception) {
+                respond(correlationId, BinaryTransferProtocol.BUSY);
+                return;
+            }
+            outcome.whenComplete((result, failure) -> respond(correlationId,
+                failure == null ? BinaryTransferProtocol.statusOf(result) : BinaryTransferProtocol.statusOf(failure)));
+        }
+
+        /**
+         * Queues a response; called from transfer threads as well as the selector thread.
+         */
+        private synchronized void respond(long correlationId, byte status) {
+            if (out.remaining() < BinaryTransferProtocol.RESPONSE_LENGTH) {
+                ByteBuffer larger = ByteBuffer.allocateDirect(out.capacity() * 2);
+                out.flip();
+                larger.put(out);
+                out = larger;
+            }
+            BinaryTransferProtocol.writeResponse(out, correlationId, status);
+            if (!writeScheduled) {
+                writeScheduled = true;
+                writable.add(this);
+                selector.wakeup();
+            }
+        }
+
+        private void enableWrites() {
+            if (key.isValid()) {
+                key.interestOps(key.interestOps() | SelectionKey.OP_WRITE);
+            }
+        }
+
+        private synchronized void write() throws IOException {
+            out.flip();
+            channel.write(out);
+            out.compact();
+            if (out.position() == 0) {
+                writeScheduled = false;
+                key.interestOps(SelectionKey.OP_READ);
+            } else if (out.position() <= maxPendingBytes) {
+                key.interestOps(key.interestOps() | SelectionKey.OP_READ);
+            }
+        }
+    }
+}
@@ -0,0 +1,80 @@
+package com.db.awmd.challenge.web;
+
+import com.db.awmd.challenge.domain.CacheStatistics;
+import com.db.awmd.challenge.domain.IdempotencyStatistics;
+import com.db.awmd.challenge.domain.LockStatistics;
+import com.db.awmd.challenge.domain.NotificationStatistics;
+import com.db.awmd.challenge.domain.TransferMetricsStatistics;
+import com.db.awmd.challenge.repository.AccountsRepositoryWriteBehindCache;
+import com.db.awmd.challenge.service.AccountLockManager;
+import com.db.awmd.challenge.service.AsyncNotificationService;
+import com.db.awmd.challenge.service.IdempotencyCache;
+import com.db.awmd.challenge.service.TransferMetrics;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+@RestController
+@RequestMapping("/v1/metrics")
+public class MetricsController {
+
+    private final AccountLockManager accountLockManager;
+
+    private final TransferMetrics transferMetrics;
+
+    private final IdempotencyCache idempotencyCache;
+
+    private final ObjectProvider<AsyncNotificationService> asyncNotificationService;
+
+    private final ObjectProvider<AccountsRepositoryWriteBehindCache> accountsRepositoryCache;
+
+    @Autowired
+    public MetricsController(AccountLockManager accountLockManager, TransferMetrics transferMetrics,
+                             IdempotencyCache idempotencyCache,
+                             ObjectProvider<AsyncNotificationService> asyncNotificationService,
+                             ObjectProvider<AccountsRepositoryWriteBehindCache> accountsRepositoryCache) {
+        this.accountLockManager = accountLockManager;
+        this.transferMetrics = transferMetrics;
+        this.idempotencyCache = idempotencyCache;
+        this.asyncNotificationService = asyncNotificationService;
+        this.accountsRepositoryCache = accountsRepositoryCache;
+    }
+
+    @GetMapping(path = "/locks")
+    public LockStatistics getLockStatistics() {
+        return this.accountLockManager.getStatistics();
+    }
+
+    @GetMapping(path = "/transfers")
+    public TransferMetricsStatistics getTransferStatistics() {
+        return this.transferMetrics.getStatistics();
+    }
+
+    @GetMapping(path = "/idempotency")
+    public IdempotencyStatistics getIdempotencyStatistics() {
+        return this.idempotencyCache.getStatistics();
+    }
+
+    @GetMapping(path = "/notifications")
+    public ResponseEntity<NotificationStatistics> getNotificationStatistics() {
+        AsyncNotificationService notificationService = this.asyncNotificationService.getIfAvailable();
+        if (notificationService == null) {
+            return new ResponseEntity<>(HttpStatus.NOT_FOUND);
+        }
+        return new ResponseEntity<>(notificationService.getStatistics(), HttpStatus.OK);
+    }
+
+    @GetMapping(path = "/repository-cache")
+    public ResponseEntity<CacheStatistics> getRepositoryCacheStatistics() {
+        AccountsRepositoryWriteBehindCache cache = this.accountsRepositoryCache.getIfAvailable();
+        if (cache == null) {
+            return new ResponseEntity<>(HttpStatus.NOT_FOUND);
+        }
+        return new ResponseEntity<>(cache.getStatistics(), HttpStatus.OK);
+    }
+}
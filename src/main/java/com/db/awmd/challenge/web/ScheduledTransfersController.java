@@ -0,0 +1,80 @@
+package com.db.awmd.challenge.web;
+
+import com.db.awmd.challenge.domain.ScheduledTransferDTO;
+import com.db.awmd.challenge.domain.ScheduledTransferRequestDTO;
+import com.db.awmd.challenge.domain.TransferOutcome;
+import com.db.awmd.challenge.service.ScheduledTransferService;
+
+import java.util.concurrent.RejectedExecutionException;
+
+import javax.validation.Valid;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+/**
+ * Transfers executed at a later time, such as end-of-day transfers or standing orders.
+ */
+@RestController
+@RequestMapping("/v1/accounts/transfers/scheduled")
+@Slf4j
+public class ScheduledTransfersController {
+
+    private final ScheduledTransferService scheduledTransferService;
+
+    @Autowired
+    public ScheduledTransfersController(ScheduledTransferService scheduledTransferService) {
+        this.scheduledTransferService = scheduledTransferService;
+    }
+
+    @PostMapping(consumes = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<Object> schedule(@RequestBody @Valid ScheduledTransferRequestDTO request) {
+        log.debug("Scheduling transfer from account {} to account {} at {}", request.getAccountFromId(),
+            request.getAccountToId(), request.getExecuteAt());
+        if (request.getAmountToTransfer().signum() <= 0) {
+            return new ResponseEntity<>(TransferOutcome.NON_POSITIVE_AMOUNT.getMessage(), HttpStatus.BAD_REQUEST);
+        }
+        if (request.getAccountFromId().equals(request.getAccountToId())) {
+            return new ResponseEntity<>(TransferOutcome.SAME_ACCOUNT.getMessage(), HttpStatus.BAD_REQUEST);
+        }
+        try {
+            return new ResponseEntity<>(this.scheduledTransferService.schedule(request), HttpStatus.CREATED);
+        } catch (RejectedExecutionException exception) {
+            return new ResponseEntity<>(exception.getMessage(), HttpStatus.SERVICE_UNAVAILABLE);
+        }
+    }
+
+    @GetMapping(path = "/{id}")
+    public ResponseEntity<Object> get(@PathVariable long id) {
+        ScheduledTransferDTO transfer = this.scheduledTransferService.get(id);
+        if (transfer == null) {
+            return new ResponseEntity<>("Scheduled transfer " + id + " doesn't exist", HttpStatus.NOT_FOUND);
+        }
+        return new ResponseEntity<>(transfer, HttpStatus.OK);
+    }
+
+    /**
+     * Cancels a transfer that has not started executing yet.
+     */
+    @DeleteMapping(path = "/{id}")
+    public ResponseEntity<Object> cancel(@PathVariable long id) {
+        log.info("Cancelling scheduled transfer {}", id);
+        if (this.scheduledTransferService.cancel(id)) {
+            return new ResponseEntity<>(this.scheduledTransferService.get(id), HttpStatus.OK);
+        }
+        if (this.scheduledTransferService.get(id) == null) {
+            return new ResponseEntity<>("Scheduled transfer " + id + " doesn't exist", HttpStatus.NOT_FOUND);
+        }
+        return new ResponseEntity<>("Scheduled transfer " + id + " is no longer pending", HttpStatus.CONFLICT);
+    }
+}
@@ -0,0 +1,95 @@
+package com.db.awmd.challenge.web;
+
+import com.db.awmd.challenge.domain.TransferOutcome;
+import com.db.awmd.challenge.exception.AccountDoesntExistException;
+import com.db.awmd.challenge.exception.AccountLockTimeoutException;
+import com.db.awmd.challenge.exception.AccountNegativeBalanceException;
+import com.db.awmd.challenge.exception.AmountTransferGreaterThanZeroException;
+import com.db.awmd.challenge.exception.IdempotencyKeyReusedException;
+import com.db.awmd.challenge.exception.InvalidAmountException;
+import com.db.awmd.challenge.exception.SameAccountException;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.RejectedExecutionException;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.RestControllerAdvice;
+
+/**
+ * Maps transfer outcomes and failures to responses for the account controllers.
+ *
+ * <p>The response of every {@link TransferOutcome} is built once; {@link ResponseEntity} is
+ * immutable, so rejecting a transfer costs a map lookup. Exceptions that escape a handler are
+ * mapped here too, so the controllers no longer catch them one by one.
+ */
+@RestControllerAdvice(assignableTypes = {AccountsController.class, AsyncAccountsController.class})
+@Slf4j
+public class TransferResponses {
+
+    private static final Map<TransferOutcome, ResponseEntity<Object>> RESPONSES = new EnumMap<>(TransferOutcome.class);
+
+    static {
+        for (TransferOutcome outcome : TransferOutcome.values()) {
+            RESPONSES.put(outcome, outcome.isCompleted()
+                ? new ResponseEntity<>(HttpStatus.OK)
+                : new ResponseEntity<>(outcome.getMessage(), statusOf(outcome)));
+        }
+    }
+
+    public static ResponseEntity<Object> of(TransferOutcome outcome) {
+        return RESPONSES.get(outcome);
+    }
+
+    /**
+     * Maps a failure, unwrapping a {@link CompletionException}, to its response.
+     */
+    public static ResponseEntity<Object> ofFailure(Throwable failure) {
+        Throwable cause = failure instanceof CompletionException && failure.getCause() != null ? failure.getCause() : failure;
+        if (cause instanceof AccountNegativeBalanceException || cause instanceof AmountTransferGreaterThanZeroException
+            || cause instanceof SameAccountException || cause instanceof InvalidAmountException) {
+            return new ResponseEntity<>(cause.getMessage(), HttpStatus.BAD_REQUEST);
+        }
+        if (cause instanceof AccountDoesntExistException) {
+            return new ResponseEntity<>(cause.getMessage(), HttpStatus.NOT_FOUND);
+        }
+        if (cause instanceof AccountLockTimeoutException) {
+            return new ResponseEntity<>(cause.getMessage(), HttpStatus.SERVICE_UNAVAILABLE);
+        }
+        if (cause instanceof RejectedExecutionException) {
+            return new ResponseEntity<>("Too many transfers in progress, please retry", HttpStatus.SERVICE_UNAVAILABLE);
+        }
+        if (cause instanceof OptimisticLockingFailureException) {
+            return new ResponseEntity<>(cause.getMessage(), HttpStatus.CONFLICT);
+        }
+        if (cause instanceof IdempotencyKeyReusedException) {
+            return new ResponseEntity<>(cause.getMessage(), HttpStatus.UNPROCESSABLE_ENTITY);
+        }
+        log.error("Request failed", cause);
+        return new ResponseEntity<>(HttpStatus.INTERNAL_SERVER_ERROR);
+    }
+
+    @ExceptionHandler({AccountNegativeBalanceException.class, AmountTransferGreaterThanZeroException.class,
+        SameAccountException.class, InvalidAmountException.class, AccountDoesntExistException.class,
+        AccountLockTimeoutException.class, RejectedExecutionException.class, OptimisticLockingFailureException.class,
+        IdempotencyKeyReusedException.class})
+    public ResponseEntity<Object> handle(Exception exception) {
+        return ofFailure(exception);
+    }
+
+    private static HttpStatus statusOf(TransferOutcome outcome) {
+        switch (outcome) {
+            case ACCOUNT_NOT_FOUND:
+                return HttpStatus.NOT_FOUND;
+            case COMPLETED:
+                return HttpStatus.OK;
+            default:
+                return HttpStatus.BAD_REQUEST;
+        }
+    }
+}
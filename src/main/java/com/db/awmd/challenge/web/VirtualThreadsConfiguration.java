@@ -0,0 +1,49 @@
+package com.db.awmd.challenge.web;
+
+import com.db.awmd.challenge.service.VirtualThreads;
+
+import java.util.concurrent.ExecutorService;
+
+import lombok.extern.slf4j.Slf4j;
+import org.apache.coyote.AbstractProtocol;
+import org.apache.coyote.ProtocolHandler;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.embedded.EmbeddedServletContainerCustomizer;
+import org.springframework.boot.context.embedded.tomcat.TomcatEmbeddedServletContainerFactory;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Lets Tomcat handle every request on its own virtual thread instead of its worker pool, and
+ * accept up to {@code accounts.threads.max-connections} connections, when
+ * {@code accounts.threads.virtual} is set. Tomcat keeps its platform thread pool if the JDK does
+ * not support virtual threads.
+ */
+@Configuration
+@ConditionalOnProperty(name = "accounts.threads.virtual", havingValue = "true")
+@Slf4j
+public class VirtualThreadsConfiguration {
+
+    @Bean
+    public EmbeddedServletContainerCustomizer virtualThreadsTomcatCustomizer(
+        @Value("${accounts.threads.max-connections:10000}") int maxConnections) {
+        return container -> {
+            if (!(container instanceof TomcatEmbeddedServletContainerFactory)) {
+                return;
+            }
+            ((TomcatEmbeddedServletContainerFactory) container).addConnectorCustomizers(connector -> {
+                ProtocolHandler protocolHandler = connector.getProtocolHandler();
+                ExecutorService executor = VirtualThreads.newThreadPerTaskExecutor("http-virtual-");
+                if (executor == null || !(protocolHandler instanceof AbstractProtocol)) {
+                    log.warn("Virtual threads are not available, Tomcat keeps its platform thread pool");
+                    return;
+                }
+                AbstractProtocol<?> protocol = (AbstractProtocol<?>) protocolHandler;
+                protocol.setExecutor(executor);
+                protocol.setMaxConnections(maxConnections);
+                log.info("Tomcat handles requests on virtual threads, accepting up to {} connections", maxConnections);
+            });
+        };
+    }
+}
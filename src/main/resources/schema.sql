@@ -0,0 +1,6 @@
+CREATE TABLE IF NOT EXISTS account (
+  account_id VARCHAR(255) NOT NULL PRIMARY KEY,
+  balance DECIMAL NOT NULL,
+  balance_scale INT NOT NULL,
+  version BIGINT NOT NULL
+);
@@ -1,10 +1,13 @@
 package com.db.awmd.challenge.acceptance;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 import static org.springframework.test.web.servlet.setup.MockMvcBuilders.webAppContextSetup;
 
@@ -20,6 +23,7 @@ import org.springframework.http.MediaType;
 import org.springframework.test.context.junit4.SpringRunner;
 import org.springframework.test.context.web.WebAppConfiguration;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 import org.springframework.web.context.WebApplicationContext;
 
 @RunWith(SpringRunner.class)
@@ -103,6 +107,17 @@ public class AccountsControllerIT {
         content().string("{\"accountId\":\"" + uniqueAccountId + "\",\"balance\":123.45}"));
   }
   
+  @Test
+  public void getBalances() throws Exception {
+    this.accountsService.createAccount(new Account("Id-201", new BigDecimal("10.50")));
+    this.accountsService.createAccount(new Account("Id-202", new BigDecimal("0")));
+    this.mockMvc.perform(post("/v1/accounts/balances").contentType(MediaType.APPLICATION_JSON)
+      .content("[\"Id-202\",\"Id-missing\",\"Id-201\"]"))
+      .andExpect(status().isOk())
+      .andExpect(content().string(
+        "[{\"accountId\":\"Id-202\",\"balance\":0},{\"accountId\":\"Id-201\",\"balance\":10.50}]"));
+  }
+
   @Test
   public void transfer() throws Exception {
 	  Account accountFromTransfer = new Account("Id-111", new BigDecimal("100.00"));
@@ -169,4 +184,86 @@ public class AccountsControllerIT {
     mockMvc.perform(put("/v1/accounts/transfer").contentType(MediaType.APPLICATION_JSON))
       .andExpect(status().isBadRequest());
   }
+
+  @Test
+  public void transferBatchBestEffort() throws Exception {
+    accountsService.createAccount(new Account("Id-120", new BigDecimal("100.00")));
+    accountsService.createAccount(new Account("Id-121", new BigDecimal("10.00")));
+
+    mockMvc.perform(put("/v1/accounts/transfers/batch")
+      .contentType(MediaType.APPLICATION_JSON)
+      .content("{\"mode\":\"BEST_EFFORT\",\"transfers\":["
+        + "{\"accountFromId\":\"Id-120\",\"accountToId\":\"Id-121\",\"amountToTransfer\":60},"
+        + "{\"accountFromId\":\"Id-121\",\"accountToId\":\"Id-120\",\"amountToTransfer\":80},"
+        + "{\"accountFromId\":\"Id-121\",\"accountToId\":\"Id-999\",\"amountToTransfer\":1}]}"))
+      .andExpect(status().isOk())
+      .andExpect(jsonPath("$.completed").value(1))
+      .andExpect(jsonPath("$.results[0].status").value("COMPLETED"))
+      .andExpect(jsonPath("$.results[1].status").value("FAILED"))
+      .andExpect(jsonPath("$.results[2].status").value("FAILED"));
+
+    assertThat(accountsService.getAccount("Id-120").getBalance()).isEqualByComparingTo("40");
+    assertThat(accountsService.getAccount("Id-121").getBalance()).isEqualByComparingTo("70");
+  }
+
+  @Test
+  public void transferBatchAllOrNothing() throws Exception {
+    accountsService.createAccount(new Account("Id-122", new BigDecimal("100.00")));
+    accountsService.createAccount(new Account("Id-123", new BigDecimal("10.00")));
+
+    mockMvc.perform(put("/v1/accounts/transfers/batch")
+      .contentType(MediaType.APPLICATION_JSON)
+      .content("{\"mode\":\"ALL_OR_NOTHING\",\"transfers\":["
+        + "{\"accountFromId\":\"Id-122\",\"accountToId\":\"Id-123\",\"amountToTransfer\":60},"
+        + "{\"accountFromId\":\"Id-123\",\"accountToId\":\"Id-122\",\"amountToTransfer\":80}]}"))
+      .andExpect(status().isBadRequest())
+      .andExpect(jsonPath("$.committed").value(false))
+      .andExpect(jsonPath("$.results[0].status").value("ABORTED"))
+      .andExpect(jsonPath("$.results[1].status").value("FAILED"));
+
+    assertThat(accountsService.getAccount("Id-122").getBalance()).isEqualByComparingTo("100");
+    assertThat(accountsService.getAccount("Id-123").getBalance()).isEqualByComparingTo("10");
+  }
+
+  @Test
+  public void transferAsync() throws Exception {
+    accountsService.createAccount(new Account("Id-130", new BigDecimal("100.00")));
+    accountsService.createAccount(new Account("Id-131", new BigDecimal("10.00")));
+
+    MvcResult result = mockMvc.perform(put("/v1/async/accounts/transfer")
+      .contentType(MediaType.APPLICATION_JSON)
+      .content("{\"accountFromId\":\"Id-130\",\"accountToId\":\"Id-131\",\"amountToTransfer\":60}"))
+      .andExpect(request().asyncStarted())
+      .andReturn();
+    mockMvc.perform(asyncDispatch(result)).andExpect(status().isOk());
+
+    assertThat(accountsService.getAccount("Id-130").getBalance()).isEqualByComparingTo("40");
+    assertThat(accountsService.getAccount("Id-131").getBalance()).isEqualByComparingTo("70");
+  }
+
+  @Test
+  public void transferAsyncNoFunds() throws Exception {
+    accountsService.createAccount(new Account("Id-132", new BigDecimal("10.00")));
+    accountsService.createAccount(new Account("Id-133", new BigDecimal("10.00")));
+
+    MvcResult result = mockMvc.perform(put("/v1/async/accounts/transfer")
+      .contentType(MediaType.APPLICATION_JSON)
+      .content("{\"accountFromId\":\"Id-132\",\"accountToId\":\"Id-133\",\"amountToTransfer\":60}"))
+      .andExpect(request().asyncStarted())
+      .andReturn();
+    mockMvc.perform(asyncDispatch(result)).andExpect(status().isBadRequest());
+  }
+
+  @Test
+  public void importAccounts() throws Exception {
+    mockMvc.perform(post("/v1/accounts/import")
+      .contentType("application/x-ndjson")
+      .content("{\"accountId\":\"Id-140\",\"balance\":100}\n{\"accountId\":\"\",\"balance\":1}\n"))
+      .andExpect(status().isOk())
+      .andExpect(jsonPath("$.imported").value(1))
+      .andExpect(jsonPath("$.failed").value(1))
+      .andExpect(jsonPath("$.errors[0].line").value(2));
+
+    assertThat(accountsService.getAccount("Id-140").getBalance()).isEqualByComparingTo("100");
+  }
 }
@@ -0,0 +1,113 @@
+package com.db.awmd.challenge.repository;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.Assert.fail;
+
+import com.db.awmd.challenge.domain.Account;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class AccountsJournalTest {
+
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  @Test
+  public void replaysCreationsAndUpdatesAfterRestart() throws Exception {
+    AccountsJournal journal = newJournal();
+    journal.open(new ConcurrentHashMap<>());
+    Account accountFrom = new Account("Id-1", new BigDecimal("100.00"));
+    Account accountTo = new Account("Id-2", new BigDecimal("5"));
+    journal.append(AccountsJournal.CREATE, Collections.singletonList(accountFrom));
+    journal.append(AccountsJournal.CREATE, Collections.singletonList(accountTo));
+    accountFrom.setBalance(new BigDecimal("40.00"));
+    accountTo.setBalance(new BigDecimal("65"));
+    journal.append(AccountsJournal.UPDATE, Arrays.asList(accountFrom, accountTo));
+    journal.close();
+
+    Map<String, Account> recovered = new ConcurrentHashMap<>();
+    newJournal().open(recovered);
+
+    assertThat(recovered).hasSize(2);
+    assertThat(recovered.get("Id-1").getBalance()).isEqualByComparingTo("40.00");
+    assertThat(recovered.get("Id-2").getBalance()).isEqualByComparingTo("65");
+  }
+
+  @Test
+  public void concurrentAppendsShareFlushesAndSurviveCompaction() throws Exception {
+    Map<String, Account> accounts = new ConcurrentHashMap<>();
+    AccountsJournal journal = newJournal();
+    journal.open(accounts);
+
+    ExecutorService service = Executors.newFixedThreadPool(8);
+    for (int i = 0; i < 200; i++) {
+      Account account = new Account("Id-" + i, new BigDecimal(i));
+      service.execute(() -> {
+        accounts.put(account.getAccountId(), account);
+        journal.awaitDurable(journal.append(AccountsJournal.CREATE, Collections.singletonList(account)));
+      });
+    }
+    service.shutdown();
+    assertThat(service.awaitTermination(30, TimeUnit.SECONDS)).isTrue();
+
+    journal.compact();
+    Account updated = accounts.get("Id-7");
+    updated.setBalance(new BigDecimal("700"));
+    journal.append(AccountsJournal.UPDATE, Collections.singletonList(updated));
+    journal.close();
+
+    Map<String, Account> recovered = new ConcurrentHashMap<>();
+    newJournal().open(recovered);
+
+    assertThat(recovered).hasSize(200);
+    assertThat(recovered.get("Id-7").getBalance()).isEqualByComparingTo("700");
+    assertThat(recovered.get("Id-199").getBalance()).isEqualByComparingTo("199");
+  }
+
+  @Test(expected = IllegalStateException.class)
+  public void appendsFailOnceClosed() throws Exception {
+    AccountsJournal journal = newJournal();
+    journal.open(new ConcurrentHashMap<>());
+    journal.close();
+
+    journal.append(AccountsJournal.UPDATE, Collections.singletonList(new Account("Id-1", BigDecimal.ONE)));
+  }
+
+  @Test
+  public void rejectsIdsTooLongToReplay() throws Exception {
+    AccountsJournal journal = newJournal();
+    journal.open(new ConcurrentHashMap<>());
+    StringBuilder accountId = new StringBuilder();
+    for (int i = 0; i <= Short.MAX_VALUE; i++) {
+      accountId.append('x');
+    }
+    try {
+      journal.append(AccountsJournal.CREATE, Collections.singletonList(new Account(accountId.toString(), BigDecimal.ONE)));
+      fail("Expected the account to be rejected");
+    } catch (IllegalArgumentException expected) {
+      // nothing was appended
+    }
+    journal.append(AccountsJournal.CREATE, Collections.singletonList(new Account("Id-1", BigDecimal.ONE)));
+    journal.close();
+
+    Map<String, Account> recovered = new ConcurrentHashMap<>();
+    newJournal().open(recovered);
+
+    assertThat(recovered).containsOnlyKeys("Id-1");
+  }
+
+  private AccountsJournal newJournal() {
+    return new AccountsJournal(folder.getRoot().getAbsolutePath(), 1, TimeUnit.HOURS.toMillis(1));
+  }
+}
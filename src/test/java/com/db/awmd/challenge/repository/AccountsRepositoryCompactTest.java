@@ -0,0 +1,118 @@
+package com.db.awmd.challenge.repository;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.db.awmd.challenge.domain.Account;
+import com.db.awmd.challenge.exception.DuplicateAccountIdException;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class AccountsRepositoryCompactTest {
+
+  @Rule
+  public final TemporaryFolder folder = new TemporaryFolder();
+
+  private final AccountsRepositoryCompact repository = new AccountsRepositoryCompact(16, 8);
+
+  @Test
+  public void storesAccountsAcrossTableAndPageGrowth() {
+    List<Account> accounts = new ArrayList<>();
+    for (int i = 0; i < 70_000; i++) {
+      accounts.add(new Account("Id-" + i, BigDecimal.valueOf(i, 2)));
+    }
+    assertThat(repository.createAccounts(accounts)).isEmpty();
+
+    assertThat(repository.getAccount("Id-0").getBalance()).isEqualTo(new BigDecimal("0.00"));
+    assertThat(repository.getAccount("Id-69999").getBalance()).isEqualTo(new BigDecimal("699.99"));
+    assertThat(repository.getAccount("Id-70000")).isNull();
+    assertThat(repository.createAccounts(Collections.singletonList(new Account("Id-1", BigDecimal.ONE))))
+      .containsExactly("Id-1");
+  }
+
+  @Test(expected = IllegalStateException.class)
+  public void refusesTransferEnginesThatDoNotReloadViews() {
+    repository.setTransferEngine("atomic");
+    repository.checkConfiguration();
+  }
+
+  @Test(expected = DuplicateAccountIdException.class)
+  public void rejectsDuplicateIds() {
+    repository.createAccount(new Account("Id-1", BigDecimal.ONE));
+    repository.createAccount(new Account("Id-1", BigDecimal.TEN));
+  }
+
+  @Test
+  public void viewsShareTheStripeLockAndUpdatesAreStored() {
+    repository.createAccount(new Account("Id-1", new BigDecimal("10.50")));
+
+    Account first = repository.getAccount("Id-1");
+    Account second = repository.getAccount("Id-1");
+    assertThat(second).isNotSameAs(first);
+    assertThat(second.getReentrantLock()).isSameAs(first.getReentrantLock());
+
+    first.setBalance(new BigDecimal("3.25"));
+    repository.updateAccounts(Collections.singletonList(first));
+
+    assertThat(repository.reload(second).getBalance()).isEqualTo(new BigDecimal("3.25"));
+  }
+
+  @Test
+  public void listsAccountsInAccountIdOrder() {
+    for (String accountId : Arrays.asList("Id-3", "Id-10", "Id-1", "Id-2")) {
+      repository.createAccount(new Account(accountId, BigDecimal.ONE));
+    }
+    assertThat(repository.listAccounts(null, null, 10)).extracting(Account::getAccountId)
+      .containsExactly("Id-1", "Id-10", "Id-2", "Id-3");
+
+    repository.createAccount(new Account("Id-0", BigDecimal.ONE));
+    assertThat(repository.listAccounts("Id-0", "Id-3", 2)).extracting(Account::getAccountId)
+      .containsExactly("Id-1", "Id-10");
+  }
+
+  @Test
+  public void snapshotRestoresIntoAnEmptyRepository() throws IOException {
+    repository.createAccount(new Account("Id-1", new BigDecimal("1.10")));
+    repository.createAccount(new Account("Id-2", new BigDecimal("2.20")));
+    Path file = folder.getRoot().toPath().resolve("accounts.snapshot");
+    assertThat(repository.snapshot(file)).isEqualTo(2);
+
+    repository.clearAccounts();
+    assertThat(repository.getAccount("Id-1")).isNull();
+
+    assertThat(repository.restore(file)).isEqualTo(2);
+    assertThat(repository.getAccount("Id-2").getBalance()).isEqualTo(new BigDecimal("2.20"));
+    assertThat(repository.listAccounts(null, null, 10)).hasSize(2);
+  }
+
+  @Test
+  public void clearWaitsForTransfersHoldingAStripeAndDoesNotLetThemRecreateAccounts() throws Exception {
+    repository.createAccount(new Account("Id-1", new BigDecimal("10.00")));
+    Account view = repository.getAccount("Id-1");
+
+    view.getReentrantLock().lock();
+    Thread clear = new Thread(repository::clearAccounts);
+    try {
+      clear.start();
+      clear.join(200);
+      assertThat(clear.isAlive()).isTrue();
+      assertThat(repository.getAccount("Id-1")).isNotNull();
+    } finally {
+      view.getReentrantLock().unlock();
+    }
+    clear.join();
+
+    view.setBalance(new BigDecimal("5.00"));
+    repository.updateAccounts(Collections.singletonList(view));
+    assertThat(repository.getAccount("Id-1")).isNull();
+  }
+}
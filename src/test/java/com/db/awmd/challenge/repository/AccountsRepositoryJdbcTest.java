@@ -0,0 +1,100 @@
+package com.db.awmd.challenge.repository;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.db.awmd.challenge.domain.Account;
+import com.db.awmd.challenge.exception.DuplicateAccountIdException;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Map;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabase;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseBuilder;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseType;
+import org.springframework.transaction.support.TransactionTemplate;
+
+public class AccountsRepositoryJdbcTest {
+
+  private EmbeddedDatabase database;
+
+  private AccountsRepositoryJdbc accountsRepository;
+
+  @Before
+  public void setUp() {
+    database = new EmbeddedDatabaseBuilder()
+      .setType(EmbeddedDatabaseType.H2)
+      .generateUniqueName(true)
+      .addScript("schema.sql")
+      .build();
+    accountsRepository = new AccountsRepositoryJdbc(new JdbcTemplate(database),
+      new TransactionTemplate(new DataSourceTransactionManager(database)));
+  }
+
+  @After
+  public void tearDown() {
+    database.shutdown();
+  }
+
+  @Test
+  public void createAndGetAccountKeepsTheBalanceScale() {
+    accountsRepository.createAccount(new Account("Id-1", new BigDecimal("123.45")));
+
+    Account account = accountsRepository.getAccount("Id-1");
+    assertThat(account.getBalance()).isEqualTo(new BigDecimal("123.45"));
+    assertThat(account.getVersion()).isEqualTo(0);
+    assertThat(accountsRepository.getAccount("Id-2")).isNull();
+  }
+
+  @Test(expected = DuplicateAccountIdException.class)
+  public void createAccountFailsOnDuplicateId() {
+    accountsRepository.createAccount(new Account("Id-1", BigDecimal.ONE));
+    accountsRepository.createAccount(new Account("Id-1", BigDecimal.ONE));
+  }
+
+  @Test
+  public void updateAccountsWritesABatchAndBumpsVersions() {
+    accountsRepository.createAccount(new Account("Id-1", new BigDecimal("100")));
+    accountsRepository.createAccount(new Account("Id-2", new BigDecimal("10")));
+
+    Map<String, Account> accounts = accountsRepository.getAccounts(Arrays.asList("Id-1", "Id-2", "Id-3"));
+    assertThat(accounts).hasSize(2);
+    accounts.get("Id-1").setBalance(new BigDecimal("40"));
+    accounts.get("Id-2").setBalance(new BigDecimal("70"));
+    accountsRepository.updateAccounts(Arrays.asList(accounts.get("Id-1"), accounts.get("Id-2")));
+
+    assertThat(accountsRepository.getAccount("Id-1").getBalance()).isEqualByComparingTo("40");
+    assertThat(accountsRepository.getAccount("Id-2").getBalance()).isEqualByComparingTo("70");
+    assertThat(accountsRepository.getAccount("Id-2").getVersion()).isEqualTo(1);
+  }
+
+  @Test
+  public void staleUpdateFailsWithoutChangingAnything() {
+    accountsRepository.createAccount(new Account("Id-1", new BigDecimal("100")));
+    accountsRepository.createAccount(new Account("Id-2", new BigDecimal("10")));
+    Account staleAccount = accountsRepository.getAccount("Id-1");
+    Account otherAccount = accountsRepository.getAccount("Id-2");
+
+    Account freshAccount = accountsRepository.getAccount("Id-1");
+    freshAccount.setBalance(new BigDecimal("50"));
+    accountsRepository.updateAccounts(Collections.singletonList(freshAccount));
+
+    otherAccount.setBalance(new BigDecimal("0"));
+    staleAccount.setBalance(new BigDecimal("110"));
+    try {
+      accountsRepository.updateAccounts(Arrays.asList(otherAccount, staleAccount));
+    } catch (OptimisticLockingFailureException expected) {
+      assertThat(accountsRepository.getAccount("Id-1").getBalance()).isEqualByComparingTo("50");
+      assertThat(accountsRepository.getAccount("Id-2").getBalance()).isEqualByComparingTo("10");
+      return;
+    }
+    throw new AssertionError("Stale update should have failed");
+  }
+}
@@ -0,0 +1,143 @@
+package com.db.awmd.challenge.repository;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Matchers.anyListOf;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.db.awmd.challenge.domain.Account;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Test;
+import org.springframework.dao.OptimisticLockingFailureException;
+
+public class AccountsRepositoryWriteBehindCacheTest {
+
+  private final AccountsRepository delegate = mock(AccountsRepository.class);
+
+  private final AccountsRepositoryWriteBehindCache cache =
+    new AccountsRepositoryWriteBehindCache(delegate, 10_000, TimeUnit.HOURS.toMillis(1), 2, 3);
+
+  @After
+  public void tearDown() {
+    cache.close();
+  }
+
+  @Test
+  public void readsAreServedFromTheCacheAfterTheFirstMiss() {
+    when(delegate.getAccount("Id-1")).thenReturn(new Account("Id-1", BigDecimal.TEN));
+
+    Account first = cache.getAccount("Id-1");
+    Account second = cache.getAccount("Id-1");
+
+    assertThat(second).isSameAs(first);
+    verify(delegate, times(1)).getAccount("Id-1");
+    assertThat(cache.getStatistics().getHits()).isEqualTo(1);
+    assertThat(cache.getStatistics().getMisses()).isEqualTo(1);
+  }
+
+  @Test
+  public void updatesAreCoalescedAndFlushedInBatches() {
+    Account accountA = new Account("Id-1", BigDecimal.TEN);
+    Account accountB = new Account("Id-2", BigDecimal.TEN);
+    Account accountC = new Account("Id-3", BigDecimal.TEN);
+
+    cache.updateAccounts(Arrays.asList(accountA, accountB));
+    cache.updateAccounts(Arrays.asList(accountA, accountC));
+    cache.updateAccounts(Collections.singletonList(accountA));
+    verify(delegate, never()).updateAccounts(anyListOf(Account.class));
+    assertThat(cache.getStatistics().getDirty()).isEqualTo(3);
+
+    cache.flush();
+
+    verify(delegate, times(2)).updateAccounts(anyListOf(Account.class));
+    assertThat(cache.getStatistics().getFlushedAccounts()).isEqualTo(3);
+    assertThat(cache.getStatistics().getDirty()).isEqualTo(0);
+  }
+
+  @Test
+  public void dirtyAccountsAreEvictedButKeepTheirInstance() {
+    AccountsRepositoryWriteBehindCache small =
+      new AccountsRepositoryWriteBehindCache(delegate, 16, TimeUnit.HOURS.toMillis(1), 2, 3);
+    try {
+      Account[] accounts = new Account[100];
+      for (int i = 0; i < accounts.length; i++) {
+        accounts[i] = new Account("Id-" + i, BigDecimal.TEN);
+        small.updateAccounts(Collections.singletonList(accounts[i]));
+      }
+
+      assertThat(small.getStatistics().getSize()).isLessThan(accounts.length);
+      assertThat(small.getStatistics().getEvictions()).isGreaterThan(0);
+      assertThat(small.getStatistics().getDirty()).isEqualTo(accounts.length);
+      assertThat(small.getAccount("Id-0")).isSameAs(accounts[0]);
+      verify(delegate, never()).getAccount("Id-0");
+    } finally {
+      small.close();
+    }
+  }
+
+  @Test
+  public void failingWritesAreGivenUpAfterMaxAttempts() {
+    doThrow(new OptimisticLockingFailureException("Account Id-1 was modified concurrently"))
+      .when(delegate).updateAccounts(anyListOf(Account.class));
+    cache.updateAccounts(Collections.singletonList(new Account("Id-1", BigDecimal.TEN)));
+
+    cache.flush();
+    cache.flush();
+    assertThat(cache.getStatistics().getDirty()).isEqualTo(1);
+    cache.flush();
+    cache.flush();
+
+    verify(delegate, times(3)).updateAccounts(anyListOf(Account.class));
+    assertThat(cache.getStatistics().getDirty()).isEqualTo(0);
+    assertThat(cache.getStatistics().getDroppedWrites()).isEqualTo(1);
+  }
+
+  @Test
+  public void aFailingAccountDoesNotHoldBackTheRestOfItsBatch() {
+    Set<String> written = ConcurrentHashMap.newKeySet();
+    doAnswer(invocation -> {
+      List<?> accounts = (List<?>) invocation.getArguments()[0];
+      for (Object account : accounts) {
+        if (((Account) account).getAccountId().equals("Id-poisoned")) {
+          throw new OptimisticLockingFailureException("Account Id-poisoned was modified concurrently");
+        }
+      }
+      accounts.forEach(account -> written.add(((Account) account).getAccountId()));
+      return null;
+    }).when(delegate).updateAccounts(anyListOf(Account.class));
+    AccountsRepositoryWriteBehindCache batched =
+      new AccountsRepositoryWriteBehindCache(delegate, 10_000, TimeUnit.HOURS.toMillis(1), 8, 2);
+    try {
+      for (int i = 0; i < 7; i++) {
+        batched.updateAccounts(Collections.singletonList(new Account("Id-" + i, BigDecimal.TEN)));
+      }
+      batched.updateAccounts(Collections.singletonList(new Account("Id-poisoned", BigDecimal.TEN)));
+
+      batched.flush();
+
+      assertThat(written).containsOnly("Id-0", "Id-1", "Id-2", "Id-3", "Id-4", "Id-5", "Id-6");
+      assertThat(batched.getStatistics().getDirty()).isEqualTo(1);
+
+      batched.flush();
+
+      assertThat(batched.getStatistics().getDirty()).isEqualTo(0);
+      assertThat(batched.getStatistics().getDroppedWrites()).isEqualTo(1);
+    } finally {
+      batched.close();
+    }
+  }
+}
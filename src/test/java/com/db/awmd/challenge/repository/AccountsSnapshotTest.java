@@ -0,0 +1,63 @@
+package com.db.awmd.challenge.repository;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.db.awmd.challenge.domain.Account;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.math.BigDecimal;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class AccountsSnapshotTest {
+
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  @Test
+  public void roundTripsAccountsAcrossSegments() throws Exception {
+    List<Account> accounts = new ArrayList<>();
+    for (int i = 0; i < 150_000; i++) {
+      accounts.add(new Account("Id-" + i, BigDecimal.valueOf(i, 2)));
+    }
+    Path file = folder.newFile("accounts.snapshot").toPath();
+
+    assertThat(AccountsSnapshot.write(file, accounts)).isEqualTo(150_000);
+
+    Map<String, Account> restored = new ConcurrentHashMap<>();
+    assertThat(AccountsSnapshot.read(file, restored, ForkJoinPool.commonPool())).isEqualTo(150_000);
+    assertThat(restored).hasSize(150_000);
+    assertThat(restored.get("Id-12345").getBalance()).isEqualByComparingTo("123.45");
+  }
+
+  @Test(expected = IOException.class)
+  public void rejectsCorruptedSegments() throws Exception {
+    List<Account> accounts = new ArrayList<>();
+    accounts.add(new Account("Id-1", new BigDecimal("10.00")));
+    Path file = folder.newFile("accounts.snapshot").toPath();
+    AccountsSnapshot.write(file, accounts);
+
+    try (RandomAccessFile raw = new RandomAccessFile(file.toFile(), "rw")) {
+      raw.seek(12);
+      raw.write('X');
+    }
+
+    AccountsSnapshot.read(file, new ConcurrentHashMap<>(), ForkJoinPool.commonPool());
+  }
+
+  @Test(expected = IOException.class)
+  public void rejectsBalancesBeyondALongUnscaledValue() throws Exception {
+    Path file = folder.newFile("accounts.snapshot").toPath();
+    AccountsSnapshot.write(file, Collections.singletonList(new Account("Id-1", new BigDecimal("1e30").setScale(2))));
+  }
+}
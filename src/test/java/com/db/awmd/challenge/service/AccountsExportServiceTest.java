@@ -0,0 +1,63 @@
+package com.db.awmd.challenge.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.db.awmd.challenge.domain.Account;
+import com.db.awmd.challenge.domain.AccountPageDTO;
+import com.db.awmd.challenge.domain.ExportFormat;
+import com.db.awmd.challenge.repository.AccountsRepositoryInMemory;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public class AccountsExportServiceTest {
+
+    private AccountsExportService accountsExportService;
+
+    @Before
+    public void setUp() {
+        AccountsRepositoryInMemory accountsRepository = new AccountsRepositoryInMemory();
+        accountsRepository.createAccount(new Account("Id-3", new BigDecimal("30")));
+        accountsRepository.createAccount(new Account("Id-1", new BigDecimal("10.50")));
+        accountsRepository.createAccount(new Account("Id-2", new BigDecimal("20")));
+        accountsRepository.createAccount(new Account("Id,4", new BigDecimal("1E+2")));
+        accountsExportService = new AccountsExportService(accountsRepository, 2, 2);
+    }
+
+    @Test
+    public void listsAccountsPageByPage() {
+        AccountPageDTO first = accountsExportService.listAccounts(null, null, 10);
+        assertThat(first.getAccounts()).extracting(Account::getAccountId).containsExactly("Id,4", "Id-1");
+        assertThat(first.getNextCursor()).isEqualTo("Id-1");
+
+        AccountPageDTO second = accountsExportService.listAccounts(first.getNextCursor(), null, 10);
+        assertThat(second.getAccounts()).extracting(Account::getAccountId).containsExactly("Id-2", "Id-3");
+
+        AccountPageDTO last = accountsExportService.listAccounts(second.getNextCursor(), null, 10);
+        assertThat(last.getAccounts()).isEmpty();
+        assertThat(last.getNextCursor()).isNull();
+    }
+
+    @Test
+    public void exportsCsvAcrossPages() throws IOException {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        accountsExportService.export(ExportFormat.CSV, null, null, output);
+
+        assertThat(new String(output.toByteArray(), StandardCharsets.UTF_8)).isEqualTo(
+            "accountId,balance\n\"Id,4\",100\nId-1,10.50\nId-2,20\nId-3,30\n");
+    }
+
+    @Test
+    public void exportsJsonWithinRange() throws IOException {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        accountsExportService.export(ExportFormat.JSON, "Id,4", "Id-3", output);
+
+        assertThat(new String(output.toByteArray(), StandardCharsets.UTF_8)).isEqualTo(
+            "[{\"accountId\":\"Id-1\",\"balance\":10.50},{\"accountId\":\"Id-2\",\"balance\":20}]");
+    }
+}
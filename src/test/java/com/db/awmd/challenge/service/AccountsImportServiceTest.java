@@ -0,0 +1,101 @@
+package com.db.awmd.challenge.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.groups.Tuple.tuple;
+import static org.mockito.Mockito.mock;
+
+import com.db.awmd.challenge.domain.Account;
+import com.db.awmd.challenge.domain.ImportResultDTO;
+import com.db.awmd.challenge.repository.AccountsRepositoryInMemory;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+
+import javax.validation.Validation;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public class AccountsImportServiceTest {
+
+    private AccountsRepositoryInMemory accountsRepository;
+
+    private AccountsImportService accountsImportService;
+
+    @Before
+    public void setUp() {
+        accountsRepository = new AccountsRepositoryInMemory();
+        accountsImportService = new AccountsImportService(accountsRepository, mock(TransferEngine.class),
+            Validation.buildDefaultValidatorFactory().getValidator(), 2, 3, 64);
+    }
+
+    @Test
+    public void importsEveryLineInChunks() throws IOException {
+        ImportResultDTO result = importLines(
+            "{\"accountId\":\"Id-1\",\"balance\":100.50}",
+            "{\"accountId\":\"Id-2\",\"balance\":\"20\"}",
+            "",
+            "{\"balance\":0,\"accountId\":\"Id-3\",\"currency\":{\"code\":\"EUR\"}}");
+
+        assertThat(result.getLines()).isEqualTo(3);
+        assertThat(result.getImported()).isEqualTo(3);
+        assertThat(result.getErrors()).isEmpty();
+        assertThat(accountsRepository.getAccount("Id-1").getBalance()).isEqualByComparingTo("100.50");
+        assertThat(accountsRepository.getAccount("Id-3").getBalance()).isEqualByComparingTo("0");
+    }
+
+    @Test
+    public void reportsFailedLinesAndImportsTheOthers() throws IOException {
+        accountsRepository.createAccount(new Account("Id-taken", BigDecimal.ONE));
+
+        ImportResultDTO result = importLines(
+            "{\"accountId\":\"Id-1\",\"balance\":10}",
+            "{\"accountId\":\"Id-2\",\"balance\":-1}",
+            "{\"accountId\":\"Id-3\",",
+            "{\"accountId\":\"Id-taken\",\"balance\":10}",
+            "{\"accountId\":\"Id-4\",\"balance\":10}");
+
+        assertThat(result.getImported()).isEqualTo(2);
+        assertThat(result.getFailed()).isEqualTo(3);
+        assertThat(result.getErrors()).extracting("line").containsExactlyInAnyOrder(2L, 3L, 4L);
+        assertThat(accountsRepository.getAccount("Id-4")).isNotNull();
+        assertThat(accountsRepository.getAccount("Id-taken").getBalance()).isEqualByComparingTo("1");
+    }
+
+    @Test
+    public void reportsTheLineRepeatingAnIdWithinAChunk() throws IOException {
+        ImportResultDTO result = importLines(
+            "{\"accountId\":\"Id-1\",\"balance\":10}",
+            "{\"accountId\":\"Id-1\",\"balance\":20}");
+
+        assertThat(result.getImported()).isEqualTo(1);
+        assertThat(result.getErrors()).extracting("line", "message")
+            .containsExactly(tuple(2L, "Account id Id-1 already exists!"));
+        assertThat(accountsRepository.getAccount("Id-1").getBalance()).isEqualByComparingTo("10");
+    }
+
+    @Test
+    public void capsReportedErrorsAndLineLength() throws IOException {
+        StringBuilder longLine = new StringBuilder("{\"accountId\":\"");
+        for (int i = 0; i < 100; i++) {
+            longLine.append('x');
+        }
+        longLine.append("\",\"balance\":1}");
+
+        ImportResultDTO result = importLines(longLine.toString(), "[]", "42", "null", "{\"accountId\":\"Id-1\",\"balance\":1}");
+
+        assertThat(result.getFailed()).isEqualTo(4);
+        assertThat(result.getImported()).isEqualTo(1);
+        assertThat(result.getErrors()).extracting("line", "message").containsExactly(
+            tuple(1L, "Line is longer than 64 characters"),
+            tuple(2L, "Expected a JSON object"),
+            tuple(3L, "Expected a JSON object"));
+    }
+
+    private ImportResultDTO importLines(String... lines) throws IOException {
+        byte[] body = String.join("\n", lines).getBytes(StandardCharsets.UTF_8);
+        return accountsImportService.importAccounts(new ByteArrayInputStream(body));
+    }
+}
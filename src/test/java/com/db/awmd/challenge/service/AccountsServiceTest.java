@@ -2,11 +2,14 @@ package com.db.awmd.challenge.service;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
 import com.db.awmd.challenge.domain.Account;
 import com.db.awmd.challenge.domain.TransferMoneyDTO;
+import com.db.awmd.challenge.domain.TransferOutcome;
 import com.db.awmd.challenge.exception.AccountDoesntExistException;
+import com.db.awmd.challenge.exception.AccountLockTimeoutException;
 import com.db.awmd.challenge.exception.AccountNegativeBalanceException;
 import com.db.awmd.challenge.exception.AmountTransferGreaterThanZeroException;
 import com.db.awmd.challenge.exception.DuplicateAccountIdException;
@@ -14,9 +17,13 @@ import com.db.awmd.challenge.exception.SameAccountException;
 import com.db.awmd.challenge.service.AccountsService;
 
 import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 
 import org.junit.Test;
 import org.junit.runner.RunWith;
@@ -118,6 +125,62 @@ public class AccountsServiceTest {
         accountsService.transferMoneyBetweenAccounts(transferMoneyDTO);
     }
 
+    @Test
+    public void transfer_ReportsRejectionsAsOutcomes() {
+        Account accountFromTransfer = new Account("Id-329", new BigDecimal("50.00"));
+        Account accountToTransfer = new Account("Id-339", new BigDecimal("110.00"));
+        accountsService.createAccount(accountFromTransfer);
+        accountsService.createAccount(accountToTransfer);
+
+        assertThat(accountsService.transfer(new TransferMoneyDTO("Id-329", "Id-339", new BigDecimal("60"))))
+            .isEqualTo(TransferOutcome.INSUFFICIENT_FUNDS);
+        assertThat(accountsService.transfer(new TransferMoneyDTO("Id-329", "Id-unknown", new BigDecimal("10"))))
+            .isEqualTo(TransferOutcome.ACCOUNT_NOT_FOUND);
+        assertThat(accountsService.transfer(new TransferMoneyDTO("Id-329", "Id-329", new BigDecimal("10"))))
+            .isEqualTo(TransferOutcome.SAME_ACCOUNT);
+        assertThat(accountsService.transfer(new TransferMoneyDTO("Id-329", "Id-339", BigDecimal.ZERO)))
+            .isEqualTo(TransferOutcome.NON_POSITIVE_AMOUNT);
+        assertThat(accountsService.transfer(new TransferMoneyDTO("Id-329", "Id-339", new BigDecimal("50"))))
+            .isEqualTo(TransferOutcome.COMPLETED);
+        assertEquals(0, accountFromTransfer.getBalance().compareTo(BigDecimal.ZERO));
+    }
+
+    @Test
+    public void transferMoneyBetweenAccounts_RetryWithSameIdempotencyKeyTransfersOnce() throws Exception {
+        Account accountFromTransfer = new Account("Id-344", new BigDecimal("100.00"));
+        Account accountToTransfer = new Account("Id-345", new BigDecimal("110.00"));
+        accountsService.createAccount(accountFromTransfer);
+        accountsService.createAccount(accountToTransfer);
+        TransferMoneyDTO transferMoneyDTO = new TransferMoneyDTO(accountFromTransfer.getAccountId(), accountToTransfer.getAccountId(),
+            new BigDecimal("60"), "key-344");
+
+        accountsService.transferMoneyBetweenAccounts(transferMoneyDTO);
+        accountsService.transferMoneyBetweenAccounts(transferMoneyDTO);
+
+        assertEquals(0, accountFromTransfer.getBalance().compareTo(BigDecimal.valueOf(40)));
+        assertEquals(0, accountToTransfer.getBalance().compareTo(BigDecimal.valueOf(170)));
+    }
+
+    @Test
+    public void transferMoneyBetweenAccounts_RetryReplaysTheFirstFailure() throws Exception {
+        Account accountFromTransfer = new Account("Id-342", new BigDecimal("50.00"));
+        Account accountToTransfer = new Account("Id-343", new BigDecimal("110.00"));
+        accountsService.createAccount(accountFromTransfer);
+        accountsService.createAccount(accountToTransfer);
+        TransferMoneyDTO transferMoneyDTO = new TransferMoneyDTO(accountFromTransfer.getAccountId(), accountToTransfer.getAccountId(),
+            new BigDecimal("60"), "key-342");
+
+        for (int i = 0; i < 2; i++) {
+            try {
+                accountsService.transferMoneyBetweenAccounts(transferMoneyDTO);
+                fail("Should have failed for lack of funds");
+            } catch (AccountNegativeBalanceException ex) {
+                assertThat(ex.getMessage()).isEqualTo("Account doesn't have the balance to transfer");
+            }
+            accountFromTransfer.setBalance(new BigDecimal("100.00"));
+        }
+    }
+
     @Test
     public void transferMoneyBetweenAccounts_ConcurrentThreads() throws InterruptedException {
         Account accountFromTransfer = new Account("330", new BigDecimal("100.00"));
@@ -133,6 +196,47 @@ public class AccountsServiceTest {
         assertEquals(0, accountToTransfer.getBalance().compareTo(BigDecimal.valueOf(210)));
     }
 
+    @Test
+    public void transferMoneyBetweenAccounts_OpposingTransfersDoNotDeadlockOrLoseMoney() throws Exception {
+        Account accountA = new Account("Id-340", new BigDecimal("1000.00"));
+        Account accountB = new Account("Id-341", new BigDecimal("1000.00"));
+        accountsService.createAccount(accountA);
+        accountsService.createAccount(accountB);
+
+        TransferMoneyDTO fromAToB = new TransferMoneyDTO(accountA.getAccountId(), accountB.getAccountId(), new BigDecimal("1.50"));
+        TransferMoneyDTO fromBToA = new TransferMoneyDTO(accountB.getAccountId(), accountA.getAccountId(), new BigDecimal("1.50"));
+
+        int numberOfThreads = 16;
+        int transfersPerThread = 500;
+        ExecutorService service = Executors.newFixedThreadPool(numberOfThreads);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int i = 0; i < numberOfThreads; i++) {
+            TransferMoneyDTO transferMoneyDTO = i % 2 == 0 ? fromAToB : fromBToA;
+            futures.add(service.submit(() -> {
+                start.await();
+                for (int j = 0; j < transfersPerThread; j++) {
+                    try {
+                        accountsService.transferMoneyBetweenAccounts(transferMoneyDTO);
+                    } catch (AccountNegativeBalanceException | AccountLockTimeoutException e) {
+                        logger.debug(e.getMessage());
+                    }
+                }
+                return null;
+            }));
+        }
+        start.countDown();
+        service.shutdown();
+
+        assertTrue("Opposing transfers deadlocked", service.awaitTermination(60, TimeUnit.SECONDS));
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        assertEquals(0, accountA.getBalance().add(accountB.getBalance()).compareTo(new BigDecimal("2000.00")));
+        assertTrue(accountA.getBalance().signum() >= 0);
+        assertTrue(accountB.getBalance().signum() >= 0);
+    }
+
     private void callConcurrentThreads(TransferMoneyDTO transferMoneyDTO, int numberOfThreads) throws InterruptedException {
         ExecutorService service = Executors.newFixedThreadPool(20);
         CountDownLatch latch = new CountDownLatch(numberOfThreads);
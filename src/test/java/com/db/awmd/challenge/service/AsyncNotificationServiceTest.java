@@ -0,0 +1,91 @@
+package com.db.awmd.challenge.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+import com.db.awmd.challenge.domain.Account;
+import com.db.awmd.challenge.domain.NotificationStatistics;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.Test;
+
+public class AsyncNotificationServiceTest {
+
+    private final EmailNotificationService emailNotificationService = mock(EmailNotificationService.class);
+
+    @Test
+    public void notificationsForTheSameAccountAreCoalesced() {
+        // Workers are not started, so everything stays queued until stop() flushes it.
+        AsyncNotificationService notificationService = new AsyncNotificationService(emailNotificationService, 10, 1, 10);
+        Account account = new Account("Id-1");
+
+        notificationService.notifyAboutTransfer(account, "10");
+        notificationService.notifyAboutTransfer(account, "20");
+        notificationService.notifyAboutTransfer(account, "30");
+
+        NotificationStatistics statistics = notificationService.getStatistics();
+        assertThat(statistics.getSubmitted()).isEqualTo(3);
+        assertThat(statistics.getCoalesced()).isEqualTo(2);
+        assertThat(statistics.getQueued()).isEqualTo(1);
+
+        notificationService.stop();
+
+        verify(emailNotificationService).notifyAboutTransfer(account, "3 transfers: 10; 20; 30");
+        assertThat(notificationService.getStatistics().getDispatched()).isEqualTo(1);
+    }
+
+    @Test
+    public void notificationsAreDroppedWhenTheQueueIsFull() {
+        AsyncNotificationService notificationService = new AsyncNotificationService(emailNotificationService, 1, 1, 10);
+
+        notificationService.notifyAboutTransfer(new Account("Id-1"), "10");
+        notificationService.notifyAboutTransfer(new Account("Id-2"), "20");
+
+        assertThat(notificationService.getStatistics().getDropped()).isEqualTo(1);
+
+        notificationService.stop();
+
+        verify(emailNotificationService, times(1)).notifyAboutTransfer(any(Account.class), anyString());
+        verify(emailNotificationService).notifyAboutTransfer(any(Account.class), eq("10"));
+    }
+
+    @Test
+    public void everyTransferIsEitherDeliveredOrDropped() throws Exception {
+        AtomicLong delivered = new AtomicLong();
+        doAnswer(invocation -> {
+            String description = (String) invocation.getArguments()[1];
+            int transfers = description.indexOf(" transfers: ");
+            delivered.addAndGet(transfers < 0 ? 1 : Long.parseLong(description.substring(0, transfers)));
+            return null;
+        }).when(emailNotificationService).notifyAboutTransfer(any(Account.class), anyString());
+        AsyncNotificationService notificationService = new AsyncNotificationService(emailNotificationService, 4, 2, 2);
+        notificationService.start();
+
+        ExecutorService service = Executors.newFixedThreadPool(8);
+        for (int i = 0; i < 20_000; i++) {
+            Account account = new Account("Id-" + i % 16);
+            service.execute(() -> notificationService.notifyAboutTransfer(account, "10"));
+        }
+        service.shutdown();
+        assertThat(service.awaitTermination(30, TimeUnit.SECONDS)).isTrue();
+
+        long deadline = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(10);
+        while (delivered.get() + notificationService.getStatistics().getDropped() < 20_000
+                && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        notificationService.stop();
+
+        assertThat(delivered.get() + notificationService.getStatistics().getDropped()).isEqualTo(20_000);
+    }
+}
@@ -0,0 +1,106 @@
+package com.db.awmd.challenge.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+
+import com.db.awmd.challenge.domain.Account;
+import com.db.awmd.challenge.domain.BatchMode;
+import com.db.awmd.challenge.domain.TransferStatus;
+import com.db.awmd.challenge.exception.AccountNegativeBalanceException;
+import com.db.awmd.challenge.exception.InvalidAmountException;
+import com.db.awmd.challenge.repository.AccountsRepository;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public class AtomicTransferEngineTest {
+
+    private AtomicTransferEngine transferEngine;
+
+    @Before
+    public void setUp() {
+        transferEngine = new AtomicTransferEngine(mock(AccountsRepository.class), new TransferMetrics(true, 10),
+            new TransactionHistory(true, 16));
+    }
+
+    @Test
+    public void transferKeepsBigDecimalBalancesAtTheEdges() throws Exception {
+        Account accountFromTransfer = account("Id-1", "100.00");
+        Account accountToTransfer = account("Id-2", "110");
+
+        transferEngine.transfer(accountFromTransfer, accountToTransfer, new BigDecimal("60.5"));
+
+        assertThat(accountFromTransfer.getBalance()).isEqualByComparingTo("39.50");
+        assertThat(accountToTransfer.getBalance()).isEqualByComparingTo("170.50");
+    }
+
+    @Test(expected = AccountNegativeBalanceException.class)
+    public void transferFailsWithoutFunds() throws Exception {
+        transferEngine.transfer(account("Id-1", "50.00"), account("Id-2", "0"), new BigDecimal("50.01"));
+    }
+
+    @Test(expected = InvalidAmountException.class)
+    public void transferRejectsSubMinorUnitAmounts() throws Exception {
+        transferEngine.transfer(account("Id-1", "50.00"), account("Id-2", "0"), new BigDecimal("0.001"));
+    }
+
+    @Test
+    public void concurrentDebitsNeverOverdraw() throws Exception {
+        Account accountFromTransfer = account("Id-1", "100.00");
+        Account accountToTransfer = account("Id-2", "0");
+        ExecutorService service = Executors.newFixedThreadPool(8);
+        for (int i = 0; i < 1000; i++) {
+            service.execute(() -> {
+                try {
+                    transferEngine.transfer(accountFromTransfer, accountToTransfer, new BigDecimal("0.30"));
+                } catch (AccountNegativeBalanceException e) {
+                    // expected once the balance runs out
+                }
+            });
+        }
+        service.shutdown();
+        assertTrue(service.awaitTermination(30, TimeUnit.SECONDS));
+
+        assertThat(accountFromTransfer.getBalance()).isEqualByComparingTo("0.10");
+        assertThat(accountToTransfer.getBalance()).isEqualByComparingTo("99.90");
+    }
+
+    @Test
+    public void allOrNothingBatchAppliesEveryLegOrNone() {
+        Account first = account("Id-1", "10.00");
+        Account second = account("Id-2", "0");
+        Account third = account("Id-3", "0");
+
+        List<TransferLeg> applied = Arrays.asList(new TransferLeg(0, first, second, new BigDecimal("10.00")),
+            new TransferLeg(1, second, third, new BigDecimal("4.00")));
+        transferEngine.transferBatch(applied, BatchMode.ALL_OR_NOTHING);
+
+        assertThat(applied).extracting(TransferLeg::getStatus).containsOnly(TransferStatus.COMPLETED);
+        assertThat(first.getBalance()).isEqualByComparingTo("0");
+        assertThat(second.getBalance()).isEqualByComparingTo("6.00");
+        assertThat(third.getBalance()).isEqualByComparingTo("4.00");
+
+        List<TransferLeg> aborted = Arrays.asList(new TransferLeg(0, third, first, new BigDecimal("4.00")),
+            new TransferLeg(1, second, first, new BigDecimal("6.01")));
+        transferEngine.transferBatch(aborted, BatchMode.ALL_OR_NOTHING);
+
+        assertThat(aborted).extracting(TransferLeg::getStatus).containsExactly(TransferStatus.ABORTED, TransferStatus.FAILED);
+        assertThat(first.getBalance()).isEqualByComparingTo("0");
+        assertThat(second.getBalance()).isEqualByComparingTo("6.00");
+        assertThat(third.getBalance()).isEqualByComparingTo("4.00");
+    }
+
+    private Account account(String accountId, String balance) {
+        Account account = new Account(accountId, new BigDecimal(balance));
+        transferEngine.onAccountCreated(account);
+        return account;
+    }
+}
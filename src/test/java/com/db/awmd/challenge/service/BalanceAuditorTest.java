@@ -0,0 +1,155 @@
+package com.db.awmd.challenge.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.db.awmd.challenge.domain.Account;
+import com.db.awmd.challenge.domain.AuditResultDTO;
+import com.db.awmd.challenge.domain.SnapshotResultDTO;
+import com.db.awmd.challenge.exception.AccountLockTimeoutException;
+import com.db.awmd.challenge.exception.AccountNegativeBalanceException;
+import com.db.awmd.challenge.repository.AccountsRepositoryInMemory;
+import com.db.awmd.challenge.repository.AccountsRepositoryWriteBehindCache;
+
+import java.math.BigDecimal;
+import java.nio.file.Paths;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class BalanceAuditorTest {
+
+    private static final int ACCOUNTS = 16;
+
+    private AccountsRepositoryInMemory accountsRepository;
+
+    private LockingTransferEngine transferEngine;
+
+    private BalanceAuditor balanceAuditor;
+
+    private AccountsSnapshotService accountsSnapshotService;
+
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+
+    @Before
+    public void setUp() {
+        accountsRepository = new AccountsRepositoryInMemory();
+        TransferMetrics transferMetrics = new TransferMetrics(false, 0);
+        AuditEpochs auditEpochs = new AuditEpochs();
+        transferEngine = new LockingTransferEngine(accountsRepository, new AccountLockManager(5000, transferMetrics),
+            transferMetrics, auditEpochs, new TransactionHistory(true, 16), new String[0], 16);
+        balanceAuditor = new BalanceAuditor(accountsRepository, auditEpochs, transferEngine, 5);
+        accountsSnapshotService = new AccountsSnapshotService(accountsRepository, auditEpochs, transferEngine,
+            folder.getRoot().toPath().resolve("accounts.snapshot").toString(), false);
+        for (int i = 0; i < ACCOUNTS; i++) {
+            accountsRepository.createAccount(new Account("Id-" + i, new BigDecimal("100.00")));
+        }
+    }
+
+    @Test
+    public void lateTransferOfPreviousEpochIsPartOfTheAudit() {
+        Account account = new Account("Id-1", new BigDecimal("100"));
+
+        // A transfer of epoch 2 changes the account first, then one of epoch 1 that was still running.
+        AuditEpochs.beforeBalanceChange(account, 2, new BigDecimal("90"));
+        account.setBalance(new BigDecimal("90"));
+        AuditEpochs.beforeBalanceChange(account, 1, new BigDecimal("80"));
+        account.setBalance(new BigDecimal("80"));
+
+        assertThat(AuditEpochs.balanceAt(account, 2)).isEqualByComparingTo("90");
+        assertThat(AuditEpochs.balanceAt(account, 3)).isEqualByComparingTo("80");
+    }
+
+    @Test
+    public void auditsDuringTransfersSeeConservedTotal() throws Exception {
+        AtomicBoolean running = new AtomicBoolean(true);
+        ExecutorService executor = startTransfers(running);
+        try {
+            for (int i = 0; i < 200; i++) {
+                AuditResultDTO result = balanceAuditor.audit();
+                assertThat(result.getAccounts()).isEqualTo(ACCOUNTS);
+                assertThat(result.getTotalBalance()).isEqualByComparingTo("1600.00");
+                assertThat(result.isConsistent()).isTrue();
+            }
+        } finally {
+            running.set(false);
+            executor.shutdown();
+            executor.awaitTermination(10, TimeUnit.SECONDS);
+        }
+    }
+
+    @Test
+    public void snapshotsDuringTransfersSeeConservedTotal() throws Exception {
+        AtomicBoolean running = new AtomicBoolean(true);
+        ExecutorService executor = startTransfers(running);
+        try {
+            for (int i = 0; i < 50; i++) {
+                SnapshotResultDTO result = accountsSnapshotService.snapshot();
+                assertThat(result.getAccounts()).isEqualTo(ACCOUNTS);
+
+                AccountsRepositoryInMemory restored = new AccountsRepositoryInMemory();
+                restored.restore(Paths.get(result.getPath()));
+                BigDecimal total = BigDecimal.ZERO;
+                for (Account account : restored.listAccounts(null, null, ACCOUNTS)) {
+                    total = total.add(account.getBalance());
+                }
+                assertThat(total).isEqualByComparingTo("1600.00");
+            }
+        } finally {
+            running.set(false);
+            executor.shutdown();
+            executor.awaitTermination(10, TimeUnit.SECONDS);
+        }
+    }
+
+    @Test
+    public void auditsOverTheWriteBehindCacheAreNotConsistent() {
+        AccountsRepositoryWriteBehindCache cache =
+            new AccountsRepositoryWriteBehindCache(accountsRepository, 4, TimeUnit.HOURS.toMillis(1), 100, 3);
+        try {
+            AuditEpochs auditEpochs = new AuditEpochs();
+            TransferMetrics transferMetrics = new TransferMetrics(false, 0);
+            LockingTransferEngine cachedEngine = new LockingTransferEngine(cache,
+                new AccountLockManager(5000, transferMetrics), transferMetrics, auditEpochs,
+                new TransactionHistory(true, 16), new String[0], 16);
+            cachedEngine.transfer(cache.getAccount("Id-1"), cache.getAccount("Id-2"), new BigDecimal("10.00"));
+
+            AuditResultDTO result = new BalanceAuditor(cache, auditEpochs, cachedEngine, 5).audit();
+
+            assertThat(result.getAccounts()).isEqualTo(ACCOUNTS);
+            assertThat(result.getTotalBalance()).isEqualByComparingTo("1600.00");
+            assertThat(result.isConsistent()).isFalse();
+        } catch (AccountNegativeBalanceException exception) {
+            throw new AssertionError(exception);
+        } finally {
+            cache.close();
+        }
+    }
+
+    private ExecutorService startTransfers(AtomicBoolean running) {
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        for (int t = 0; t < 8; t++) {
+            executor.execute(() -> {
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                while (running.get()) {
+                    int from = random.nextInt(ACCOUNTS);
+                    int to = (from + 1 + random.nextInt(ACCOUNTS - 1)) % ACCOUNTS;
+                    try {
+                        transferEngine.transfer(accountsRepository.getAccount("Id-" + from),
+                            accountsRepository.getAccount("Id-" + to), BigDecimal.valueOf(random.nextInt(1, 3000), 2));
+                    } catch (AccountNegativeBalanceException | AccountLockTimeoutException exception) {
+                        // Expected now and then, the total is what matters.
+                    }
+                }
+            });
+        }
+        return executor;
+    }
+}
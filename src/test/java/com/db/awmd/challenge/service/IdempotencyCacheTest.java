@@ -0,0 +1,76 @@
+package com.db.awmd.challenge.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.db.awmd.challenge.domain.IdempotencyStatistics;
+import com.db.awmd.challenge.domain.TransferMoneyDTO;
+import com.db.awmd.challenge.exception.IdempotencyKeyReusedException;
+
+import java.math.BigDecimal;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.Test;
+
+public class IdempotencyCacheTest {
+
+    private final AtomicLong now = new AtomicLong();
+
+    private final IdempotencyCache idempotencyCache = new IdempotencyCache(1000, 32, now::get);
+
+    private final TransferMoneyDTO transfer = new TransferMoneyDTO("Id-1", "Id-2", new BigDecimal("10.00"));
+
+    @Test
+    public void returnsTheFirstOutcomeForAKnownKey() {
+        CompletableFuture<Object> first = new CompletableFuture<>();
+
+        assertThat(idempotencyCache.putIfAbsent("key", transfer, first)).isNull();
+        assertThat(idempotencyCache.putIfAbsent("key", new TransferMoneyDTO("Id-1", "Id-2", new BigDecimal("10")),
+            new CompletableFuture<>())).isSameAs(first);
+
+        IdempotencyStatistics statistics = idempotencyCache.getStatistics();
+        assertThat(statistics.getHits()).isEqualTo(1);
+        assertThat(statistics.getMisses()).isEqualTo(1);
+        assertThat(statistics.getHitRate()).isEqualTo(0.5);
+    }
+
+    @Test(expected = IdempotencyKeyReusedException.class)
+    public void rejectsAKeyReusedForAnotherTransfer() {
+        idempotencyCache.putIfAbsent("key", transfer, new CompletableFuture<>());
+        idempotencyCache.putIfAbsent("key", new TransferMoneyDTO("Id-1", "Id-3", new BigDecimal("10.00")),
+            new CompletableFuture<>());
+    }
+
+    @Test
+    public void forgetsKeysAfterTheirTimeToLive() {
+        idempotencyCache.putIfAbsent("key", transfer, new CompletableFuture<>());
+        now.addAndGet(TimeUnit.MILLISECONDS.toNanos(1000));
+
+        assertThat(idempotencyCache.putIfAbsent("key", transfer, new CompletableFuture<>())).isNull();
+        assertThat(idempotencyCache.getStatistics().getExpirations()).isEqualTo(1);
+    }
+
+    @Test
+    public void removesOnlyTheGivenOutcome() {
+        CompletableFuture<Object> first = new CompletableFuture<>();
+        idempotencyCache.putIfAbsent("key", transfer, first);
+
+        idempotencyCache.remove("key", new CompletableFuture<>());
+        assertThat(idempotencyCache.getStatistics().getSize()).isEqualTo(1);
+
+        idempotencyCache.remove("key", first);
+        assertThat(idempotencyCache.getStatistics().getSize()).isZero();
+    }
+
+    @Test
+    public void staysWithinItsMaximumSize() {
+        for (int i = 0; i < 1000; i++) {
+            idempotencyCache.putIfAbsent("key-" + i, transfer, new CompletableFuture<>());
+        }
+
+        IdempotencyStatistics statistics = idempotencyCache.getStatistics();
+        assertThat(statistics.getSize()).isLessThanOrEqualTo(32);
+        assertThat(statistics.getEvictions()).isEqualTo(1000 - statistics.getSize());
+    }
+}
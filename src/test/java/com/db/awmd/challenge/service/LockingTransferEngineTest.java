@@ -0,0 +1,112 @@
+package com.db.awmd.challenge.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.Assert.assertTrue;
+
+import com.db.awmd.challenge.domain.Account;
+import com.db.awmd.challenge.domain.BatchMode;
+import com.db.awmd.challenge.domain.TransferOutcome;
+import com.db.awmd.challenge.domain.TransferStatus;
+import com.db.awmd.challenge.repository.AccountsRepositoryCompact;
+import com.db.awmd.challenge.repository.AccountsRepositoryInMemory;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public class LockingTransferEngineTest {
+
+    private LockingTransferEngine transferEngine;
+
+    @Before
+    public void setUp() {
+        TransferMetrics transferMetrics = new TransferMetrics(true, 10);
+        transferEngine = new LockingTransferEngine(new AccountsRepositoryInMemory(),
+            new AccountLockManager(5000, transferMetrics), transferMetrics, new AuditEpochs(),
+            new TransactionHistory(true, 16), new String[] {"Id-hot"}, 4);
+    }
+
+    @Test
+    public void stripedAccountReceivesConcurrentCreditsAndNeverOverdraws() throws Exception {
+        Account hot = account("Id-hot", "0");
+        Account[] sources = new Account[8];
+        for (int i = 0; i < sources.length; i++) {
+            sources[i] = account("Id-" + i, "100.00");
+        }
+        Account sink = account("Id-sink", "0");
+
+        ExecutorService service = Executors.newFixedThreadPool(8);
+        for (int i = 0; i < 8000; i++) {
+            Account source = sources[i % sources.length];
+            service.execute(() -> transferEngine.tryTransfer(source, hot, new BigDecimal("0.10")));
+            service.execute(() -> transferEngine.tryTransfer(hot, sink, new BigDecimal("0.25")));
+        }
+        service.shutdown();
+        assertTrue(service.awaitTermination(30, TimeUnit.SECONDS));
+
+        assertThat(hot.getBalance().signum()).isGreaterThanOrEqualTo(0);
+        assertThat(hot.getBalance().add(sink.getBalance())).isEqualByComparingTo("800.00");
+        for (Account source : sources) {
+            assertThat(source.getBalance()).isEqualByComparingTo("0.00");
+        }
+    }
+
+    @Test
+    public void stripedAccountRejectsDebitsAboveItsTotal() {
+        Account hot = account("Id-hot", "10.00");
+        Account other = account("Id-other", "0");
+
+        assertThat(transferEngine.tryTransfer(hot, other, new BigDecimal("10.01")))
+            .isEqualTo(TransferOutcome.INSUFFICIENT_FUNDS);
+        assertThat(transferEngine.tryTransfer(hot, other, new BigDecimal("10.00")))
+            .isEqualTo(TransferOutcome.COMPLETED);
+        assertThat(hot.getBalance()).isEqualByComparingTo("0");
+        assertThat(transferEngine.supportsAudit()).isFalse();
+    }
+
+    @Test
+    public void batchAppliesNetChangeToStripedAccount() {
+        Account hot = account("Id-hot", "5.00");
+        Account other = account("Id-other", "20.00");
+
+        transferEngine.transferBatch(Arrays.asList(
+            new TransferLeg(0, other, hot, new BigDecimal("7.00")),
+            new TransferLeg(1, hot, other, new BigDecimal("11.00"))), BatchMode.ALL_OR_NOTHING);
+
+        assertThat(hot.getBalance()).isEqualByComparingTo("1.00");
+        assertThat(other.getBalance()).isEqualByComparingTo("24.00");
+    }
+
+    @Test
+    public void batchFailsOnlyTheLegsMovingSubMinorUnitAmountsThroughStripedAccounts() {
+        Account hot = account("Id-hot", "5.00");
+        Account other = account("Id-other", "20.00");
+        TransferLeg fractional = new TransferLeg(0, other, hot, new BigDecimal("1.005"));
+        TransferLeg whole = new TransferLeg(1, other, hot, new BigDecimal("2.00"));
+
+        transferEngine.transferBatch(Arrays.asList(fractional, whole), BatchMode.BEST_EFFORT);
+
+        assertThat(fractional.getStatus()).isEqualTo(TransferStatus.FAILED);
+        assertThat(whole.getStatus()).isEqualTo(TransferStatus.COMPLETED);
+        assertThat(hot.getBalance()).isEqualByComparingTo("7.00");
+        assertThat(other.getBalance()).isEqualByComparingTo("18.00");
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void refusesStripedAccountsWithRepositoriesHandingOutViews() {
+        TransferMetrics transferMetrics = new TransferMetrics(true, 10);
+        new LockingTransferEngine(new AccountsRepositoryCompact(16, 8), new AccountLockManager(5000, transferMetrics),
+            transferMetrics, new AuditEpochs(), new TransactionHistory(true, 16), new String[] {"Id-hot"}, 4);
+    }
+
+    private Account account(String accountId, String balance) {
+        Account account = new Account(accountId, new BigDecimal(balance));
+        transferEngine.onAccountCreated(account);
+        return account;
+    }
+}
@@ -0,0 +1,118 @@
+package com.db.awmd.challenge.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyCollectionOf;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.db.awmd.challenge.domain.ScheduledTransferDTO;
+import com.db.awmd.challenge.domain.ScheduledTransferRequestDTO;
+import com.db.awmd.challenge.domain.ScheduledTransferStatus;
+import com.db.awmd.challenge.domain.TransferMoneyDTO;
+import com.db.awmd.challenge.domain.TransferOutcome;
+import com.db.awmd.challenge.exception.AccountLockTimeoutException;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public class ScheduledTransferServiceTest {
+
+    private final AccountsService accountsService = mock(AccountsService.class);
+
+    private ScheduledTransferService scheduledTransferService;
+
+    @Before
+    public void setUp() {
+        scheduledTransferService = new ScheduledTransferService(accountsService, 100, 0, 1000, 2, 1000, 1000, 4, 2);
+    }
+
+    @Test
+    public void executesDueTransfersEachOnItsOwn() {
+        long now = System.currentTimeMillis();
+        when(accountsService.transferDeferred(any(TransferMoneyDTO.class), anyCollectionOf(Runnable.class)))
+            .thenReturn(TransferOutcome.COMPLETED, TransferOutcome.INSUFFICIENT_FUNDS);
+        ScheduledTransferDTO first = scheduledTransferService.schedule(request(now + 1000));
+        ScheduledTransferDTO second = scheduledTransferService.schedule(request(now + 2000));
+        ScheduledTransferDTO later = scheduledTransferService.schedule(request(now + 60_000));
+
+        assertThat(scheduledTransferService.executeDue(now + 500)).isZero();
+        assertThat(scheduledTransferService.executeDue(now + 2100)).isEqualTo(2);
+
+        verify(accountsService, times(2)).transferDeferred(any(TransferMoneyDTO.class), anyCollectionOf(Runnable.class));
+        verify(accountsService).awaitDurable();
+        assertThat(scheduledTransferService.get(first.getId()).getStatus()).isEqualTo(ScheduledTransferStatus.COMPLETED);
+        assertThat(scheduledTransferService.get(second.getId()).getStatus()).isEqualTo(ScheduledTransferStatus.FAILED);
+        assertThat(scheduledTransferService.get(later.getId()).getStatus()).isEqualTo(ScheduledTransferStatus.PENDING);
+        assertThat(scheduledTransferService.getPendingCount()).isEqualTo(1);
+    }
+
+    @Test
+    public void reschedulesTransfersFailingOnLockTimeouts() {
+        long now = System.currentTimeMillis();
+        when(accountsService.transferDeferred(any(TransferMoneyDTO.class), anyCollectionOf(Runnable.class)))
+            .thenThrow(new AccountLockTimeoutException("Account Id-1 is busy, please retry"))
+            .thenReturn(TransferOutcome.COMPLETED);
+        ScheduledTransferDTO transfer = scheduledTransferService.schedule(request(now + 1000));
+
+        assertThat(scheduledTransferService.executeDue(now + 1100)).isEqualTo(1);
+        assertThat(scheduledTransferService.get(transfer.getId()).getStatus()).isEqualTo(ScheduledTransferStatus.PENDING);
+        assertThat(scheduledTransferService.executeDue(now + 2200)).isEqualTo(1);
+
+        assertThat(scheduledTransferService.get(transfer.getId()).getStatus()).isEqualTo(ScheduledTransferStatus.COMPLETED);
+    }
+
+    @Test
+    public void waitsForDurabilityOncePerGroupBeforeReportingTransfersCompleted() {
+        long now = System.currentTimeMillis();
+        List<String> notifications = Collections.synchronizedList(new ArrayList<>());
+        doAnswer(invocation -> {
+            Collection<Runnable> completions = (Collection<Runnable>) invocation.getArguments()[1];
+            completions.add(() -> notifications.add("notified"));
+            return TransferOutcome.COMPLETED;
+        }).when(accountsService).transferDeferred(any(TransferMoneyDTO.class), anyCollectionOf(Runnable.class));
+        doAnswer(invocation -> {
+            assertThat(notifications).isEmpty();
+            throw new IllegalStateException("Accounts journal cannot be written to disk");
+        }).doNothing().when(accountsService).awaitDurable();
+        List<ScheduledTransferDTO> transfers = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            transfers.add(scheduledTransferService.schedule(request(now + 1000)));
+        }
+
+        assertThat(scheduledTransferService.executeDue(now + 1100)).isEqualTo(4);
+
+        verify(accountsService, times(2)).awaitDurable();
+        assertThat(transfers).extracting(transfer -> scheduledTransferService.get(transfer.getId()).getStatus())
+            .containsOnly(ScheduledTransferStatus.FAILED, ScheduledTransferStatus.COMPLETED)
+            .contains(ScheduledTransferStatus.FAILED, ScheduledTransferStatus.COMPLETED);
+        assertThat(notifications).hasSize(2);
+    }
+
+    @Test
+    public void cancelledTransfersAreNotExecuted() {
+        long now = System.currentTimeMillis();
+        ScheduledTransferDTO transfer = scheduledTransferService.schedule(request(now + 1000));
+
+        assertThat(scheduledTransferService.cancel(transfer.getId())).isTrue();
+        assertThat(scheduledTransferService.cancel(transfer.getId())).isFalse();
+        assertThat(scheduledTransferService.executeDue(now + 5000)).isZero();
+
+        assertThat(scheduledTransferService.get(transfer.getId()).getStatus()).isEqualTo(ScheduledTransferStatus.CANCELLED);
+        verify(accountsService, never()).transferDeferred(any(TransferMoneyDTO.class), anyCollectionOf(Runnable.class));
+    }
+
+    private static ScheduledTransferRequestDTO request(long executeAt) {
+        return new ScheduledTransferRequestDTO("Id-1", "Id-2", new BigDecimal("10"), executeAt);
+    }
+}
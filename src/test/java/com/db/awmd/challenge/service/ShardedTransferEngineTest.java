@@ -0,0 +1,166 @@
+package com.db.awmd.challenge.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+
+import com.db.awmd.challenge.domain.Account;
+import com.db.awmd.challenge.domain.BatchMode;
+import com.db.awmd.challenge.domain.TransferStatus;
+import com.db.awmd.challenge.exception.AccountNegativeBalanceException;
+import com.db.awmd.challenge.repository.AccountsRepository;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.dao.OptimisticLockingFailureException;
+
+public class ShardedTransferEngineTest {
+
+    private ShardedTransferEngine transferEngine;
+
+    @Before
+    public void setUp() {
+        transferEngine = new ShardedTransferEngine(mock(AccountsRepository.class), new TransferMetrics(true, 10),
+            new TransactionHistory(true, 16), 4, 16, 5000, 5000);
+        transferEngine.start();
+    }
+
+    @After
+    public void tearDown() {
+        transferEngine.stop();
+    }
+
+    @Test
+    public void transferMovesMoney() throws Exception {
+        Account accountFromTransfer = new Account("Id-1", new BigDecimal("100.00"));
+        Account accountToTransfer = new Account("Id-2", new BigDecimal("110.00"));
+
+        transferEngine.transfer(accountFromTransfer, accountToTransfer, new BigDecimal("60"));
+
+        assertThat(accountFromTransfer.getBalance()).isEqualByComparingTo("40");
+        assertThat(accountToTransfer.getBalance()).isEqualByComparingTo("170");
+    }
+
+    @Test
+    public void allOrNothingBatchAppliesEveryLegOrNone() {
+        Account first = new Account("Id-1", new BigDecimal("10.00"));
+        Account second = new Account("Id-2", BigDecimal.ZERO);
+        Account third = new Account("Id-3", BigDecimal.ZERO);
+
+        List<TransferLeg> applied = Arrays.asList(new TransferLeg(0, first, second, new BigDecimal("10.00")),
+            new TransferLeg(1, second, third, new BigDecimal("4.00")));
+        transferEngine.transferBatch(applied, BatchMode.ALL_OR_NOTHING);
+
+        assertThat(applied).extracting(TransferLeg::getStatus).containsOnly(TransferStatus.COMPLETED);
+        assertThat(first.getBalance()).isEqualByComparingTo("0");
+        assertThat(second.getBalance()).isEqualByComparingTo("6.00");
+        assertThat(third.getBalance()).isEqualByComparingTo("4.00");
+
+        List<TransferLeg> aborted = Arrays.asList(new TransferLeg(0, third, first, new BigDecimal("4.00")),
+            new TransferLeg(1, second, first, new BigDecimal("6.01")));
+        transferEngine.transferBatch(aborted, BatchMode.ALL_OR_NOTHING);
+
+        assertThat(aborted).extracting(TransferLeg::getStatus).containsExactly(TransferStatus.ABORTED, TransferStatus.FAILED);
+        assertThat(first.getBalance()).isEqualByComparingTo("0");
+        assertThat(third.getBalance()).isEqualByComparingTo("4.00");
+    }
+
+    @Test
+    public void allOrNothingBatchTouchesMoreAccountsThanAShardHasPermits() {
+        // 4 shards with 16 permits each, so some shard holds far more than 16 of these accounts.
+        Account origin = new Account("Id-origin", new BigDecimal("1000.00"));
+        List<Account> destinations = new ArrayList<>();
+        List<TransferLeg> legs = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            Account destination = new Account("Id-" + i, BigDecimal.ZERO);
+            destinations.add(destination);
+            legs.add(new TransferLeg(i, origin, destination, new BigDecimal("5.00")));
+        }
+
+        transferEngine.transferBatch(legs, BatchMode.ALL_OR_NOTHING);
+
+        assertThat(legs).extracting(TransferLeg::getStatus).containsOnly(TransferStatus.COMPLETED);
+        assertThat(origin.getBalance()).isEqualByComparingTo("0");
+        for (Account destination : destinations) {
+            assertThat(destination.getBalance()).isEqualByComparingTo("5");
+        }
+    }
+
+    @Test
+    public void failedCreditRefundsTheOrigin() throws Exception {
+        AccountsRepository accountsRepository = mock(AccountsRepository.class);
+        doAnswer(invocation -> {
+            List<?> accounts = (List<?>) invocation.getArguments()[0];
+            if (((Account) accounts.get(0)).getAccountId().equals("Id-2")) {
+                throw new OptimisticLockingFailureException("Account Id-2 was modified concurrently");
+            }
+            return null;
+        }).when(accountsRepository).updateAccounts(any());
+        ShardedTransferEngine failingEngine = new ShardedTransferEngine(accountsRepository, new TransferMetrics(true, 10),
+            new TransactionHistory(true, 16), 4, 16, 5000, 5000);
+        failingEngine.start();
+        Account accountFromTransfer = new Account("Id-1", new BigDecimal("100.00"));
+        Account accountToTransfer = new Account("Id-2", new BigDecimal("110.00"));
+        try {
+            failingEngine.transfer(accountFromTransfer, accountToTransfer, new BigDecimal("60"));
+            fail("The credit should have failed");
+        } catch (OptimisticLockingFailureException expected) {
+            // refunded, so the transfer may be retried
+        } finally {
+            failingEngine.stop();
+        }
+
+        assertThat(accountFromTransfer.getBalance()).isEqualByComparingTo("100");
+        assertThat(accountToTransfer.getBalance()).isEqualByComparingTo("110");
+    }
+
+    @Test(expected = AccountNegativeBalanceException.class)
+    public void transferFailsWithoutFunds() throws Exception {
+        transferEngine.transfer(new Account("Id-1", new BigDecimal("50")), new Account("Id-2"), new BigDecimal("60"));
+    }
+
+    @Test
+    public void opposingTransfersAcrossShardsConserveMoney() throws Exception {
+        Account[] accounts = new Account[8];
+        for (int i = 0; i < accounts.length; i++) {
+            accounts[i] = new Account("Id-" + i, new BigDecimal("100.00"));
+        }
+
+        ExecutorService service = Executors.newFixedThreadPool(16);
+        for (int i = 0; i < 4000; i++) {
+            Account accountFromTransfer = accounts[i % accounts.length];
+            Account accountToTransfer = accounts[(i * 3 + 1) % accounts.length];
+            if (accountFromTransfer == accountToTransfer) {
+                continue;
+            }
+            service.execute(() -> {
+                try {
+                    transferEngine.transfer(accountFromTransfer, accountToTransfer, new BigDecimal("7.25"));
+                } catch (AccountNegativeBalanceException e) {
+                    // expected when an account runs dry
+                }
+            });
+        }
+        service.shutdown();
+        assertTrue(service.awaitTermination(30, TimeUnit.SECONDS));
+
+        BigDecimal total = BigDecimal.ZERO;
+        for (Account account : accounts) {
+            assertThat(account.getBalance().signum()).isGreaterThanOrEqualTo(0);
+            total = total.add(account.getBalance());
+        }
+        assertThat(total).isEqualByComparingTo("800.00");
+    }
+}
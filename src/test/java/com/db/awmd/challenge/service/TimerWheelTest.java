@@ -0,0 +1,46 @@
+package com.db.awmd.challenge.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+public class TimerWheelTest {
+
+    @Test
+    public void expiresTimeoutsOfEveryLevelAtTheirTick() {
+        long start = 1_000_003;
+        long[] delays = {0, 1, 255, 256, 257, 65_535, 65_536, 70_000, (1L << 24) + 5};
+        TimerWheel<Long> wheel = new TimerWheel<>(start);
+        for (long delay : delays) {
+            wheel.add(start + delay, delay);
+        }
+        assertThat(wheel.size()).isEqualTo(delays.length);
+
+        List<Long> expired = new ArrayList<>();
+        for (long tick = start + 1; tick <= start + delays[delays.length - 1]; tick++) {
+            wheel.advance(tick, expired);
+            for (Long delay : expired) {
+                assertThat(tick).isEqualTo(start + Math.max(delay, 1));
+            }
+            expired.clear();
+        }
+        assertThat(wheel.size()).isZero();
+    }
+
+    @Test
+    public void cancelledTimeoutsNeverExpire() {
+        TimerWheel<String> wheel = new TimerWheel<>(0);
+        TimerWheel.Timeout<String> cancelled = wheel.add(300, "cancelled");
+        wheel.add(300, "kept");
+
+        assertThat(wheel.cancel(cancelled)).isTrue();
+        assertThat(wheel.cancel(cancelled)).isFalse();
+        List<String> expired = new ArrayList<>();
+        wheel.advance(1000, expired);
+
+        assertThat(expired).containsExactly("kept");
+    }
+}
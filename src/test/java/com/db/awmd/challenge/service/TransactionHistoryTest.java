@@ -0,0 +1,69 @@
+package com.db.awmd.challenge.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.db.awmd.challenge.domain.TransactionDTO;
+import com.db.awmd.challenge.domain.TransactionPageDTO;
+
+import java.math.BigDecimal;
+
+import org.junit.Test;
+
+public class TransactionHistoryTest {
+
+    private final TransactionHistory transactionHistory = new TransactionHistory(true, 4);
+
+    @Test
+    public void recordsBothSidesOfTransfer() {
+        transactionHistory.record("Id-1", "Id-2", new BigDecimal("10.5"), new BigDecimal("89.50"), new BigDecimal("10.5"));
+
+        TransactionDTO debit = transactionHistory.getTransactions("Id-1", null, 10).getTransactions().get(0);
+        assertThat(debit.getSequence()).isEqualTo(0);
+        assertThat(debit.getCounterpartyId()).isEqualTo("Id-2");
+        assertThat(debit.getAmount()).isEqualByComparingTo("-10.5");
+        assertThat(debit.getBalance()).isEqualTo(new BigDecimal("89.50"));
+        assertThat(debit.getTimestamp()).isPositive();
+
+        TransactionDTO credit = transactionHistory.getTransactions("Id-2", null, 10).getTransactions().get(0);
+        assertThat(credit.getCounterpartyId()).isEqualTo("Id-1");
+        assertThat(credit.getAmount()).isEqualByComparingTo("10.5");
+    }
+
+    @Test
+    public void keepsOnlyTheMostRecentEntriesAndPagesThroughThem() {
+        for (int i = 1; i <= 6; i++) {
+            transactionHistory.recordMinorUnits("Id-1", "Id-" + (i + 1), i * 100, 10_000 - i * 100, i * 100);
+        }
+
+        TransactionPageDTO first = transactionHistory.getTransactions("Id-1", null, 3);
+        assertThat(first.getTransactions()).extracting(TransactionDTO::getSequence).containsExactly(5L, 4L, 3L);
+        assertThat(first.getTransactions().get(0).getAmount()).isEqualTo(new BigDecimal("-6.00"));
+        assertThat(first.getTransactions().get(0).getCounterpartyId()).isEqualTo("Id-7");
+        assertThat(first.getNextCursor()).isEqualTo(3L);
+
+        TransactionPageDTO last = transactionHistory.getTransactions("Id-1", first.getNextCursor(), 3);
+        assertThat(last.getTransactions()).extracting(TransactionDTO::getSequence).containsExactly(2L);
+        assertThat(last.getTransactions().get(0).getBalance()).isEqualTo(new BigDecimal("97.00"));
+        assertThat(last.getNextCursor()).isNull();
+    }
+
+    @Test
+    public void keepsScalesOfBigDecimalValues() {
+        transactionHistory.record("Id-1", "Id-2", new BigDecimal("1E+3"), new BigDecimal("-0.000000123456789"),
+            new BigDecimal("123456789012345678901"));
+
+        TransactionDTO debit = transactionHistory.getTransactions("Id-1", null, 10).getTransactions().get(0);
+        assertThat(debit.getAmount()).isEqualTo(new BigDecimal("-1E+3"));
+        assertThat(debit.getBalance()).isEqualTo(new BigDecimal("-0.000000123456789"));
+        TransactionDTO credit = transactionHistory.getTransactions("Id-2", null, 10).getTransactions().get(0);
+        assertThat(credit.getBalance()).isEqualByComparingTo("123456789012345679000");
+    }
+
+    @Test
+    public void unknownAccountHasNoHistory() {
+        TransactionPageDTO page = transactionHistory.getTransactions("Id-1", null, 10);
+
+        assertThat(page.getTransactions()).isEmpty();
+        assertThat(page.getNextCursor()).isNull();
+    }
+}
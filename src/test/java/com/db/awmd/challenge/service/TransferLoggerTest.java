@@ -0,0 +1,76 @@
+package com.db.awmd.challenge.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.read.ListAppender;
+import com.db.awmd.challenge.domain.Account;
+import com.db.awmd.challenge.domain.TransferMoneyDTO;
+import com.db.awmd.challenge.exception.AccountNegativeBalanceException;
+
+import java.math.BigDecimal;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.slf4j.LoggerFactory;
+
+public class TransferLoggerTest {
+
+    private final Logger logger = (Logger) LoggerFactory.getLogger(TransferLogger.LOGGER_NAME);
+
+    private final ListAppender<ILoggingEvent> appender = new ListAppender<>();
+
+    private final TransferMoneyDTO transfer = new TransferMoneyDTO("Id-1", "Id-2", new BigDecimal("10"));
+
+    private final Account accountFrom = new Account("Id-1", new BigDecimal("90"));
+
+    private final Account accountTo = new Account("Id-2", new BigDecimal("110"));
+
+    @Before
+    public void setUp() {
+        appender.start();
+        logger.addAppender(appender);
+    }
+
+    @After
+    public void tearDown() {
+        logger.detachAppender(appender);
+    }
+
+    @Test
+    public void logsOneStructuredEventPerTransfer() {
+        new TransferLogger("structured", 1).completed(transfer, accountFrom, accountTo, System.nanoTime());
+
+        assertThat(appender.list).hasSize(1);
+        assertThat(appender.list.get(0).getFormattedMessage())
+            .startsWith("event=transfer outcome=COMPLETED from=Id-1 to=Id-2 amount=10 micros=");
+    }
+
+    @Test
+    public void verboseEventsIncludeBalances() {
+        new TransferLogger("verbose", 1).completed(transfer, accountFrom, accountTo, System.nanoTime());
+
+        assertThat(appender.list.get(0).getFormattedMessage()).contains("fromBalance=90 toBalance=110");
+    }
+
+    @Test
+    public void logsFailureReason() {
+        new TransferLogger("structured", 1).failed(transfer, new AccountNegativeBalanceException("no funds"),
+            System.nanoTime());
+
+        assertThat(appender.list.get(0).getFormattedMessage()).contains("outcome=FAILED", "reason=AccountNegativeBalanceException");
+    }
+
+    @Test
+    public void logsNothingWhenOffOrNotSampled() {
+        new TransferLogger("off", 1).completed(transfer, accountFrom, accountTo, System.nanoTime());
+        TransferLogger neverSampled = new TransferLogger("structured", 0);
+        for (int i = 0; i < 100; i++) {
+            neverSampled.completed(transfer, accountFrom, accountTo, System.nanoTime());
+        }
+
+        assertThat(appender.list).isEmpty();
+    }
+}
@@ -0,0 +1,93 @@
+package com.db.awmd.challenge.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.entry;
+import static org.assertj.core.groups.Tuple.tuple;
+
+import com.db.awmd.challenge.domain.LatencyStatistics;
+import com.db.awmd.challenge.domain.TransferMetricsStatistics;
+import com.db.awmd.challenge.domain.TransferOutcome;
+import com.db.awmd.challenge.exception.AccountNegativeBalanceException;
+
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+public class TransferMetricsTest {
+
+    private final TransferMetrics transferMetrics = new TransferMetrics(true, 2);
+
+    @Test
+    public void recordsPhaseLatencies() {
+        long now = System.nanoTime();
+        for (int i = 1; i <= 100; i++) {
+            transferMetrics.record(TransferPhase.LOCK_WAIT, now - TimeUnit.MICROSECONDS.toNanos(i * 10));
+        }
+
+        LatencyStatistics lockWait = transferMetrics.getStatistics().getPhases().get("LOCK_WAIT");
+        assertThat(lockWait.getCount()).isEqualTo(100);
+        assertThat(lockWait.getP50Micros()).isBetween(500L, 600L);
+        assertThat(lockWait.getMaxMicros()).isGreaterThanOrEqualTo(1000L);
+        assertThat(transferMetrics.getStatistics().getPhases().get("REPOSITORY").getCount()).isZero();
+    }
+
+    @Test
+    public void keepsCountsAcrossSnapshots() {
+        transferMetrics.record(TransferPhase.REPOSITORY, System.nanoTime());
+        transferMetrics.getStatistics();
+        transferMetrics.record(TransferPhase.REPOSITORY, System.nanoTime());
+
+        assertThat(transferMetrics.getStatistics().getPhases().get("REPOSITORY").getCount()).isEqualTo(2);
+    }
+
+    @Test
+    public void countsOutcomesByExceptionType() {
+        long start = System.nanoTime();
+        transferMetrics.recordSuccess(start);
+        transferMetrics.recordFailure(new AccountNegativeBalanceException("no funds"), start);
+        transferMetrics.recordFailure(new AccountNegativeBalanceException("no funds"), start);
+
+        TransferMetricsStatistics statistics = transferMetrics.getStatistics();
+        assertThat(statistics.getSucceeded()).isEqualTo(1);
+        assertThat(statistics.getFailures()).containsEntry("AccountNegativeBalanceException", 2L);
+        assertThat(statistics.getPhases().get("TRANSFER").getCount()).isEqualTo(3);
+    }
+
+    @Test
+    public void countsRejectionsByOutcome() {
+        long start = System.nanoTime();
+        transferMetrics.recordRejection(TransferOutcome.INSUFFICIENT_FUNDS, start);
+
+        TransferMetricsStatistics statistics = transferMetrics.getStatistics();
+        assertThat(statistics.getFailures()).containsOnly(entry("INSUFFICIENT_FUNDS", 1L));
+        assertThat(statistics.getPhases().get("TRANSFER").getCount()).isEqualTo(1);
+    }
+
+    @Test
+    public void reportsMostContendedAccountsFirst() {
+        for (int i = 0; i < 5; i++) {
+            transferMetrics.recordContention("Id-hot");
+        }
+        transferMetrics.recordContention("Id-warm");
+        transferMetrics.recordContention("Id-warm");
+        transferMetrics.recordContention("Id-cold");
+
+        assertThat(transferMetrics.getStatistics().getContendedAccounts())
+            .extracting("accountId", "contendedAcquisitions")
+            .containsExactly(tuple("Id-hot", 5L),
+                tuple("Id-warm", 2L));
+    }
+
+    @Test
+    public void recordsNothingWhenDisabled() {
+        TransferMetrics disabled = new TransferMetrics(false, 2);
+        disabled.record(TransferPhase.VALIDATION, System.nanoTime());
+        disabled.recordSuccess(System.nanoTime());
+        disabled.recordContention("Id-1");
+
+        TransferMetricsStatistics statistics = disabled.getStatistics();
+        assertThat(statistics.getSucceeded()).isZero();
+        assertThat(statistics.getPhases().get("VALIDATION").getCount()).isZero();
+        assertThat(statistics.getContendedAccounts()).isEmpty();
+    }
+}
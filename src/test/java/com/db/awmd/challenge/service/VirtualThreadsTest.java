@@ -0,0 +1,24 @@
+package com.db.awmd.challenge.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+public class VirtualThreadsTest {
+
+    @Test
+    public void createsVirtualThreadsOnlyWhenTheJdkSupportsThem() throws Exception {
+        ExecutorService executor = VirtualThreads.newThreadPerTaskExecutor("test-");
+
+        if (!VirtualThreads.isSupported()) {
+            assertThat(executor).isNull();
+            return;
+        }
+        String threadName = executor.submit(() -> Thread.currentThread().getName()).get(10, TimeUnit.SECONDS);
+        executor.shutdown();
+        assertThat(threadName).startsWith("test-");
+    }
+}
@@ -0,0 +1,77 @@
+package com.db.awmd.challenge.web;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import com.db.awmd.challenge.domain.TransferMoneyDTO;
+import com.db.awmd.challenge.domain.TransferOutcome;
+import com.db.awmd.challenge.service.AsyncAccountsService;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class BinaryTransferServerTest {
+
+    private final AsyncAccountsService asyncAccountsService = mock(AsyncAccountsService.class);
+
+    private BinaryTransferServer server;
+
+    @Before
+    public void setUp() throws IOException {
+        when(asyncAccountsService.transfer(any(TransferMoneyDTO.class))).thenAnswer(invocation -> {
+            TransferMoneyDTO transfer = (TransferMoneyDTO) invocation.getArguments()[0];
+            return CompletableFuture.completedFuture(transfer.getAmountToTransfer().compareTo(BigDecimal.TEN) > 0
+                ? TransferOutcome.INSUFFICIENT_FUNDS : TransferOutcome.COMPLETED);
+        });
+        server = new BinaryTransferServer(asyncAccountsService, "127.0.0.1", 0, 1 << 20);
+        server.start();
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        server.stop();
+    }
+
+    @Test
+    public void answersPipelinedRequestsByCorrelationId() throws IOException {
+        ByteBuffer requests = ByteBuffer.allocate(4096);
+        BinaryTransferProtocol.writeRequest(requests, 1, "Id-1", "Id-2", new BigDecimal("5.25"), null);
+        BinaryTransferProtocol.writeRequest(requests, 2, "Id-1", "Id-2", new BigDecimal("50"), "key-2");
+        // A frame with an empty origin account id.
+        requests.putInt(BinaryTransferProtocol.MIN_REQUEST_LENGTH - 1).putLong(3)
+            .put((byte) 0).put((byte) 1).put((byte) 'x').putLong(1).put((byte) 0).put((byte) 0);
+        requests.flip();
+
+        Map<Long, Byte> statuses = new HashMap<>();
+        try (SocketChannel channel = SocketChannel.open(new InetSocketAddress("127.0.0.1", server.getPort()))) {
+            while (requests.hasRemaining()) {
+                channel.write(requests);
+            }
+            ByteBuffer responses = ByteBuffer.allocate(3 * BinaryTransferProtocol.RESPONSE_LENGTH);
+            while (responses.hasRemaining() && channel.read(responses) >= 0) {
+                // keep reading
+            }
+            responses.flip();
+            while (responses.hasRemaining()) {
+                assertThat(responses.getInt()).isEqualTo(BinaryTransferProtocol.RESPONSE_LENGTH - 4);
+                statuses.put(responses.getLong(), responses.get());
+            }
+        }
+
+        assertThat(statuses).containsEntry(1L, BinaryTransferProtocol.COMPLETED)
+            .containsEntry(2L, BinaryTransferProtocol.INSUFFICIENT_FUNDS)
+            .containsEntry(3L, BinaryTransferProtocol.MALFORMED);
+    }
+}